@@ -0,0 +1,98 @@
+package org.sqlite.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** PreparedStatement.executeBatch() of inserts with a varying number of parameters per row. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchInsertBenchmark {
+    private static final int ROWS = 1_000;
+
+    @Param({"1", "4", "16"})
+    public int width;
+
+    private Connection conn;
+    private PreparedStatement insert;
+
+    @Setup
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        StringBuilder columns = new StringBuilder();
+        StringBuilder params = new StringBuilder();
+        for (int i = 0; i < width; i++) {
+            columns.append(i == 0 ? "" : ", ").append("c").append(i);
+            params.append(i == 0 ? "?" : ", ?");
+        }
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (" + columns + ")");
+        }
+        conn.setAutoCommit(false);
+        insert = conn.prepareStatement("insert into t values (" + params + ")");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        insert.close();
+        conn.close();
+    }
+
+    /** Rows of integers and doubles only, the allocation-free binding path. */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int[] numeric() throws SQLException {
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 1; col <= width; col++) {
+                if ((col & 1) == 0) {
+                    insert.setDouble(col, row * 0.5);
+                } else {
+                    insert.setLong(col, row);
+                }
+            }
+            insert.addBatch();
+        }
+        int[] changes = insert.executeBatch();
+        conn.rollback();
+        return changes;
+    }
+
+    /** Rows mixing integers and text. */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int[] mixed() throws SQLException {
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 1; col <= width; col++) {
+                if ((col & 1) == 0) {
+                    insert.setString(col, "value");
+                } else {
+                    insert.setInt(col, row);
+                }
+            }
+            insert.addBatch();
+        }
+        int[] changes = insert.executeBatch();
+        conn.rollback();
+        return changes;
+    }
+}
@@ -0,0 +1,26 @@
+package org.sqlite.bench;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/** Fixtures shared by the benchmarks. */
+final class BenchmarkDatabase {
+    private BenchmarkDatabase() {}
+
+    /**
+     * Creates the table <code>t (id integer primary key, i integer, d real, s text, b blob)</code>
+     * filled with the given number of rows.
+     */
+    static void createTable(Connection conn, int rows) throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate(
+                    "create table t (id integer primary key, i integer, d real, s text, b blob)");
+            stat.executeUpdate(
+                    "insert into t with recursive n(x) as (select 1 union all select x + 1 from n"
+                            + " where x < "
+                            + rows
+                            + ") select x, x * 7, x * 0.25, 'name-' || x, randomblob(16) from n");
+        }
+    }
+}
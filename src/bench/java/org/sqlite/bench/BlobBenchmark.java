@@ -0,0 +1,73 @@
+package org.sqlite.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Writing and reading a single blob value of varying size. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlobBenchmark {
+    @Param({"64", "4096", "1048576"})
+    public int size;
+
+    private Connection conn;
+    private PreparedStatement write;
+    private PreparedStatement read;
+    private byte[] data;
+
+    @Setup
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table blobs (id integer primary key, data blob)");
+            stat.executeUpdate("insert into blobs values (1, zeroblob(" + size + "))");
+        }
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+        write = conn.prepareStatement("update blobs set data = ? where id = 1");
+        read = conn.prepareStatement("select data from blobs where id = 1");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        write.close();
+        read.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public int write() throws SQLException {
+        write.setBytes(1, data);
+        return write.executeUpdate();
+    }
+
+    @Benchmark
+    public byte[] read() throws SQLException {
+        try (ResultSet rs = read.executeQuery()) {
+            rs.next();
+            return rs.getBytes(1);
+        }
+    }
+}
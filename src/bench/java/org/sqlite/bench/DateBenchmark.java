@@ -0,0 +1,134 @@
+package org.sqlite.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.date.FastDateFormat;
+import org.sqlite.date.IsoDateTime;
+
+/**
+ * Reading dates stored as text in the default date string format, through the ISO-8601 parser
+ * working on UTF-8 bytes and through {@link FastDateFormat} on the column String.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateBenchmark {
+    private static final int ROWS = 10_000;
+
+    private Connection conn;
+    private Statement stat;
+    private FastDateFormat format;
+
+    @Setup
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        BenchmarkDatabase.createTable(conn, ROWS);
+        stat = conn.createStatement();
+        stat.executeUpdate(
+                "create table dates as select"
+                        + " strftime('%Y-%m-%d %H:%M:%f', 1600000000 + i * 3600.125, 'unixepoch')"
+                        + " as d from t");
+        format = FastDateFormat.getInstance(SQLiteConfig.DEFAULT_DATE_STRING_FORMAT);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        stat.close();
+        conn.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long getTimestamp() throws SQLException {
+        long sum = 0;
+        try (ResultSet rs = stat.executeQuery("select d from dates")) {
+            while (rs.next()) {
+                sum += rs.getTimestamp(1).getTime();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long getLocalDateTime() throws SQLException {
+        long sum = 0;
+        try (ResultSet rs = stat.executeQuery("select d from dates")) {
+            while (rs.next()) {
+                sum += rs.getObject(1, LocalDateTime.class).getNano();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long getInstant() throws SQLException {
+        long sum = 0;
+        try (ResultSet rs = stat.executeQuery("select d from dates")) {
+            while (rs.next()) {
+                sum += rs.getObject(1, Instant.class).getEpochSecond();
+            }
+        }
+        return sum;
+    }
+
+    /** The path of getTimestamp() before the ISO-8601 parser. */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long fastDateParser() throws SQLException, ParseException {
+        long sum = 0;
+        try (ResultSet rs = stat.executeQuery("select d from dates")) {
+            while (rs.next()) {
+                sum += format.parse(rs.getString(1)).getTime();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long formatIsoDateTime() {
+        TimeZone zone = format.getTimeZone();
+        long sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            sum += IsoDateTime.format(1600000000000L + i * 3600125L, zone).length();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long formatFastDatePrinter() {
+        long sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            sum += format.format(new Date(1600000000000L + i * 3600125L)).length();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,82 @@
+package org.sqlite.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.Function;
+
+/** Invocation of Java user-defined functions through Function.xFunc(). */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionBenchmark {
+    private static final int ROWS = 10_000;
+
+    private Connection conn;
+    private Statement stat;
+
+    @Setup
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        BenchmarkDatabase.createTable(conn, ROWS);
+        Function.create(
+                conn,
+                "bench_add",
+                new Function() {
+                    @Override
+                    protected void xFunc() throws SQLException {
+                        result(value_long(0) + value_long(1));
+                    }
+                });
+        Function.create(
+                conn,
+                "bench_concat",
+                new Function() {
+                    @Override
+                    protected void xFunc() throws SQLException {
+                        result(value_text(0) + value_text(1));
+                    }
+                });
+        stat = conn.createStatement();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        stat.close();
+        conn.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long integerFunction() throws SQLException {
+        try (ResultSet rs = stat.executeQuery("select sum(bench_add(i, 1)) from t")) {
+            return rs.getLong(1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long textFunction() throws SQLException {
+        try (ResultSet rs = stat.executeQuery("select sum(length(bench_concat(s, 'x'))) from t")) {
+            return rs.getLong(1);
+        }
+    }
+}
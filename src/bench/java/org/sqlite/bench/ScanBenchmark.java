@@ -0,0 +1,111 @@
+package org.sqlite.bench;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteResultSet;
+
+/** Full table scans reading every row through one getter type. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanBenchmark {
+    private static final int ROWS = 10_000;
+
+    public enum Getter {
+        INT,
+        LONG,
+        DOUBLE,
+        STRING,
+        UTF8_BYTES,
+        BYTES,
+        OBJECT
+    }
+
+    @Param({"INT", "LONG", "DOUBLE", "STRING", "UTF8_BYTES", "BYTES", "OBJECT"})
+    public Getter getter;
+
+    @Param({"false", "true"})
+    public boolean batchFetch;
+
+    private Connection conn;
+    private Statement stat;
+    private final ByteBuffer utf8 = ByteBuffer.allocateDirect(256);
+
+    @Setup
+    public void setUp() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBatchFetch(batchFetch);
+        conn = DriverManager.getConnection("jdbc:sqlite:", config.toProperties());
+        BenchmarkDatabase.createTable(conn, ROWS);
+        stat = conn.createStatement();
+        stat.setFetchSize(256);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        stat.close();
+        conn.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void scan(Blackhole bh) throws SQLException {
+        try (ResultSet rs = stat.executeQuery("select i, d, s, b from t")) {
+            switch (getter) {
+                case INT:
+                    while (rs.next()) bh.consume(rs.getInt(1));
+                    break;
+                case LONG:
+                    while (rs.next()) bh.consume(rs.getLong(1));
+                    break;
+                case DOUBLE:
+                    while (rs.next()) bh.consume(rs.getDouble(2));
+                    break;
+                case STRING:
+                    while (rs.next()) bh.consume(rs.getString(3));
+                    break;
+                case UTF8_BYTES:
+                    SQLiteResultSet srs = rs.unwrap(SQLiteResultSet.class);
+                    while (rs.next()) {
+                        utf8.clear();
+                        bh.consume(srs.getUtf8Bytes(3, utf8));
+                    }
+                    break;
+                case BYTES:
+                    while (rs.next()) bh.consume(rs.getBytes(4));
+                    break;
+                case OBJECT:
+                    while (rs.next()) {
+                        bh.consume(rs.getObject(1));
+                        bh.consume(rs.getObject(2));
+                        bh.consume(rs.getObject(3));
+                        bh.consume(rs.getObject(4));
+                    }
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.sqlite.bench;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConnection;
+
+/** SQLiteConnection.serialize() and deserialize() of an in-memory database. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializeBenchmark {
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private SQLiteConnection source;
+    private SQLiteConnection target;
+    private byte[] image;
+
+    @Setup
+    public void setUp() throws SQLException {
+        source = (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:");
+        BenchmarkDatabase.createTable(source, rows);
+        image = source.serialize("main");
+        target = (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        source.close();
+        target.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws SQLException {
+        return source.serialize("main");
+    }
+
+    @Benchmark
+    public void deserialize() throws SQLException {
+        target.deserialize("main", image);
+    }
+}
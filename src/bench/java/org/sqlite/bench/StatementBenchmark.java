@@ -0,0 +1,83 @@
+package org.sqlite.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConfig;
+
+/** Statement life cycle: prepare/close cycles and single-row point lookups. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementBenchmark {
+    private static final int ROWS = 10_000;
+
+    @Param({"0", "16"})
+    public int statementCacheSize;
+
+    private Connection conn;
+    private PreparedStatement lookup;
+    private int key;
+
+    @Setup
+    public void setUp() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setStatementCacheSize(statementCacheSize);
+        conn = DriverManager.getConnection("jdbc:sqlite:", config.toProperties());
+        BenchmarkDatabase.createTable(conn, ROWS);
+        lookup = conn.prepareStatement("select s, d from t where id = ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        lookup.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public boolean prepareClose() throws SQLException {
+        try (PreparedStatement prep = conn.prepareStatement("select s from t where id = ?")) {
+            return prep.isClosed();
+        }
+    }
+
+    @Benchmark
+    public String pointLookup() throws SQLException {
+        key = key % ROWS + 1;
+        lookup.setInt(1, key);
+        try (ResultSet rs = lookup.executeQuery()) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    @Benchmark
+    public String prepareLookupClose() throws SQLException {
+        key = key % ROWS + 1;
+        try (PreparedStatement prep = conn.prepareStatement("select s from t where id = ?")) {
+            prep.setInt(1, key);
+            try (ResultSet rs = prep.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.sqlite.bench;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sqlite.SQLiteResultSet;
+
+/**
+ * Decoding of text columns, per row. {@code nativeDecode} is {@link ResultSet#getString(int)},
+ * which builds the String in the native library. {@code javaDecode} is the former path: the UTF-8
+ * bytes are copied out of a direct buffer into a byte array and decoded by {@link String}. It reads
+ * the bytes with {@link SQLiteResultSet#getUtf8Bytes(int, ByteBuffer)} into a reused buffer, so it
+ * saves the direct buffer the native library used to allocate for every value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextDecodeBenchmark {
+    private static final int ROWS = 10_000;
+
+    public enum Text {
+        ASCII("The quick brown fox jumps over the lazy dog, "),
+        LATIN1("Café crème brûlée à la française, "),
+        CJK("データベースの文字列を読み込む");
+
+        final String sample;
+
+        Text(String sample) {
+            this.sample = sample;
+        }
+    }
+
+    @Param({"ASCII", "LATIN1", "CJK"})
+    public Text text;
+
+    private Connection conn;
+    private PreparedStatement scan;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+
+    @Setup
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, s text)");
+        }
+        try (PreparedStatement prep = conn.prepareStatement("insert into t values (?, ?)")) {
+            for (int i = 1; i <= ROWS; i++) {
+                prep.setInt(1, i);
+                prep.setString(2, text.sample + i);
+                prep.addBatch();
+            }
+            prep.executeBatch();
+        }
+        scan = conn.prepareStatement("select s from t");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        scan.close();
+        conn.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void nativeDecode(Blackhole bh) throws SQLException {
+        try (ResultSet rs = scan.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getString(1));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void javaDecode(Blackhole bh) throws SQLException {
+        try (ResultSet rs = scan.executeQuery()) {
+            SQLiteResultSet utf8 = rs.unwrap(SQLiteResultSet.class);
+            while (rs.next()) {
+                buffer.clear();
+                utf8.getUtf8Bytes(1, buffer);
+                buffer.flip();
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                bh.consume(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
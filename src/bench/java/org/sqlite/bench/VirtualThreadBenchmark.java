@@ -0,0 +1,131 @@
+package org.sqlite.bench;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.javax.SQLitePoolingDataSource;
+
+/**
+ * Many virtual threads sharing a small {@link SQLitePoolingDataSource}: every task borrows a reader
+ * for a point lookup, and one task in {@code writeEvery} updates a row through the writer. One
+ * operation runs all the tasks. Needs JDK 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadBenchmark {
+    private static final int ROWS = 10_000;
+
+    @Param({"SERIALIZED", "REENTRANT_LOCK"})
+    public String threadingModel;
+
+    @Param({"10000"})
+    public int tasks;
+
+    @Param({"4"})
+    public int maxReaders;
+
+    @Param({"10"})
+    public int writeEvery;
+
+    private File dir;
+    private SQLitePoolingDataSource ds;
+    private Method newExecutor;
+
+    @Setup
+    public void setUp() throws Exception {
+        try {
+            newExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads need JDK 21 or later", e);
+        }
+
+        dir = Files.createTempDirectory("sqlite-bench").toFile();
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setThreadingModel(SQLiteConfig.ThreadingModel.valueOf(threadingModel));
+        config.setBusyTimeout(60_000);
+        ds =
+                new SQLitePoolingDataSource(
+                        "jdbc:sqlite:" + new File(dir, "bench.db").getAbsolutePath(), config);
+        ds.setMaxReaders(maxReaders);
+        ds.setConnectionTimeout(60_000);
+        try (Connection conn = ds.getConnection()) {
+            BenchmarkDatabase.createTable(conn, ROWS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        ds.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public long run() throws Exception {
+        List<Future<Long>> results = new ArrayList<>(tasks);
+        ExecutorService executor = (ExecutorService) newExecutor.invoke(null);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                int id = i % ROWS + 1;
+                boolean write = i % writeEvery == 0;
+                results.add(executor.submit(() -> write ? update(id) : lookup(id)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long sum = 0;
+        for (Future<Long> result : results) {
+            sum += result.get();
+        }
+        return sum;
+    }
+
+    private long lookup(int id) throws SQLException {
+        try (Connection conn = ds.getReadOnlyConnection();
+                PreparedStatement prep = conn.prepareStatement("select i from t where id = ?")) {
+            prep.setInt(1, id);
+            try (ResultSet rs = prep.executeQuery()) {
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private long update(int id) throws SQLException {
+        try (Connection conn = ds.getConnection();
+                PreparedStatement prep =
+                        conn.prepareStatement("update t set i = i + 1 where id = ?")) {
+            prep.setInt(1, id);
+            return prep.executeUpdate();
+        }
+    }
+}
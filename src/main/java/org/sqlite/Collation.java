@@ -15,8 +15,13 @@
  */
 package org.sqlite;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.text.Collator;
 import org.sqlite.core.Codes;
 import org.sqlite.core.DB;
 
@@ -39,6 +44,12 @@ import org.sqlite.core.DB;
  *
  *      conn.createStatement().execute("select c1 from t order by c1 collate REVERSE;");
  *  </pre>
+ *
+ * <p>Each comparison creates two strings and calls into Java, which adds up when sorting many rows.
+ * Common orderings are available as {@link Builtin} collations that are compared by the native
+ * library alone, a {@link Raw} collation compares the bytes of the text without decoding them, and
+ * the order of a {@link Collator} can be stored as sort keys with {@link
+ * #createSortKeyFunction(Connection, String, Collator)}.
  */
 public abstract class Collation {
     private SQLiteConnection conn;
@@ -67,6 +78,90 @@ public abstract class Collation {
         }
     }
 
+    /**
+     * Registers a given collation of encoded text with the connection.
+     *
+     * @param conn The connection.
+     * @param name The name of the collation.
+     * @param f The collation to register.
+     */
+    public static final void create(Connection conn, String name, Raw f) throws SQLException {
+        if (conn == null || !(conn instanceof SQLiteConnection)) {
+            throw new SQLException("connection must be to an SQLite db");
+        }
+        if (conn.isClosed()) {
+            throw new SQLException("connection closed");
+        }
+
+        DB db = ((SQLiteConnection) conn).getDatabase();
+        if (db.create_raw_collation(name, f, f.encoding) != Codes.SQLITE_OK) {
+            throw new SQLException("error creating collation");
+        }
+    }
+
+    /**
+     * Registers one of the built-in collations with the connection.
+     *
+     * @param conn The connection.
+     * @param name The name of the collation.
+     * @param builtin The collation to register.
+     */
+    public static final void createBuiltin(Connection conn, String name, Builtin builtin)
+            throws SQLException {
+        if (conn == null || !(conn instanceof SQLiteConnection)) {
+            throw new SQLException("connection must be to an SQLite db");
+        }
+        if (conn.isClosed()) {
+            throw new SQLException("connection closed");
+        }
+
+        DB db = ((SQLiteConnection) conn).getDatabase();
+        ByteBuffer foldTable = builtin.ignoresCase ? FoldTable.TABLE : null;
+        if (db.create_builtin_collation(name, builtin.kind, foldTable) != Codes.SQLITE_OK) {
+            throw new SQLException("error creating collation");
+        }
+    }
+
+    /**
+     * Registers a deterministic function returning the sort key of its text argument as a blob, or
+     * NULL for NULL. Blobs compare with <tt>memcmp()</tt>, so sort keys stored in a column, for
+     * example a generated column, give the order of the collator to <tt>ORDER BY</tt> and indexes
+     * without calling into Java, e.g.
+     *
+     * <pre>
+     *      Collator french = Collator.getInstance(Locale.FRENCH);
+     *      Collation.createSortKeyFunction(conn, "sort_key_fr", french);
+     *      stat.execute("create table t (name text, name_key blob"
+     *              + " as (sort_key_fr(name)) stored);");
+     *      stat.execute("create index t_name_key on t (name_key);");
+     *      stat.executeQuery("select name from t order by name_key;");
+     *  </pre>
+     *
+     * <p>The function must be registered on every connection that writes to such a column, with a
+     * collator of the same rules.
+     *
+     * @param conn The connection.
+     * @param name The name of the function.
+     * @param collator The collator whose sort keys are returned. A copy is used.
+     */
+    public static final void createSortKeyFunction(Connection conn, String name, Collator collator)
+            throws SQLException {
+        Collator copy = (Collator) collator.clone();
+        Function.create(
+                conn,
+                name,
+                ctx -> {
+                    String text = ctx.value_text(0);
+                    if (text == null) {
+                        ctx.result();
+                    } else {
+                        ctx.result(copy.getCollationKey(text).toByteArray());
+                    }
+                },
+                1,
+                Function.FLAG_DETERMINISTIC);
+    }
+
     /**
      * Removes a named collation from the given connection.
      *
@@ -90,4 +185,111 @@ public abstract class Collation {
      *     equal to, or greater than the second, respectively
      */
     protected abstract int xCompare(String str1, String str2);
+
+    /** Collations implemented by the native library, registered with {@link #createBuiltin}. */
+    public enum Builtin {
+        /**
+         * Compares code points ignoring case, for all of Unicode rather than ASCII only like
+         * SQLite's <tt>NOCASE</tt>. Characters of the Basic Multilingual Plane are folded with
+         * <tt>Character.toLowerCase(Character.toUpperCase(c))</tt> and other code points are
+         * compared as they are. Unlike {@link String#CASE_INSENSITIVE_ORDER}, which compares UTF-16
+         * code units, supplementary characters sort after the whole Basic Multilingual Plane.
+         */
+        UNICODE_NOCASE(0, true),
+        /**
+         * Compares runs of the digits 0-9 by their numeric value so that <tt>file9</tt> sorts
+         * before <tt>file10</tt>, and the rest by code point. Leading zeros are ignored, so
+         * <tt>file010</tt> and <tt>file10</tt> are equal.
+         */
+        NATURAL(1, false),
+        /** {@link #NATURAL} ordering that ignores case like {@link #UNICODE_NOCASE}. */
+        NATURAL_NOCASE(2, true);
+
+        private final int kind;
+        private final boolean ignoresCase;
+
+        Builtin(int kind, boolean ignoresCase) {
+            this.kind = kind;
+            this.ignoresCase = ignoresCase;
+        }
+    }
+
+    /**
+     * The simple case folding of every UTF-16 code unit, shared by all case-insensitive built-in
+     * collations. Built on first use.
+     */
+    private static final class FoldTable {
+        static final ByteBuffer TABLE = build();
+
+        private static ByteBuffer build() {
+            ByteBuffer table =
+                    ByteBuffer.allocateDirect((Character.MAX_VALUE + 1) * 2)
+                            .order(ByteOrder.nativeOrder());
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                table.putChar(Character.toLowerCase(Character.toUpperCase((char) c)));
+            }
+            return table;
+        }
+    }
+
+    /**
+     * A collation that compares the encoded text of SQLite rather than strings, registered with
+     * {@link Collation#create(Connection, String, Raw)}. The text is copied to direct buffers that
+     * are reused by the next comparison, so they must not be retained. No objects are created for
+     * each comparison, which makes sorting with a collation that only needs to look at a few bytes
+     * much cheaper. An exception thrown by {@link #compare(ByteBuffer, ByteBuffer)} interrupts the
+     * statement like {@link java.sql.Statement#cancel()}, and the statement fails with an {@link
+     * SQLiteException} caused by it.
+     *
+     * <pre>
+     *      Collation.create(conn, "BY_LENGTH", new Collation.Raw(StandardCharsets.UTF_8) {
+     *          protected int compare(ByteBuffer str1, ByteBuffer str2) {
+     *              return Integer.compare(str1.remaining(), str2.remaining());
+     *          }
+     *      });
+     *  </pre>
+     */
+    public abstract static class Raw {
+        private final int encoding;
+        private final ByteOrder order;
+
+        /**
+         * @param charset The encoding of the text to compare: UTF-8, UTF-16LE or UTF-16BE. SQLite
+         *     converts the text of the database if it is stored with another encoding.
+         */
+        protected Raw(Charset charset) {
+            if (StandardCharsets.UTF_8.equals(charset)) {
+                encoding = 1; // SQLITE_UTF8
+                order = ByteOrder.BIG_ENDIAN;
+            } else if (StandardCharsets.UTF_16LE.equals(charset)) {
+                encoding = 2; // SQLITE_UTF16LE
+                order = ByteOrder.LITTLE_ENDIAN;
+            } else if (StandardCharsets.UTF_16BE.equals(charset)) {
+                encoding = 3; // SQLITE_UTF16BE
+                order = ByteOrder.BIG_ENDIAN;
+            } else {
+                throw new IllegalArgumentException("unsupported charset " + charset);
+            }
+        }
+
+        /** Called by the native library with the text copied at the start of reused buffers. */
+        private int xCompareBuffers(ByteBuffer str1, int len1, ByteBuffer str2, int len2) {
+            str1.clear();
+            str1.limit(len1);
+            str2.clear();
+            str2.limit(len2);
+            return compare(str1.order(order), str2.order(order));
+        }
+
+        /**
+         * Called by SQLite to compare two strings.
+         *
+         * @param str1 the encoded bytes of the first string in the comparison, positioned at its
+         *     start and limited at its end, in the byte order of the encoding
+         * @param str2 the encoded bytes of the second string in the comparison
+         * @return an integer that is negative, zero, or positive if the first string is less than,
+         *     equal to, or greater than the second, respectively
+         */
+        protected abstract int compare(ByteBuffer str1, ByteBuffer str2);
+    }
 }
@@ -17,6 +17,10 @@ package org.sqlite;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
 import org.sqlite.core.Codes;
 import org.sqlite.core.DB;
 
@@ -44,6 +48,24 @@ import org.sqlite.core.DB;
  * provided. <tt>args()</tt> returns the number of arguments passed, while
  * <tt>value_&lt;type&gt;(int)</tt> returns the value of the specific argument. Similarly, a
  * function can return a value using the <tt>result(&lt;type&gt;)</tt> function.
+ *
+ * <p>The accessors of a <tt>Function</tt> are synchronized and use the state of the object, so a
+ * function object is only called on one connection at a time. A {@link Function.Scalar} is instead
+ * given the arguments of each call in a {@link SQLiteFunctionContext}, and one instance can be
+ * registered with many connections and called concurrently, e.g.
+ *
+ * <pre>
+ *      Function.Scalar upper = ctx -&gt; ctx.result(ctx.value_text(0).toUpperCase());
+ *      Function.create(conn, "upper2", upper, 1, Function.FLAG_DETERMINISTIC);
+ *  </pre>
+ *
+ * <p>Functions of one or two integer or floating point arguments can instead be registered as a
+ * primitive operator with <tt>createLong()</tt> or <tt>createDouble()</tt>. Their arguments are
+ * decoded by the native library and passed directly, which makes them much cheaper to call, e.g.
+ *
+ * <pre>
+ *      Function.createLong(conn, "mask", (a, b) -&gt; a &amp; b, Function.FLAG_DETERMINISTIC);
+ *  </pre>
  */
 public abstract class Function {
     /**
@@ -52,6 +74,12 @@ public abstract class Function {
      */
     public static final int FLAG_DETERMINISTIC = 0x800;
 
+    // kinds of primitive functions, known to the native library
+    private static final int LONG_UNARY = 0;
+    private static final int LONG_BINARY = 1;
+    private static final int DOUBLE_UNARY = 2;
+    private static final int DOUBLE_BINARY = 3;
+
     private SQLiteConnection conn;
     private DB db;
 
@@ -113,6 +141,118 @@ public abstract class Function {
         }
     }
 
+    /**
+     * Registers a given scalar function with the connection.
+     *
+     * @param conn The connection.
+     * @param name The name of the function.
+     * @param f The function to register.
+     * @param nArgs The number of arguments that the function takes, or -1 for any.
+     * @param flags Extra flags to pass, such as {@link #FLAG_DETERMINISTIC}
+     */
+    public static void create(Connection conn, String name, Scalar f, int nArgs, int flags)
+            throws SQLException {
+        if (!(conn instanceof SQLiteConnection)) {
+            throw new SQLException("connection must be to an SQLite db");
+        }
+        if (conn.isClosed()) {
+            throw new SQLException("connection closed");
+        }
+        if (f == null) {
+            throw new SQLException("function must not be null");
+        }
+        if (nArgs < -1 || nArgs > 127) {
+            throw new SQLException("invalid args provided: " + nArgs);
+        }
+
+        SQLiteConnection sqliteConn = (SQLiteConnection) conn;
+        DB db = sqliteConn.getDatabase();
+        ScalarCall call = new ScalarCall(sqliteConn, db, f);
+        if (db.create_scalar_function(name, call, nArgs, flags) != Codes.SQLITE_OK) {
+            throw new SQLException("error creating function");
+        }
+    }
+
+    /**
+     * Registers a function of one integer argument with the connection. Arguments are converted to
+     * integers the way SQLite casts values, and the function returns NULL without being called when
+     * its argument is NULL. An exception thrown by the operator is reported as an error of the
+     * statement.
+     *
+     * @param conn The connection.
+     * @param name The name of the function.
+     * @param f The operator to call.
+     * @param flags Extra flags to pass, such as {@link #FLAG_DETERMINISTIC}
+     */
+    public static void createLong(Connection conn, String name, LongUnaryOperator f, int flags)
+            throws SQLException {
+        createPrimitive(conn, name, f, LONG_UNARY, flags);
+    }
+
+    /**
+     * Registers a function of two integer arguments with the connection. The function returns NULL
+     * without being called when either argument is NULL.
+     *
+     * @param conn The connection.
+     * @param name The name of the function.
+     * @param f The operator to call.
+     * @param flags Extra flags to pass, such as {@link #FLAG_DETERMINISTIC}
+     * @see #createLong(Connection, String, LongUnaryOperator, int)
+     */
+    public static void createLong(Connection conn, String name, LongBinaryOperator f, int flags)
+            throws SQLException {
+        createPrimitive(conn, name, f, LONG_BINARY, flags);
+    }
+
+    /**
+     * Registers a function of one floating point argument with the connection. The function returns
+     * NULL without being called when its argument is NULL, and a NaN result is returned as NULL.
+     *
+     * @param conn The connection.
+     * @param name The name of the function.
+     * @param f The operator to call.
+     * @param flags Extra flags to pass, such as {@link #FLAG_DETERMINISTIC}
+     * @see #createLong(Connection, String, LongUnaryOperator, int)
+     */
+    public static void createDouble(Connection conn, String name, DoubleUnaryOperator f, int flags)
+            throws SQLException {
+        createPrimitive(conn, name, f, DOUBLE_UNARY, flags);
+    }
+
+    /**
+     * Registers a function of two floating point arguments with the connection. The function
+     * returns NULL without being called when either argument is NULL, and a NaN result is returned
+     * as NULL.
+     *
+     * @param conn The connection.
+     * @param name The name of the function.
+     * @param f The operator to call.
+     * @param flags Extra flags to pass, such as {@link #FLAG_DETERMINISTIC}
+     * @see #createLong(Connection, String, LongUnaryOperator, int)
+     */
+    public static void createDouble(Connection conn, String name, DoubleBinaryOperator f, int flags)
+            throws SQLException {
+        createPrimitive(conn, name, f, DOUBLE_BINARY, flags);
+    }
+
+    private static void createPrimitive(Connection conn, String name, Object f, int kind, int flags)
+            throws SQLException {
+        if (!(conn instanceof SQLiteConnection)) {
+            throw new SQLException("connection must be to an SQLite db");
+        }
+        if (conn.isClosed()) {
+            throw new SQLException("connection closed");
+        }
+        if (f == null) {
+            throw new SQLException("function must not be null");
+        }
+
+        DB db = ((SQLiteConnection) conn).getDatabase();
+        if (db.create_primitive_function(name, f, kind, flags) != Codes.SQLITE_OK) {
+            throw new SQLException("error creating function");
+        }
+    }
+
     /**
      * Removes a named function from the given connection.
      *
@@ -300,6 +440,43 @@ public abstract class Function {
         }
     }
 
+    /**
+     * A scalar function given the arguments and result of each call as a {@link
+     * SQLiteFunctionContext}, registered with {@link #create(Connection, String, Scalar, int,
+     * int)}. Implementations that keep no state of their own are safe to share between connections.
+     */
+    @FunctionalInterface
+    public interface Scalar {
+        /**
+         * Called by SQLite for each call of the function.
+         *
+         * @param ctx The arguments and result of this call, valid until it returns.
+         */
+        void xFunc(SQLiteFunctionContext ctx) throws SQLException;
+    }
+
+    /** The object called by the native library for each call of a {@link Scalar}. */
+    private static final class ScalarCall {
+        private final SQLiteConnection conn;
+        private final DB db;
+        private final Scalar f;
+
+        ScalarCall(SQLiteConnection conn, DB db, Scalar f) {
+            this.conn = conn;
+            this.db = db;
+            this.f = f;
+        }
+
+        void xCall(long context, long values, int args) throws SQLException {
+            SQLiteFunctionContext ctx = new SQLiteFunctionContext(conn, db, context, values, args);
+            try {
+                f.xFunc(ctx);
+            } finally {
+                ctx.invalidate();
+            }
+        }
+    }
+
     /**
      * Provides an interface for creating SQLite user-defined aggregate functions.
      *
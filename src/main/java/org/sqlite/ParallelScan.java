@@ -0,0 +1,288 @@
+package org.sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import org.sqlite.SQLiteConfig.TransactionMode;
+import org.sqlite.SQLiteDataSource.RowConsumer;
+import org.sqlite.core.Codes;
+import org.sqlite.core.DB;
+import org.sqlite.util.Logger;
+import org.sqlite.util.LoggerFactory;
+
+/**
+ * Scans a table with one read-only connection per partition of its key range, all reading the same
+ * state of the database. See {@link SQLiteDataSource#parallelScan(String, String, int,
+ * RowConsumer)}.
+ */
+final class ParallelScan {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelScan.class);
+
+    private final String table;
+    private final String key;
+    private final boolean rowid;
+    private final int partitions;
+    private final RowConsumer consumer;
+
+    /** The lower bound of every partition but the first, null if the table is empty. */
+    private Object[] bounds;
+
+    ParallelScan(String table, String keyColumn, int partitions, RowConsumer consumer) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be at least 1");
+        }
+        this.table = table;
+        this.rowid =
+                keyColumn == null
+                        || keyColumn.equalsIgnoreCase("rowid")
+                        || keyColumn.equalsIgnoreCase("_rowid_")
+                        || keyColumn.equalsIgnoreCase("oid");
+        this.key = keyColumn == null ? "rowid" : keyColumn;
+        this.partitions = partitions;
+        this.consumer = consumer;
+    }
+
+    long run(String url, SQLiteConfig config) throws SQLException {
+        SQLiteConfig readerConfig = new SQLiteConfig(config.toProperties());
+        readerConfig.setReadOnly(true);
+        readerConfig.setTransactionMode(TransactionMode.DEFERRED);
+        Properties prop = readerConfig.toProperties();
+
+        List<SQLiteConnection> readers = new ArrayList<>(partitions);
+        try {
+            for (int i = 0; i < partitions; i++) {
+                readers.add(JDBC.createConnection(url, prop));
+            }
+            begin(readers);
+        } catch (SQLException | RuntimeException e) {
+            for (SQLiteConnection reader : readers) {
+                close(reader, e);
+            }
+            throw e;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(partitions);
+        try {
+            List<Future<Long>> scans = new ArrayList<>(partitions);
+            SQLException[] errors = new SQLException[partitions];
+            for (int i = 0; i < partitions; i++) {
+                int partition = i;
+                SQLiteConnection reader = readers.get(i);
+                scans.add(
+                        pool.submit(
+                                () -> {
+                                    try {
+                                        return scan(reader, partition);
+                                    } catch (SQLException e) {
+                                        errors[partition] = e;
+                                        return 0L;
+                                    }
+                                }));
+            }
+            return join(scans, errors);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Opens a read transaction on every reader, all on the state of the database seen by the first
+     * one when it computes the partition bounds.
+     */
+    private void begin(List<SQLiteConnection> readers) throws SQLException {
+        SQLiteConnection first = readers.get(0);
+        boolean wal;
+        try (Statement stat = first.createStatement();
+                ResultSet rs = stat.executeQuery("pragma journal_mode")) {
+            wal = "wal".equalsIgnoreCase(rs.getString(1));
+        }
+        first.setAutoCommit(false);
+        bounds = bounds(first);
+
+        long snapshot = 0;
+        if (wal && partitions > 1) {
+            DB db = first.getDatabase();
+            try {
+                snapshot = db.guarded(() -> db.snapshot_get("main"));
+            } catch (SQLException e) {
+                logger.warn(
+                        () ->
+                                "Snapshots are not available, the partitions of a parallel scan of "
+                                        + table
+                                        + " may see different commits: "
+                                        + e.getMessage());
+            }
+        }
+        try {
+            for (SQLiteConnection reader : readers.subList(1, readers.size())) {
+                reader.setAutoCommit(false);
+                DB db = reader.getDatabase();
+                if (snapshot != 0) {
+                    long shared = snapshot;
+                    int rc = db.guarded(() -> db.snapshot_open("main", shared));
+                    if (rc != Codes.SQLITE_OK) {
+                        db.throwex(rc);
+                    }
+                } else {
+                    // in rollback journal mode, the shared lock of the first reader keeps
+                    // writers from committing until this one holds its own
+                    try (Statement stat = reader.createStatement()) {
+                        stat.executeQuery("select count(*) from sqlite_master").close();
+                    }
+                }
+            }
+        } finally {
+            if (snapshot != 0) {
+                first.getDatabase().snapshot_free(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Splits the key range: evenly between the smallest and largest rowid, or at the quantiles of
+     * the values of a key column, which are read once in order.
+     */
+    private Object[] bounds(SQLiteConnection conn) throws SQLException {
+        Object[] bounds = new Object[partitions - 1];
+        try (Statement stat = conn.createStatement()) {
+            if (rowid) {
+                long min, max;
+                try (ResultSet rs =
+                        stat.executeQuery("select min(rowid), max(rowid) from " + quote(table))) {
+                    min = rs.getLong(1);
+                    max = rs.getLong(2);
+                    if (rs.wasNull()) {
+                        return null;
+                    }
+                }
+                double span = (double) max - (double) min + 1;
+                for (int i = 1; i < partitions; i++) {
+                    bounds[i - 1] = min + (long) (span * i / partitions);
+                }
+                return bounds;
+            }
+
+            long count;
+            try (ResultSet rs =
+                    stat.executeQuery("select count(" + quote(key) + ") from " + quote(table))) {
+                count = rs.getLong(1);
+            }
+            if (count == 0) {
+                return null;
+            }
+            try (ResultSet rs =
+                    stat.executeQuery(
+                            "select "
+                                    + quote(key)
+                                    + " from "
+                                    + quote(table)
+                                    + " where "
+                                    + quote(key)
+                                    + " is not null order by 1")) {
+                long row = 0;
+                for (int i = 1; i < partitions && rs.next(); row++) {
+                    if (row == count * i / partitions) {
+                        bounds[i++ - 1] = rs.getObject(1);
+                    }
+                }
+                for (int i = 1; i < bounds.length; i++) {
+                    if (bounds[i] == null) {
+                        // fewer values than partitions, the partitions in between are empty
+                        bounds[i] = bounds[i - 1];
+                    }
+                }
+            }
+            return bounds;
+        }
+    }
+
+    private long scan(SQLiteConnection reader, int partition) throws SQLException {
+        reader.transferOwnership();
+        long rows = 0;
+        try {
+            if (bounds == null && partition > 0) {
+                return 0;
+            }
+            StringBuilder sql = new StringBuilder("select * from ").append(quote(table));
+            List<Object> params = new ArrayList<>(2);
+            if (bounds != null && partitions > 1) {
+                String k = quote(key);
+                if (partition == 0) {
+                    sql.append(" where ").append(k).append(" < ?");
+                    if (!rowid) sql.append(" or ").append(k).append(" is null");
+                    params.add(bounds[0]);
+                } else if (partition == partitions - 1) {
+                    sql.append(" where ").append(k).append(" >= ?");
+                    params.add(bounds[partition - 1]);
+                } else {
+                    sql.append(" where ").append(k).append(" >= ? and ").append(k).append(" < ?");
+                    params.add(bounds[partition - 1]);
+                    params.add(bounds[partition]);
+                }
+            }
+            try (PreparedStatement stat = reader.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    stat.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = stat.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(partition, rs);
+                        rows++;
+                    }
+                }
+            }
+            return rows;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static long join(List<Future<Long>> scans, SQLException[] errors) throws SQLException {
+        long rows = 0;
+        SQLException error = null;
+        for (int i = 0; i < scans.size(); i++) {
+            try {
+                rows += scans.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = add(error, new SQLException("Interrupted while scanning", e));
+            } catch (ExecutionException e) {
+                error = add(error, new SQLException("Partition " + i + " failed", e.getCause()));
+            }
+            if (errors[i] != null) {
+                error = add(error, errors[i]);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return rows;
+    }
+
+    private static SQLException add(SQLException error, SQLException e) {
+        if (error == null) {
+            return e;
+        }
+        error.addSuppressed(e);
+        return error;
+    }
+
+    private static void close(SQLiteConnection reader, Exception error) {
+        try {
+            reader.close();
+        } catch (SQLException e) {
+            error.addSuppressed(e);
+        }
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
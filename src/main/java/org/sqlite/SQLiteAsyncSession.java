@@ -0,0 +1,450 @@
+package org.sqlite;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the statements of a connection on threads of its own, so that callers such as event loops
+ * never block on SQLite. Obtained from {@link SQLiteConnection#async(int)}.
+ *
+ * <p>Statements run on a single writer thread using the connection, one after another in the order
+ * they were submitted, so that callers can pipeline them without waiting for each result. Queries
+ * submitted with {@link #executeReadOnlyQuery(String, RowMapper, Object...)} run concurrently on a
+ * pool of read-only connections to the same database file instead; they see the last committed
+ * state of the database, which makes them a good fit for WAL mode. Private in-memory and temporary
+ * databases are not shared between connections and cannot have readers.
+ *
+ * <p>The returned futures are completed on the session threads: callers should continue with the
+ * <code>*Async</code> methods of {@link CompletableFuture} rather than run lengthy work there.
+ *
+ * <p>Under {@link SQLiteConfig.ThreadingModel#SINGLE_OWNER} the session threads take ownership of
+ * the connections before each statement.
+ */
+public class SQLiteAsyncSession implements AutoCloseable {
+    private static final AtomicInteger sessionCount = new AtomicInteger();
+
+    private final SQLiteConnection conn;
+    private final String name;
+    private final ThreadPoolExecutor writer;
+    private final ThreadPoolExecutor readers;
+    private final BlockingQueue<SQLiteConnection> idleReaders;
+    /** The writer and readers not terminated yet, the timer is stopped once they all are. */
+    private final AtomicInteger runningExecutors;
+
+    private ScheduledThreadPoolExecutor timer;
+    private volatile int queryTimeout;
+    private volatile boolean closed;
+
+    SQLiteAsyncSession(SQLiteConnection conn, int readerCount) throws SQLException {
+        if (readerCount < 0) {
+            throw new IllegalArgumentException("readerCount must be >= 0");
+        }
+        if (readerCount > 0 && isPrivate(JDBC.extractAddress(conn.getUrl()))) {
+            throw new SQLException(
+                    "Readers cannot share a private in-memory or temporary database: "
+                            + conn.getUrl());
+        }
+        this.conn = conn;
+        this.name = "sqlite-async-" + sessionCount.incrementAndGet();
+        this.runningExecutors = new AtomicInteger(readerCount == 0 ? 1 : 2);
+        this.writer =
+                new ThreadPoolExecutor(
+                        1,
+                        1,
+                        0,
+                        TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>(),
+                        threadFactory(this, name + "-writer")) {
+                    @Override
+                    protected void terminated() {
+                        executorTerminated();
+                    }
+                };
+
+        if (readerCount == 0) {
+            this.readers = null;
+            this.idleReaders = null;
+            return;
+        }
+        Properties prop = new Properties();
+        prop.putAll(conn.getDatabase().getConfig().toProperties());
+        SQLiteConfig readerConfig = new SQLiteConfig(prop);
+        readerConfig.setReadOnly(true);
+
+        idleReaders = new ArrayBlockingQueue<>(readerCount);
+        try {
+            for (int i = 0; i < readerCount; i++) {
+                idleReaders.add(JDBC.createConnection(conn.getUrl(), readerConfig.toProperties()));
+            }
+        } catch (SQLException e) {
+            closeReaders();
+            runningExecutors.decrementAndGet();
+            writer.shutdown();
+            throw e;
+        }
+        this.readers =
+                new ThreadPoolExecutor(
+                        readerCount,
+                        readerCount,
+                        0,
+                        TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>(),
+                        threadFactory(this, name + "-reader")) {
+                    @Override
+                    protected void terminated() {
+                        closeReaders();
+                        executorTerminated();
+                    }
+                };
+    }
+
+    /**
+     * @param address The database of a URL, without its prefix.
+     * @return True if the database cannot be opened by other connections.
+     */
+    private static boolean isPrivate(String address) {
+        if (address.isEmpty() || address.startsWith(":memory:")) {
+            return true;
+        }
+        boolean memory = address.startsWith("file::memory:") || address.contains("mode=memory");
+        return memory && !address.contains("cache=shared");
+    }
+
+    private static ThreadFactory threadFactory(SQLiteAsyncSession session, String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new SessionThread(session, r, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** @return The connection the statements of this session run on. */
+    public SQLiteConnection getConnection() {
+        return conn;
+    }
+
+    /** @return The number of read-only connections of this session. */
+    public int getReaderCount() {
+        return readers == null ? 0 : readers.getCorePoolSize();
+    }
+
+    /** @return The number of seconds a statement may run, or 0 for no limit. */
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    /**
+     * Limits how long a statement of this session may run. It is passed to {@link
+     * java.sql.Statement#setQueryTimeout(int)}, which bounds the wait for database locks, and a
+     * statement still running once it elapses is stopped with {@link
+     * org.sqlite.core.DB#interrupt()}, failing its future with a {@link SQLTimeoutException}.
+     *
+     * @param seconds The number of seconds, or 0 for no limit.
+     */
+    public void setQueryTimeout(int seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("query timeout must be >= 0");
+        }
+        this.queryTimeout = seconds;
+    }
+
+    /**
+     * Executes an INSERT, UPDATE, DELETE or DDL statement on the writer.
+     *
+     * @param sql The SQL statement.
+     * @param params The values of its parameters.
+     * @return The number of rows changed.
+     */
+    public CompletableFuture<Integer> executeUpdate(String sql, Object... params) {
+        return submit(
+                writer,
+                null,
+                c -> {
+                    try (PreparedStatement prep = prepare(c, sql, params)) {
+                        return prep.executeUpdate();
+                    }
+                });
+    }
+
+    /**
+     * Executes a query on the writer, in order with the other statements submitted to it.
+     *
+     * @param sql The SQL query.
+     * @param mapper Maps the current row of the result set to an element of the result.
+     * @param params The values of its parameters.
+     * @return The mapped rows.
+     */
+    public <T> CompletableFuture<List<T>> executeQuery(
+            String sql, RowMapper<T> mapper, Object... params) {
+        return submit(writer, null, c -> query(c, sql, mapper, params));
+    }
+
+    /**
+     * Executes a query on one of the read-only connections, concurrently with the writer. Runs on
+     * the writer when the session has no readers.
+     *
+     * @param sql The SQL query.
+     * @param mapper Maps the current row of the result set to an element of the result.
+     * @param params The values of its parameters.
+     * @return The mapped rows.
+     */
+    public <T> CompletableFuture<List<T>> executeReadOnlyQuery(
+            String sql, RowMapper<T> mapper, Object... params) {
+        if (readers == null) {
+            return executeQuery(sql, mapper, params);
+        }
+        return submit(readers, idleReaders, c -> query(c, sql, mapper, params));
+    }
+
+    /**
+     * Streams the rows of a query on the writer to a callback, without collecting them.
+     *
+     * @param sql The SQL query.
+     * @param callback Called on the writer thread for every row of the result set.
+     * @param params The values of its parameters.
+     * @return The number of rows.
+     */
+    public CompletableFuture<Long> forEachRow(String sql, RowCallback callback, Object... params) {
+        return submit(
+                writer,
+                null,
+                c -> {
+                    try (PreparedStatement prep = prepare(c, sql, params);
+                            ResultSet rs = prep.executeQuery()) {
+                        long rows = 0;
+                        while (rs.next()) {
+                            callback.accept(rs);
+                            rows++;
+                        }
+                        return rows;
+                    }
+                });
+    }
+
+    /**
+     * Runs arbitrary work with the connection on the writer, for example a transaction made of
+     * several statements.
+     *
+     * @param work The work to run.
+     * @return The result of the work.
+     */
+    public <T> CompletableFuture<T> submit(ConnectionCallback<T> work) {
+        return submit(writer, null, work);
+    }
+
+    /**
+     * Stops accepting statements. Those already submitted still run, with their query timeout, and
+     * the read-only connections are closed once the readers are done with them. The connection
+     * itself is left open.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writer.shutdown();
+        if (readers != null) readers.shutdown();
+    }
+
+    /**
+     * Closes this session and waits for the statements already submitted to run, so that the
+     * connection can be closed after them. Called from a statement of this session, or once the
+     * calling thread is interrupted, it returns at once: the statements left then fail on the
+     * closed connection.
+     */
+    void closeAndAwait() {
+        close();
+        Thread current = Thread.currentThread();
+        if (current instanceof SessionThread && ((SessionThread) current).session == this) {
+            return;
+        }
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            if (readers != null) readers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            current.interrupt();
+        }
+    }
+
+    /** @return True if this session no longer accepts statements. */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private <T> CompletableFuture<T> submit(
+            ThreadPoolExecutor executor,
+            BlockingQueue<SQLiteConnection> pool,
+            ConnectionCallback<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new SQLException("Async session is closed"));
+            return future;
+        }
+        try {
+            executor.execute(
+                    () -> {
+                        if (future.isCancelled()) return;
+                        SQLiteConnection c = pool == null ? conn : pool.poll();
+                        try {
+                            future.complete(run(c, work));
+                        } catch (Throwable e) {
+                            future.completeExceptionally(e);
+                        } finally {
+                            if (pool != null) pool.add(c);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new SQLException("Async session is closed", e));
+        }
+        return future;
+    }
+
+    private <T> T run(SQLiteConnection c, ConnectionCallback<T> work) throws SQLException {
+        c.transferOwnership();
+        int timeout = queryTimeout;
+        if (timeout == 0) {
+            return work.run(c);
+        }
+        Deadline deadline = new Deadline(c);
+        ScheduledFuture<?> expiry = timer().schedule(deadline::expire, timeout, TimeUnit.SECONDS);
+        try {
+            return work.run(c);
+        } catch (SQLException e) {
+            if (deadline.finish()) {
+                throw new SQLTimeoutException(
+                        "Query timed out after " + timeout + " seconds", e.getSQLState(), e);
+            }
+            throw e;
+        } finally {
+            expiry.cancel(false);
+            deadline.finish();
+        }
+    }
+
+    /** Stops the timer once the statements submitted before closing have all run. */
+    private void executorTerminated() {
+        if (runningExecutors.decrementAndGet() == 0) {
+            synchronized (this) {
+                if (timer != null) timer.shutdownNow();
+            }
+        }
+    }
+
+    private synchronized ScheduledThreadPoolExecutor timer() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, threadFactory(this, name + "-timer"));
+            timer.setRemoveOnCancelPolicy(true);
+        }
+        return timer;
+    }
+
+    private PreparedStatement prepare(Connection c, String sql, Object[] params)
+            throws SQLException {
+        PreparedStatement prep = c.prepareStatement(sql);
+        try {
+            prep.setQueryTimeout(queryTimeout);
+            for (int i = 0; i < params.length; i++) {
+                prep.setObject(i + 1, params[i]);
+            }
+        } catch (SQLException e) {
+            prep.close();
+            throw e;
+        }
+        return prep;
+    }
+
+    private <T> List<T> query(Connection c, String sql, RowMapper<T> mapper, Object[] params)
+            throws SQLException {
+        try (PreparedStatement prep = prepare(c, sql, params);
+                ResultSet rs = prep.executeQuery()) {
+            List<T> rows = new ArrayList<>();
+            while (rs.next()) {
+                rows.add(mapper.map(rs));
+            }
+            return rows;
+        }
+    }
+
+    private void closeReaders() {
+        SQLiteConnection reader;
+        while ((reader = idleReaders.poll()) != null) {
+            try {
+                reader.close();
+            } catch (SQLException e) {
+                // the reader is discarded either way
+            }
+        }
+    }
+
+    /** A thread of a session, which must not wait for the session to terminate. */
+    private static final class SessionThread extends Thread {
+        private final SQLiteAsyncSession session;
+
+        SessionThread(SQLiteAsyncSession session, Runnable target, String name) {
+            super(target, name);
+            this.session = session;
+        }
+    }
+
+    /** Interrupts the statement of a connection if it is still running when the timeout fires. */
+    private static final class Deadline {
+        private final SQLiteConnection conn;
+        private boolean finished;
+        private boolean expired;
+
+        Deadline(SQLiteConnection conn) {
+            this.conn = conn;
+        }
+
+        synchronized void expire() {
+            if (!finished) {
+                expired = true;
+                try {
+                    conn.getDatabase().interrupt();
+                } catch (SQLException e) {
+                    // the connection is closed, nothing is running
+                }
+            }
+        }
+
+        /** @return True if the statement was interrupted. */
+        synchronized boolean finish() {
+            finished = true;
+            return expired;
+        }
+    }
+
+    /** Maps the current row of a result set. */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /** Consumes the current row of a result set. */
+    @FunctionalInterface
+    public interface RowCallback {
+        void accept(ResultSet rs) throws SQLException;
+    }
+
+    /** Work to run with a connection. */
+    @FunctionalInterface
+    public interface ConnectionCallback<T> {
+        T run(Connection conn) throws SQLException;
+    }
+}
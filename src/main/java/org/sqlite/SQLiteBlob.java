@@ -0,0 +1,362 @@
+package org.sqlite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import org.sqlite.core.Codes;
+import org.sqlite.core.DB;
+
+/**
+ * A blob read and written in place through the <a
+ * href="https://www.sqlite.org/c3ref/blob_open.html">incremental blob I/O</a> of SQLite, without
+ * ever copying it whole onto the heap. Obtained from {@link SQLiteConnection#openBlob(String,
+ * String, String, long, boolean)}, while {@link java.sql.ResultSet#getBlob(int)} returns a copy.
+ *
+ * <p>The size of a blob is fixed: writes cannot go past its end, and a blob of a given size is
+ * created with <code>zeroblob(n)</code>. Once its row is changed or deleted by another statement,
+ * the blob expires and any further access fails with SQLITE_ABORT. An open blob keeps a read
+ * transaction open like a running statement does, so it should be freed once it is no longer used;
+ * it is freed at the latest when the connection closes.
+ */
+public class SQLiteBlob implements Blob, AutoCloseable {
+    /** The largest chunk read or written through a heap array in one native call. */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final DB db;
+    private final boolean writable;
+    private long pointer;
+    private int length;
+
+    SQLiteBlob(DB db, String dbName, String table, String column, long rowid, boolean writable)
+            throws SQLException {
+        this.db = db;
+        this.writable = writable;
+        db.guarded(
+                () -> {
+                    pointer = db.blob_open(dbName, table, column, rowid, writable);
+                    length = db.blob_bytes(pointer);
+                    return null;
+                });
+        db.registerBlob(this);
+    }
+
+    /**
+     * Moves this blob to the same column of another row, which is much cheaper than opening a new
+     * one.
+     *
+     * @param rowid The rowid of the row.
+     * @throws SQLException if the row does not exist or the column is not a blob or text in it
+     */
+    public void reopen(long rowid) throws SQLException {
+        db.guarded(
+                () -> {
+                    checkOpen();
+                    check(db.blob_reopen(pointer, rowid));
+                    length = db.blob_bytes(pointer);
+                    return null;
+                });
+    }
+
+    /** @return The size of the blob in bytes. */
+    @Override
+    public long length() throws SQLException {
+        checkOpen();
+        return length;
+    }
+
+    /**
+     * Reads bytes of the blob into a buffer, up to its remaining bytes. A direct buffer is filled
+     * in place.
+     *
+     * @param offset The offset in the blob to read from, starting at 0.
+     * @param dst The buffer to read into; its position is advanced by the bytes read.
+     * @return The number of bytes read, or -1 if the offset is at the end of the blob.
+     * @throws SQLException
+     */
+    public int read(long offset, ByteBuffer dst) throws SQLException {
+        checkOffset(offset);
+        int n = (int) Math.min(dst.remaining(), length - offset);
+        if (n == 0 && offset == length && dst.hasRemaining()) {
+            return -1;
+        }
+        if (dst.isDirect()) {
+            int position = dst.position();
+            db.guarded(
+                    () -> {
+                        checkOpen();
+                        return check(db.blob_read(pointer, dst, null, position, n, (int) offset));
+                    });
+            dst.position(position + n);
+        } else {
+            readFully(offset, dst.array(), dst.arrayOffset() + dst.position(), n);
+            dst.position(dst.position() + n);
+        }
+        return n;
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer to the blob. A direct buffer is written in place.
+     *
+     * @param offset The offset in the blob to write to, starting at 0.
+     * @param src The buffer to write; its position is advanced to its limit.
+     * @throws SQLException if the bytes do not fit in the blob, or the blob is read-only
+     */
+    public void write(long offset, ByteBuffer src) throws SQLException {
+        checkWritable(offset, src.remaining());
+        int n = src.remaining();
+        if (src.isDirect()) {
+            int position = src.position();
+            db.guarded(
+                    () -> {
+                        checkOpen();
+                        return check(db.blob_write(pointer, src, null, position, n, (int) offset));
+                    });
+        } else if (src.hasArray()) {
+            writeFully(offset, src.array(), src.arrayOffset() + src.position(), n);
+        } else {
+            byte[] chunk = new byte[Math.min(n, CHUNK_SIZE)];
+            ByteBuffer view = src.duplicate();
+            for (int done = 0; done < n; ) {
+                int len = Math.min(chunk.length, n - done);
+                view.get(chunk, 0, len);
+                writeFully(offset + done, chunk, 0, len);
+                done += len;
+            }
+        }
+        src.position(src.limit());
+    }
+
+    /** @see java.sql.Blob#getBytes(long, int) */
+    @Override
+    public byte[] getBytes(long pos, int length) throws SQLException {
+        checkOffset(pos - 1);
+        byte[] bytes = new byte[(int) Math.min(length, this.length - (pos - 1))];
+        readFully(pos - 1, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    /** @return A stream reading the blob in chunks, straight into the arrays passed to it. */
+    @Override
+    public InputStream getBinaryStream() throws SQLException {
+        return getBinaryStream(1, length());
+    }
+
+    /** @see java.sql.Blob#getBinaryStream(long, long) */
+    @Override
+    public InputStream getBinaryStream(long pos, long length) throws SQLException {
+        checkOffset(pos - 1);
+        if (length < 0 || pos - 1 + length > this.length) {
+            throw new SQLException("pos + length is past the end of the blob");
+        }
+        return new BlobInputStream(pos - 1, pos - 1 + length);
+    }
+
+    /** @see java.sql.Blob#setBytes(long, byte[]) */
+    @Override
+    public int setBytes(long pos, byte[] bytes) throws SQLException {
+        return setBytes(pos, bytes, 0, bytes.length);
+    }
+
+    /** @see java.sql.Blob#setBytes(long, byte[], int, int) */
+    @Override
+    public int setBytes(long pos, byte[] bytes, int offset, int len) throws SQLException {
+        checkWritable(pos - 1, len);
+        writeFully(pos - 1, bytes, offset, len);
+        return len;
+    }
+
+    /** @return A stream writing to the blob from the given position, up to its end. */
+    @Override
+    public OutputStream setBinaryStream(long pos) throws SQLException {
+        checkWritable(pos - 1, 0);
+        return new BlobOutputStream(pos - 1);
+    }
+
+    @Override
+    public long position(byte[] pattern, long start) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public long position(Blob pattern, long start) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /** SQLite blobs cannot be resized in place. */
+    @Override
+    public void truncate(long len) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The size of a SQLite blob cannot change");
+    }
+
+    /** Closes the blob handle. Does nothing if it is already closed. */
+    @Override
+    public void free() throws SQLException {
+        db.unregisterBlob(this);
+        db.guarded(
+                () -> {
+                    if (pointer != 0) {
+                        long blob = pointer;
+                        pointer = 0;
+                        db.blob_close(blob);
+                    }
+                    return null;
+                });
+    }
+
+    /** @see #free() */
+    @Override
+    public void close() throws SQLException {
+        free();
+    }
+
+    private void readFully(long offset, byte[] array, int arrayOffset, int n) throws SQLException {
+        for (int done = 0; done < n; ) {
+            int len = Math.min(CHUNK_SIZE, n - done);
+            int from = arrayOffset + done;
+            int at = (int) offset + done;
+            db.guarded(
+                    () -> {
+                        checkOpen();
+                        return check(db.blob_read(pointer, null, array, from, len, at));
+                    });
+            done += len;
+        }
+    }
+
+    private void writeFully(long offset, byte[] array, int arrayOffset, int n) throws SQLException {
+        for (int done = 0; done < n; ) {
+            int len = Math.min(CHUNK_SIZE, n - done);
+            int from = arrayOffset + done;
+            int at = (int) offset + done;
+            db.guarded(
+                    () -> {
+                        checkOpen();
+                        return check(db.blob_write(pointer, null, array, from, len, at));
+                    });
+            done += len;
+        }
+    }
+
+    private void checkOpen() throws SQLException {
+        if (pointer == 0) {
+            throw new SQLException("Blob is freed");
+        }
+    }
+
+    private void checkOffset(long offset) throws SQLException {
+        checkOpen();
+        if (offset < 0 || offset > length) {
+            throw new SQLException("Offset " + offset + " is outside of the blob");
+        }
+    }
+
+    private void checkWritable(long offset, int n) throws SQLException {
+        checkOffset(offset);
+        if (!writable) {
+            throw new SQLException("Blob is read-only");
+        }
+        if (offset + n > length) {
+            throw new SQLException(
+                    "Writing "
+                            + n
+                            + " bytes at offset "
+                            + offset
+                            + " goes past the end of the blob of "
+                            + length
+                            + " bytes");
+        }
+    }
+
+    private Integer check(int rc) throws SQLException {
+        if (rc != Codes.SQLITE_OK) {
+            db.throwex(rc);
+        }
+        return rc;
+    }
+
+    private class BlobInputStream extends InputStream {
+        private long position;
+        private long mark;
+        private final long end;
+
+        BlobInputStream(long position, long end) {
+            this.position = position;
+            this.mark = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (position >= end) return -1;
+            int n = (int) Math.min(len, end - position);
+            try {
+                readFully(position, b, off, n);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            mark = position;
+        }
+
+        @Override
+        public synchronized void reset() {
+            position = mark;
+        }
+    }
+
+    private class BlobOutputStream extends OutputStream {
+        private long position;
+
+        BlobOutputStream(long position) {
+            this.position = position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                setBytes(position + 1, b, off, len);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+            position += len;
+        }
+    }
+}
@@ -0,0 +1,842 @@
+package org.sqlite;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import org.sqlite.SQLiteConfig.JournalMode;
+import org.sqlite.SQLiteConfig.SynchronousMode;
+import org.sqlite.core.Codes;
+import org.sqlite.core.CoreStatement;
+import org.sqlite.core.DB;
+import org.sqlite.core.ParameterBuffer;
+import org.sqlite.util.Logger;
+import org.sqlite.util.LoggerFactory;
+
+/**
+ * Inserts large numbers of rows into a table, obtained from {@link
+ * SQLiteConnection#bulkLoader(String, String...)}. Rows are collected without boxing into the
+ * parameter arrays of a single prepared insert and executed in native code a batch at a time,
+ * bypassing {@link PreparedStatement#addBatch()}.
+ *
+ * <p>If the connection is in auto-commit mode, the loader manages the transaction: it commits every
+ * {@link #setChunkRows(int) chunk} of rows, and sets the <code>synchronous</code> and <code>
+ * journal_mode</code> pragmas for the duration of the load, restoring them afterwards. If a load
+ * fails, the rows of the chunk being loaded are rolled back while the committed chunks stay.
+ * Otherwise all the rows are inserted in the transaction of the caller, who commits them, and the
+ * pragmas are left as they are.
+ *
+ * <p>A loader is not thread safe, and can run several loads one after another.
+ */
+public class SQLiteBulkLoader {
+    private static final Logger logger = LoggerFactory.getLogger(SQLiteBulkLoader.class);
+
+    /** The number of rows executed by one native call. */
+    private static final int BATCH_ROWS = 1024;
+
+    private static final int READ_SIZE = 64 * 1024;
+
+    private final SQLiteConnection conn;
+    private final String table;
+    private final String[] columns;
+
+    private int chunkRows = 100_000;
+    private SynchronousMode synchronous = SynchronousMode.OFF;
+    private JournalMode journalMode;
+
+    private long rowCount;
+    private long elapsedNanos;
+
+    /**
+     * The rows of a load, read through primitive accessors so that no value has to be boxed. Only
+     * the accessor selected by the type of a value is called for it, the others may return
+     * anything.
+     */
+    public interface Row {
+        /**
+         * @param col The first column is 1, the second is 2, ...
+         * @return {@link Codes#SQLITE_INTEGER}, {@link Codes#SQLITE_FLOAT}, {@link
+         *     Codes#SQLITE_TEXT}, {@link Codes#SQLITE_BLOB} or {@link Codes#SQLITE_NULL}, which
+         *     selects the accessor the value is read with.
+         */
+        int getType(int col);
+
+        /** @return The value of a column of type {@link Codes#SQLITE_INTEGER}. */
+        long getLong(int col);
+
+        /** @return The value of a column of type {@link Codes#SQLITE_FLOAT}. */
+        double getDouble(int col);
+
+        /** @return The value of a column of type {@link Codes#SQLITE_TEXT}. */
+        String getString(int col);
+
+        /** @return The value of a column of type {@link Codes#SQLITE_BLOB}. */
+        byte[] getBytes(int col);
+    }
+
+    SQLiteBulkLoader(SQLiteConnection conn, String table, String... columns) throws SQLException {
+        if (columns.length == 0) {
+            throw new SQLException("A bulk load needs at least one column");
+        }
+        this.conn = conn;
+        this.table = table;
+        this.columns = columns.clone();
+    }
+
+    /**
+     * @param chunkRows The number of rows committed at once when the loader manages the
+     *     transaction; 100,000 by default.
+     * @return This loader.
+     */
+    public SQLiteBulkLoader setChunkRows(int chunkRows) {
+        if (chunkRows < 1) {
+            throw new IllegalArgumentException("chunkRows must be at least 1");
+        }
+        this.chunkRows = chunkRows;
+        return this;
+    }
+
+    /**
+     * @param synchronous The synchronous mode during loads, or null to keep the current one. OFF by
+     *     default: the database then survives a crash of the application, but may be corrupted by a
+     *     power loss or an operating system crash during the load.
+     * @return This loader.
+     * @see <a
+     *     href="https://www.sqlite.org/pragma.html#pragma_synchronous">https://www.sqlite.org/pragma.html#pragma_synchronous</a>
+     */
+    public SQLiteBulkLoader setSynchronous(SynchronousMode synchronous) {
+        this.synchronous = synchronous;
+        return this;
+    }
+
+    /**
+     * @param journalMode The journal mode during loads, or null to keep the current one, which is
+     *     the default. MEMORY or OFF speed up loads into a rollback journal database, at the risk
+     *     of corrupting it if the application crashes during the load.
+     * @return This loader.
+     * @see <a
+     *     href="https://www.sqlite.org/pragma.html#pragma_journal_mode">https://www.sqlite.org/pragma.html#pragma_journal_mode</a>
+     */
+    public SQLiteBulkLoader setJournalMode(JournalMode journalMode) {
+        this.journalMode = journalMode;
+        return this;
+    }
+
+    /**
+     * Inserts the rows of a spliterator. Each value is read with the accessor matching its type.
+     *
+     * @param rows The rows, whose columns are numbered like the columns of this loader.
+     * @return The number of rows inserted.
+     * @throws SQLException if a row cannot be inserted
+     */
+    public long load(Spliterator<? extends Row> rows) throws SQLException {
+        Row[] current = new Row[1];
+        Consumer<Row> advance = row -> current[0] = row;
+        return run(
+                params -> {
+                    if (!rows.tryAdvance(advance)) {
+                        return false;
+                    }
+                    Row row = current[0];
+                    for (int col = 1; col <= columns.length; col++) {
+                        switch (row.getType(col)) {
+                            case Codes.SQLITE_INTEGER:
+                                params.setLong(col, row.getLong(col));
+                                break;
+                            case Codes.SQLITE_FLOAT:
+                                params.setDouble(col, row.getDouble(col));
+                                break;
+                            case Codes.SQLITE_TEXT:
+                                params.setString(col, row.getString(col));
+                                break;
+                            case Codes.SQLITE_BLOB:
+                                params.setBytes(col, row.getBytes(col));
+                                break;
+                            default:
+                                params.setNull(col);
+                        }
+                    }
+                    return true;
+                });
+    }
+
+    /**
+     * Inserts the records of a CSV file (RFC 4180) encoded in UTF-8, whose fields are the columns
+     * of this loader in order. Fields are inserted as text, which the affinity of their column
+     * converts like the <code>.import</code> command of the sqlite3 shell does; empty fields are
+     * inserted as empty text.
+     *
+     * @param in The file.
+     * @param header Whether the first record is a header to skip.
+     * @return The number of rows inserted.
+     * @throws SQLException if the file cannot be read or parsed, or a row cannot be inserted
+     */
+    public long loadCsv(ReadableByteChannel in, boolean header) throws SQLException {
+        CsvReader reader = new CsvReader(in);
+        if (header && reader.skipRecord()) {
+            reader.line++;
+        }
+        return run(reader::next);
+    }
+
+    /**
+     * Inserts the JSON objects of a newline delimited JSON file, one per line. The members of an
+     * object are matched to the columns of this loader by name: strings are inserted as text,
+     * numbers as integers or reals, booleans as 1 or 0, and nested objects and arrays as their JSON
+     * text. Missing members are NULL, unknown members are ignored and blank lines are skipped.
+     *
+     * @param in The file.
+     * @return The number of rows inserted.
+     * @throws SQLException if the file cannot be read or parsed, or a row cannot be inserted
+     */
+    public long loadJsonLines(ReadableByteChannel in) throws SQLException {
+        return run(new JsonLinesReader(in)::next);
+    }
+
+    /** @return The number of rows inserted by the last load. */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /** @return The duration of the last load in nanoseconds. */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** @return The rate of the last load in rows per second. */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowCount * 1e9 / elapsedNanos;
+    }
+
+    private interface RowSource {
+        /**
+         * Sets the parameters of the next row.
+         *
+         * @return False if there are no more rows.
+         */
+        boolean next(ParameterBuffer params) throws SQLException;
+    }
+
+    private long run(RowSource source) throws SQLException {
+        conn.checkOpen();
+        DB db = conn.getDatabase();
+        boolean ownTransaction = conn.getAutoCommit();
+        long start = System.nanoTime();
+        rowCount = 0;
+        elapsedNanos = 0;
+
+        String[] restore = new String[2];
+        boolean began = false;
+        Exception failure = null;
+        try {
+            if (ownTransaction) {
+                tune(restore);
+                conn.setAutoCommit(false);
+                began = true;
+            }
+            try (PreparedStatement insert = conn.prepareStatement(insertSql())) {
+                ParameterBuffer params = new ParameterBuffer(columns.length);
+                long chunk = 0;
+                while (source.next(params)) {
+                    params.addRow();
+                    chunk++;
+                    if (params.getRowCount() == BATCH_ROWS
+                            || (ownTransaction && chunk == chunkRows)) {
+                        execute(db, insert, params);
+                    }
+                    if (ownTransaction && chunk == chunkRows) {
+                        conn.commit();
+                        chunk = 0;
+                        logger.trace(
+                                () ->
+                                        String.format(
+                                                "Bulk load into %s: %d rows, %.0f rows/s",
+                                                table, rowCount, rate(start)));
+                    }
+                }
+                if (params.getRowCount() > 0) {
+                    execute(db, insert, params);
+                }
+                if (ownTransaction) {
+                    conn.commit();
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            failure = e;
+            if (began && !conn.isClosed()) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollback) {
+                    e.addSuppressed(rollback);
+                }
+            }
+            throw e;
+        } finally {
+            elapsedNanos = System.nanoTime() - start;
+            if (ownTransaction && !conn.isClosed()) {
+                restore(restore, failure);
+            }
+        }
+        logger.trace(
+                () ->
+                        String.format(
+                                "Bulk load into %s: %d rows in %d ms, %.0f rows/s",
+                                table, rowCount, elapsedNanos / 1_000_000, getRowsPerSecond()));
+        return rowCount;
+    }
+
+    private void execute(DB db, PreparedStatement insert, ParameterBuffer params)
+            throws SQLException {
+        int rows = params.getRowCount();
+        db.executeBatch(((CoreStatement) insert).pointer, params, false);
+        params.clear();
+        rowCount += rows;
+    }
+
+    private double rate(long start) {
+        return rowCount * 1e9 / Math.max(1, System.nanoTime() - start);
+    }
+
+    private String insertSql() {
+        StringBuilder sql = new StringBuilder("insert into ").append(quote(table)).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i == 0 ? "" : ", ").append(quote(columns[i]));
+        }
+        sql.append(") values (?");
+        for (int i = 1; i < columns.length; i++) {
+            sql.append(", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Changes the settings for the load.
+     *
+     * @param restore Set to the pragma statements restoring each setting once it is changed, so
+     *     that those already changed are restored if a later one fails.
+     */
+    private void tune(String[] restore) throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            if (synchronous != null) {
+                String previous = "pragma synchronous = " + pragma(stat, "synchronous");
+                stat.execute("pragma synchronous = " + synchronous.getValue());
+                restore[0] = previous;
+            }
+            if (journalMode != null) {
+                String previous = "pragma journal_mode = " + pragma(stat, "journal_mode");
+                stat.execute("pragma journal_mode = " + journalMode.getValue());
+                restore[1] = previous;
+            }
+        }
+    }
+
+    /**
+     * Leaves the transaction of the loader and restores the settings changed for the load.
+     *
+     * @param failure The error the load failed with, to which errors restoring are added as
+     *     suppressed exceptions, or null if it succeeded.
+     */
+    private void restore(String[] restore, Exception failure) throws SQLException {
+        SQLException error = null;
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            error = e;
+        }
+        for (String pragma : restore) {
+            if (pragma != null) {
+                try (Statement stat = conn.createStatement()) {
+                    stat.execute(pragma);
+                } catch (SQLException e) {
+                    if (error == null) {
+                        error = e;
+                    } else {
+                        error.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (error != null) {
+            if (failure == null) {
+                throw error;
+            }
+            failure.addSuppressed(error);
+        }
+    }
+
+    private static String pragma(Statement stat, String name) throws SQLException {
+        try (ResultSet rs = stat.executeQuery("pragma " + name)) {
+            return rs.getString(1);
+        }
+    }
+
+    /** Reads bytes from a channel a buffer at a time. */
+    private abstract static class ChannelReader {
+        private final ReadableByteChannel in;
+        private final ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+        private boolean eof;
+        long line = 1;
+
+        ChannelReader(ReadableByteChannel in) throws SQLException {
+            this.in = in;
+            buffer.flip();
+            // skip a byte order mark
+            if (read() >= 0) {
+                buffer.position(0);
+                if (buffer.remaining() >= 3
+                        && buffer.get(0) == (byte) 0xEF
+                        && buffer.get(1) == (byte) 0xBB
+                        && buffer.get(2) == (byte) 0xBF) {
+                    buffer.position(3);
+                }
+            }
+        }
+
+        /** @return The next byte, or -1 at the end of the channel. */
+        final int read() throws SQLException {
+            while (!buffer.hasRemaining()) {
+                if (eof) {
+                    return -1;
+                }
+                buffer.clear();
+                try {
+                    eof = in.read(buffer) < 0;
+                } catch (IOException e) {
+                    throw new SQLException("Error reading the rows of a bulk load", e);
+                } finally {
+                    buffer.flip();
+                }
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        final SQLException error(String message) {
+            return new SQLException("Line " + line + ": " + message);
+        }
+    }
+
+    /** A growable array of bytes. */
+    private static final class Bytes {
+        byte[] array = new byte[256];
+        int length;
+
+        void add(int b) {
+            if (length == array.length) {
+                array = Arrays.copyOf(array, length * 2);
+            }
+            array[length++] = (byte) b;
+        }
+
+        byte[] copy(int from, int to) {
+            return Arrays.copyOfRange(array, from, to);
+        }
+    }
+
+    private final class CsvReader extends ChannelReader {
+        private final Bytes field = new Bytes();
+
+        CsvReader(ReadableByteChannel in) throws SQLException {
+            super(in);
+        }
+
+        boolean skipRecord() throws SQLException {
+            return parse(null) > 0;
+        }
+
+        boolean next(ParameterBuffer params) throws SQLException {
+            int fields;
+            do {
+                fields = parse(params);
+            } while (fields == 0);
+            if (fields < 0) {
+                return false;
+            }
+            if (fields != columns.length) {
+                throw error("expected " + columns.length + " fields but found " + fields);
+            }
+            line++;
+            return true;
+        }
+
+        /**
+         * Reads a record, setting its fields as the parameters of a row.
+         *
+         * @return The number of fields, 0 for a blank line, or -1 at the end of the file.
+         */
+        private int parse(ParameterBuffer params) throws SQLException {
+            int fields = 0;
+            int b = read();
+            if (b < 0) {
+                return -1;
+            }
+            if (b == '\n' || (b == '\r' && (b = read()) == '\n')) {
+                line++;
+                return 0;
+            }
+            while (true) {
+                field.length = 0;
+                boolean quoted = b == '"';
+                if (quoted) {
+                    while (true) {
+                        b = read();
+                        if (b < 0) {
+                            throw error("unterminated quoted field");
+                        } else if (b == '"') {
+                            b = read();
+                            if (b != '"') {
+                                break;
+                            }
+                        } else if (b == '\n') {
+                            line++;
+                        }
+                        field.add(b);
+                    }
+                } else {
+                    while (b >= 0 && b != ',' && b != '\n') {
+                        field.add(b);
+                        b = read();
+                    }
+                }
+                if (quoted && b == '\r') {
+                    b = read();
+                } else if (!quoted
+                        && b != ','
+                        && field.length > 0
+                        && field.array[field.length - 1] == '\r') {
+                    field.length--;
+                }
+                fields++;
+                if (params != null && fields <= columns.length) {
+                    params.setText(fields, field.copy(0, field.length));
+                }
+                if (b == ',') {
+                    b = read();
+                } else if (b == '\n' || b < 0) {
+                    return fields;
+                } else {
+                    throw error("unexpected character after a quoted field");
+                }
+            }
+        }
+    }
+
+    private final class JsonLinesReader extends ChannelReader {
+        private final byte[][] names = new byte[columns.length][];
+        private final Bytes text = new Bytes();
+        private int pos;
+        private int end;
+
+        JsonLinesReader(ReadableByteChannel in) throws SQLException {
+            super(in);
+            for (int i = 0; i < columns.length; i++) {
+                names[i] = columns[i].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        boolean next(ParameterBuffer params) throws SQLException {
+            while (true) {
+                int b;
+                text.length = 0;
+                while ((b = read()) >= 0 && b != '\n') {
+                    text.add(b);
+                }
+                if (b < 0 && text.length == 0) {
+                    return false;
+                }
+                // unescaped strings are appended after the line
+                end = text.length;
+                pos = 0;
+                if (skipSpace() < end) {
+                    params.clearRow();
+                    parseObject(params);
+                    line++;
+                    return true;
+                }
+                line++;
+            }
+        }
+
+        private void parseObject(ParameterBuffer params) throws SQLException {
+            expect('{');
+            if (skipSpace() < end && text.array[pos] == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    skipSpace();
+                    expect('"');
+                    int key = parseString();
+                    int col = column(key, text.length);
+                    text.length = key;
+                    skipSpace();
+                    expect(':');
+                    skipSpace();
+                    parseValue(params, col);
+                    skipSpace();
+                    if (pos < end && text.array[pos] == ',') {
+                        pos++;
+                    } else {
+                        expect('}');
+                        break;
+                    }
+                }
+            }
+            if (skipSpace() < end) {
+                throw error("unexpected text after the object");
+            }
+        }
+
+        private void parseValue(ParameterBuffer params, int col) throws SQLException {
+            if (pos >= end) {
+                throw error("missing value");
+            }
+            int start = pos;
+            switch (text.array[pos]) {
+                case '"':
+                    pos++;
+                    int from = parseString();
+                    if (col > 0) {
+                        params.setText(col, text.copy(from, text.length));
+                    }
+                    text.length = from;
+                    break;
+                case '{':
+                case '[':
+                    skipNested();
+                    if (col > 0) {
+                        params.setText(col, text.copy(start, pos));
+                    }
+                    break;
+                case 't':
+                    literal("true");
+                    if (col > 0) params.setLong(col, 1);
+                    break;
+                case 'f':
+                    literal("false");
+                    if (col > 0) params.setLong(col, 0);
+                    break;
+                case 'n':
+                    literal("null");
+                    if (col > 0) params.setNull(col);
+                    break;
+                default:
+                    parseNumber(params, col);
+            }
+        }
+
+        private void parseNumber(ParameterBuffer params, int col) throws SQLException {
+            int start = pos;
+            boolean integer = true;
+            long value = 0;
+            boolean negative = pos < end && text.array[pos] == '-';
+            if (negative) {
+                pos++;
+            }
+            int digits = pos;
+            while (pos < end) {
+                byte c = text.array[pos];
+                if (c >= '0' && c <= '9') {
+                    if (integer) {
+                        // accumulated negatively so that Long.MIN_VALUE fits
+                        long next = value * 10 - (c - '0');
+                        integer = value >= Long.MIN_VALUE / 10 && next <= value;
+                        value = next;
+                    }
+                } else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                    integer = false;
+                } else {
+                    break;
+                }
+                pos++;
+            }
+            if (pos == digits) {
+                throw error("invalid value");
+            }
+            if (col <= 0) {
+                return;
+            }
+            if (integer && (negative || value != Long.MIN_VALUE)) {
+                params.setLong(col, negative ? value : -value);
+            } else {
+                String number =
+                        new String(text.array, start, pos - start, StandardCharsets.US_ASCII);
+                try {
+                    params.setDouble(col, Double.parseDouble(number));
+                } catch (NumberFormatException e) {
+                    throw error("invalid number " + number);
+                }
+            }
+        }
+
+        /**
+         * Unescapes the string starting at the current position, after its opening quote, and
+         * appends its UTF-8 bytes after the line.
+         *
+         * @return The offset of the unescaped bytes, which end at the length of the text.
+         */
+        private int parseString() throws SQLException {
+            int from = text.length;
+            while (true) {
+                if (pos >= end) {
+                    throw error("unterminated string");
+                }
+                byte c = text.array[pos++];
+                if (c == '"') {
+                    return from;
+                }
+                if (c != '\\') {
+                    text.add(c);
+                    continue;
+                }
+                if (pos >= end) {
+                    throw error("unterminated string");
+                }
+                c = text.array[pos++];
+                switch (c) {
+                    case 'b':
+                        text.add('\b');
+                        break;
+                    case 'f':
+                        text.add('\f');
+                        break;
+                    case 'n':
+                        text.add('\n');
+                        break;
+                    case 'r':
+                        text.add('\r');
+                        break;
+                    case 't':
+                        text.add('\t');
+                        break;
+                    case 'u':
+                        int cp = hex4();
+                        if (Character.isHighSurrogate((char) cp)
+                                && pos + 1 < end
+                                && text.array[pos] == '\\'
+                                && text.array[pos + 1] == 'u') {
+                            pos += 2;
+                            int low = hex4();
+                            cp =
+                                    Character.isLowSurrogate((char) low)
+                                            ? Character.toCodePoint((char) cp, (char) low)
+                                            : 0xFFFD;
+                        } else if (Character.isSurrogate((char) cp)) {
+                            cp = 0xFFFD;
+                        }
+                        addUtf8(cp);
+                        break;
+                    default:
+                        text.add(c);
+                }
+            }
+        }
+
+        private int hex4() throws SQLException {
+            if (pos + 4 > end) {
+                throw error("invalid escape");
+            }
+            int cp = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(text.array[pos++], 16);
+                if (digit < 0) {
+                    throw error("invalid escape");
+                }
+                cp = cp * 16 + digit;
+            }
+            return cp;
+        }
+
+        private void addUtf8(int cp) {
+            if (cp < 0x80) {
+                text.add(cp);
+            } else if (cp < 0x800) {
+                text.add(0xC0 | cp >> 6);
+                text.add(0x80 | cp & 0x3F);
+            } else if (cp < 0x10000) {
+                text.add(0xE0 | cp >> 12);
+                text.add(0x80 | cp >> 6 & 0x3F);
+                text.add(0x80 | cp & 0x3F);
+            } else {
+                text.add(0xF0 | cp >> 18);
+                text.add(0x80 | cp >> 12 & 0x3F);
+                text.add(0x80 | cp >> 6 & 0x3F);
+                text.add(0x80 | cp & 0x3F);
+            }
+        }
+
+        private void skipNested() throws SQLException {
+            int depth = 0;
+            boolean string = false;
+            while (pos < end) {
+                byte c = text.array[pos++];
+                if (string) {
+                    if (c == '\\') {
+                        pos++;
+                    } else if (c == '"') {
+                        string = false;
+                    }
+                } else if (c == '"') {
+                    string = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    return;
+                }
+            }
+            throw error("unterminated " + (string ? "string" : "object or array"));
+        }
+
+        /** @return The column named by the bytes of the text in [from, to), 0 if there is none. */
+        private int column(int from, int to) {
+            for (int i = 0; i < names.length; i++) {
+                byte[] name = names[i];
+                if (name.length == to - from) {
+                    int j = 0;
+                    while (j < name.length && name[j] == text.array[from + j]) {
+                        j++;
+                    }
+                    if (j == name.length) {
+                        return i + 1;
+                    }
+                }
+            }
+            return 0;
+        }
+
+        private void literal(String word) throws SQLException {
+            for (int i = 0; i < word.length(); i++) {
+                if (pos >= end || text.array[pos++] != word.charAt(i)) {
+                    throw error("invalid value");
+                }
+            }
+        }
+
+        private void expect(char c) throws SQLException {
+            if (pos >= end || text.array[pos] != c) {
+                throw error("expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private int skipSpace() {
+            while (pos < end) {
+                byte c = text.array[pos];
+                if (c != ' ' && c != '\t' && c != '\r') {
+                    break;
+                }
+                pos++;
+            }
+            return pos;
+        }
+    }
+}
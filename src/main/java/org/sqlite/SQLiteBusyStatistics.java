@@ -0,0 +1,65 @@
+package org.sqlite;
+
+/**
+ * How often and how long the statements of a connection with the same SQL text found the database
+ * busy, as recorded by the native busy strategy. See {@link SQLiteConnection#getBusyStatistics()}.
+ */
+public final class SQLiteBusyStatistics {
+    private final String sql;
+    private final long busyEvents;
+    private final long retries;
+    private final long waitMicros;
+    private final long timeouts;
+
+    public SQLiteBusyStatistics(
+            String sql, long busyEvents, long retries, long waitMicros, long timeouts) {
+        this.sql = sql;
+        this.busyEvents = busyEvents;
+        this.retries = retries;
+        this.waitMicros = waitMicros;
+        this.timeouts = timeouts;
+    }
+
+    /**
+     * @return The SQL text, or null for the waits of statements not counted apart: those outside of
+     *     a statement, such as opening a blob, and those beyond the first 64 distinct SQL texts.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /** @return The number of times a statement found the database busy. */
+    public long getBusyEvents() {
+        return busyEvents;
+    }
+
+    /** @return The number of times a busy statement was retried. */
+    public long getRetries() {
+        return retries;
+    }
+
+    /** @return The total time spent waiting before retries, in microseconds. */
+    public long getWaitMicros() {
+        return waitMicros;
+    }
+
+    /** @return The number of times a statement gave up once the busy timeout elapsed. */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    @Override
+    public String toString() {
+        return "SQLiteBusyStatistics{sql="
+                + sql
+                + ", busyEvents="
+                + busyEvents
+                + ", retries="
+                + retries
+                + ", waitMicros="
+                + waitMicros
+                + ", timeouts="
+                + timeouts
+                + '}';
+    }
+}
@@ -0,0 +1,303 @@
+package org.sqlite;
+
+import static org.sqlite.core.Codes.SQLITE_DONE;
+import static org.sqlite.core.Codes.SQLITE_NULL;
+import static org.sqlite.core.Codes.SQLITE_OK;
+import static org.sqlite.core.Codes.SQLITE_ROW;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+import org.sqlite.core.CoreStatement;
+import org.sqlite.core.DB;
+import org.sqlite.core.SafeStmtPtr;
+
+/**
+ * The results of a query in batches of rows laid out column by column, as returned by {@link
+ * SQLiteStatement#executeColumnar(String, int)}. Each call to {@link #next()} steps the statement
+ * in native code and overwrites the buffers of the previous batch.
+ *
+ * <p>The buffers of a column follow the <a
+ * href="https://arrow.apache.org/docs/format/Columnar.html">Apache Arrow columnar format</a> in
+ * native byte order, so they can be handed to Arrow or similar libraries without conversion:
+ *
+ * <ul>
+ *   <li>the validity bitmap, where bit <code>r</code> (least significant bit first) is set when row
+ *       <code>r</code> is not NULL;
+ *   <li>the values of <code>INTEGER</code> and <code>FLOAT</code> columns, one int64 or float64 per
+ *       row;
+ *   <li>for <code>TEXT</code> and <code>BLOB</code> columns, the int32 offsets of each row into the
+ *       data buffer, row <code>r</code> spanning <code>[offsets[r], offsets[r + 1])</code>, and the
+ *       data buffer holding UTF-8 text or blob bytes.
+ * </ul>
+ *
+ * <p>SQLite has no column types, so the type of a column is the storage class of its first non-NULL
+ * value, see {@link #getColumnType(int)}; later values of another storage class are converted like
+ * {@link java.sql.ResultSet#getLong(int)} or {@link java.sql.ResultSet#getString(int)} would.
+ * Columns are numbered from 1 and rows of a batch from 0.
+ */
+public class SQLiteColumnarBatch implements AutoCloseable {
+    private static final int INITIAL_DATA_SIZE = 1024;
+
+    private final SafeStmtPtr pointer;
+    private final int batchRows;
+    private final String[] columnNames;
+    private final int[] kinds;
+    private final ByteBuffer[] buffers;
+    private final int[] status = new int[3];
+    private int rows;
+    private boolean done;
+
+    /**
+     * Creates a batch over a statement that has been prepared but not stepped.
+     *
+     * @param stmt The statement.
+     * @param batchRows The maximum number of rows of a batch.
+     * @throws SQLException
+     */
+    public SQLiteColumnarBatch(CoreStatement stmt, int batchRows) throws SQLException {
+        if (batchRows < 1) {
+            throw new SQLException("batchRows must be at least 1");
+        }
+        this.pointer = stmt.pointer;
+        this.batchRows = batchRows;
+        this.columnNames = pointer.safeRun(DB::column_names);
+        this.kinds = new int[columnNames.length];
+        Arrays.fill(kinds, SQLITE_NULL);
+        this.buffers = new ByteBuffer[4 * columnNames.length];
+        for (int c = 0; c < columnNames.length; c++) {
+            buffers[4 * c] = allocate((batchRows + 7) / 8);
+            buffers[4 * c + 1] = allocate(batchRows * 8);
+            buffers[4 * c + 2] = allocate((batchRows + 1) * 4);
+            buffers[4 * c + 3] = allocate(INITIAL_DATA_SIZE);
+        }
+    }
+
+    /**
+     * Fills the buffers with the next rows of the query, replacing the previous batch.
+     *
+     * @return False if there are no more rows.
+     * @throws SQLException if the query fails, or the statement is closed
+     */
+    public boolean next() throws SQLException {
+        rows = 0;
+        if (done) {
+            return false;
+        }
+        boolean stepFirst = true;
+        do {
+            int start = rows;
+            boolean first = stepFirst;
+            rows =
+                    pointer.safeRunInt(
+                            (db, ptr) ->
+                                    db.stepColumnarWithBusyWait(
+                                            ptr, start, batchRows, kinds, buffers, status, first));
+            if (status[0] == SQLITE_ROW) {
+                // a value does not fit in the data buffer of its column
+                growData(status[1], status[2]);
+                stepFirst = false;
+            }
+        } while (status[0] == SQLITE_ROW);
+
+        if (status[0] != SQLITE_OK) {
+            done = true;
+            int rc = status[0];
+            pointer.safeRunInt(
+                    (db, ptr) -> {
+                        try {
+                            if (rc != SQLITE_DONE) {
+                                db.throwex(rc);
+                            }
+                        } finally {
+                            db.reset(ptr);
+                        }
+                        return rc;
+                    });
+        }
+        return rows > 0;
+    }
+
+    /** @return The number of rows of the current batch. */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /** @return The number of columns. */
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * @param col The first column is 1, the second is 2, ...
+     * @return The name of the column.
+     */
+    public String getColumnName(int col) {
+        return columnNames[col - 1];
+    }
+
+    /**
+     * @param col The first column is 1, the second is 2, ...
+     * @return The {@link org.sqlite.core.Codes} storage class of the first non-NULL value of the
+     *     column: SQLITE_INTEGER, SQLITE_FLOAT, SQLITE_TEXT or SQLITE_BLOB, or SQLITE_NULL if all
+     *     its values so far were NULL.
+     */
+    public int getColumnType(int col) {
+        return kinds[col - 1];
+    }
+
+    /**
+     * @param col The first column is 1, the second is 2, ...
+     * @return The validity bitmap of the column, limited to the bytes of the current batch.
+     */
+    public ByteBuffer getValidityBuffer(int col) {
+        return view(buffers[4 * (col - 1)], (rows + 7) / 8);
+    }
+
+    /**
+     * @param col The first column is 1, the second is 2, ...
+     * @return The int64 or float64 values of an <code>INTEGER</code> or <code>FLOAT</code> column;
+     *     NULL values are 0.
+     */
+    public ByteBuffer getValueBuffer(int col) {
+        return view(buffers[4 * (col - 1) + 1], rows * 8);
+    }
+
+    /**
+     * @param col The first column is 1, the second is 2, ...
+     * @return The <code>getRowCount() + 1</code> int32 offsets of a <code>TEXT</code> or <code>
+     *     BLOB</code> column into its data buffer.
+     */
+    public ByteBuffer getOffsetBuffer(int col) {
+        return view(buffers[4 * (col - 1) + 2], (rows + 1) * 4);
+    }
+
+    /**
+     * @param col The first column is 1, the second is 2, ...
+     * @return The UTF-8 text or blob bytes of a <code>TEXT</code> or <code>BLOB</code> column.
+     */
+    public ByteBuffer getDataBuffer(int col) {
+        return view(buffers[4 * (col - 1) + 3], offset(col, rows));
+    }
+
+    /**
+     * @param col The first column is 1, the second is 2, ...
+     * @return The number of NULL values of the column in the current batch.
+     */
+    public int getNullCount(int col) {
+        ByteBuffer validity = buffers[4 * (col - 1)];
+        int valid = 0;
+        for (int i = 0; i < rows / 8; i++) {
+            valid += Integer.bitCount(validity.get(i) & 0xFF);
+        }
+        if (rows % 8 != 0) {
+            valid += Integer.bitCount(validity.get(rows / 8) & ((1 << (rows % 8)) - 1));
+        }
+        return rows - valid;
+    }
+
+    /**
+     * @param col The first column is 1, the second is 2, ...
+     * @param row The first row of the batch is 0.
+     * @return True if the value is NULL.
+     */
+    public boolean isNull(int col, int row) {
+        checkRow(row);
+        return (buffers[4 * (col - 1)].get(row >> 3) & (1 << (row & 7))) == 0;
+    }
+
+    /**
+     * @param col The first column is 1, the second is 2, ...
+     * @param row The first row of the batch is 0.
+     * @return The value of an <code>INTEGER</code> column, 0 if it is NULL.
+     */
+    public long getLong(int col, int row) {
+        checkRow(row);
+        return buffers[4 * (col - 1) + 1].getLong(row * 8);
+    }
+
+    /**
+     * @param col The first column is 1, the second is 2, ...
+     * @param row The first row of the batch is 0.
+     * @return The value of a <code>FLOAT</code> column, 0 if it is NULL.
+     */
+    public double getDouble(int col, int row) {
+        checkRow(row);
+        return buffers[4 * (col - 1) + 1].getDouble(row * 8);
+    }
+
+    /**
+     * Decodes a value of a <code>TEXT</code> column. Unlike the other accessors, this creates a
+     * String.
+     *
+     * @param col The first column is 1, the second is 2, ...
+     * @param row The first row of the batch is 0.
+     * @return The value, or null if it is NULL.
+     */
+    public String getString(int col, int row) {
+        if (isNull(col, row)) {
+            return null;
+        }
+        int start = offset(col, row);
+        byte[] bytes = new byte[offset(col, row + 1) - start];
+        ByteBuffer data = buffers[4 * (col - 1) + 3].duplicate();
+        data.position(start);
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Resets the statement, ending the query. Does nothing if the statement is closed. */
+    @Override
+    public void close() throws SQLException {
+        rows = 0;
+        if (!done) {
+            done = true;
+            if (!pointer.isClosed()) {
+                pointer.safeRunInt(DB::reset);
+            }
+        }
+    }
+
+    private int offset(int col, int row) {
+        return buffers[4 * (col - 1) + 2].getInt(row * 4);
+    }
+
+    private void growData(int column, int needed) throws SQLException {
+        if (needed < 0) {
+            throw new SQLException(
+                    "The values of column "
+                            + columnNames[column]
+                            + " in a batch of "
+                            + batchRows
+                            + " rows exceed 2 GiB");
+        }
+        ByteBuffer old = buffers[4 * column + 3];
+        ByteBuffer data =
+                allocate((int) Math.min(Integer.MAX_VALUE, Math.max(needed, 2L * old.capacity())));
+        ByteBuffer filled = old.duplicate();
+        filled.position(0);
+        filled.limit(offset(column + 1, rows));
+        data.put(filled);
+        data.clear();
+        buffers[4 * column + 3] = data;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException(
+                    "Row " + row + " is outside of the batch of " + rows + " rows");
+        }
+    }
+
+    private static ByteBuffer view(ByteBuffer buffer, int limit) {
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.nativeOrder());
+        view.limit(limit);
+        return view;
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+    }
+}
@@ -55,6 +55,7 @@ public class SQLiteConfig {
     private int openModeFlag = 0x00;
 
     private int busyTimeout;
+    private int statementCacheSize;
     private boolean explicitReadOnly;
 
     private final SQLiteConnectionConfig defaultConnectionConfig;
@@ -89,6 +90,9 @@ public class SQLiteConfig {
 
         setBusyTimeout(
                 Integer.parseInt(pragmaTable.getProperty(Pragma.BUSY_TIMEOUT.pragmaName, "3000")));
+        setStatementCacheSize(
+                Integer.parseInt(
+                        pragmaTable.getProperty(Pragma.JDBC_STATEMENT_CACHE_SIZE.pragmaName, "0")));
         this.defaultConnectionConfig = SQLiteConnectionConfig.fromPragmaTable(pragmaTable);
         this.explicitReadOnly =
                 Boolean.parseBoolean(
@@ -162,6 +166,9 @@ public class SQLiteConfig {
             sqliteConn.setLimit(
                     SQLiteLimits.SQLITE_LIMIT_PAGE_COUNT,
                     parseLimitPragma(Pragma.LIMIT_PAGE_COUNT, DEFAULT_MAX_PAGE_COUNT));
+            // the busy_timeout pragma would replace the native busy strategy, if it is used
+            sqliteConn.setBusyTimeout(busyTimeout);
+            pragmaParams.remove(Pragma.BUSY_TIMEOUT.pragmaName);
         }
 
         pragmaParams.remove(Pragma.OPEN_MODE.pragmaName);
@@ -189,6 +196,16 @@ public class SQLiteConfig {
         // exclude this "fake" pragma from execution
         pragmaParams.remove(Pragma.JDBC_EXPLICIT_READONLY.pragmaName);
         pragmaParams.remove(Pragma.JDBC_GET_GENERATED_KEYS.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_STATEMENT_CACHE_SIZE.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_BATCH_FETCH.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_JAVA_TIME_DATES.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_STREAM_CHUNK_SIZE.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_THREADING_MODEL.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_BUSY_STRATEGY.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_BUSY_BACKOFF_INITIAL.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_BUSY_BACKOFF_MAX.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_BUSY_SPINS.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_BUSY_STATISTICS.pragmaName);
 
         Statement stat = conn.createStatement();
         try {
@@ -334,6 +351,15 @@ public class SQLiteConfig {
         pragmaTable.setProperty(
                 Pragma.JDBC_GET_GENERATED_KEYS.pragmaName,
                 defaultConnectionConfig.isGetGeneratedKeys() ? "true" : "false");
+        pragmaTable.setProperty(
+                Pragma.JDBC_BATCH_FETCH.pragmaName,
+                defaultConnectionConfig.isBatchFetch() ? "true" : "false");
+        pragmaTable.setProperty(
+                Pragma.JDBC_JAVA_TIME_DATES.pragmaName,
+                defaultConnectionConfig.isJavaTimeDates() ? "true" : "false");
+        pragmaTable.setProperty(
+                Pragma.JDBC_STREAM_CHUNK_SIZE.pragmaName,
+                Integer.toString(defaultConnectionConfig.getStreamChunkSize()));
         return pragmaTable;
     }
 
@@ -531,7 +557,7 @@ public class SQLiteConfig {
                 toStringArray(TransactionMode.values())),
         DATE_PRECISION(
                 "date_precision",
-                "\"seconds\": Read and store integer dates as seconds from the Unix Epoch (SQLite standard).\n\"milliseconds\": (DEFAULT) Read and store integer dates as milliseconds from the Unix Epoch (Java standard).",
+                "\"seconds\": Read and store integer dates as seconds from the Unix Epoch (SQLite standard).\n\"milliseconds\": (DEFAULT) Read and store integer dates as milliseconds from the Unix Epoch (Java standard).\n\"microseconds\", \"nanoseconds\": Read and store integer dates as microseconds or nanoseconds from the Unix Epoch, keeping the sub-millisecond part of timestamps.",
                 toStringArray(DatePrecision.values())),
         DATE_CLASS(
                 "date_class",
@@ -552,7 +578,47 @@ public class SQLiteConfig {
         JDBC_EXPLICIT_READONLY(
                 "jdbc.explicit_readonly", "Set explicit read only transactions", null),
         JDBC_GET_GENERATED_KEYS(
-                "jdbc.get_generated_keys", "Enable retrieval of generated keys", OnOff.Values);
+                "jdbc.get_generated_keys", "Enable retrieval of generated keys", OnOff.Values),
+        JDBC_STATEMENT_CACHE_SIZE(
+                "jdbc.statement_cache_size",
+                "Number of closed prepared statements kept per connection for reuse, 0 (default) disables the cache",
+                null),
+        JDBC_BATCH_FETCH(
+                "jdbc.batch_fetch",
+                "Fetch result set rows in batches of the fetch size with a single native call per batch",
+                OnOff.Values),
+        JDBC_JAVA_TIME_DATES(
+                "jdbc.java_time_dates",
+                "Store java.time values passed to setObject like dates, following date_class and date_precision, instead of as their ISO-8601 text",
+                OnOff.Values),
+        JDBC_STREAM_CHUNK_SIZE(
+                "jdbc.stream_chunk_size",
+                "Number of bytes or chars read at a time from streams bound to prepared statements (default 65536)",
+                null),
+        JDBC_THREADING_MODEL(
+                "jdbc.threading_model",
+                "How a connection guards its statements against concurrent use: SERIALIZED (default) locks the connection on every native call, SINGLE_OWNER only checks that the owner thread is calling, REENTRANT_LOCK locks with a ReentrantLock and retries busy statements in Java so that virtual threads park instead of pinning",
+                toStringArray(ThreadingModel.values())),
+        JDBC_BUSY_STRATEGY(
+                "jdbc.busy_strategy",
+                "How busy statements are retried until the busy timeout: FIXED (default) uses sqlite3_busy_timeout, BACKOFF installs a native busy handler doubling a randomized delay between jdbc.busy_backoff_initial and jdbc.busy_backoff_max",
+                toStringArray(BusyStrategy.values())),
+        JDBC_BUSY_BACKOFF_INITIAL(
+                "jdbc.busy_backoff_initial",
+                "First delay of the BACKOFF busy strategy in microseconds (default 100)",
+                null),
+        JDBC_BUSY_BACKOFF_MAX(
+                "jdbc.busy_backoff_max",
+                "Longest delay of the BACKOFF busy strategy in microseconds (default 100000)",
+                null),
+        JDBC_BUSY_SPINS(
+                "jdbc.busy_spins",
+                "Number of times a busy statement is retried after yielding the processor, before the busy strategy starts sleeping (default 0)",
+                null),
+        JDBC_BUSY_STATISTICS(
+                "jdbc.busy_statistics",
+                "Record how long statements wait for the database per SQL text, with a native busy handler following the schedule of sqlite3_busy_timeout under the FIXED busy strategy",
+                OnOff.Values);
 
         public final String pragmaName;
         public final String[] choices;
@@ -1043,6 +1109,139 @@ public class SQLiteConfig {
         }
     }
 
+    /**
+     * Sets how a connection guards the native calls of its statements against concurrent use.
+     *
+     * @param model One of {@link ThreadingModel}:
+     *     <ul>
+     *       <li>SERIALIZED - every call locks the connection, so it may be shared between threads
+     *           (default)
+     *       <li>SINGLE_OWNER - calls only check that they come from the thread owning the
+     *           connection, see {@link SQLiteConnection#transferOwnership()}
+     *       <li>REENTRANT_LOCK - like SERIALIZED, but the connection is locked with a {@link
+     *           java.util.concurrent.locks.ReentrantLock} and busy statements are retried with the
+     *           busy timeout by parking the calling thread rather than sleeping inside SQLite, so
+     *           virtual threads waiting on the connection or the database do not pin their carrier
+     *     </ul>
+     */
+    public void setThreadingModel(ThreadingModel model) {
+        setPragma(Pragma.JDBC_THREADING_MODEL, model.name());
+    }
+
+    /** @return The threading model. */
+    public ThreadingModel getThreadingModel() {
+        String model = pragmaTable.getProperty(Pragma.JDBC_THREADING_MODEL.pragmaName);
+        return model == null ? ThreadingModel.SERIALIZED : ThreadingModel.getModel(model);
+    }
+
+    public enum ThreadingModel implements PragmaValue {
+        SERIALIZED,
+        SINGLE_OWNER,
+        REENTRANT_LOCK;
+
+        public String getValue() {
+            return name();
+        }
+
+        public static ThreadingModel getModel(String model) {
+            return ThreadingModel.valueOf(model.toUpperCase());
+        }
+    }
+
+    /**
+     * Sets how the retries of a statement that finds the database locked by another connection are
+     * spaced, until the busy timeout elapses. Either way, the retries happen without calling back
+     * into Java.
+     *
+     * @param strategy One of {@link BusyStrategy}:
+     *     <ul>
+     *       <li>FIXED - sqlite3_busy_timeout, whose delays grow from 1 to 100 milliseconds
+     *           (default)
+     *       <li>BACKOFF - a delay starting at {@link #setBusyBackoffInitial(int)} that doubles on
+     *           every retry up to {@link #setBusyBackoffMax(int)}, of which a random part is
+     *           skipped so that waiting connections do not retry in lockstep, applied by a native
+     *           busy handler that also records the waits, see {@link #setBusyStatistics(boolean)}
+     *     </ul>
+     *
+     * @see #setBusyTimeout(int)
+     * @see #setBusySpins(int)
+     */
+    public void setBusyStrategy(BusyStrategy strategy) {
+        setPragma(Pragma.JDBC_BUSY_STRATEGY, strategy.name());
+    }
+
+    /** @return The busy strategy. */
+    public BusyStrategy getBusyStrategy() {
+        String strategy = pragmaTable.getProperty(Pragma.JDBC_BUSY_STRATEGY.pragmaName);
+        return strategy == null ? BusyStrategy.FIXED : BusyStrategy.getStrategy(strategy);
+    }
+
+    public enum BusyStrategy implements PragmaValue {
+        FIXED,
+        BACKOFF;
+
+        public String getValue() {
+            return name();
+        }
+
+        public static BusyStrategy getStrategy(String strategy) {
+            return BusyStrategy.valueOf(strategy.toUpperCase());
+        }
+    }
+
+    /** @param micros The first delay of the BACKOFF busy strategy, 100 microseconds by default. */
+    public void setBusyBackoffInitial(int micros) {
+        setPragma(Pragma.JDBC_BUSY_BACKOFF_INITIAL, Integer.toString(micros));
+    }
+
+    public int getBusyBackoffInitial() {
+        return Integer.parseInt(
+                pragmaTable.getProperty(Pragma.JDBC_BUSY_BACKOFF_INITIAL.pragmaName, "100"));
+    }
+
+    /** @param micros The longest delay of the BACKOFF busy strategy, 100000 by default. */
+    public void setBusyBackoffMax(int micros) {
+        setPragma(Pragma.JDBC_BUSY_BACKOFF_MAX, Integer.toString(micros));
+    }
+
+    public int getBusyBackoffMax() {
+        return Integer.parseInt(
+                pragmaTable.getProperty(Pragma.JDBC_BUSY_BACKOFF_MAX.pragmaName, "100000"));
+    }
+
+    /**
+     * Sets how many times a busy statement is retried right after yielding the processor, before
+     * the busy strategy starts sleeping. Short write transactions often release their lock within a
+     * few microseconds, much sooner than the first delay.
+     *
+     * @param spins The number of retries, 0 by default.
+     */
+    public void setBusySpins(int spins) {
+        setPragma(Pragma.JDBC_BUSY_SPINS, Integer.toString(spins));
+    }
+
+    public int getBusySpins() {
+        return Integer.parseInt(pragmaTable.getProperty(Pragma.JDBC_BUSY_SPINS.pragmaName, "0"));
+    }
+
+    /**
+     * Records how often and how long statements wait for the database per SQL text, see {@link
+     * SQLiteConnection#getBusyStatistics()}. The waits are then retried by a native busy handler,
+     * following the schedule of sqlite3_busy_timeout under the FIXED busy strategy, and <code>
+     * pragma busy_timeout</code> returns 0. The statistics are always recorded under the BACKOFF
+     * busy strategy and the REENTRANT_LOCK threading model.
+     *
+     * @param enabled True to record the statistics, false by default.
+     */
+    public void setBusyStatistics(boolean enabled) {
+        set(Pragma.JDBC_BUSY_STATISTICS, enabled);
+    }
+
+    public boolean isBusyStatistics() {
+        return Boolean.parseBoolean(
+                pragmaTable.getProperty(Pragma.JDBC_BUSY_STATISTICS.pragmaName, "false"));
+    }
+
     /**
      * Changes the setting of the "temp_store" parameter.
      *
@@ -1157,8 +1356,16 @@ public class SQLiteConfig {
     }
 
     public enum DatePrecision implements PragmaValue {
-        SECONDS,
-        MILLISECONDS;
+        SECONDS(1),
+        MILLISECONDS(1_000),
+        MICROSECONDS(1_000_000),
+        NANOSECONDS(1_000_000_000);
+
+        private final long unitsPerSecond;
+
+        DatePrecision(long unitsPerSecond) {
+            this.unitsPerSecond = unitsPerSecond;
+        }
 
         public String getValue() {
             return name();
@@ -1167,9 +1374,72 @@ public class SQLiteConfig {
         public static DatePrecision getPrecision(String precision) {
             return DatePrecision.valueOf(precision.toUpperCase());
         }
+
+        /**
+         * @param date An integer date of this precision.
+         * @return The milliseconds since the epoch, rounded down.
+         */
+        public long toEpochMillis(long date) {
+            return unitsPerSecond <= 1000
+                    ? date * (1000 / unitsPerSecond)
+                    : Math.floorDiv(date, unitsPerSecond / 1000);
+        }
+
+        /**
+         * @param millis The milliseconds since the epoch.
+         * @return The integer date of this precision.
+         */
+        public long fromEpochMillis(long millis) {
+            return unitsPerSecond <= 1000
+                    ? millis / (1000 / unitsPerSecond)
+                    : millis * (unitsPerSecond / 1000);
+        }
+
+        /**
+         * @param date An integer date of this precision.
+         * @return The seconds since the epoch, rounded down.
+         */
+        public long toEpochSecond(long date) {
+            return Math.floorDiv(date, unitsPerSecond);
+        }
+
+        /**
+         * @param date An integer date of this precision.
+         * @return The nanoseconds within the second of {@link #toEpochSecond(long)}.
+         */
+        public int toNano(long date) {
+            return (int) (Math.floorMod(date, unitsPerSecond) * (1_000_000_000 / unitsPerSecond));
+        }
+
+        /**
+         * @param epochSecond The seconds since the epoch.
+         * @param nano The nanoseconds within the second.
+         * @return The integer date of this precision, which for nanoseconds covers the years 1677
+         *     to 2262.
+         * @throws SQLException If the date does not fit in a long at this precision.
+         */
+        public long fromEpochSecond(long epochSecond, int nano) throws SQLException {
+            try {
+                if (unitsPerSecond <= 1000) {
+                    return fromEpochMillis(
+                            Math.addExact(Math.multiplyExact(epochSecond, 1000), nano / 1_000_000));
+                }
+                long units = nano / (1_000_000_000 / unitsPerSecond);
+                if (epochSecond < 0 && units > 0) {
+                    // borrow a second so that the lowest dates do not overflow before adding
+                    return Math.addExact(
+                            Math.multiplyExact(epochSecond + 1, unitsPerSecond),
+                            units - unitsPerSecond);
+                }
+                return Math.addExact(Math.multiplyExact(epochSecond, unitsPerSecond), units);
+            } catch (ArithmeticException e) {
+                throw new SQLException(
+                        "Date out of range for " + name() + " precision: " + epochSecond + "s");
+            }
+        }
     }
 
-    /** @param datePrecision One of SECONDS or MILLISECONDS */
+    /** @param datePrecision One of SECONDS, MILLISECONDS, MICROSECONDS or NANOSECONDS */
     public void setDatePrecision(String datePrecision) {
         this.defaultConnectionConfig.setDatePrecision(DatePrecision.getPrecision(datePrecision));
     }
@@ -1209,6 +1479,25 @@ public class SQLiteConfig {
         return busyTimeout;
     }
 
+    /**
+     * Sets the number of prepared statements each connection keeps for reuse. Closing a {@link
+     * java.sql.PreparedStatement} parks its compiled statement in a per-connection LRU cache keyed
+     * by the SQL text, so preparing the same SQL again skips compilation.
+     *
+     * @param size The maximum number of cached statements; 0 disables the cache.
+     */
+    public void setStatementCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("statement cache size must not be negative");
+        }
+        setPragma(Pragma.JDBC_STATEMENT_CACHE_SIZE, Integer.toString(size));
+        statementCacheSize = size;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
     public boolean isGetGeneratedKeys() {
         return this.defaultConnectionConfig.isGetGeneratedKeys();
     }
@@ -1216,4 +1505,58 @@ public class SQLiteConfig {
     public void setGetGeneratedKeys(boolean generatedKeys) {
         this.defaultConnectionConfig.setGetGeneratedKeys(generatedKeys);
     }
+
+    public boolean isBatchFetch() {
+        return this.defaultConnectionConfig.isBatchFetch();
+    }
+
+    /**
+     * Enables fetching result set rows in batches. With a fetch size greater than one, the rows are
+     * stepped and copied in a single native call per batch, and the getters read the copies. The
+     * fetch size of a statement applies to every result set it executes.
+     *
+     * @param batchFetch True to enable; false to step one row at a time (default).
+     * @see java.sql.ResultSet#setFetchSize(int)
+     */
+    public void setBatchFetch(boolean batchFetch) {
+        this.defaultConnectionConfig.setBatchFetch(batchFetch);
+    }
+
+    public boolean isJavaTimeDates() {
+        return this.defaultConnectionConfig.isJavaTimeDates();
+    }
+
+    /**
+     * Sets how {@link java.sql.PreparedStatement#setObject(int, Object)} stores {@link
+     * java.time.Instant}, {@link java.time.OffsetDateTime}, {@link java.time.ZonedDateTime}, {@link
+     * java.time.LocalDateTime} and {@link java.time.LocalDate} values. As dates, they are stored
+     * like timestamps following the date class and precision, without going through {@link
+     * java.util.Date} or {@link java.util.Calendar}, and with a precision of microseconds or
+     * nanoseconds they keep their sub-millisecond part. The Julian date of an instant holds its
+     * local time in the default time zone, the time zone Julian dates are read back in, so that
+     * {@link java.sql.ResultSet#getObject(int, Class)} returns the same instant.
+     *
+     * @param javaTimeDates True to store them as dates; false to store their ISO-8601 text
+     *     (default).
+     * @see #setDateClass(String)
+     * @see #setDatePrecision(String)
+     */
+    public void setJavaTimeDates(boolean javaTimeDates) {
+        this.defaultConnectionConfig.setJavaTimeDates(javaTimeDates);
+    }
+
+    public int getStreamChunkSize() {
+        return this.defaultConnectionConfig.getStreamChunkSize();
+    }
+
+    /**
+     * Sets how much of a stream bound with {@link java.sql.PreparedStatement#setBinaryStream} or
+     * {@link java.sql.PreparedStatement#setCharacterStream} is read at a time. The stream is copied
+     * chunk by chunk into native memory, so the heap it uses is bounded by this size.
+     *
+     * @param chunkSize The number of bytes or chars, 65536 by default.
+     */
+    public void setStreamChunkSize(int chunkSize) {
+        this.defaultConnectionConfig.setStreamChunkSize(chunkSize);
+    }
 }
@@ -13,6 +13,7 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.Executor;
@@ -20,6 +21,7 @@ import org.sqlite.SQLiteConfig.TransactionMode;
 import org.sqlite.core.CoreDatabaseMetaData;
 import org.sqlite.core.DB;
 import org.sqlite.core.NativeDB;
+import org.sqlite.core.StatementCache;
 import org.sqlite.jdbc4.JDBC4DatabaseMetaData;
 
 /** */
@@ -31,6 +33,7 @@ public abstract class SQLiteConnection implements Connection {
 
     private TransactionMode currentTransactionMode;
     private boolean firstStatementExecuted = false;
+    private SQLiteAsyncSession asyncSession;
 
     /**
      * Connection constructor for reusing an existing DB handle
@@ -361,7 +364,8 @@ public abstract class SQLiteConnection implements Connection {
     }
 
     /**
-     * @return The busy timeout value for the connection.
+     * @return The busy timeout value for the connection. When it is applied by the native busy
+     *     strategy rather than by sqlite3_busy_timeout, <code>pragma busy_timeout</code> returns 0.
      * @see <a
      *     href="https://www.sqlite.org/c3ref/busy_timeout.html">https://www.sqlite.org/c3ref/busy_timeout.html</a>
      */
@@ -371,7 +375,8 @@ public abstract class SQLiteConnection implements Connection {
 
     /**
      * Sets the timeout value for the connection. A timeout value less than or equal to zero turns
-     * off all busy handlers.
+     * off all busy handlers. Unlike <code>pragma busy_timeout = n</code>, this keeps the busy
+     * strategy and its statistics.
      *
      * @see <a
      *     href="https://www.sqlite.org/c3ref/busy_timeout.html">https://www.sqlite.org/c3ref/busy_timeout.html</a>
@@ -380,7 +385,139 @@ public abstract class SQLiteConnection implements Connection {
      */
     public void setBusyTimeout(int timeoutMillis) throws SQLException {
         db.getConfig().setBusyTimeout(timeoutMillis);
-        db.busy_timeout(timeoutMillis);
+        db.applyBusyTimeout();
+    }
+
+    /**
+     * Returns how often and how long the statements of this connection waited for other connections
+     * to release the database, per SQL text, as recorded by the busy strategy since the connection
+     * was opened or {@link #resetBusyStatistics()} was called. Under {@link
+     * SQLiteConfig.ThreadingModel#REENTRANT_LOCK} most statements wait in Java, and their retries
+     * are recorded all the same. The statistics can be read and reset from another thread while a
+     * statement waits.
+     *
+     * <p>The statistics are only recorded when enabled by {@link
+     * SQLiteConfig#setBusyStatistics(boolean)}, under the BACKOFF busy strategy or under the
+     * REENTRANT_LOCK threading model. Running <code>pragma busy_timeout = n</code> then replaces
+     * the busy strategy with the busy handler of SQLite, after which no statistics are recorded:
+     * use {@link #setBusyTimeout(int)} instead.
+     *
+     * @return The statistics, the longest waits first.
+     * @throws SQLException if the connection is closed
+     * @see SQLiteConfig#setBusyStrategy(SQLiteConfig.BusyStrategy)
+     */
+    public List<SQLiteBusyStatistics> getBusyStatistics() throws SQLException {
+        checkOpen();
+        return db.getBusyStatistics(false);
+    }
+
+    /**
+     * Clears the busy statistics of this connection.
+     *
+     * @throws SQLException if the connection is closed
+     */
+    public void resetBusyStatistics() throws SQLException {
+        checkOpen();
+        db.getBusyStatistics(true);
+    }
+
+    /**
+     * @return The prepared statement cache of this connection with its hit, miss and eviction
+     *     counters, or null if statement caching is disabled.
+     * @see SQLiteConfig#setStatementCacheSize(int)
+     */
+    public StatementCache getStatementCache() {
+        return db.getStatementCache();
+    }
+
+    /**
+     * Makes the calling thread the owner of a connection opened with {@link
+     * SQLiteConfig.ThreadingModel#SINGLE_OWNER}. Only the owner may use the statements of such a
+     * connection; it is the thread that opened the connection until this is called. A pool handing
+     * the connection to another thread calls this from the new thread, after the previous one is
+     * done with it. Has no effect under {@link SQLiteConfig.ThreadingModel#SERIALIZED}.
+     */
+    public void transferOwnership() {
+        db.transferOwnership();
+    }
+
+    /**
+     * Returns the session running the statements of this connection asynchronously, without
+     * read-only connections.
+     *
+     * @see #async(int)
+     */
+    public SQLiteAsyncSession async() throws SQLException {
+        return async(0);
+    }
+
+    /**
+     * Returns the session running the statements of this connection asynchronously. The session is
+     * created by the first call and closed with this connection, which first waits for the
+     * statements already submitted to run; the number of readers of later calls is ignored.
+     *
+     * @param readers The number of read-only connections the session opens to the same database for
+     *     {@link SQLiteAsyncSession#executeReadOnlyQuery}.
+     * @return The asynchronous session of this connection.
+     * @throws SQLException if the connection is closed or a reader cannot be opened, for example
+     *     because the database is private to this connection
+     */
+    public synchronized SQLiteAsyncSession async(int readers) throws SQLException {
+        checkOpen();
+        if (asyncSession == null || asyncSession.isClosed()) {
+            asyncSession = new SQLiteAsyncSession(this, readers);
+        }
+        return asyncSession;
+    }
+
+    /**
+     * Opens a blob or text value of a table for incremental I/O, to read or write it in chunks
+     * without loading it whole.
+     *
+     * @param database The schema of the table: "main", "temp" or the name of an attached database.
+     * @param table The name of the table.
+     * @param column The name of the column.
+     * @param rowid The rowid of the row.
+     * @param writable Whether the blob is opened for writing.
+     * @return The opened blob, which must be freed once no longer used.
+     * @throws SQLException if the row does not exist, or the value is not a blob or text
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_open.html">https://www.sqlite.org/c3ref/blob_open.html</a>
+     */
+    public SQLiteBlob openBlob(
+            String database, String table, String column, long rowid, boolean writable)
+            throws SQLException {
+        checkOpen();
+        return new SQLiteBlob(db, database, table, column, rowid, writable);
+    }
+
+    /**
+     * Creates a loader inserting large numbers of rows into a table, bypassing the per-row overhead
+     * of {@link java.sql.PreparedStatement#addBatch()}.
+     *
+     * @param table The name of the table.
+     * @param columns The names of the columns set by the rows, in order.
+     * @return The loader.
+     * @throws SQLException if the connection is closed or no column is given
+     */
+    public SQLiteBulkLoader bulkLoader(String table, String... columns) throws SQLException {
+        checkOpen();
+        return new SQLiteBulkLoader(this, table, columns);
+    }
+
+    /**
+     * Creates a coalescer running units of work submitted by many threads in shared transactions on
+     * this connection, one commit for many small writes.
+     *
+     * @param maxUnits The maximum number of units of a transaction.
+     * @param maxDelayMillis How long the first unit of a transaction waits for others to join it.
+     * @return The coalescer, which must be closed before this connection.
+     * @throws SQLException if the connection is closed
+     */
+    public SQLiteWriteCoalescer writeCoalescer(int maxUnits, long maxDelayMillis)
+            throws SQLException {
+        checkOpen();
+        return new SQLiteWriteCoalescer(this, maxUnits, maxDelayMillis);
     }
 
     public void setLimit(SQLiteLimits limit, int value) throws SQLException {
@@ -405,6 +542,12 @@ public abstract class SQLiteConnection implements Connection {
     public void close() throws SQLException {
         if (isClosed()) return;
         if (meta != null) meta.close();
+        SQLiteAsyncSession session;
+        synchronized (this) {
+            session = asyncSession;
+        }
+        // the statements already submitted run before the database is closed
+        if (session != null) session.closeAndAwait();
 
         db.close();
     }
@@ -452,6 +595,25 @@ public abstract class SQLiteConnection implements Connection {
         this.setCurrentTransactionMode(this.getConnectionConfig().getTransactionMode());
     }
 
+    /**
+     * Profiles the statements of this connection: every time one finishes, its elapsed time and the
+     * work SQLite did for it are added to the profiler, which may be shared between connections.
+     * Tracing costs nothing while no profiler is set. If the profiler throws, the exception is
+     * discarded and the connection stops tracing until a profiler is set again.
+     *
+     * @param profiler The profiler, or null to stop profiling.
+     * @throws SQLException if the connection is closed
+     */
+    public void setStatementProfiler(StatementProfiler profiler) throws SQLException {
+        checkOpen();
+        db.setStatementProfiler(profiler);
+    }
+
+    /** @return The profiler of the statements of this connection, or null. */
+    public StatementProfiler getStatementProfiler() {
+        return db.getStatementProfiler();
+    }
+
     /**
      * Add a listener for DB update events, see https://www.sqlite.org/c3ref/update_hook.html
      *
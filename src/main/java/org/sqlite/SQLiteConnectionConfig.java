@@ -10,6 +10,9 @@ import org.sqlite.date.FastDateFormat;
 
 /** Connection local configurations */
 public class SQLiteConnectionConfig implements Cloneable {
+    /** The default number of bytes or chars read from a stream parameter at a time. */
+    public static final int DEFAULT_STREAM_CHUNK_SIZE = 64 * 1024;
+
     private SQLiteConfig.DateClass dateClass = SQLiteConfig.DateClass.INTEGER;
     private SQLiteConfig.DatePrecision datePrecision =
             SQLiteConfig.DatePrecision.MILLISECONDS; // Calendar.SECOND or Calendar.MILLISECOND
@@ -20,29 +23,48 @@ public class SQLiteConnectionConfig implements Cloneable {
     private SQLiteConfig.TransactionMode transactionMode = SQLiteConfig.TransactionMode.DEFERRED;
     private boolean autoCommit = true;
     private boolean getGeneratedKeys = true;
+    private boolean batchFetch = false;
+    private boolean javaTimeDates = false;
+    private int streamChunkSize = DEFAULT_STREAM_CHUNK_SIZE;
 
     public static SQLiteConnectionConfig fromPragmaTable(Properties pragmaTable) {
-        return new SQLiteConnectionConfig(
-                SQLiteConfig.DateClass.getDateClass(
-                        pragmaTable.getProperty(
-                                SQLiteConfig.Pragma.DATE_CLASS.pragmaName,
-                                SQLiteConfig.DateClass.INTEGER.name())),
-                SQLiteConfig.DatePrecision.getPrecision(
+        SQLiteConnectionConfig config =
+                new SQLiteConnectionConfig(
+                        SQLiteConfig.DateClass.getDateClass(
+                                pragmaTable.getProperty(
+                                        SQLiteConfig.Pragma.DATE_CLASS.pragmaName,
+                                        SQLiteConfig.DateClass.INTEGER.name())),
+                        SQLiteConfig.DatePrecision.getPrecision(
+                                pragmaTable.getProperty(
+                                        SQLiteConfig.Pragma.DATE_PRECISION.pragmaName,
+                                        SQLiteConfig.DatePrecision.MILLISECONDS.name())),
                         pragmaTable.getProperty(
-                                SQLiteConfig.Pragma.DATE_PRECISION.pragmaName,
-                                SQLiteConfig.DatePrecision.MILLISECONDS.name())),
-                pragmaTable.getProperty(
-                        SQLiteConfig.Pragma.DATE_STRING_FORMAT.pragmaName,
-                        DEFAULT_DATE_STRING_FORMAT),
-                Connection.TRANSACTION_SERIALIZABLE,
-                SQLiteConfig.TransactionMode.getMode(
+                                SQLiteConfig.Pragma.DATE_STRING_FORMAT.pragmaName,
+                                DEFAULT_DATE_STRING_FORMAT),
+                        Connection.TRANSACTION_SERIALIZABLE,
+                        SQLiteConfig.TransactionMode.getMode(
+                                pragmaTable.getProperty(
+                                        SQLiteConfig.Pragma.TRANSACTION_MODE.pragmaName,
+                                        SQLiteConfig.TransactionMode.DEFERRED.name())),
+                        true,
+                        Boolean.parseBoolean(
+                                pragmaTable.getProperty(
+                                        SQLiteConfig.Pragma.JDBC_GET_GENERATED_KEYS.pragmaName,
+                                        "true")));
+        config.setBatchFetch(
+                Boolean.parseBoolean(
                         pragmaTable.getProperty(
-                                SQLiteConfig.Pragma.TRANSACTION_MODE.pragmaName,
-                                SQLiteConfig.TransactionMode.DEFERRED.name())),
-                true,
+                                SQLiteConfig.Pragma.JDBC_BATCH_FETCH.pragmaName, "false")));
+        config.setJavaTimeDates(
                 Boolean.parseBoolean(
                         pragmaTable.getProperty(
-                                SQLiteConfig.Pragma.JDBC_GET_GENERATED_KEYS.pragmaName, "true")));
+                                SQLiteConfig.Pragma.JDBC_JAVA_TIME_DATES.pragmaName, "false")));
+        config.setStreamChunkSize(
+                Integer.parseInt(
+                        pragmaTable.getProperty(
+                                SQLiteConfig.Pragma.JDBC_STREAM_CHUNK_SIZE.pragmaName,
+                                Integer.toString(DEFAULT_STREAM_CHUNK_SIZE))));
+        return config;
     }
 
     public SQLiteConnectionConfig(
@@ -63,18 +85,29 @@ public class SQLiteConnectionConfig implements Cloneable {
     }
 
     public SQLiteConnectionConfig copyConfig() {
-        return new SQLiteConnectionConfig(
-                dateClass,
-                datePrecision,
-                dateStringFormat,
-                transactionIsolation,
-                transactionMode,
-                autoCommit,
-                getGeneratedKeys);
-    }
-
+        SQLiteConnectionConfig copy =
+                new SQLiteConnectionConfig(
+                        dateClass,
+                        datePrecision,
+                        dateStringFormat,
+                        transactionIsolation,
+                        transactionMode,
+                        autoCommit,
+                        getGeneratedKeys);
+        copy.setBatchFetch(batchFetch);
+        copy.setJavaTimeDates(javaTimeDates);
+        copy.setStreamChunkSize(streamChunkSize);
+        return copy;
+    }
+
+    /**
+     * @return The milliseconds per unit of integer dates of precision SECONDS or MILLISECONDS.
+     * @deprecated Does not handle finer precisions, use the conversions of {@link
+     *     SQLiteConfig.DatePrecision}.
+     */
+    @Deprecated
     public long getDateMultiplier() {
-        return (datePrecision == SQLiteConfig.DatePrecision.MILLISECONDS) ? 1L : 1000L;
+        return (datePrecision == SQLiteConfig.DatePrecision.SECONDS) ? 1000L : 1L;
     }
 
     public SQLiteConfig.DateClass getDateClass() {
@@ -139,6 +172,45 @@ public class SQLiteConnectionConfig implements Cloneable {
         this.getGeneratedKeys = getGeneratedKeys;
     }
 
+    public boolean isBatchFetch() {
+        return batchFetch;
+    }
+
+    /**
+     * @param batchFetch True to fetch result set rows in batches of the fetch size, with a single
+     *     native call per batch; false to step the statement one row at a time.
+     */
+    public void setBatchFetch(boolean batchFetch) {
+        this.batchFetch = batchFetch;
+    }
+
+    public boolean isJavaTimeDates() {
+        return javaTimeDates;
+    }
+
+    /**
+     * @param javaTimeDates True to store java.time values passed to setObject like dates, following
+     *     the date class and precision; false to store their ISO-8601 text.
+     */
+    public void setJavaTimeDates(boolean javaTimeDates) {
+        this.javaTimeDates = javaTimeDates;
+    }
+
+    public int getStreamChunkSize() {
+        return streamChunkSize;
+    }
+
+    /**
+     * @param streamChunkSize The number of bytes or chars read at a time from the streams bound to
+     *     prepared statement parameters, which bounds the heap they use whatever their length.
+     */
+    public void setStreamChunkSize(int streamChunkSize) {
+        if (streamChunkSize < 1) {
+            throw new IllegalArgumentException("stream chunk size must be >= 1");
+        }
+        this.streamChunkSize = streamChunkSize;
+    }
+
     private static final Map<SQLiteConfig.TransactionMode, String> beginCommandMap =
             new EnumMap<>(SQLiteConfig.TransactionMode.class);
 
@@ -26,6 +26,7 @@ package org.sqlite;
 
 import java.io.PrintWriter;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.util.Properties;
@@ -150,6 +151,26 @@ public class SQLiteDataSource implements DataSource {
         config.setBusyTimeout(milliseconds);
     }
 
+    /**
+     * Sets the number of prepared statements each connection keeps for reuse.
+     *
+     * @param size The maximum number of cached statements; 0 disables the cache.
+     * @see SQLiteConfig#setStatementCacheSize(int)
+     */
+    public void setStatementCacheSize(int size) {
+        config.setStatementCacheSize(size);
+    }
+
+    /**
+     * Sets how connections guard the native calls of their statements against concurrent use.
+     *
+     * @param model One of {@link ThreadingModel}.
+     * @see SQLiteConfig#setThreadingModel(ThreadingModel)
+     */
+    public void setThreadingModel(ThreadingModel model) {
+        config.setThreadingModel(model);
+    }
+
     /**
      * Sets the suggested maximum number of database disk pages that SQLite will hold in memory at
      * once per open database file.
@@ -473,6 +494,44 @@ public class SQLiteDataSource implements DataSource {
         return JDBC.createConnection(url, p);
     }
 
+    /** Receives the rows of a {@link #parallelScan(String, String, int, RowConsumer)}. */
+    @FunctionalInterface
+    public interface RowConsumer {
+        /**
+         * Called for every row, concurrently for different partitions but by a single thread for a
+         * given partition.
+         *
+         * @param partition The partition of the row, from 0.
+         * @param row The result set, positioned on the row.
+         * @throws SQLException to stop the scan of the partition
+         */
+        void accept(int partition, ResultSet row) throws SQLException;
+    }
+
+    /**
+     * Reads a whole table on several cores: its key range is split into partitions, each read by
+     * its own read-only connection on a {@link java.util.concurrent.ForkJoinPool}.
+     *
+     * <p>All the partitions read the same state of the database. In WAL mode the readers share a <a
+     * href="https://www.sqlite.org/c3ref/snapshot.html">snapshot</a> of the database; in rollback
+     * journal mode, the read lock of the first reader keeps writers from committing until the
+     * others have started. A database opened with <code>immutable=1</code> needs neither.
+     *
+     * @param table The table.
+     * @param keyColumn The column by which to split the rows, or null for the rowid. The rowid
+     *     range is split evenly; any other column is split at the quantiles of its values, read
+     *     once in order, so it should be indexed. NULL keys belong to the first partition.
+     * @param partitions The number of partitions and connections.
+     * @param consumer Receives the rows.
+     * @return The number of rows read.
+     * @throws SQLException if the table cannot be read, or the consumer throws; the other
+     *     partitions are still read until then, and their errors are suppressed by the first one
+     */
+    public long parallelScan(String table, String keyColumn, int partitions, RowConsumer consumer)
+            throws SQLException {
+        return new ParallelScan(table, keyColumn, partitions, consumer).run(url, config);
+    }
+
     /** @see javax.sql.DataSource#getLogWriter() */
     public PrintWriter getLogWriter() throws SQLException {
         return logger;
@@ -0,0 +1,182 @@
+package org.sqlite;
+
+import java.sql.SQLException;
+import org.sqlite.core.DB;
+
+/**
+ * The arguments and result of one call of a {@link Function.Scalar}. A context is created for each
+ * call and is only valid until the call returns, so a single function object can be called
+ * concurrently on any number of connections without locking.
+ */
+public final class SQLiteFunctionContext {
+    private final SQLiteConnection conn;
+    private final DB db;
+    private final int args;
+    private long context; // pointer sqlite3_context*
+    private long values; // pointer sqlite3_value**
+
+    SQLiteFunctionContext(SQLiteConnection conn, DB db, long context, long values, int args) {
+        this.conn = conn;
+        this.db = db;
+        this.context = context;
+        this.values = values;
+        this.args = args;
+    }
+
+    /** Called once the function returns: later uses of this context throw. */
+    void invalidate() {
+        context = 0;
+        values = 0;
+    }
+
+    /** @return The connection the function is called on. */
+    public SQLiteConnection getConnection() {
+        return conn;
+    }
+
+    /** @return The number of arguments passed to the function. */
+    public int args() {
+        return args;
+    }
+
+    /**
+     * Returns a blob result.
+     *
+     * @param value
+     */
+    public void result(byte[] value) throws SQLException {
+        checkContext();
+        db.result_blob(context, value);
+    }
+
+    /**
+     * Returns a floating point result.
+     *
+     * @param value
+     */
+    public void result(double value) throws SQLException {
+        checkContext();
+        db.result_double(context, value);
+    }
+
+    /**
+     * Returns an integer result.
+     *
+     * @param value
+     */
+    public void result(int value) throws SQLException {
+        checkContext();
+        db.result_int(context, value);
+    }
+
+    /**
+     * Returns an integer result.
+     *
+     * @param value
+     */
+    public void result(long value) throws SQLException {
+        checkContext();
+        db.result_long(context, value);
+    }
+
+    /** Returns NULL. */
+    public void result() throws SQLException {
+        checkContext();
+        db.result_null(context);
+    }
+
+    /**
+     * Returns a text result.
+     *
+     * @param value
+     */
+    public void result(String value) throws SQLException {
+        checkContext();
+        db.result_text(context, value);
+    }
+
+    /**
+     * Makes the function fail with the given message.
+     *
+     * @param err
+     */
+    public void error(String err) throws SQLException {
+        checkContext();
+        db.result_error(context, err);
+    }
+
+    /**
+     * Accesses the value of an argument.
+     *
+     * @param arg
+     */
+    public String value_text(int arg) throws SQLException {
+        checkValue(arg);
+        return db.arg_text(values, arg);
+    }
+
+    /**
+     * Accesses the value of an argument.
+     *
+     * @param arg
+     */
+    public byte[] value_blob(int arg) throws SQLException {
+        checkValue(arg);
+        return db.arg_blob(values, arg);
+    }
+
+    /**
+     * Accesses the value of an argument.
+     *
+     * @param arg
+     */
+    public double value_double(int arg) throws SQLException {
+        checkValue(arg);
+        return db.arg_double(values, arg);
+    }
+
+    /**
+     * Accesses the value of an argument.
+     *
+     * @param arg
+     */
+    public int value_int(int arg) throws SQLException {
+        checkValue(arg);
+        return db.arg_int(values, arg);
+    }
+
+    /**
+     * Accesses the value of an argument.
+     *
+     * @param arg
+     */
+    public long value_long(int arg) throws SQLException {
+        checkValue(arg);
+        return db.arg_long(values, arg);
+    }
+
+    /**
+     * Accesses the datatype of an argument, one of the <tt>SQLITE_*</tt> fundamental datatypes.
+     *
+     * @param arg
+     */
+    public int value_type(int arg) throws SQLException {
+        checkValue(arg);
+        return db.arg_type(values, arg);
+    }
+
+    private void checkContext() throws SQLException {
+        if (context == 0) {
+            throw new SQLException("no context, not allowed to read value");
+        }
+    }
+
+    private void checkValue(int arg) throws SQLException {
+        if (values == 0) {
+            throw new SQLException("not in value access state");
+        }
+        if (arg < 0 || arg >= args) {
+            throw new SQLException("arg " + arg + " out bounds [0," + args + ")");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.sqlite;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * SQLite specific extensions of {@link PreparedStatement}, available through {@link
+ * PreparedStatement#unwrap(Class)}.
+ */
+public interface SQLitePreparedStatement extends PreparedStatement {
+
+    /**
+     * Sets a parameter to the bytes of a buffer between its position and its limit, as a blob. The
+     * position of the buffer is left unchanged.
+     *
+     * <p>A direct buffer is bound without any copy: SQLite reads its memory in place whenever the
+     * statement runs. Its content must not change until the parameter is set to another value and
+     * the statement has run again, or the statement is closed; the statement keeps a reference to
+     * it until then. A heap buffer is copied.
+     *
+     * <p>The rows added with {@link #addBatch()} also read their direct buffers in place, when
+     * {@link #executeBatch()} runs: a buffer refilled for each row would insert its last content in
+     * all of them. Set each row to a buffer of its own, for example a {@link ByteBuffer#slice()} of
+     * a larger one, or to a heap buffer.
+     *
+     * @param pos The first parameter is 1, the second is 2, ...
+     * @param value The buffer, or null for SQL NULL.
+     * @throws SQLException if the parameter index is invalid or the statement is closed
+     */
+    void setBytes(int pos, ByteBuffer value) throws SQLException;
+
+    /**
+     * Sets a parameter to UTF-8 text held in a buffer between its position and its limit, without
+     * decoding it into a String. The bytes are not validated. Direct buffers are bound in place,
+     * see {@link #setBytes(int, ByteBuffer)}.
+     *
+     * @param pos The first parameter is 1, the second is 2, ...
+     * @param utf8 The buffer, or null for SQL NULL.
+     * @throws SQLException if the parameter index is invalid or the statement is closed
+     */
+    void setUtf8(int pos, ByteBuffer utf8) throws SQLException;
+}
@@ -0,0 +1,27 @@
+package org.sqlite;
+
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * SQLite specific extensions of {@link ResultSet}, available through {@link
+ * ResultSet#unwrap(Class)}.
+ */
+public interface SQLiteResultSet extends ResultSet {
+
+    /**
+     * Copies the UTF-8 text of a column of the current row into a buffer, without decoding it into
+     * a String. Numbers are rendered as text the same way {@link #getString(int)} does. The buffer
+     * position is advanced past the copied bytes.
+     *
+     * @param col The first column is 1, the second is 2, ...
+     * @param dst The buffer receiving the text; direct buffers are filled by the native library
+     *     without an intermediate copy.
+     * @return The length of the text in bytes, or -1 if the value is SQL NULL. If the length is
+     *     greater than the remaining space of the buffer, nothing is copied and the buffer is left
+     *     unchanged.
+     * @throws SQLException if the column index is invalid or the result set is closed
+     */
+    int getUtf8Bytes(int col, ByteBuffer dst) throws SQLException;
+}
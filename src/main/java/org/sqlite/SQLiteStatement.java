@@ -0,0 +1,23 @@
+package org.sqlite;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/** SQLite specific extensions of {@link Statement}, available through {@link Statement#unwrap}. */
+public interface SQLiteStatement extends Statement {
+
+    /**
+     * Executes a query and returns its results column by column, in batches of up to <code>
+     * batchRows</code> rows filled by native code without creating a Java object per value. See
+     * {@link SQLiteColumnarBatch} for the layout of the columns.
+     *
+     * <p>Like a {@link java.sql.ResultSet}, the batch is closed when this statement is closed or
+     * executes another query.
+     *
+     * @param sql The query.
+     * @param batchRows The maximum number of rows of a batch.
+     * @return The batch, positioned before the first rows.
+     * @throws SQLException if the statement is not a query, or is a prepared statement
+     */
+    SQLiteColumnarBatch executeColumnar(String sql, int batchRows) throws SQLException;
+}
@@ -0,0 +1,256 @@
+package org.sqlite;
+
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.sqlite.SQLiteAsyncSession.ConnectionCallback;
+import org.sqlite.util.Logger;
+import org.sqlite.util.LoggerFactory;
+
+/**
+ * Coalesces small write transactions submitted by many threads into few larger ones on a single
+ * connection, so that they share the cost of a commit. Obtained from {@link
+ * SQLiteConnection#writeCoalescer(int, long)}.
+ *
+ * <p>Units of work are run one after another on a writer thread of their own. The units waiting
+ * when the writer becomes idle, up to a maximum number and for at most a given delay, form one
+ * transaction, begun with <code>BEGIN IMMEDIATE</code> unless the connection is configured for
+ * {@link SQLiteConfig.TransactionMode#EXCLUSIVE} transactions, in which each unit runs within a
+ * {@link Savepoint}: a unit that fails only rolls back its own changes. The futures of all the
+ * units of a transaction are completed once it is committed, or completed exceptionally with the
+ * error of the commit if it fails. This trades a few milliseconds of latency for a commit rate no
+ * longer bound by one fsync per unit.
+ *
+ * <p>Units must not commit, roll back or change the auto-commit mode of the connection, and the
+ * connection must not be used by other threads until the coalescer is closed. The returned futures
+ * are completed on the writer thread: callers should continue with the <code>*Async</code> methods
+ * of {@link CompletableFuture} rather than run lengthy work there.
+ *
+ * <p>Under {@link SQLiteConfig.ThreadingModel#SINGLE_OWNER} the writer thread takes ownership of
+ * the connection before each transaction.
+ */
+public class SQLiteWriteCoalescer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SQLiteWriteCoalescer.class);
+    private static final AtomicInteger coalescerCount = new AtomicInteger();
+
+    /** Queued by {@link #close()} after the last unit to run. */
+    private static final Unit<?> CLOSE = new Unit<>(null);
+
+    private final SQLiteConnection conn;
+    private final int maxUnits;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Unit<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    /** Set while holding the lock of the queue, so that no unit is queued after {@link #CLOSE}. */
+    private volatile boolean closed;
+
+    private volatile long commitCount;
+    private volatile long unitCount;
+
+    SQLiteWriteCoalescer(SQLiteConnection conn, int maxUnits, long maxDelayMillis) {
+        if (maxUnits < 1) {
+            throw new IllegalArgumentException("maxUnits must be at least 1");
+        }
+        if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("maxDelayMillis must be >= 0");
+        }
+        this.conn = conn;
+        this.maxUnits = maxUnits;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.writer =
+                new Thread(this::runWriter, "sqlite-coalescer-" + coalescerCount.incrementAndGet());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** @return The connection the units of this coalescer run on. */
+    public SQLiteConnection getConnection() {
+        return conn;
+    }
+
+    /** @return The number of transactions committed so far. */
+    public long getCommitCount() {
+        return commitCount;
+    }
+
+    /** @return The number of units run so far, whether they succeeded or not. */
+    public long getUnitCount() {
+        return unitCount;
+    }
+
+    /**
+     * Queues a unit of work to run in the next transaction.
+     *
+     * @param work The unit of work, for example a few INSERT statements.
+     * @return The result of the unit, available once its transaction is committed.
+     */
+    public <T> CompletableFuture<T> submit(ConnectionCallback<T> work) {
+        Unit<T> unit = new Unit<>(work);
+        synchronized (queue) {
+            if (!closed) {
+                queue.add(unit);
+                return unit.future;
+            }
+        }
+        unit.future.completeExceptionally(new SQLException("Write coalescer is closed"));
+        return unit.future;
+    }
+
+    /**
+     * Stops accepting units and waits for those already submitted to be committed. The connection
+     * itself is left open.
+     */
+    @Override
+    public void close() {
+        synchronized (queue) {
+            if (closed) return;
+            closed = true;
+            queue.add(CLOSE);
+        }
+        if (Thread.currentThread() == writer) return;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** @return True if this coalescer no longer accepts units. */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void runWriter() {
+        List<Unit<?>> batch = new ArrayList<>(maxUnits);
+        boolean last = false;
+        try {
+            while (!last) {
+                Unit<?> unit = queue.take();
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (unit != CLOSE) {
+                    batch.add(unit);
+                    if (batch.size() == maxUnits) break;
+                    unit = queue.poll();
+                    if (unit == null) {
+                        long wait = deadline - System.nanoTime();
+                        if (wait <= 0) break;
+                        unit = queue.poll(wait, TimeUnit.NANOSECONDS);
+                        if (unit == null) break;
+                    }
+                }
+                last = unit == CLOSE;
+                if (!batch.isEmpty()) {
+                    runBatch(batch);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            synchronized (queue) {
+                closed = true;
+            }
+        } finally {
+            // units left when the writer is interrupted
+            SQLException error = new SQLException("Write coalescer is closed");
+            for (Unit<?> unit : batch) {
+                unit.future.completeExceptionally(error);
+            }
+            Unit<?> unit;
+            while ((unit = queue.poll()) != null) {
+                if (unit != CLOSE) unit.future.completeExceptionally(error);
+            }
+        }
+    }
+
+    /** Runs the units of a batch in one transaction, each within a savepoint. */
+    private void runBatch(List<Unit<?>> batch) {
+        SQLException failure = null;
+        try {
+            conn.transferOwnership();
+            if (!conn.getAutoCommit()) {
+                throw new SQLException("The connection of a write coalescer has a transaction");
+            }
+            beginImmediate();
+            try {
+                for (Unit<?> unit : batch) {
+                    if (unit.future.isCancelled()) continue;
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        unit.run(conn);
+                    } catch (Throwable e) {
+                        unit.error = e;
+                        conn.rollback(savepoint);
+                    }
+                    conn.releaseSavepoint(savepoint);
+                    unitCount++;
+                }
+                conn.commit();
+                commitCount++;
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException r) {
+                    e.addSuppressed(r);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.trace(() -> "Write coalescer failed a batch of " + batch.size() + " units");
+            failure = e;
+        }
+        for (Unit<?> unit : batch) {
+            unit.complete(failure);
+        }
+    }
+
+    /**
+     * Begins the transaction of a batch with <code>BEGIN IMMEDIATE</code>, so that the write lock
+     * is taken, or waited for, before any unit runs rather than when the first unit writes.
+     */
+    private void beginImmediate() throws SQLException {
+        SQLiteConfig.TransactionMode mode = conn.getConnectionConfig().getTransactionMode();
+        if (mode != SQLiteConfig.TransactionMode.DEFERRED) {
+            conn.setAutoCommit(false);
+            return;
+        }
+        conn.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+        try {
+            conn.setAutoCommit(false);
+        } finally {
+            conn.setTransactionMode(mode);
+        }
+    }
+
+    /** A unit of work and the future of its result. */
+    private static final class Unit<T> {
+        final ConnectionCallback<T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        Throwable error;
+
+        Unit(ConnectionCallback<T> work) {
+            this.work = work;
+        }
+
+        void run(SQLiteConnection conn) throws SQLException {
+            result = work.run(conn);
+        }
+
+        void complete(SQLException failure) {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package org.sqlite;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the runs of the statements of one or more connections by normalized SQL: how often
+ * they ran, how long they took, and how much work SQLite did for them. Set on a connection with
+ * {@link SQLiteConnection#setStatementProfiler(StatementProfiler)}, it is fed every time a
+ * statement finishes by <a href="https://www.sqlite.org/c3ref/trace_v2.html">sqlite3_trace_v2</a>
+ * with the counters of <a href="https://www.sqlite.org/c3ref/stmt_status.html">
+ * sqlite3_stmt_status</a>. Connections without a profiler do not trace their statements at all.
+ *
+ * <p>SQL is normalized by replacing its literals with <code>?</code> and collapsing whitespace and
+ * comments, so that statements differing only by inlined values are counted together. The counters
+ * are updated without locks, and can be read at any time with {@link #snapshot()}.
+ *
+ * <p>The elapsed times are measured by SQLite with the clock of its VFS, which only has a
+ * resolution of a millisecond on most platforms: the number of virtual machine steps is a finer
+ * measure of the work done by fast statements.
+ */
+public class StatementProfiler {
+    /** The number of buckets of the histograms of elapsed times, one per power of two. */
+    public static final int BUCKETS = 64;
+
+    private static final int DEFAULT_MAX_STATEMENTS = 1000;
+
+    private final int maxStatements;
+    private volatile Statistics statistics = new Statistics();
+
+    /** Creates a profiler counting up to 1000 distinct normalized statements apart. */
+    public StatementProfiler() {
+        this(DEFAULT_MAX_STATEMENTS);
+    }
+
+    /**
+     * @param maxStatements The number of distinct normalized statements counted apart; the runs of
+     *     further statements are counted together under a null SQL text.
+     */
+    public StatementProfiler(int maxStatements) {
+        if (maxStatements < 1) {
+            throw new IllegalArgumentException("maxStatements must be at least 1");
+        }
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * Records a run of a statement, identified by its UTF-8 SQL text as passed by the native trace;
+     * repeated texts are not decoded again.
+     *
+     * @param sql The UTF-8 SQL text of the statement.
+     * @param elapsedNanos How long the statement ran.
+     * @param fullscanSteps The number of steps forward in a full table scan.
+     * @param sorts The number of sort operations.
+     * @param autoindexes The number of rows inserted into automatic indexes.
+     * @param vmSteps The number of virtual machine operations.
+     * @param reprepares The number of times the statement was prepared again after a schema change.
+     * @param memoryUsed The number of bytes of heap used by the statement.
+     */
+    public void record(
+            byte[] sql,
+            long elapsedNanos,
+            long fullscanSteps,
+            long sorts,
+            long autoindexes,
+            long vmSteps,
+            long reprepares,
+            long memoryUsed) {
+        Statistics current = statistics;
+        ByteBuffer key = ByteBuffer.wrap(sql);
+        Entry entry = current.bySqlBytes.get(key);
+        if (entry == null) {
+            entry = current.entry(new String(sql, StandardCharsets.UTF_8));
+            if (current.bySqlBytes.size() < 4 * maxStatements) {
+                current.bySqlBytes.putIfAbsent(key, entry);
+            }
+        }
+        entry.add(elapsedNanos, fullscanSteps, sorts, autoindexes, vmSteps, reprepares, memoryUsed);
+    }
+
+    /**
+     * Records a run of a statement.
+     *
+     * @param sql The SQL text of the statement, normalized by this method.
+     * @see #record(byte[], long, long, long, long, long, long, long)
+     */
+    public void record(
+            String sql,
+            long elapsedNanos,
+            long fullscanSteps,
+            long sorts,
+            long autoindexes,
+            long vmSteps,
+            long reprepares,
+            long memoryUsed) {
+        Entry entry = statistics.entry(sql);
+        entry.add(elapsedNanos, fullscanSteps, sorts, autoindexes, vmSteps, reprepares, memoryUsed);
+    }
+
+    /** @return The statistics of each normalized statement so far, the longest total time first. */
+    public List<Profile> snapshot() {
+        Statistics current = statistics;
+        List<Profile> profiles = new ArrayList<>(current.bySql.size() + 1);
+        for (Entry entry : current.bySql.values()) {
+            profiles.add(entry.snapshot());
+        }
+        if (current.other.executions.sum() > 0) {
+            profiles.add(current.other.snapshot());
+        }
+        profiles.sort(Comparator.comparingLong(Profile::getTotalNanos).reversed());
+        return profiles;
+    }
+
+    /** Discards the statistics recorded so far. */
+    public void reset() {
+        statistics = new Statistics();
+    }
+
+    /**
+     * Normalizes SQL text: literal strings, numbers and blobs become <code>?</code>, comments are
+     * removed and whitespace is collapsed into single spaces. Quoted identifiers are kept.
+     *
+     * @param sql The SQL text.
+     * @return The normalized SQL text.
+     */
+    public static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        boolean space = false;
+        int n = sql.length();
+        for (int i = 0; i < n; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+                while (i + 1 < n && sql.charAt(i + 1) != '\n') i++;
+                space = true;
+                continue;
+            }
+            if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 1;
+                space = true;
+                continue;
+            }
+            if (space && out.length() > 0) {
+                out.append(' ');
+            }
+            space = false;
+
+            char previous = out.length() == 0 ? ' ' : out.charAt(out.length() - 1);
+            if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+                if ((previous == 'x' || previous == 'X')
+                        && (out.length() < 2 || !isIdentifierPart(out.charAt(out.length() - 2)))) {
+                    // blob literal
+                    out.setLength(out.length() - 1);
+                }
+                out.append('?');
+            } else if (c == '"' || c == '`' || c == '[') {
+                int end = skipQuoted(sql, i, c == '[' ? ']' : c);
+                out.append(sql, i, Math.min(end + 1, n));
+                i = end;
+            } else if ((Character.isDigit(c)
+                            || (c == '.' && i + 1 < n && Character.isDigit(sql.charAt(i + 1))))
+                    && !isIdentifierPart(previous)) {
+                while (i + 1 < n && isNumberPart(sql.charAt(i + 1), sql.charAt(i))) i++;
+                out.append('?');
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /** @return The index of the quote closing the quoted text starting at <code>start</code>. */
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (quote != ']' && i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static boolean isNumberPart(char c, char previous) {
+        return Character.isLetterOrDigit(c)
+                || c == '.'
+                || ((c == '+' || c == '-') && (previous == 'e' || previous == 'E'));
+    }
+
+    /** The live counters of one generation of the profiler, replaced by {@link #reset()}. */
+    private final class Statistics {
+        final ConcurrentHashMap<String, Entry> bySql = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<ByteBuffer, Entry> bySqlBytes = new ConcurrentHashMap<>();
+        final Entry other = new Entry(null);
+
+        Entry entry(String sql) {
+            String normalized = normalize(sql);
+            Entry entry = bySql.get(normalized);
+            if (entry != null) {
+                return entry;
+            }
+            if (bySql.size() >= maxStatements) {
+                return other;
+            }
+            return bySql.computeIfAbsent(normalized, Entry::new);
+        }
+    }
+
+    /** The live counters of a normalized statement. */
+    private static final class Entry {
+        final String sql;
+        final LongAdder executions = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final LongAdder fullscanSteps = new LongAdder();
+        final LongAdder sorts = new LongAdder();
+        final LongAdder autoindexes = new LongAdder();
+        final LongAdder vmSteps = new LongAdder();
+        final LongAdder reprepares = new LongAdder();
+        final AtomicLong maxMemoryUsed = new AtomicLong();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        Entry(String sql) {
+            this.sql = sql;
+        }
+
+        void add(
+                long elapsedNanos,
+                long fullscanSteps,
+                long sorts,
+                long autoindexes,
+                long vmSteps,
+                long reprepares,
+                long memoryUsed) {
+            executions.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            histogram.incrementAndGet(bucket(elapsedNanos));
+            if (fullscanSteps != 0) this.fullscanSteps.add(fullscanSteps);
+            if (sorts != 0) this.sorts.add(sorts);
+            if (autoindexes != 0) this.autoindexes.add(autoindexes);
+            this.vmSteps.add(vmSteps);
+            if (reprepares != 0) this.reprepares.add(reprepares);
+            if (memoryUsed > maxMemoryUsed.get()) {
+                maxMemoryUsed.accumulateAndGet(memoryUsed, Math::max);
+            }
+        }
+
+        Profile snapshot() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+            }
+            return new Profile(
+                    sql,
+                    executions.sum(),
+                    totalNanos.sum(),
+                    maxNanos.get(),
+                    fullscanSteps.sum(),
+                    sorts.sum(),
+                    autoindexes.sum(),
+                    vmSteps.sum(),
+                    reprepares.sum(),
+                    maxMemoryUsed.get(),
+                    counts);
+        }
+    }
+
+    /** @return The histogram bucket of an elapsed time: 0 for 0, else its number of bits. */
+    static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /** The statistics of a normalized statement at the time of a {@link #snapshot()}. */
+    public static final class Profile {
+        private final String sql;
+        private final long executions;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long fullscanSteps;
+        private final long sorts;
+        private final long autoindexes;
+        private final long vmSteps;
+        private final long reprepares;
+        private final long maxMemoryUsed;
+        private final long[] histogram;
+
+        Profile(
+                String sql,
+                long executions,
+                long totalNanos,
+                long maxNanos,
+                long fullscanSteps,
+                long sorts,
+                long autoindexes,
+                long vmSteps,
+                long reprepares,
+                long maxMemoryUsed,
+                long[] histogram) {
+            this.sql = sql;
+            this.executions = executions;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.fullscanSteps = fullscanSteps;
+            this.sorts = sorts;
+            this.autoindexes = autoindexes;
+            this.vmSteps = vmSteps;
+            this.reprepares = reprepares;
+            this.maxMemoryUsed = maxMemoryUsed;
+            this.histogram = histogram;
+        }
+
+        /** @return The normalized SQL text, or null for the statements not counted apart. */
+        public String getSql() {
+            return sql;
+        }
+
+        /** @return The number of runs. */
+        public long getExecutions() {
+            return executions;
+        }
+
+        /** @return The total elapsed time of the runs. */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /** @return The longest elapsed time of a run. */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /** @return The mean elapsed time of a run. */
+        public long getMeanNanos() {
+            return executions == 0 ? 0 : totalNanos / executions;
+        }
+
+        /**
+         * @param percentile The percentile, between 0 and 100.
+         * @return An upper bound of the elapsed time under which this percentile of the runs
+         *     finished, within a factor of two.
+         */
+        public long getPercentileNanos(double percentile) {
+            long rank = (long) Math.ceil(executions * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram[i];
+                if (seen >= rank && seen > 0) {
+                    return i == 0 ? 0 : Math.min(maxNanos, (1L << i) - 1);
+                }
+            }
+            return maxNanos;
+        }
+
+        /**
+         * @return The number of runs per bucket of elapsed time: bucket 0 counts the runs that took
+         *     no measurable time, and bucket <code>i</code> those that took from <code>
+         *     2^(i-1)</code> to <code>2^i - 1</code> nanoseconds.
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        /** @return The total number of steps forward in full table scans. */
+        public long getFullscanSteps() {
+            return fullscanSteps;
+        }
+
+        /** @return The total number of sort operations. */
+        public long getSorts() {
+            return sorts;
+        }
+
+        /** @return The total number of rows inserted into automatic indexes. */
+        public long getAutoindexes() {
+            return autoindexes;
+        }
+
+        /** @return The total number of virtual machine operations. */
+        public long getVmSteps() {
+            return vmSteps;
+        }
+
+        /** @return The number of times the statement was prepared again after schema changes. */
+        public long getReprepares() {
+            return reprepares;
+        }
+
+        /** @return The largest number of bytes of heap used by the statement. */
+        public long getMaxMemoryUsed() {
+            return maxMemoryUsed;
+        }
+
+        @Override
+        public String toString() {
+            return "Profile{sql="
+                    + sql
+                    + ", executions="
+                    + executions
+                    + ", totalNanos="
+                    + totalNanos
+                    + ", maxNanos="
+                    + maxNanos
+                    + ", fullscanSteps="
+                    + fullscanSteps
+                    + ", sorts="
+                    + sorts
+                    + ", autoindexes="
+                    + autoindexes
+                    + ", vmSteps="
+                    + vmSteps
+                    + ", reprepares="
+                    + reprepares
+                    + ", maxMemoryUsed="
+                    + maxMemoryUsed
+                    + ", histogram="
+                    + Arrays.toString(histogram)
+                    + '}';
+        }
+    }
+}
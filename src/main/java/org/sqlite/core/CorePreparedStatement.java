@@ -16,20 +16,39 @@
 
 package org.sqlite.core;
 
+import static org.sqlite.SQLiteConfig.DEFAULT_DATE_STRING_FORMAT;
+
 import java.sql.Date;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteConnection;
 import org.sqlite.SQLiteConnectionConfig;
 import org.sqlite.date.FastDateFormat;
+import org.sqlite.date.IsoDateTime;
 import org.sqlite.jdbc3.JDBC3Connection;
 import org.sqlite.jdbc4.JDBC4Statement;
 
 public abstract class CorePreparedStatement extends JDBC4Statement {
     protected int columnCount;
     protected int paramCount;
-    protected int batchQueryCount;
+
+    /** Parameter values, allocated when the first one is set. */
+    protected ParameterBuffer parameters;
+
+    /** Column names read at prepare time, handed back to the statement cache on close. */
+    private String[] columnNames;
+
+    /** The schema version the statement was prepared under, when the statement cache is enabled. */
+    private int schemaVersion;
 
     /**
      * Constructs a prepared statement on a provided connection.
@@ -43,13 +62,48 @@ public abstract class CorePreparedStatement extends JDBC4Statement {
 
         this.sql = sql;
         DB db = conn.getDatabase();
-        db.prepare(this);
-        rs.colsMeta = pointer.safeRun(DB::column_names);
-        columnCount = pointer.safeRunInt(DB::column_count);
-        paramCount = pointer.safeRunInt(DB::bind_parameter_count);
-        batchQueryCount = 0;
-        batch = null;
-        batchPos = 0;
+        StatementCache.Entry cached = db.takeCachedStatement(sql);
+        if (cached != null) {
+            pointer = cached.pointer;
+            columnNames = cached.colsMeta;
+            columnCount = cached.columnCount;
+            paramCount = cached.paramCount;
+            schemaVersion = cached.schemaVersion;
+        } else {
+            // read first, so that a change of the schema while preparing makes the statement stale
+            if (db.getStatementCache() != null) {
+                schemaVersion = db.schemaVersion();
+            }
+            db.prepare(this);
+            columnNames = pointer.safeRun(DB::column_names);
+            columnCount = pointer.safeRunInt(DB::column_count);
+            paramCount = pointer.safeRunInt(DB::bind_parameter_count);
+        }
+        rs.colsMeta = columnNames;
+    }
+
+    /**
+     * Returns the statement to the connection's statement cache when it is enabled, otherwise
+     * finalizes it.
+     */
+    @Override
+    protected void internalClose() throws SQLException {
+        if (pointer == null
+                || pointer.isClosed()
+                || conn.isClosed()
+                || conn.getDatabase().getStatementCache() == null) {
+            super.internalClose();
+            return;
+        }
+
+        rs.close();
+
+        parameters = null;
+        if (!conn.getDatabase()
+                .cacheStatement(
+                        sql, pointer, columnNames, columnCount, paramCount, schemaVersion)) {
+            super.internalClose();
+        }
     }
 
     /** @see org.sqlite.jdbc3.JDBC3Statement#executeBatch() */
@@ -61,7 +115,7 @@ public abstract class CorePreparedStatement extends JDBC4Statement {
     /** @see org.sqlite.jdbc3.JDBC3Statement#executeLargeBatch() */
     @Override
     public long[] executeLargeBatch() throws SQLException {
-        if (batchQueryCount == 0) {
+        if (parameters == null || parameters.getRowCount() == 0) {
             return new long[] {};
         }
 
@@ -73,8 +127,7 @@ public abstract class CorePreparedStatement extends JDBC4Statement {
                 () -> {
                     try {
                         return conn.getDatabase()
-                                .executeBatch(
-                                        pointer, batchQueryCount, batch, conn.getAutoCommit());
+                                .executeBatch(pointer, parameters, conn.getAutoCommit());
                     } finally {
                         clearBatch();
                     }
@@ -85,46 +138,177 @@ public abstract class CorePreparedStatement extends JDBC4Statement {
     @Override
     public void clearBatch() throws SQLException {
         super.clearBatch();
-        batchQueryCount = 0;
+        if (parameters != null) parameters.clear();
+    }
+
+    @Override
+    protected void checkIndex(int index) throws SQLException {
+        if (parameters == null) {
+            throw new SQLException("No parameter has been set yet");
+        }
+        if (index < 1 || index > paramCount) {
+            throw new SQLException("Parameter index is invalid");
+        }
     }
 
     // PARAMETER FUNCTIONS //////////////////////////////////////////
 
     /**
-     * Assigns the object value to the element at the specific position of array batch.
+     * Returns the parameter values to assign to, allocating them on first use.
      *
-     * @param pos
-     * @param value
-     * @throws SQLException
+     * @throws SQLException if the statement is closed
      */
-    protected void batch(int pos, Object value) throws SQLException {
+    protected ParameterBuffer parameters() throws SQLException {
         checkOpen();
-        if (batch == null) {
-            batch = new Object[paramCount];
+        if (parameters == null) {
+            parameters = new ParameterBuffer(paramCount);
         }
-        batch[batchPos + pos - 1] = value;
+        return parameters;
     }
 
     /** Store the date in the user's preferred format (text, int, or real) */
-    protected void setDateByMilliseconds(int pos, Long value, Calendar calendar)
+    protected void setDateByMilliseconds(int pos, long value, Calendar calendar)
+            throws SQLException {
+        setDateByInstant(
+                pos,
+                Math.floorDiv(value, 1000),
+                (int) Math.floorMod(value, 1000L) * 1_000_000,
+                calendar.getTimeZone());
+    }
+
+    /**
+     * Store the date in the user's preferred format (text, int, or real), keeping its nanoseconds
+     * as an integer of a precision finer than milliseconds.
+     *
+     * @param pos The parameter index.
+     * @param epochSecond The seconds since the epoch.
+     * @param nano The nanoseconds within the second.
+     * @param zone The time zone of text dates.
+     */
+    protected void setDateByInstant(int pos, long epochSecond, int nano, TimeZone zone)
             throws SQLException {
         SQLiteConnectionConfig config = conn.getConnectionConfig();
+        long millis;
         switch (config.getDateClass()) {
             case TEXT:
-                batch(
-                        pos,
-                        FastDateFormat.getInstance(
-                                        config.getDateStringFormat(), calendar.getTimeZone())
-                                .format(new Date(value)));
+                millis = epochMillis(epochSecond, nano, 0);
+                setDateText(pos, millis, zone);
                 break;
 
             case REAL:
-                // long to Julian date
-                batch(pos, new Double((value / 86400000.0) + 2440587.5));
+                millis = epochMillis(epochSecond, nano, 0);
+                parameters().setDouble(pos, julianDate(millis, nano % 1_000_000));
                 break;
 
             default: // INTEGER:
-                batch(pos, new Long(value / config.getDateMultiplier()));
+                parameters()
+                        .setLong(pos, config.getDatePrecision().fromEpochSecond(epochSecond, nano));
         }
     }
+
+    /**
+     * Stores a java.time value in the user's preferred format (text, int, or real), if it is one of
+     * Instant, OffsetDateTime, ZonedDateTime, LocalDateTime or LocalDate. Local values are stored
+     * as text and as Julian dates with their fields, as SQLite does, and as integers in the default
+     * time zone. Julian dates of the other values hold their local time in the default time zone,
+     * so that they are read back as the same instant.
+     *
+     * @return False if the value is not one of these types.
+     * @see SQLiteConnectionConfig#isJavaTimeDates()
+     */
+    protected boolean setJavaTimeDate(int pos, Object value) throws SQLException {
+        TimeZone zone = TimeZone.getDefault();
+        if (value instanceof Instant) {
+            Instant instant = (Instant) value;
+            setInstant(pos, instant.getEpochSecond(), instant.getNano(), zone);
+        } else if (value instanceof OffsetDateTime) {
+            OffsetDateTime dateTime = (OffsetDateTime) value;
+            setInstant(pos, dateTime.toEpochSecond(), dateTime.getNano(), zone);
+        } else if (value instanceof ZonedDateTime) {
+            ZonedDateTime dateTime = (ZonedDateTime) value;
+            setInstant(pos, dateTime.toEpochSecond(), dateTime.getNano(), zone);
+        } else if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            setLocalDate(
+                    pos,
+                    dateTime.toLocalDate().toEpochDay(),
+                    dateTime.toLocalTime().toNanoOfDay(),
+                    zone);
+        } else if (value instanceof LocalDate) {
+            setLocalDate(pos, ((LocalDate) value).toEpochDay(), 0, zone);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stores an instant like {@link #setDateByInstant(int, long, int, TimeZone)}, except that a
+     * Julian date holds its local time in the given time zone, the one Julian dates are read in.
+     */
+    private void setInstant(int pos, long epochSecond, int nano, TimeZone zone)
+            throws SQLException {
+        if (conn.getConnectionConfig().getDateClass() != SQLiteConfig.DateClass.REAL) {
+            setDateByInstant(pos, epochSecond, nano, zone);
+            return;
+        }
+        long millis = epochMillis(epochSecond, nano, 0);
+        long local = epochMillis(epochSecond, nano, zone.getOffset(millis));
+        parameters().setDouble(pos, julianDate(local, nano % 1_000_000));
+    }
+
+    /**
+     * @param offset Milliseconds to add to the instant.
+     * @return The milliseconds since the epoch of an instant.
+     * @throws SQLException if they do not fit in a long
+     */
+    private static long epochMillis(long epochSecond, int nano, int offset) throws SQLException {
+        try {
+            return Math.addExact(
+                    Math.multiplyExact(epochSecond, 1000), (long) nano / 1_000_000 + offset);
+        } catch (ArithmeticException e) {
+            throw new SQLException("Date out of range: " + epochSecond + "s");
+        }
+    }
+
+    private void setDateText(int pos, long millis, TimeZone zone) throws SQLException {
+        String format = conn.getConnectionConfig().getDateStringFormat();
+        String text =
+                DEFAULT_DATE_STRING_FORMAT.equals(format) ? IsoDateTime.format(millis, zone) : null;
+        if (text == null) {
+            text = FastDateFormat.getInstance(format, zone).format(new Date(millis));
+        }
+        parameters().setString(pos, text);
+    }
+
+    private void setLocalDate(int pos, long epochDay, long nanoOfDay, TimeZone zone)
+            throws SQLException {
+        long local = epochDay * 86400000 + nanoOfDay / 1_000_000;
+        int subMillis = (int) (nanoOfDay % 1_000_000);
+        long millis;
+        switch (conn.getConnectionConfig().getDateClass()) {
+            case REAL:
+                parameters().setDouble(pos, julianDate(local, subMillis));
+                break;
+
+            case TEXT:
+                // the fields as they are, even in a zone gap, with the offset they resolve to
+                millis = IsoDateTime.localToEpochMillis(local, zone);
+                setDateText(pos, millis, new SimpleTimeZone((int) (local - millis), zone.getID()));
+                break;
+
+            default: // INTEGER:
+                millis = IsoDateTime.localToEpochMillis(local, zone);
+                setDateByInstant(
+                        pos,
+                        Math.floorDiv(millis, 1000),
+                        (int) (Math.floorMod(millis, 1000L) * 1_000_000 + subMillis),
+                        zone);
+        }
+    }
+
+    /** long to Julian date */
+    private static double julianDate(long millis, int subMillisNanos) {
+        return (millis / 86400000.0) + 2440587.5 + subMillisNanos / 86400000000000.0;
+    }
 }
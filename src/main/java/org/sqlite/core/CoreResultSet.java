@@ -47,6 +47,11 @@ public abstract class CoreResultSet implements Codes {
     /** last column accessed, for wasNull(). -1 if none */
     protected int lastCol;
 
+    /** rows fetched ahead by batch fetching, see {@link SQLiteConnectionConfig#isBatchFetch()} */
+    protected RowBatch rowBatch;
+    /** if the current row is served from rowBatch rather than the statement */
+    protected boolean batched = false;
+
     public boolean closeStmt;
     protected Map<String, Integer> columnNameToIndex = null;
 
@@ -133,22 +138,26 @@ public abstract class CoreResultSet implements Codes {
         lastCol = -1;
         columnNameToIndex = null;
         emptyResultSet = false;
+        batched = false;
+        if (rowBatch != null) rowBatch.clear();
 
         if (stmt.pointer.isClosed() || (!open && !closeStmt)) {
             return;
         }
 
         DB db = stmt.getDatabase();
-        synchronized (db) {
-            if (!stmt.pointer.isClosed()) {
-                stmt.pointer.safeRunInt(DB::reset);
-
-                if (closeStmt) {
-                    closeStmt = false; // break recursive call
-                    ((Statement) stmt).close();
-                }
-            }
-        }
+        db.guarded(
+                () -> {
+                    if (!stmt.pointer.isClosed()) {
+                        stmt.pointer.safeRunInt(DB::reset);
+
+                        if (closeStmt) {
+                            closeStmt = false; // break recursive call
+                            ((Statement) stmt).close();
+                        }
+                    }
+                    return null;
+                });
 
         open = false;
     }
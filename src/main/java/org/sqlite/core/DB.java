@@ -15,22 +15,33 @@
  */
 package org.sqlite.core;
 
+import java.nio.ByteBuffer;
 import java.sql.BatchUpdateException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import org.sqlite.BusyHandler;
 import org.sqlite.Collation;
 import org.sqlite.Function;
 import org.sqlite.ProgressHandler;
+import org.sqlite.SQLiteBlob;
+import org.sqlite.SQLiteBusyStatistics;
 import org.sqlite.SQLiteCommitListener;
 import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConfig.ThreadingModel;
 import org.sqlite.SQLiteErrorCode;
 import org.sqlite.SQLiteException;
 import org.sqlite.SQLiteUpdateListener;
+import org.sqlite.StatementProfiler;
 
 /*
  * This class is the interface to SQLite. It provides some helper functions
@@ -55,16 +66,57 @@ public abstract class DB implements Codes {
 
     volatile SafeStmtPtr commit;
 
+    /** The "pragma schema_version;" statement handle, read to tell stale cached statements. */
+    private SafeStmtPtr schemaVersion;
+
     /** Tracer for statements to avoid unfinalized statements on db close. */
     private final Set<SafeStmtPtr> stmts = ConcurrentHashMap.newKeySet();
 
+    /** Open incremental blob handles, to free them before the database closes. */
+    private final Set<SQLiteBlob> blobs = ConcurrentHashMap.newKeySet();
+
+    /** Prepared statements kept for reuse, or null if statement caching is disabled. */
+    private final StatementCache statementCache;
+
     private final Set<SQLiteUpdateListener> updateListeners = new HashSet<>();
     private final Set<SQLiteCommitListener> commitListeners = new HashSet<>();
+    private volatile StatementProfiler profiler;
+
+    /**
+     * The exception a {@link org.sqlite.Collation.Raw} threw while a statement was stepped, set by
+     * the native library, which then interrupts the statement.
+     */
+    private Throwable collationFailure;
+
+    /**
+     * True under {@link ThreadingModel#SINGLE_OWNER}: statement calls check the calling thread
+     * against {@link #owner} instead of locking this object.
+     */
+    final boolean singleOwner;
+
+    private volatile Thread owner;
+
+    /**
+     * The lock guarding this database under {@link ThreadingModel#REENTRANT_LOCK}, taken instead of
+     * its monitor; null under the other threading models.
+     */
+    final ReentrantLock lock;
+
+    /** The delays in milliseconds between busy retries, the same as sqlite3_busy_timeout uses. */
+    private static final int[] BUSY_DELAYS = {1, 2, 5, 10, 15, 20, 25, 25, 25, 50, 50, 100};
 
     public DB(String url, String fileName, SQLiteConfig config) throws SQLException {
         this.url = url;
         this.fileName = fileName;
         this.config = config;
+        int cacheSize = config.getStatementCacheSize();
+        this.statementCache = cacheSize > 0 ? new StatementCache(cacheSize) : null;
+        this.singleOwner = config.getThreadingModel() == ThreadingModel.SINGLE_OWNER;
+        this.owner = Thread.currentThread();
+        this.lock =
+                config.getThreadingModel() == ThreadingModel.REENTRANT_LOCK
+                        ? new ReentrantLock()
+                        : null;
     }
 
     public String getUrl() {
@@ -79,6 +131,197 @@ public abstract class DB implements Codes {
         return config;
     }
 
+    /** @return The prepared statement cache of this database, or null if it is disabled. */
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Makes the calling thread the owner of this database.
+     *
+     * @see org.sqlite.SQLiteConnection#transferOwnership()
+     */
+    public final void transferOwnership() {
+        owner = Thread.currentThread();
+    }
+
+    /**
+     * Checks that the calling thread owns this database, which replaces locking it under {@link
+     * ThreadingModel#SINGLE_OWNER}.
+     *
+     * @throws SQLException if another thread owns the database
+     */
+    final void checkOwner() throws SQLException {
+        Thread current = Thread.currentThread();
+        if (current != owner) {
+            throw new SQLException(
+                    "The connection is owned by thread "
+                            + owner.getName()
+                            + ", call transferOwnership() before using it from thread "
+                            + current.getName());
+        }
+    }
+
+    /**
+     * Runs an action while holding this database: its lock under {@link
+     * ThreadingModel#REENTRANT_LOCK}, so that waiting virtual threads park instead of pinning their
+     * carrier, and its monitor otherwise.
+     *
+     * @param action the action to run
+     * @return the result of the action
+     * @throws SQLException if the action throws
+     */
+    public final <T> T guarded(GuardedAction<T> action) throws SQLException {
+        if (lock == null) {
+            synchronized (this) {
+                return action.run();
+            }
+        }
+        lock.lock();
+        try {
+            return action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    public interface GuardedAction<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Installs the configured busy timeout. The FIXED strategy without statistics is applied with
+     * sqlite3_busy_timeout, so that <code>pragma busy_timeout</code> reads it; otherwise the native
+     * busy strategy is installed as the busy handler of SQLite. Under {@link
+     * ThreadingModel#REENTRANT_LOCK} the native handler gives up at once, as it would sleep inside
+     * SQLite, and busy statements are retried by {@link #parkOnBusy(int, long)} instead.
+     *
+     * @throws SQLException
+     */
+    public final void applyBusyTimeout() throws SQLException {
+        applyBusyStrategy(lock != null);
+    }
+
+    /**
+     * @return Whether the busy timeout is applied by the native busy strategy rather than by
+     *     sqlite3_busy_timeout.
+     */
+    private boolean usesBusyStrategy() {
+        return lock != null
+                || config.getBusyStrategy() != SQLiteConfig.BusyStrategy.FIXED
+                || config.isBusyStatistics();
+    }
+
+    /** @param deferred Whether busy statements are retried in Java rather than by the handler. */
+    private void applyBusyStrategy(boolean deferred) throws SQLException {
+        if (!usesBusyStrategy()) {
+            busy_timeout(config.getBusyTimeout());
+            return;
+        }
+        busy_strategy(
+                config.getBusyStrategy().ordinal(),
+                deferred ? -1 : Math.max(config.getBusyTimeout(), 0),
+                config.getBusyBackoffInitial(),
+                config.getBusyBackoffMax(),
+                config.getBusySpins());
+    }
+
+    /**
+     * Returns how long the statements of this connection waited for the database to stop being
+     * busy, as recorded by the native busy strategy.
+     *
+     * @param reset Whether to clear the statistics once read.
+     * @return The statistics of each SQL text that found the database busy, the longest waits
+     *     first.
+     * @throws SQLException
+     */
+    public final List<SQLiteBusyStatistics> getBusyStatistics(boolean reset) throws SQLException {
+        Object[] values = busy_statistics(reset);
+        List<SQLiteBusyStatistics> statistics = new ArrayList<>(values.length / 2);
+        for (int i = 0; i < values.length; i += 2) {
+            String sql = (String) values[i];
+            long[] counters = (long[]) values[i + 1];
+            statistics.add(
+                    new SQLiteBusyStatistics(
+                            sql, counters[0], counters[1], counters[2], counters[3]));
+        }
+        statistics.sort(Comparator.comparingLong(SQLiteBusyStatistics::getWaitMicros).reversed());
+        return statistics;
+    }
+
+    /**
+     * Parks the calling thread before retrying a statement that returned SQLITE_BUSY under {@link
+     * ThreadingModel#REENTRANT_LOCK}.
+     *
+     * @param attempt The number of retries so far.
+     * @param start The {@link System#nanoTime()} of the first attempt.
+     * @return False if the busy timeout has elapsed and the statement should not be retried.
+     */
+    final boolean parkOnBusy(int attempt, long start) {
+        long remaining =
+                TimeUnit.MILLISECONDS.toNanos(config.getBusyTimeout())
+                        - (System.nanoTime() - start);
+        if (remaining <= 0) {
+            busy_wait(attempt, 0, true);
+            return false;
+        }
+        long delay =
+                TimeUnit.MILLISECONDS.toNanos(
+                        BUSY_DELAYS[Math.min(attempt, BUSY_DELAYS.length - 1)]);
+        long parked = System.nanoTime();
+        LockSupport.parkNanos(Math.min(delay, remaining));
+        busy_wait(attempt, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - parked), false);
+        return true;
+    }
+
+    /**
+     * Evaluates a statement like {@link #step(long)}, retrying it while the database is busy under
+     * {@link ThreadingModel#REENTRANT_LOCK}.
+     *
+     * @param stmt Pointer to the statement.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @throws SQLException
+     */
+    public final int stepWithBusyWait(long stmt) throws SQLException {
+        int rc = step(stmt);
+        if (rc == SQLITE_BUSY && lock != null) {
+            long start = System.nanoTime();
+            for (int attempt = 0; rc == SQLITE_BUSY && parkOnBusy(attempt, start); attempt++) {
+                rc = step(stmt);
+            }
+        }
+        return rc;
+    }
+
+    /**
+     * Fills columnar buffers like {@link #step_columnar(long, int, int, int[], ByteBuffer[], int[],
+     * boolean)}, retrying while the database is busy under {@link ThreadingModel#REENTRANT_LOCK}.
+     *
+     * @return Number of rows in the buffers.
+     * @throws SQLException
+     */
+    public final int stepColumnarWithBusyWait(
+            long stmt,
+            int startRow,
+            int maxRows,
+            int[] kinds,
+            ByteBuffer[] buffers,
+            int[] status,
+            boolean stepFirst)
+            throws SQLException {
+        int rows = step_columnar(stmt, startRow, maxRows, kinds, buffers, status, stepFirst);
+        if (rows == startRow && stepFirst && status[0] == SQLITE_BUSY && lock != null) {
+            long start = System.nanoTime();
+            for (int attempt = 0;
+                    rows == startRow && status[0] == SQLITE_BUSY && parkOnBusy(attempt, start);
+                    attempt++) {
+                rows = step_columnar(stmt, startRow, maxRows, kinds, buffers, status, true);
+            }
+        }
+        return rows;
+    }
+
     // WRAPPER FUNCTIONS ////////////////////////////////////////////
 
     /**
@@ -112,6 +355,46 @@ public abstract class DB implements Codes {
      */
     public abstract void busy_handler(BusyHandler busyHandler) throws SQLException;
 
+    /**
+     * Sets a <a href="https://www.sqlite.org/c3ref/busy_handler.html">busy handler</a> implemented
+     * in native code, which retries a busy statement until the timeout elapses without calling back
+     * into Java, and records per SQL text how often and how long statements waited.
+     *
+     * @param strategy The ordinal of a {@link SQLiteConfig.BusyStrategy}.
+     * @param timeoutMillis The maximum time to wait, in milliseconds, or -1 to give up at once and
+     *     leave the retries to the caller, which reports them with {@link #busy_wait(int, long,
+     *     boolean)}.
+     * @param initialMicros The first delay of the BACKOFF strategy, in microseconds.
+     * @param maxMicros The longest delay of the BACKOFF strategy, in microseconds.
+     * @param spins The number of retries after yielding the processor before sleeping.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/busy_handler.html">https://www.sqlite.org/c3ref/busy_handler.html</a>
+     */
+    public abstract void busy_strategy(
+            int strategy, int timeoutMillis, int initialMicros, int maxMicros, int spins)
+            throws SQLException;
+
+    /**
+     * Records a retry of a busy statement made by the caller of a busy strategy installed with a
+     * timeout of -1, in the statistics of the statement the handler last found busy.
+     *
+     * @param attempt The number of retries so far, 0 for the first retry of a busy event.
+     * @param waitMicros The time waited before the retry, in microseconds.
+     * @param timedOut True if the caller gives up instead of retrying.
+     */
+    abstract void busy_wait(int attempt, long waitMicros, boolean timedOut);
+
+    /**
+     * Reads the statistics recorded by the busy strategy.
+     *
+     * @param reset Whether to clear the statistics once read.
+     * @return Pairs of the SQL text, null for statements that are not counted apart, and its
+     *     counters: busy events, retries, microseconds waited and timeouts.
+     * @throws SQLException
+     */
+    abstract Object[] busy_statistics(boolean reset) throws SQLException;
+
     /**
      * Return English-language text that describes the error as either UTF-8 or UTF-16.
      *
@@ -185,22 +468,26 @@ public abstract class DB implements Codes {
      * @see <a
      *     href="https://www.sqlite.org/c3ref/exec.html">https://www.sqlite.org/c3ref/exec.html</a>
      */
-    public final synchronized void exec(String sql, boolean autoCommit) throws SQLException {
-        SafeStmtPtr pointer = prepare(sql);
-        try {
-            int rc = pointer.safeRunInt(DB::step);
-            switch (rc) {
-                case SQLITE_DONE:
-                    ensureAutoCommit(autoCommit);
-                    return;
-                case SQLITE_ROW:
-                    return;
-                default:
-                    throwex(rc);
-            }
-        } finally {
-            pointer.close();
-        }
+    public final void exec(String sql, boolean autoCommit) throws SQLException {
+        guarded(
+                () -> {
+                    SafeStmtPtr pointer = prepareWithBusyWait(sql);
+                    try {
+                        int rc = pointer.safeRunInt(DB::stepWithBusyWait);
+                        switch (rc) {
+                            case SQLITE_DONE:
+                                ensureAutoCommit(autoCommit);
+                                break;
+                            case SQLITE_ROW:
+                                break;
+                            default:
+                                throwex(rc);
+                        }
+                    } finally {
+                        pointer.close();
+                    }
+                    return null;
+                });
     }
 
     /**
@@ -222,7 +509,7 @@ public abstract class DB implements Codes {
             shared_cache(config.isEnabledSharedCache());
         }
         enable_load_extension(config.isEnabledLoadExtension());
-        busy_timeout(config.getBusyTimeout());
+        applyBusyTimeout();
     }
 
     /**
@@ -233,18 +520,27 @@ public abstract class DB implements Codes {
      * @see <a
      *     href="https://www.sqlite.org/c3ref/close.html">https://www.sqlite.org/c3ref/close.html</a>
      */
-    public final synchronized void close() throws SQLException {
-        // finalize any remaining statements before closing db
-        for (SafeStmtPtr element : stmts) {
-            element.close();
-        }
+    public final void close() throws SQLException {
+        guarded(
+                () -> {
+                    for (SQLiteBlob blob : blobs) {
+                        blob.free();
+                    }
+                    // finalize any remaining statements before closing db, cached ones included
+                    for (SafeStmtPtr element : stmts) {
+                        element.close();
+                    }
+                    if (statementCache != null) statementCache.clear();
 
-        // clean up commit object
-        if (begin != null) begin.close();
-        if (commit != null) commit.close();
+                    // clean up commit object
+                    if (begin != null) begin.close();
+                    if (commit != null) commit.close();
+                    if (schemaVersion != null) schemaVersion.close();
 
-        closed.set(true);
-        _close();
+                    closed.set(true);
+                    _close();
+                    return null;
+                });
     }
 
     /**
@@ -255,18 +551,129 @@ public abstract class DB implements Codes {
      * @see <a
      *     href="https://www.sqlite.org/c3ref/prepare.html">https://www.sqlite.org/c3ref/prepare.html</a>
      */
-    public final synchronized void prepare(CoreStatement stmt) throws SQLException {
+    public final void prepare(CoreStatement stmt) throws SQLException {
         if (stmt.sql == null) {
             throw new NullPointerException();
         }
-        if (stmt.pointer != null) {
-            stmt.pointer.close();
+        guarded(
+                () -> {
+                    if (stmt.pointer != null) {
+                        stmt.pointer.close();
+                    }
+                    stmt.pointer = prepareWithBusyWait(stmt.sql);
+                    final boolean added = stmts.add(stmt.pointer);
+                    if (!added) {
+                        throw new IllegalStateException("Already added pointer to statements set");
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Compiles an SQL statement like {@link #prepare(String)}, retrying while the schema is locked
+     * under {@link ThreadingModel#REENTRANT_LOCK}.
+     */
+    private SafeStmtPtr prepareWithBusyWait(String sql) throws SQLException {
+        long start = 0;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return prepare(sql);
+            } catch (SQLiteException e) {
+                if (lock == null || e.getResultCode() != SQLiteErrorCode.SQLITE_BUSY) {
+                    throw e;
+                }
+                if (attempt == 0) {
+                    start = System.nanoTime();
+                }
+                if (!parkOnBusy(attempt, start)) {
+                    throw e;
+                }
+            }
         }
-        stmt.pointer = prepare(stmt.sql);
-        final boolean added = stmts.add(stmt.pointer);
-        if (!added) {
-            throw new IllegalStateException("Already added pointer to statements set");
+    }
+
+    /**
+     * Takes a previously prepared statement for the given SQL out of the statement cache.
+     *
+     * @param sql The SQL text.
+     * @return The cached statement, or null if caching is disabled, there is no such statement or
+     *     the schema changed since it was prepared.
+     * @throws SQLException
+     */
+    final StatementCache.Entry takeCachedStatement(String sql) throws SQLException {
+        if (statementCache == null || isClosed()) {
+            return null;
         }
+        return guarded(() -> statementCache.take(sql, this));
+    }
+
+    /**
+     * Reads the schema version of the main database, which changes with its schema. A cached
+     * statement prepared under another version has stale column metadata: SQLite only prepares it
+     * again once it is stepped.
+     *
+     * @return The schema version.
+     * @throws SQLException
+     */
+    final int schemaVersion() throws SQLException {
+        return guarded(
+                () -> {
+                    if (schemaVersion == null) {
+                        schemaVersion = prepare("pragma schema_version;");
+                    }
+                    return schemaVersion.safeRunInt(
+                            (db, ptr) -> {
+                                try {
+                                    int rc = stepWithBusyWait(ptr);
+                                    if (rc != SQLITE_ROW) {
+                                        throwex(rc);
+                                    }
+                                    return column_int(ptr, 0);
+                                } finally {
+                                    reset(ptr);
+                                }
+                            });
+                });
+    }
+
+    /**
+     * Resets a statement and parks it in the statement cache instead of finalizing it. The given
+     * pointer is closed for its current owner either way.
+     *
+     * @param sql The SQL text the statement was prepared from.
+     * @param pointer The statement to park.
+     * @param colsMeta The column names of the statement.
+     * @param columnCount The number of result columns.
+     * @param paramCount The number of parameters.
+     * @param schemaVersion The schema version read before the statement was prepared.
+     * @return True if the statement was cached; false if caching is disabled.
+     * @throws SQLException
+     */
+    final boolean cacheStatement(
+            String sql,
+            SafeStmtPtr pointer,
+            String[] colsMeta,
+            int columnCount,
+            int paramCount,
+            int schemaVersion)
+            throws SQLException {
+        return guarded(
+                () -> {
+                    if (statementCache == null || isClosed() || pointer.isClosed()) {
+                        return false;
+                    }
+                    pointer.safeRunInt(DB::reset);
+                    pointer.safeRunInt(DB::clear_bindings);
+
+                    SafeStmtPtr parked = pointer.detach();
+                    stmts.remove(pointer);
+                    stmts.add(parked);
+                    statementCache.put(
+                            sql,
+                            new StatementCache.Entry(
+                                    parked, colsMeta, columnCount, paramCount, schemaVersion));
+                    return true;
+                });
     }
 
     /**
@@ -422,6 +829,26 @@ public abstract class DB implements Codes {
      */
     public abstract String column_table_name(long stmt, int col) throws SQLException;
 
+    /**
+     * @param stmt Pointer to the statement.
+     * @param col Number of column.
+     * @return Name of the database (main, temp or attached) the column comes from.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/column_database_name.html">https://www.sqlite.org/c3ref/column_database_name.html</a>
+     */
+    public abstract String column_database_name(long stmt, int col) throws SQLException;
+
+    /**
+     * @param stmt Pointer to the statement.
+     * @param col Number of column.
+     * @return Name of the table column the result column comes from, or null for an expression.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/column_database_name.html">https://www.sqlite.org/c3ref/column_database_name.html</a>
+     */
+    public abstract String column_origin_name(long stmt, int col) throws SQLException;
+
     /**
      * @param stmt Pointer to the statement.
      * @param col The number of column.
@@ -442,6 +869,21 @@ public abstract class DB implements Codes {
      */
     public abstract String column_text(long stmt, int col) throws SQLException;
 
+    /**
+     * Copies the UTF-8 text of a column into a buffer without creating a String. The buffer
+     * position is advanced past the copied bytes.
+     *
+     * @param stmt Pointer to the statement.
+     * @param col Number of column.
+     * @param dst Buffer receiving the text.
+     * @return Length of the text in bytes, or -1 if the value is NULL. Nothing is copied if the
+     *     length exceeds the remaining space of the buffer.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/column_blob.html">https://www.sqlite.org/c3ref/column_blob.html</a>
+     */
+    public abstract int column_text(long stmt, int col, ByteBuffer dst) throws SQLException;
+
     /**
      * @param stmt Pointer to the statement.
      * @param col Number of column.
@@ -482,6 +924,83 @@ public abstract class DB implements Codes {
      */
     public abstract int column_int(long stmt, int col) throws SQLException;
 
+    /**
+     * Steps a statement up to <code>maxRows</code> times and copies the rows into a direct buffer
+     * in the columnar layout read by {@link RowBatch}.
+     *
+     * @param stmt Pointer to the statement.
+     * @param maxRows Maximum number of rows to copy.
+     * @param buffer Direct buffer receiving the rows.
+     * @param stepFirst False if the statement is positioned on a row that was not copied by the
+     *     previous call.
+     * @return Number of rows copied.
+     * @throws SQLException
+     */
+    public abstract int step_batch(long stmt, int maxRows, ByteBuffer buffer, boolean stepFirst)
+            throws SQLException;
+
+    /**
+     * Steps a statement and appends its rows to per-column direct buffers in the columnar layout of
+     * Apache Arrow: a validity bitmap, 8-byte values, int32 offsets and variable-width data, in
+     * native byte order.
+     *
+     * @param stmt Pointer to the statement.
+     * @param startRow Row of the buffers to write first.
+     * @param maxRows Row of the buffers at which to stop.
+     * @param kinds SQLITE_* kind of each column, SQLITE_NULL until the column has a non-NULL value.
+     * @param buffers The validity, values, offsets and data buffers of each column, in this order.
+     * @param status Receives the result code, and the column and size of a data buffer that is too
+     *     small when the result code is SQLITE_ROW.
+     * @param stepFirst False if the statement is positioned on a row that was not written by the
+     *     previous call.
+     * @return The row after the last row written.
+     * @throws SQLException
+     */
+    public abstract int step_columnar(
+            long stmt,
+            int startRow,
+            int maxRows,
+            int[] kinds,
+            ByteBuffer[] buffers,
+            int[] status,
+            boolean stepFirst)
+            throws SQLException;
+
+    /**
+     * @param value A REAL value.
+     * @return The text SQLite renders for the value, as returned by sqlite3_column_text().
+     * @throws SQLException
+     */
+    public abstract String real_to_text(double value) throws SQLException;
+
+    /**
+     * Executes a prepared statement once for each row of parameters, binding, stepping and
+     * resetting it in native code. The parameters of row <code>r</code> are the cells <code>
+     * r * params</code> to <code>(r + 1) * params - 1</code>; the SQLITE_* type tag of a cell
+     * selects the array holding its value at the same index.
+     *
+     * @param stmt Pointer to the statement.
+     * @param count Number of rows of parameters.
+     * @param tags SQLITE_INTEGER, SQLITE_FLOAT, SQLITE_TEXT, SQLITE_BLOB or SQLITE_NULL per cell.
+     * @param longs Values of SQLITE_INTEGER cells, or null if there are none.
+     * @param doubles Values of SQLITE_FLOAT cells, or null if there are none.
+     * @param objects UTF-8 bytes of SQLITE_TEXT cells and bytes of SQLITE_BLOB cells, as a byte
+     *     array or a direct buffer bound whole, or null if there are none.
+     * @param changes Receives the number of changes of every row.
+     * @return Number of rows executed. If less than <code>count</code>, the element of <code>
+     *     changes</code> at the returned index holds the result code of the failed row.
+     * @throws SQLException
+     */
+    abstract int execute_batch(
+            long stmt,
+            int count,
+            byte[] tags,
+            long[] longs,
+            double[] doubles,
+            Object[] objects,
+            long[] changes)
+            throws SQLException;
+
     /**
      * Binds NULL value to prepared statements with the pointer to the statement object and the
      * index of the SQL parameter to be set to NULL.
@@ -563,6 +1082,28 @@ public abstract class DB implements Codes {
      */
     abstract int bind_blob(long stmt, int pos, byte[] v) throws SQLException;
 
+    /**
+     * Binds the whole capacity of a direct buffer as a blob, without any copy. SQLite reads the
+     * bytes in place (SQLITE_STATIC) whenever the statement is stepped, so the buffer must stay
+     * reachable and unchanged until the parameter is bound again or the statement is finalized.
+     *
+     * @param stmt Pointer to the statement.
+     * @param pos Index of the SQL parameter to be set.
+     * @param v Direct buffer holding the value.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/bind_blob.html">https://www.sqlite.org/c3ref/bind_blob.html</a>
+     */
+    abstract int bind_blob_direct(long stmt, int pos, ByteBuffer v) throws SQLException;
+
+    /**
+     * Binds the whole capacity of a direct buffer holding UTF-8 bytes as text.
+     *
+     * @see #bind_blob_direct(long, int, ByteBuffer)
+     */
+    abstract int bind_text_direct(long stmt, int pos, ByteBuffer vUtf8) throws SQLException;
+
     /**
      * Sets the result of an SQL function as NULL with the pointer to the SQLite database context.
      *
@@ -708,6 +1249,33 @@ public abstract class DB implements Codes {
      */
     public abstract int value_type(Function f, int arg) throws SQLException;
 
+    /**
+     * Accesses an argument of the function call in progress on the calling thread, without a {@link
+     * Function} object.
+     *
+     * @param values Pointer to the sqlite3_value array of the call.
+     * @param arg Index of the argument, within the bounds of the array.
+     * @return The argument in text data type.
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/value_blob.html">https://www.sqlite.org/c3ref/value_blob.html</a>
+     */
+    public abstract String arg_text(long values, int arg);
+
+    /** @see #arg_text(long, int) */
+    public abstract byte[] arg_blob(long values, int arg);
+
+    /** @see #arg_text(long, int) */
+    public abstract double arg_double(long values, int arg);
+
+    /** @see #arg_text(long, int) */
+    public abstract long arg_long(long values, int arg);
+
+    /** @see #arg_text(long, int) */
+    public abstract int arg_int(long values, int arg);
+
+    /** @see #arg_text(long, int) */
+    public abstract int arg_type(long values, int arg);
+
     /**
      * Create a user defined function with given function name and the function object.
      *
@@ -723,6 +1291,38 @@ public abstract class DB implements Codes {
     public abstract int create_function(String name, Function f, int nArgs, int flags)
             throws SQLException;
 
+    /**
+     * Create a user defined scalar function whose calls are each given their own {@link
+     * org.sqlite.SQLiteFunctionContext}.
+     *
+     * @param name The function name to be created.
+     * @param call The object the native library calls with <tt>xCall(long context, long values, int
+     *     args)</tt>.
+     * @param nArgs The number of arguments that the function takes, or -1 for any.
+     * @param flags Extra flags to use when creating the function, such as {@link
+     *     Function#FLAG_DETERMINISTIC}
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @throws SQLException
+     */
+    public abstract int create_scalar_function(String name, Object call, int nArgs, int flags)
+            throws SQLException;
+
+    /**
+     * Create a user defined function of one or two primitive arguments, called by the native
+     * library without going through a {@link Function} object.
+     *
+     * @param name The function name to be created.
+     * @param f A LongUnaryOperator, LongBinaryOperator, DoubleUnaryOperator or
+     *     DoubleBinaryOperator.
+     * @param kind Which of the above f is: 0, 1, 2 or 3 respectively.
+     * @param flags Extra flags to use when creating the function, such as {@link
+     *     Function#FLAG_DETERMINISTIC}
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @throws SQLException
+     */
+    public abstract int create_primitive_function(String name, Object f, int kind, int flags)
+            throws SQLException;
+
     /**
      * De-registers a user defined function
      *
@@ -744,6 +1344,36 @@ public abstract class DB implements Codes {
      */
     public abstract int create_collation(String name, Collation c) throws SQLException;
 
+    /**
+     * Create one of the collations implemented by the native library.
+     *
+     * @param name The collation name to be created.
+     * @param kind The collation: 0 for case-insensitive, 1 for natural and 2 for case-insensitive
+     *     natural ordering.
+     * @param foldTable A direct buffer of 65536 chars in native byte order giving the case folding
+     *     of every UTF-16 code unit, for the case-insensitive collations.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @throws SQLException
+     * @see org.sqlite.Collation.Builtin
+     */
+    public abstract int create_builtin_collation(String name, int kind, ByteBuffer foldTable)
+            throws SQLException;
+
+    /**
+     * Create a user defined collation of encoded text with given collation name and the collation
+     * object.
+     *
+     * @param name The collation name to be created.
+     * @param c SQLite collation object.
+     * @param encoding The encoding of the text it compares: SQLITE_UTF8, SQLITE_UTF16LE or
+     *     SQLITE_UTF16BE.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @throws SQLException
+     * @see org.sqlite.Collation.Raw
+     */
+    public abstract int create_raw_collation(String name, Collation.Raw c, int encoding)
+            throws SQLException;
+
     /**
      * Create a user defined collation with given collation name and the collation object.
      *
@@ -867,100 +1497,59 @@ public abstract class DB implements Codes {
         return names;
     }
 
-    /**
-     * Bind values to prepared statements
-     *
-     * @param stmt Pointer to the statement.
-     * @param pos Index of the SQL parameter to be set to NULL.
-     * @param v Value to bind to the parameter.
-     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
-     * @throws SQLException
-     * @see <a
-     *     href="https://www.sqlite.org/c3ref/bind_blob.html">https://www.sqlite.org/c3ref/bind_blob.html</a>
-     */
-    final synchronized int sqlbind(long stmt, int pos, Object v) throws SQLException {
-        pos++;
-        if (v == null) {
-            return bind_null(stmt, pos);
-        } else if (v instanceof Integer) {
-            return bind_int(stmt, pos, (Integer) v);
-        } else if (v instanceof Short) {
-            return bind_int(stmt, pos, ((Short) v).intValue());
-        } else if (v instanceof Long) {
-            return bind_long(stmt, pos, (Long) v);
-        } else if (v instanceof Float) {
-            return bind_double(stmt, pos, ((Float) v).doubleValue());
-        } else if (v instanceof Double) {
-            return bind_double(stmt, pos, (Double) v);
-        } else if (v instanceof String) {
-            return bind_text(stmt, pos, (String) v);
-        } else if (v instanceof byte[]) {
-            return bind_blob(stmt, pos, (byte[]) v);
-        } else {
-            throw new SQLException("unexpected param type: " + v.getClass());
-        }
-    }
-
     /**
      * Submits a batch of commands to the database for execution.
      *
      * @see java.sql.Statement#executeBatch()
      * @param stmt Pointer of Stmt object.
-     * @param count Number of SQL statements.
-     * @param vals Array of parameter values.
+     * @param params Parameter values of the rows of the batch.
      * @return Array of the number of rows changed or inserted or deleted for each command if all
      *     commands execute successfully;
      * @throws SQLException if statement is not open or is being used elsewhere
      */
-    final synchronized long[] executeBatch(
-            SafeStmtPtr stmt, int count, Object[] vals, boolean autoCommit) throws SQLException {
-        return stmt.safeRun((db, ptr) -> this.executeBatch(ptr, count, vals, autoCommit));
+    public final long[] executeBatch(SafeStmtPtr stmt, ParameterBuffer params, boolean autoCommit)
+            throws SQLException {
+        return stmt.safeRun((db, ptr) -> this.executeBatch(ptr, params, autoCommit));
     }
 
-    private synchronized long[] executeBatch(
-            long stmt, int count, Object[] vals, boolean autoCommit) throws SQLException {
+    private long[] executeBatch(long stmt, ParameterBuffer params, boolean autoCommit)
+            throws SQLException {
+        final int count = params.getRowCount();
         if (count < 1) {
             throw new SQLException("count (" + count + ") < 1");
         }
 
-        final int params = bind_parameter_count(stmt);
-
-        int rc;
         long[] changes = new long[count];
-
         try {
-            for (int i = 0; i < count; i++) {
-                reset(stmt);
-                for (int j = 0; j < params; j++) {
-                    rc = sqlbind(stmt, j, vals[(i * params) + j]);
-                    if (rc != SQLITE_OK) {
-                        throwex(rc);
-                    }
+            int executed = params.executeBatch(this, stmt, changes);
+            if (executed == 0 && changes[0] == SQLITE_BUSY && lock != null) {
+                // nothing ran yet, so the whole batch can be retried
+                long start = System.nanoTime();
+                for (int attempt = 0;
+                        executed == 0 && changes[0] == SQLITE_BUSY && parkOnBusy(attempt, start);
+                        attempt++) {
+                    executed = params.executeBatch(this, stmt, changes);
                 }
-
-                rc = step(stmt);
-                if (rc != SQLITE_DONE) {
-                    reset(stmt);
-                    if (rc == SQLITE_ROW) {
-                        // don't use the constructor with long because of
-                        // https://github.com/xerial/sqlite-jdbc/issues/1378
-                        throw new BatchUpdateException(
-                                "batch entry " + i + ": query returns results",
-                                null,
-                                0,
-                                Arrays.stream(changes).mapToInt(l -> (int) l).toArray(),
-                                null);
-                    }
-                    throwex(rc);
+            }
+            if (executed < count) {
+                int rc = (int) changes[executed];
+                changes[executed] = 0;
+                if (rc == SQLITE_ROW) {
+                    // don't use the constructor with long because of
+                    // https://github.com/xerial/sqlite-jdbc/issues/1378
+                    throw new BatchUpdateException(
+                            "batch entry " + executed + ": query returns results",
+                            null,
+                            0,
+                            Arrays.stream(changes).mapToInt(l -> (int) l).toArray(),
+                            null);
                 }
-
-                changes[i] = changes();
+                throwex(rc);
             }
         } finally {
             ensureAutoCommit(autoCommit);
         }
 
-        reset(stmt);
         return changes;
     }
 
@@ -968,51 +1557,38 @@ public abstract class DB implements Codes {
      * @see <a
      *     href="https://www.sqlite.org/c_interface.html#sqlite_exec">https://www.sqlite.org/c_interface.html#sqlite_exec</a>
      * @param stmt Stmt object.
-     * @param vals Array of parameter values.
+     * @param params Parameter values, or null to keep the current bindings.
      * @return True if a row of ResultSet is ready; false otherwise.
      * @throws SQLException
      */
-    public final synchronized boolean execute(CoreStatement stmt, Object[] vals)
-            throws SQLException {
-        int statusCode = stmt.pointer.safeRunInt((db, ptr) -> execute(ptr, vals));
-        switch (statusCode & 0xFF) {
-            case SQLITE_DONE:
-                ensureAutoCommit(stmt.conn.getAutoCommit());
-                return false;
-            case SQLITE_ROW:
-                return true;
-            case SQLITE_BUSY:
-            case SQLITE_LOCKED:
-            case SQLITE_MISUSE:
-            case SQLITE_CONSTRAINT:
-                throw newSQLException(statusCode);
-            default:
-                stmt.pointer.close();
-                throw newSQLException(statusCode);
-        }
+    public final boolean execute(CoreStatement stmt, ParameterBuffer params) throws SQLException {
+        return guarded(
+                () -> {
+                    int statusCode = stmt.pointer.safeRunInt((db, ptr) -> execute(ptr, params));
+                    switch (statusCode & 0xFF) {
+                        case SQLITE_DONE:
+                            ensureAutoCommit(stmt.conn.getAutoCommit());
+                            return false;
+                        case SQLITE_ROW:
+                            return true;
+                        case SQLITE_BUSY:
+                        case SQLITE_LOCKED:
+                        case SQLITE_MISUSE:
+                        case SQLITE_CONSTRAINT:
+                            throw newSQLException(statusCode);
+                        default:
+                            stmt.pointer.close();
+                            throw newSQLException(statusCode);
+                    }
+                });
     }
 
-    private synchronized int execute(long ptr, Object[] vals) throws SQLException {
-        if (vals != null) {
-            final int params = bind_parameter_count(ptr);
-            if (params > vals.length) {
-                throw new SQLException(
-                        "assertion failure: param count ("
-                                + params
-                                + ") > value count ("
-                                + vals.length
-                                + ")");
-            }
-
-            for (int i = 0; i < params; i++) {
-                int rc = sqlbind(ptr, i, vals[i]);
-                if (rc != SQLITE_OK) {
-                    throwex(rc);
-                }
-            }
+    private int execute(long ptr, ParameterBuffer params) throws SQLException {
+        if (params != null) {
+            params.bind(this, ptr);
         }
 
-        int statusCode = step(ptr);
+        int statusCode = stepWithBusyWait(ptr);
         if ((statusCode & 0xFF) == SQLITE_DONE) reset(ptr);
         return statusCode;
     }
@@ -1026,49 +1602,81 @@ public abstract class DB implements Codes {
      * @see <a
      *     href="https://www.sqlite.org/c3ref/exec.html">https://www.sqlite.org/c3ref/exec.html</a>
      */
-    final synchronized boolean execute(String sql, boolean autoCommit) throws SQLException {
-        int statusCode = _exec(sql);
-        switch (statusCode) {
-            case SQLITE_OK:
-                return false;
-            case SQLITE_DONE:
-                ensureAutoCommit(autoCommit);
-                return false;
-            case SQLITE_ROW:
-                return true;
-            default:
-                throw newSQLException(statusCode);
+    final boolean execute(String sql, boolean autoCommit) throws SQLException {
+        return guarded(
+                () -> {
+                    int statusCode = execScript(sql);
+                    switch (statusCode) {
+                        case SQLITE_OK:
+                            return false;
+                        case SQLITE_DONE:
+                            ensureAutoCommit(autoCommit);
+                            return false;
+                        case SQLITE_ROW:
+                            return true;
+                        default:
+                            throw newSQLException(statusCode);
+                    }
+                });
+    }
+
+    /**
+     * Runs {@link #_exec(String)}. Under {@link ThreadingModel#REENTRANT_LOCK} the busy handler of
+     * SQLite is installed for the duration of the call, since a script that has partly run cannot
+     * be retried from the start.
+     *
+     * @param sql SQL statements to be executed.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @throws SQLException
+     */
+    public final int execScript(String sql) throws SQLException {
+        if (lock == null) {
+            return _exec(sql);
         }
+        return guarded(
+                () -> {
+                    applyBusyStrategy(false);
+                    try {
+                        return _exec(sql);
+                    } finally {
+                        applyBusyStrategy(true);
+                    }
+                });
     }
 
     /**
-     * Execute an SQL INSERT, UPDATE or DELETE statement with the Stmt object and an array of
-     * parameter values of the SQL statement..
+     * Execute an SQL INSERT, UPDATE or DELETE statement with the Stmt object and the parameter
+     * values of the SQL statement.
      *
      * @param stmt Stmt object.
-     * @param vals Array of parameter values.
+     * @param params Parameter values, or null to keep the current bindings.
      * @return Number of database rows that were changed or inserted or deleted by the most recently
      *     completed SQL.
      * @throws SQLException
      */
-    public final synchronized long executeUpdate(CoreStatement stmt, Object[] vals)
+    public final long executeUpdate(CoreStatement stmt, ParameterBuffer params)
             throws SQLException {
-        try {
-            if (execute(stmt, vals)) {
-                throw new SQLException("query returns results");
-            }
-        } finally {
-            if (!stmt.pointer.isClosed()) {
-                stmt.pointer.safeRunInt(DB::reset);
-            }
-        }
-        return changes();
+        return guarded(
+                () -> {
+                    try {
+                        if (execute(stmt, params)) {
+                            throw new SQLException("query returns results");
+                        }
+                    } finally {
+                        if (!stmt.pointer.isClosed()) {
+                            stmt.pointer.safeRunInt(DB::reset);
+                        }
+                    }
+                    return changes();
+                });
     }
 
     abstract void set_commit_listener(boolean enabled);
 
     abstract void set_update_listener(boolean enabled);
 
+    abstract void set_profile_listener(boolean enabled);
+
     public synchronized void addUpdateListener(SQLiteUpdateListener listener) {
         if (updateListeners.add(listener) && updateListeners.size() == 1) {
             set_update_listener(true);
@@ -1093,6 +1701,47 @@ public abstract class DB implements Codes {
         }
     }
 
+    /**
+     * Sets the profiler fed with the runs of the statements of this connection, or removes it.
+     * Setting a profiler restarts the trace, which is stopped when a profiler throws.
+     *
+     * @param profiler The profiler, or null to stop tracing the statements.
+     */
+    public synchronized void setStatementProfiler(StatementProfiler profiler) {
+        if (profiler != null || this.profiler != null) {
+            set_profile_listener(profiler != null);
+        }
+        this.profiler = profiler;
+    }
+
+    /** @return The profiler of the statements of this connection, or null. */
+    public StatementProfiler getStatementProfiler() {
+        return profiler;
+    }
+
+    void onProfile(
+            byte[] sql,
+            long elapsedNanos,
+            long fullscanSteps,
+            long sorts,
+            long autoindexes,
+            long vmSteps,
+            long reprepares,
+            long memoryUsed) {
+        StatementProfiler current = profiler;
+        if (current != null) {
+            current.record(
+                    sql,
+                    elapsedNanos,
+                    fullscanSteps,
+                    sorts,
+                    autoindexes,
+                    vmSteps,
+                    reprepares,
+                    memoryUsed);
+        }
+    }
+
     void onUpdate(int type, String database, String table, long rowId) {
         Set<SQLiteUpdateListener> listeners;
 
@@ -1183,13 +1832,21 @@ public abstract class DB implements Codes {
     }
 
     /**
-     * Throws SQL Exception with error code.
+     * Throws SQL Exception with error code. A statement interrupted by a failed collation is
+     * reported with the exception of the collation as the cause.
      *
      * @param errorCode Error code to be passed.
      * @return SQLException with error code and message.
      * @throws SQLException Formatted SQLException with error code
      */
-    private SQLiteException newSQLException(int errorCode) throws SQLException {
+    SQLiteException newSQLException(int errorCode) throws SQLException {
+        Throwable failure = collationFailure;
+        if (failure != null && errorCode == SQLITE_INTERRUPT) {
+            collationFailure = null;
+            SQLiteException e = newSQLException(errorCode, "collation failed: " + failure);
+            e.initCause(failure);
+            return e;
+        }
         return newSQLException(errorCode, errmsg());
     }
 
@@ -1264,6 +1921,133 @@ public abstract class DB implements Codes {
         }
     }
 
+    // INCREMENTAL BLOB I/O ////////////////////////////////////////
+
+    /**
+     * Tracks an open blob, so that it is freed when this database closes.
+     *
+     * @param blob The blob.
+     */
+    public final void registerBlob(SQLiteBlob blob) {
+        blobs.add(blob);
+    }
+
+    /**
+     * Stops tracking a freed blob.
+     *
+     * @param blob The blob.
+     */
+    public final void unregisterBlob(SQLiteBlob blob) {
+        blobs.remove(blob);
+    }
+
+    /**
+     * Opens a handle to a blob for incremental I/O. The handle must be used while holding this
+     * database, see {@link #guarded(GuardedAction)}.
+     *
+     * @param dbName The database: main, temp or the name of an attached database.
+     * @param table The table.
+     * @param column The column.
+     * @param rowid The rowid of the row.
+     * @param writable Whether the blob may be written.
+     * @return Pointer to the blob handle.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_open.html">https://www.sqlite.org/c3ref/blob_open.html</a>
+     */
+    public abstract long blob_open(
+            String dbName, String table, String column, long rowid, boolean writable)
+            throws SQLException;
+
+    /**
+     * Moves a blob handle to the same column of another row.
+     *
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_reopen.html">https://www.sqlite.org/c3ref/blob_reopen.html</a>
+     */
+    public abstract int blob_reopen(long blob, long rowid) throws SQLException;
+
+    /**
+     * @return The size of the blob in bytes.
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_bytes.html">https://www.sqlite.org/c3ref/blob_bytes.html</a>
+     */
+    public abstract int blob_bytes(long blob) throws SQLException;
+
+    /**
+     * Reads bytes of a blob, into the direct buffer if one is given and into the array otherwise.
+     *
+     * @param blob Pointer to the blob handle.
+     * @param direct A direct buffer to read into, or null.
+     * @param array An array to read into when there is no direct buffer.
+     * @param offset The offset in the buffer or array to read to.
+     * @param length The number of bytes to read.
+     * @param blobOffset The offset in the blob to read from.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_read.html">https://www.sqlite.org/c3ref/blob_read.html</a>
+     */
+    public abstract int blob_read(
+            long blob, ByteBuffer direct, byte[] array, int offset, int length, int blobOffset)
+            throws SQLException;
+
+    /**
+     * Writes bytes to a blob, from the direct buffer if one is given and from the array otherwise.
+     * The size of a blob cannot change.
+     *
+     * @see #blob_read(long, ByteBuffer, byte[], int, int, int)
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_write.html">https://www.sqlite.org/c3ref/blob_write.html</a>
+     */
+    public abstract int blob_write(
+            long blob, ByteBuffer direct, byte[] array, int offset, int length, int blobOffset)
+            throws SQLException;
+
+    /**
+     * Closes a blob handle.
+     *
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_close.html">https://www.sqlite.org/c3ref/blob_close.html</a>
+     */
+    public abstract int blob_close(long blob) throws SQLException;
+
+    /**
+     * Records the state of a database in WAL mode as seen by the read transaction open on this
+     * connection, so that other connections can read the same state.
+     *
+     * @param schema The database: main, temp or the name of an attached database.
+     * @return Pointer to the snapshot, to free with {@link #snapshot_free(long)}.
+     * @throws SQLException if no read transaction is open, the database is not in WAL mode, or
+     *     SQLite is built without SQLITE_ENABLE_SNAPSHOT
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/snapshot_get.html">https://www.sqlite.org/c3ref/snapshot_get.html</a>
+     */
+    public abstract long snapshot_get(String schema) throws SQLException;
+
+    /**
+     * Starts the read transaction of a transaction begun but not yet reading on a snapshot.
+     *
+     * @param schema The database: main, temp or the name of an attached database.
+     * @param snapshot Pointer to the snapshot.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/snapshot_open.html">https://www.sqlite.org/c3ref/snapshot_open.html</a>
+     */
+    public abstract int snapshot_open(String schema, long snapshot) throws SQLException;
+
+    /**
+     * Frees a snapshot.
+     *
+     * @param snapshot Pointer to the snapshot.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/snapshot_free.html">https://www.sqlite.org/c3ref/snapshot_free.html</a>
+     */
+    public abstract void snapshot_free(long snapshot) throws SQLException;
+
     public abstract byte[] serialize(String schema) throws SQLException;
 
     public abstract void deserialize(String schema, byte[] buff) throws SQLException;
@@ -30,11 +30,15 @@
 static jclass dbclass = 0;
 static jfieldID dbpointer = 0;
 static jfieldID db_busyHandler = 0;
+static jfieldID db_busyStrategy = 0;
 static jfieldID db_commitListener = 0;
 static jfieldID db_updateListener = 0;
 static jfieldID db_progressHandler = 0;
+static jfieldID db_profileListener = 0;
+static jfieldID db_collationFailure = 0;
 static jmethodID db_mth_onUpdate = 0;
 static jmethodID db_mth_onCommit = 0;
+static jmethodID db_mth_onProfile = 0;
 static jmethodID mth_stringToUtf8ByteArray = 0;
 static jmethodID mth_throwex = 0;
 static jmethodID mth_throwexcode = 0;
@@ -48,6 +52,8 @@ static jmethodID fmethod = 0;
 
 static jclass  cclass = 0;
 static jmethodID mth_compare = 0;
+static jclass  rawcclass = 0;
+static jmethodID rawc_mth_compare = 0;
 
 static jclass  aclass = 0;
 static jmethodID mth_aggr_xstep = 0;
@@ -58,6 +64,14 @@ static jclass  wclass = 0;
 static jmethodID w_mth_inverse = 0;
 static jmethodID w_mth_xvalue = 0;
 
+static jclass  scclass = 0;
+static jmethodID sc_mth_xcall = 0;
+
+static jmethodID mth_long_unary = 0;
+static jmethodID mth_long_binary = 0;
+static jmethodID mth_double_unary = 0;
+static jmethodID mth_double_binary = 0;
+
 static jclass pobserverclass = 0;
 static jmethodID pobserver_mth_progress = 0;
 
@@ -136,6 +150,89 @@ static jobject utf8BytesToDirectByteBuffer(JNIEnv *env, const char* bytes, int n
     return result;
 }
 
+/*
+** Creates a String straight from NUL-terminated UTF-8 bytes, without the DirectByteBuffer and the
+** Java side decoding. ASCII text is handed to NewStringUTF, other text is decoded to UTF-16 here
+** (the JVM still stores Latin-1 text compactly). Returns NULL without raising an exception if the
+** bytes are not valid UTF-8, leaving the replacement of malformed input to the Java decoder.
+*/
+static jstring utf8BytesToJavaString(JNIEnv *env, const char* bytes, int nbytes)
+{
+    const unsigned char *s = (const unsigned char*) bytes;
+    jchar stackbuf[256];
+    jchar *chars;
+    jstring result;
+    unsigned int c, cp;
+    int i = 0, n = 0;
+
+    while (i < nbytes && s[i] != 0 && s[i] < 0x80) i++;
+    if (i == nbytes)
+    {
+        // NUL-free ASCII is valid modified UTF-8
+        return (*env)->NewStringUTF(env, bytes);
+    }
+
+    chars = nbytes <= 256 ? stackbuf : (jchar*) malloc(nbytes * sizeof(jchar));
+    if (!chars)
+    {
+        throwex_outofmemory(env);
+        return NULL;
+    }
+
+    // the ASCII prefix is copied as is, the rest is decoded: at least one char is written
+    for (n = 0; n < i; n++) chars[n] = s[n];
+    do
+    {
+        c = s[i];
+        if (c < 0x80)
+        {
+            chars[n] = c;
+            i++;
+        }
+        else if (c >= 0xC2 && c <= 0xDF)
+        {
+            if (i + 1 >= nbytes || (s[i + 1] & 0xC0) != 0x80) goto invalid;
+            chars[n] = ((c & 0x1F) << 6) | (s[i + 1] & 0x3F);
+            i += 2;
+        }
+        else if (c >= 0xE0 && c <= 0xEF)
+        {
+            if (i + 2 >= nbytes || (s[i + 1] & 0xC0) != 0x80 || (s[i + 2] & 0xC0) != 0x80)
+                goto invalid;
+            cp = ((c & 0x0F) << 12) | ((s[i + 1] & 0x3F) << 6) | (s[i + 2] & 0x3F);
+            if (cp < 0x800 || (cp >= 0xD800 && cp <= 0xDFFF)) goto invalid;
+            chars[n] = cp;
+            i += 3;
+        }
+        else if (c >= 0xF0 && c <= 0xF4)
+        {
+            if (i + 3 >= nbytes || (s[i + 1] & 0xC0) != 0x80 || (s[i + 2] & 0xC0) != 0x80
+                    || (s[i + 3] & 0xC0) != 0x80)
+                goto invalid;
+            cp = ((c & 0x07) << 18) | ((s[i + 1] & 0x3F) << 12) | ((s[i + 2] & 0x3F) << 6)
+                    | (s[i + 3] & 0x3F);
+            if (cp < 0x10000 || cp > 0x10FFFF) goto invalid;
+            cp -= 0x10000;
+            chars[n++] = 0xD800 + (cp >> 10);
+            chars[n] = 0xDC00 + (cp & 0x3FF);
+            i += 4;
+        }
+        else
+        {
+            goto invalid;
+        }
+        n++;
+    } while (i < nbytes);
+
+    result = (*env)->NewString(env, chars, n);
+    if (chars != stackbuf) free(chars);
+    return result;
+
+invalid:
+    if (chars != stackbuf) free(chars);
+    return NULL;
+}
+
 static void utf8JavaByteArrayToUtf8Bytes(JNIEnv *env, jbyteArray utf8bytes, char** bytes, int* nbytes)
 {
     jsize utf8bytes_length;
@@ -230,6 +327,25 @@ static void sethandle(JNIEnv *env, jobject nativeDB, sqlite3 * ref)
     (*env)->SetLongField(env, nativeDB, dbpointer, fromref(ref));
 }
 
+#ifdef _MSC_VER
+#define THREAD_LOCAL __declspec(thread)
+#else
+#define THREAD_LOCAL __thread
+#endif
+
+// The SQL running on this thread, to which the busy strategy attributes its waits. Set for the
+// duration of every native call that steps, prepares or executes SQL.
+static THREAD_LOCAL const char *busy_sql = NULL;
+
+static int step_stmt(sqlite3_stmt *stmt)
+{
+    int rc;
+    busy_sql = sqlite3_sql(stmt);
+    rc = sqlite3_step(stmt);
+    busy_sql = NULL;
+    return rc;
+}
+
 struct BusyHandlerContext {
     JavaVM * vm;
     jobject obj;
@@ -254,7 +370,15 @@ static void set_new_handler(JNIEnv *env, jobject nativeDB, jfieldID handlerField
 
 struct CollationData {
     JavaVM *vm;
-    jobject func;
+    jobject func;       // the Collation, or the direct buffer holding fold
+    const jchar *fold;  // built-in: case folding of every UTF-16 code unit, or NULL
+    int natural;        // built-in: compare runs of digits by value
+    jobject buffers[2]; // Collation.Raw: direct buffers the text is copied to
+    void *memory[2];
+    int capacity[2];
+    sqlite3 *db;        // Collation.Raw: the connection, interrupted when the collation fails
+    jweak nativeDB;     // Collation.Raw: the NativeDB the failure is handed to
+    int failed;         // Collation.Raw: a failure was handed over and may not be thrown yet
 };
 
 // User Defined Function SUPPORT ////////////////////////////////////
@@ -264,6 +388,16 @@ struct UDFData {
     jobject func;
 };
 
+// The JNIEnv of the calling thread, looked up once per thread rather than on every call. Threads
+// attached here are never detached, so the cached pointer stays valid for the life of the thread.
+static THREAD_LOCAL JNIEnv *udf_env = NULL;
+
+static JNIEnv * udf_getenv(JavaVM *vm)
+{
+    if (!udf_env) (*vm)->AttachCurrentThread(vm, (void **)&udf_env, 0);
+    return udf_env;
+}
+
 /* Returns the sqlite3_value for the given arg of the given function.
  * If 0 is returned, an exception has been thrown to report the reason. */
 static sqlite3_value * tovalue(JNIEnv *env, jobject function, jint arg)
@@ -318,7 +452,7 @@ static void xCall(
 
     udf = (struct UDFData*)sqlite3_user_data(context);
     assert(udf);
-    (*udf->vm)->AttachCurrentThread(udf->vm, (void **)&env, 0);
+    env = udf_getenv(udf->vm);
     if (!func) func = udf->func;
 
     (*env)->SetLongField(env, func, func_context, fromref(context));
@@ -340,9 +474,6 @@ static void xCall(
 
 void xFunc(sqlite3_context *context, int args, sqlite3_value** value)
 {
-    JNIEnv *env;
-    struct UDFData *udf = (struct UDFData*)sqlite3_user_data(context);
-    (*udf->vm)->AttachCurrentThread(udf->vm, (void **)&env, 0);
     xCall(context, args, value, 0, fmethod);
 }
 
@@ -415,11 +546,85 @@ void xFinal(sqlite3_context *context)
     (*env)->DeleteGlobalRef(env, *func);
 }
 
+// Scalar functions given a context per call: the pointers of the call are
+// passed as arguments to Function$ScalarCall, not stored in fields.
+
+static void xScalar(sqlite3_context *context, int args, sqlite3_value** value)
+{
+    struct UDFData *udf = (struct UDFData*)sqlite3_user_data(context);
+    JNIEnv *env = udf_getenv(udf->vm);
+
+    (*env)->CallVoidMethod(env, udf->func, sc_mth_xcall,
+        fromref(context), value ? fromref(value) : 0, (jint) args);
+
+    if ((*env)->ExceptionCheck(env)) {
+        xFunc_error(context, env);
+    }
+}
+
+// Primitive functions: the arguments are decoded here and passed to a
+// java.util.function operator, and its result is returned without calling
+// back into NativeDB. Kinds match the constants of org.sqlite.Function.
+
+#define PRIMITIVE_LONG_UNARY 0
+#define PRIMITIVE_LONG_BINARY 1
+#define PRIMITIVE_DOUBLE_UNARY 2
+#define PRIMITIVE_DOUBLE_BINARY 3
+
+struct PrimitiveUDFData {
+    JavaVM *vm;
+    jobject func;
+    int kind;
+};
+
+static void xPrimitive(sqlite3_context *context, int args, sqlite3_value** value)
+{
+    struct PrimitiveUDFData *udf = (struct PrimitiveUDFData*)sqlite3_user_data(context);
+    JNIEnv *env = udf_getenv(udf->vm);
+    jlong lresult = 0;
+    jdouble dresult = 0;
+    int i;
+
+    for (i = 0; i < args; i++) {
+        if (sqlite3_value_type(value[i]) == SQLITE_NULL) {
+            sqlite3_result_null(context);
+            return;
+        }
+    }
+
+    switch (udf->kind) {
+        case PRIMITIVE_LONG_UNARY:
+            lresult = (*env)->CallLongMethod(env, udf->func, mth_long_unary,
+                (jlong) sqlite3_value_int64(value[0]));
+            break;
+        case PRIMITIVE_LONG_BINARY:
+            lresult = (*env)->CallLongMethod(env, udf->func, mth_long_binary,
+                (jlong) sqlite3_value_int64(value[0]), (jlong) sqlite3_value_int64(value[1]));
+            break;
+        case PRIMITIVE_DOUBLE_UNARY:
+            dresult = (*env)->CallDoubleMethod(env, udf->func, mth_double_unary,
+                (jdouble) sqlite3_value_double(value[0]));
+            break;
+        default:
+            dresult = (*env)->CallDoubleMethod(env, udf->func, mth_double_binary,
+                (jdouble) sqlite3_value_double(value[0]), (jdouble) sqlite3_value_double(value[1]));
+            break;
+    }
+
+    if ((*env)->ExceptionCheck(env)) {
+        xFunc_error(context, env);
+    } else if (udf->kind == PRIMITIVE_LONG_UNARY || udf->kind == PRIMITIVE_LONG_BINARY) {
+        sqlite3_result_int64(context, lresult);
+    } else {
+        sqlite3_result_double(context, dresult);
+    }
+}
+
 int xCompare(void* context, int len1, const void* str1, int len2, const void* str2)
 {
-    JNIEnv *env;
     struct CollationData *coll = (struct CollationData*)context;
-    (*coll->vm)->AttachCurrentThread(coll->vm, (void **)&env, 0);
+    JNIEnv *env = udf_getenv(coll->vm);
+    jint ret;
 
     // According to https://bugs.openjdk.java.net/browse/JDK-8163861 the len param of NewString
     // expects a length in terms of code unit. Being UTF-16, code unit is 16 bits
@@ -427,9 +632,168 @@ int xCompare(void* context, int len1, const void* str1, int len2, const void* st
     jstring jstr1 = (*env)->NewString(env, str1, len1 / 2);
     jstring jstr2 = (*env)->NewString(env, str2, len2 / 2);
 
-    return (*env)->CallIntMethod(env, coll->func, mth_compare, jstr1, jstr2);
+    ret = (*env)->CallIntMethod(env, coll->func, mth_compare, jstr1, jstr2);
+
+    // a sort calls back many times within a single native method: free the references now
+    (*env)->DeleteLocalRef(env, jstr1);
+    (*env)->DeleteLocalRef(env, jstr2);
+    return ret;
+}
+
+/* Copies text to the i-th buffer of a Collation.Raw, growing it if needed.
+ * SQLite holds the database mutex while it compares, so the buffers of a
+ * connection are never used by two threads at once. */
+static jobject raw_buffer(JNIEnv *env, struct CollationData *coll, int i, const void *str, int len)
+{
+    if (!coll->buffers[i] || len > coll->capacity[i]) {
+        int capacity = len > 2 * coll->capacity[i] ? len : 2 * coll->capacity[i];
+        void *memory = sqlite3_malloc(capacity);
+        jobject buffer;
+
+        if (!memory) return NULL;
+        buffer = (*env)->NewDirectByteBuffer(env, memory, capacity);
+        if (!buffer) { sqlite3_free(memory); return NULL; }
+
+        if (coll->buffers[i]) {
+            (*env)->DeleteGlobalRef(env, coll->buffers[i]);
+            sqlite3_free(coll->memory[i]);
+        }
+        coll->buffers[i] = (*env)->NewGlobalRef(env, buffer);
+        (*env)->DeleteLocalRef(env, buffer);
+        coll->memory[i] = memory;
+        coll->capacity[i] = capacity;
+    }
+    memcpy(coll->memory[i], str, len);
+    return coll->buffers[i];
+}
+
+/* Hands the pending exception of a Collation.Raw over to its NativeDB, unless
+ * the statement already failed, and interrupts the statement. The exception
+ * must not stay pending while SQLite goes on stepping. */
+static void fail_raw_collation(JNIEnv *env, struct CollationData *coll)
+{
+    jthrowable failure = (*env)->ExceptionOccurred(env);
+    jobject nativeDB;
+
+    (*env)->ExceptionClear(env);
+    nativeDB = (*env)->NewLocalRef(env, coll->nativeDB);
+    if (nativeDB) {
+        if (!(*env)->GetObjectField(env, nativeDB, db_collationFailure)) {
+            (*env)->SetObjectField(env, nativeDB, db_collationFailure, failure);
+        }
+        (*env)->DeleteLocalRef(env, nativeDB);
+    }
+    (*env)->DeleteLocalRef(env, failure);
+    coll->failed = 1;
+    sqlite3_interrupt(coll->db);
+}
+
+/* Whether the failure a Collation.Raw handed over is not thrown yet, which is
+ * done by the step caller once the interrupted statement returns. */
+static int raw_collation_failed(JNIEnv *env, struct CollationData *coll)
+{
+    jobject nativeDB = (*env)->NewLocalRef(env, coll->nativeDB);
+    jobject failure = nativeDB ? (*env)->GetObjectField(env, nativeDB, db_collationFailure) : NULL;
+
+    coll->failed = failure != NULL;
+    (*env)->DeleteLocalRef(env, failure);
+    (*env)->DeleteLocalRef(env, nativeDB);
+    return coll->failed;
+}
+
+/* Collation.Raw: the Java collation is given the encoded text in direct
+ * buffers that are reused from one comparison to the next. A collation cannot
+ * fail in SQLite: once the buffers cannot be allocated or the Java collation
+ * throws, the statement is interrupted and the remaining comparisons return 0
+ * without calling into Java. */
+int xCompareBuffers(void* context, int len1, const void* str1, int len2, const void* str2)
+{
+    struct CollationData *coll = (struct CollationData*)context;
+    JNIEnv *env = udf_getenv(coll->vm);
+    jobject buf1, buf2;
+    jint ret;
+
+    if ((*env)->ExceptionCheck(env)) return 0;
+    if (coll->failed && raw_collation_failed(env, coll)) return 0;
+
+    buf1 = raw_buffer(env, coll, 0, str1, len1);
+    buf2 = buf1 ? raw_buffer(env, coll, 1, str2, len2) : NULL;
+    if (!buf2) {
+        if (!(*env)->ExceptionCheck(env)) throwex_outofmemory(env);
+        fail_raw_collation(env, coll);
+        return 0;
+    }
+
+    ret = (*env)->CallIntMethod(env, coll->func, rawc_mth_compare, buf1, len1, buf2, len2);
+    if ((*env)->ExceptionCheck(env)) {
+        fail_raw_collation(env, coll);
+        return 0;
+    }
+    return ret;
+}
+
+// Built-in collations, comparing the UTF-8 text of SQLite by code point
+// without calling into Java. Case is ignored by mapping code points of the
+// BMP through the fold table built by org.sqlite.Collation.
+
+#define IS_DIGIT(c) ((c) >= '0' && (c) <= '9')
+#define FOLD(fold, c) ((fold) && (c) <= 0xFFFF ? (int) (fold)[c] : (c))
+
+/* Decodes the code point at *i of UTF-8 text of n bytes and moves *i past it. */
+static int utf8_next(const unsigned char *s, int n, int *i)
+{
+    int c = s[(*i)++];
+    int extra = c >= 0xF0 ? 3 : c >= 0xE0 ? 2 : c >= 0xC0 ? 1 : 0;
+
+    if (c < 0x80) return c;
+    c &= 0x3F >> extra;
+    while (extra-- > 0 && *i < n && (s[*i] & 0xC0) == 0x80) {
+        c = (c << 6) | (s[(*i)++] & 0x3F);
+    }
+    return c;
 }
 
+int xCompareBuiltin(void* context, int len1, const void* str1, int len2, const void* str2)
+{
+    struct CollationData *coll = (struct CollationData*)context;
+    const jchar *fold = coll->fold;
+    const unsigned char *s1 = (const unsigned char*) str1, *s2 = (const unsigned char*) str2;
+    int i = 0, j = 0;
+
+    while (i < len1 && j < len2) {
+        int c1 = s1[i], c2 = s2[j];
+
+        if (coll->natural && IS_DIGIT(c1) && IS_DIGIT(c2)) {
+            // a run of more significant digits is a larger number
+            int e1, e2, k;
+            while (i < len1 && s1[i] == '0') i++;
+            while (j < len2 && s2[j] == '0') j++;
+            for (e1 = i; e1 < len1 && IS_DIGIT(s1[e1]); e1++);
+            for (e2 = j; e2 < len2 && IS_DIGIT(s2[e2]); e2++);
+            if (e1 - i != e2 - j) return (e1 - i) - (e2 - j);
+            for (k = 0; k < e1 - i; k++) {
+                if (s1[i + k] != s2[j + k]) return s1[i + k] - s2[j + k];
+            }
+            i = e1;
+            j = e2;
+            continue;
+        }
+
+        if (c1 < 0x80 && c2 < 0x80) {
+            i++;
+            j++;
+        } else {
+            c1 = utf8_next(s1, len1, &i);
+            c2 = utf8_next(s2, len2, &j);
+        }
+        if (c1 != c2) {
+            c1 = FOLD(fold, c1);
+            c2 = FOLD(fold, c2);
+            if (c1 != c2) return c1 - c2;
+        }
+    }
+    return (len1 - i) - (len2 - j);
+}
 
 // INITIALISATION ///////////////////////////////////////////////////
 
@@ -445,11 +809,15 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved)
     dbclass = (*env)->NewWeakGlobalRef(env, dbclass);
     dbpointer = (*env)->GetFieldID(env, dbclass, "pointer", "J");
     db_busyHandler = (*env)->GetFieldID(env, dbclass, "busyHandler", "J");
+    db_busyStrategy = (*env)->GetFieldID(env, dbclass, "busyStrategy", "J");
     db_commitListener = (*env)->GetFieldID(env, dbclass, "commitListener", "J");
     db_updateListener = (*env)->GetFieldID(env, dbclass, "updateListener", "J");
     db_progressHandler = (*env)->GetFieldID(env, dbclass, "progressHandler", "J");
     db_mth_onUpdate = (*env)->GetMethodID(env, dbclass, "onUpdate", "(ILjava/lang/String;Ljava/lang/String;J)V");
     db_mth_onCommit = (*env)->GetMethodID(env, dbclass, "onCommit", "(Z)V");
+    db_profileListener = (*env)->GetFieldID(env, dbclass, "profileListener", "J");
+    db_mth_onProfile = (*env)->GetMethodID(env, dbclass, "onProfile", "([BJJJJJJJ)V");
+    db_collationFailure = (*env)->GetFieldID(env, dbclass, "collationFailure", "Ljava/lang/Throwable;");
     mth_stringToUtf8ByteArray = (*env)->GetStaticMethodID(
             env, dbclass, "stringToUtf8ByteArray", "(Ljava/lang/String;)[B");
     mth_throwex = (*env)->GetMethodID(env, dbclass, "throwex", "()V");
@@ -469,6 +837,11 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved)
     cclass = (*env)->NewWeakGlobalRef(env, cclass);
     mth_compare = (*env)->GetMethodID(env, cclass, "xCompare", "(Ljava/lang/String;Ljava/lang/String;)I");
 
+    rawcclass = (*env)->FindClass(env, "org/sqlite/Collation$Raw");
+    if (!rawcclass) return JNI_ERR;
+    rawcclass = (*env)->NewWeakGlobalRef(env, rawcclass);
+    rawc_mth_compare = (*env)->GetMethodID(env, rawcclass, "xCompareBuffers", "(Ljava/nio/ByteBuffer;ILjava/nio/ByteBuffer;I)I");
+
     aclass = (*env)->FindClass(env, "org/sqlite/Function$Aggregate");
     if (!aclass) return JNI_ERR;
     aclass = (*env)->NewWeakGlobalRef(env, aclass);
@@ -482,6 +855,24 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved)
     w_mth_inverse = (*env)->GetMethodID(env, wclass, "xInverse", "()V");
     w_mth_xvalue = (*env)->GetMethodID(env, wclass, "xValue", "()V");
 
+    scclass = (*env)->FindClass(env, "org/sqlite/Function$ScalarCall");
+    if (!scclass) return JNI_ERR;
+    scclass = (*env)->NewWeakGlobalRef(env, scclass);
+    sc_mth_xcall = (*env)->GetMethodID(env, scclass, "xCall", "(JJI)V");
+
+    jclass opclass = (*env)->FindClass(env, "java/util/function/LongUnaryOperator");
+    if (!opclass) return JNI_ERR;
+    mth_long_unary = (*env)->GetMethodID(env, opclass, "applyAsLong", "(J)J");
+    opclass = (*env)->FindClass(env, "java/util/function/LongBinaryOperator");
+    if (!opclass) return JNI_ERR;
+    mth_long_binary = (*env)->GetMethodID(env, opclass, "applyAsLong", "(JJ)J");
+    opclass = (*env)->FindClass(env, "java/util/function/DoubleUnaryOperator");
+    if (!opclass) return JNI_ERR;
+    mth_double_unary = (*env)->GetMethodID(env, opclass, "applyAsDouble", "(D)D");
+    opclass = (*env)->FindClass(env, "java/util/function/DoubleBinaryOperator");
+    if (!opclass) return JNI_ERR;
+    mth_double_binary = (*env)->GetMethodID(env, opclass, "applyAsDouble", "(DD)D");
+
     pobserverclass = (*env)->FindClass(env, "org/sqlite/core/DB$ProgressObserver");
     if(!pobserverclass) return JNI_ERR;
     pobserverclass = (*env)->NewWeakGlobalRef(env, pobserverclass);
@@ -524,10 +915,14 @@ JNIEXPORT void JNICALL JNI_OnUnload(JavaVM *vm, void *reserved) {
 
     if (cclass) (*env)->DeleteWeakGlobalRef(env, cclass);
 
+    if (rawcclass) (*env)->DeleteWeakGlobalRef(env, rawcclass);
+
     if (aclass) (*env)->DeleteWeakGlobalRef(env, aclass);
 
     if (wclass) (*env)->DeleteWeakGlobalRef(env, wclass);
 
+    if (scclass) (*env)->DeleteWeakGlobalRef(env, scclass);
+
     if (pobserverclass) (*env)->DeleteWeakGlobalRef(env, pobserverclass);
 
     if (phandleclass) (*env)->DeleteWeakGlobalRef(env, phandleclass);
@@ -666,6 +1061,251 @@ JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_busy_1handler(
     change_busy_handler(env, nativeDB, busyHandler);
 }
 
+// BUSY STRATEGY ////////////////////////////////////////////////////
+
+#define BUSY_STRATEGY_FIXED 0
+#define BUSY_STRATEGY_BACKOFF 1
+
+// the number of distinct SQL texts whose waits are counted apart, the others share one slot
+#define BUSY_STATISTICS_SLOTS 64
+
+struct BusyStatistics {
+    char *sql;
+    sqlite3_int64 events;       /* times a statement found the database busy */
+    sqlite3_int64 retries;      /* times it was retried */
+    sqlite3_int64 waitMicros;   /* time slept before retrying */
+    sqlite3_int64 timeouts;     /* times it gave up */
+};
+
+struct BusyStrategy {
+    sqlite3_vfs *vfs;
+    sqlite3_mutex *mutex;               /* guards the statistics, read by other threads */
+    int strategy;
+    int deferred;                       /* the caller retries, see busy_wait */
+    sqlite3_int64 timeoutMicros;
+    int initialMicros;
+    int maxMicros;
+    int spins;
+    sqlite3_int64 eventMicros;          /* time slept in the current event */
+    struct BusyStatistics *current;     /* statistics of the current event */
+    int used;
+    struct BusyStatistics statistics[BUSY_STATISTICS_SLOTS + 1];
+};
+
+static void free_busy_statistics(struct BusyStrategy *strategy)
+{
+    int i;
+    for (i = 0; i < strategy->used; i++) {
+        sqlite3_free(strategy->statistics[i].sql);
+    }
+    memset(strategy->statistics, 0, sizeof(strategy->statistics));
+    strategy->used = 0;
+    strategy->current = NULL;
+}
+
+static void free_busy_strategy(JNIEnv *env, void *toFree)
+{
+    struct BusyStrategy *strategy = (struct BusyStrategy *) toFree;
+    free_busy_statistics(strategy);
+    sqlite3_mutex_free(strategy->mutex);
+    free(strategy);
+}
+
+static struct BusyStatistics *busy_statistics(struct BusyStrategy *strategy, const char *sql)
+{
+    int i;
+    char *copy;
+    if (!sql) return &strategy->statistics[BUSY_STATISTICS_SLOTS];
+    for (i = 0; i < strategy->used; i++) {
+        if (strcmp(strategy->statistics[i].sql, sql) == 0) return &strategy->statistics[i];
+    }
+    if (strategy->used == BUSY_STATISTICS_SLOTS) {
+        return &strategy->statistics[BUSY_STATISTICS_SLOTS];
+    }
+    copy = sqlite3_mprintf("%s", sql);
+    if (!copy) return &strategy->statistics[BUSY_STATISTICS_SLOTS];
+    strategy->statistics[strategy->used].sql = copy;
+    return &strategy->statistics[strategy->used++];
+}
+
+// The delays in milliseconds between retries of sqlite3_busy_timeout.
+static const int busy_fixed_delays[] = { 1, 2, 5, 10, 15, 20, 25, 25, 25, 50, 50, 100 };
+
+static int busy_strategy_callback(void *context, int count)
+{
+    struct BusyStrategy *strategy = (struct BusyStrategy *) context;
+    struct BusyStatistics *statistics;
+    sqlite3_int64 delay;
+    unsigned int jitter;
+    int attempt;
+
+    sqlite3_mutex_enter(strategy->mutex);
+    if (strategy->deferred) {
+        // only note the statement, the caller counts its retries and whether it gives up
+        strategy->current = busy_statistics(strategy, busy_sql);
+        sqlite3_mutex_leave(strategy->mutex);
+        return 0;
+    }
+    if (count == 0 || !strategy->current) {
+        strategy->current = busy_statistics(strategy, busy_sql);
+        strategy->current->events++;
+        strategy->eventMicros = 0;
+    }
+    statistics = strategy->current;
+    if (strategy->eventMicros >= strategy->timeoutMicros) {
+        statistics->timeouts++;
+        strategy->current = NULL;
+        sqlite3_mutex_leave(strategy->mutex);
+        return 0;
+    }
+    statistics->retries++;
+    sqlite3_mutex_leave(strategy->mutex);
+
+    if (count < strategy->spins) {
+        // give up the processor once, the lock holder is likely about to release it
+        strategy->vfs->xSleep(strategy->vfs, 0);
+        return 1;
+    }
+    attempt = count - strategy->spins;
+    if (strategy->strategy == BUSY_STRATEGY_FIXED) {
+        int n = sizeof(busy_fixed_delays) / sizeof(busy_fixed_delays[0]);
+        delay = 1000 * busy_fixed_delays[attempt < n ? attempt : n - 1];
+    } else {
+        // exponential backoff with equal jitter: half the delay, plus up to the other half
+        delay = (sqlite3_int64) strategy->initialMicros << (attempt < 30 ? attempt : 30);
+        if (delay > strategy->maxMicros) delay = strategy->maxMicros;
+        sqlite3_randomness(sizeof(jitter), &jitter);
+        delay = delay / 2 + jitter % (delay / 2 + 1);
+    }
+    if (delay > strategy->timeoutMicros - strategy->eventMicros) {
+        delay = strategy->timeoutMicros - strategy->eventMicros;
+    }
+    delay = strategy->vfs->xSleep(strategy->vfs, (int) delay);
+    strategy->eventMicros += delay;
+    sqlite3_mutex_enter(strategy->mutex);
+    // the statistics may have been reset while sleeping
+    if (strategy->current) strategy->current->waitMicros += delay;
+    sqlite3_mutex_leave(strategy->mutex);
+    return 1;
+}
+
+JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_busy_1strategy(
+    JNIEnv *env, jobject this, jint kind, jint timeoutMillis, jint initialMicros,
+    jint maxMicros, jint spins)
+{
+    struct BusyStrategy *strategy;
+    sqlite3 *db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return;
+    }
+
+    // the statistics survive changes of the strategy, such as a new timeout
+    strategy = (struct BusyStrategy *) toref((*env)->GetLongField(env, this, db_busyStrategy));
+    if (!strategy) {
+        strategy = (struct BusyStrategy *) calloc(1, sizeof(struct BusyStrategy));
+        if (!strategy) { throwex_outofmemory(env); return; }
+        strategy->vfs = sqlite3_vfs_find(NULL);
+        strategy->mutex = sqlite3_mutex_alloc(SQLITE_MUTEX_FAST);
+        (*env)->SetLongField(env, this, db_busyStrategy, fromref(strategy));
+    }
+    strategy->strategy = kind;
+    strategy->deferred = timeoutMillis < 0;
+    strategy->timeoutMicros = 1000 * (sqlite3_int64) (timeoutMillis > 0 ? timeoutMillis : 0);
+    strategy->initialMicros = initialMicros > 1 ? initialMicros : 1;
+    strategy->maxMicros = maxMicros > strategy->initialMicros ? maxMicros : strategy->initialMicros;
+    strategy->spins = spins > 0 ? spins : 0;
+    strategy->current = NULL;
+
+    sqlite3_busy_handler(db, &busy_strategy_callback, strategy);
+}
+
+JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_busy_1wait(
+    JNIEnv *env, jobject this, jint attempt, jlong waitMicros, jboolean timedOut)
+{
+    struct BusyStrategy *strategy;
+    struct BusyStatistics *statistics;
+
+    strategy = (struct BusyStrategy *) toref((*env)->GetLongField(env, this, db_busyStrategy));
+    if (!strategy) return;
+
+    sqlite3_mutex_enter(strategy->mutex);
+    // SQLite can report busy without calling the handler, the statement is then unknown
+    statistics = strategy->current ? strategy->current
+                                   : &strategy->statistics[BUSY_STATISTICS_SLOTS];
+    if (attempt == 0) statistics->events++;
+    if (timedOut) {
+        statistics->timeouts++;
+    } else {
+        statistics->retries++;
+        statistics->waitMicros += waitMicros;
+    }
+    strategy->current = NULL;
+    sqlite3_mutex_leave(strategy->mutex);
+}
+
+JNIEXPORT jobjectArray JNICALL Java_org_sqlite_core_NativeDB_busy_1statistics_1utf8(
+    JNIEnv *env, jobject this, jboolean reset)
+{
+    struct BusyStrategy *strategy;
+    struct BusyStatistics *statistics;
+    jobjectArray result;
+    jclass objectclass;
+    jbyteArray sql;
+    jlongArray counters;
+    jlong values[4];
+    int i, n = 0;
+
+    if (!gethandle(env, this))
+    {
+        throwex_db_closed(env);
+        return NULL;
+    }
+    objectclass = (*env)->FindClass(env, "java/lang/Object");
+    if (!objectclass) return NULL;
+
+    strategy = (struct BusyStrategy *) toref((*env)->GetLongField(env, this, db_busyStrategy));
+    if (!strategy) return (*env)->NewObjectArray(env, 0, objectclass, NULL);
+
+    // the busy handler of a statement stepped by another thread updates the statistics
+    sqlite3_mutex_enter(strategy->mutex);
+    for (i = 0; i <= BUSY_STATISTICS_SLOTS; i++) {
+        if (strategy->statistics[i].events) n++;
+    }
+    // pairs of the UTF-8 SQL, null when unknown, and its counters
+    result = (*env)->NewObjectArray(env, 2 * n, objectclass, NULL);
+    if (!result) { throwex_outofmemory(env); goto done; }
+    for (i = 0, n = 0; i <= BUSY_STATISTICS_SLOTS; i++) {
+        statistics = &strategy->statistics[i];
+        if (!statistics->events) continue;
+        sql = NULL;
+        if (statistics->sql) {
+            sql = (*env)->NewByteArray(env, (jsize) strlen(statistics->sql));
+            if (!sql) { throwex_outofmemory(env); result = NULL; goto done; }
+            (*env)->SetByteArrayRegion(env, sql, 0, (jsize) strlen(statistics->sql),
+                                       (const jbyte *) statistics->sql);
+        }
+        counters = (*env)->NewLongArray(env, 4);
+        if (!counters) { throwex_outofmemory(env); result = NULL; goto done; }
+        values[0] = statistics->events;
+        values[1] = statistics->retries;
+        values[2] = statistics->waitMicros;
+        values[3] = statistics->timeouts;
+        (*env)->SetLongArrayRegion(env, counters, 0, 4, values);
+        (*env)->SetObjectArrayElement(env, result, 2 * n, sql);
+        (*env)->SetObjectArrayElement(env, result, 2 * n + 1, counters);
+        (*env)->DeleteLocalRef(env, sql);
+        (*env)->DeleteLocalRef(env, counters);
+        n++;
+    }
+    if (reset) free_busy_statistics(strategy);
+
+done:
+    sqlite3_mutex_leave(strategy->mutex);
+    return result;
+}
+
 JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_prepare_1utf8(
         JNIEnv *env, jobject this, jbyteArray sql)
 {
@@ -685,7 +1325,9 @@ JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_prepare_1utf8(
     utf8JavaByteArrayToUtf8Bytes(env, sql, &sql_bytes, &sql_nbytes);
     if (!sql_bytes) return fromref(0);
 
+    busy_sql = sql_bytes;
     status = sqlite3_prepare_v2(db, sql_bytes, sql_nbytes, &stmt, 0);
+    busy_sql = NULL;
     freeUtf8Bytes(sql_bytes);
 
     if (status != SQLITE_OK) {
@@ -716,7 +1358,9 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB__1exec_1utf8(
         return SQLITE_ERROR;
     }
 
+    busy_sql = sql_bytes;
     status = sqlite3_exec(db, sql_bytes, 0, 0, NULL);
+    busy_sql = NULL;
     freeUtf8Bytes(sql_bytes);
 
     if (status != SQLITE_OK) {
@@ -798,7 +1442,7 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_step(
         return SQLITE_MISUSE;
     }
 
-    return sqlite3_step(toref(stmt));
+    return step_stmt(toref(stmt));
 }
 
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_reset(
@@ -893,6 +1537,38 @@ JNIEXPORT jobject JNICALL Java_org_sqlite_core_NativeDB_column_1table_1name_1utf
     return utf8BytesToDirectByteBuffer(env, str, strlen(str));
 }
 
+JNIEXPORT jobject JNICALL Java_org_sqlite_core_NativeDB_column_1database_1name_1utf8(
+        JNIEnv *env, jobject this, jlong stmt, jint col)
+{
+    const char *str;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return NULL;
+    }
+
+    str = sqlite3_column_database_name(toref(stmt), col);
+    if (!str) return NULL;
+    return utf8BytesToDirectByteBuffer(env, str, strlen(str));
+}
+
+JNIEXPORT jobject JNICALL Java_org_sqlite_core_NativeDB_column_1origin_1name_1utf8(
+        JNIEnv *env, jobject this, jlong stmt, jint col)
+{
+    const char *str;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return NULL;
+    }
+
+    str = sqlite3_column_origin_name(toref(stmt), col);
+    if (!str) return NULL;
+    return utf8BytesToDirectByteBuffer(env, str, strlen(str));
+}
+
 JNIEXPORT jobject JNICALL Java_org_sqlite_core_NativeDB_column_1name_1utf8(
         JNIEnv *env, jobject this, jlong stmt, jint col)
 {
@@ -910,12 +1586,13 @@ JNIEXPORT jobject JNICALL Java_org_sqlite_core_NativeDB_column_1name_1utf8(
     return utf8BytesToDirectByteBuffer(env, str, strlen(str));
 }
 
-JNIEXPORT jobject JNICALL Java_org_sqlite_core_NativeDB_column_1text_1utf8(
+JNIEXPORT jobject JNICALL Java_org_sqlite_core_NativeDB_column_1string(
         JNIEnv *env, jobject this, jlong stmt, jint col)
 {
     sqlite3 *db;
     const char *bytes;
     int nbytes;
+    jstring str;
 
     db = gethandle(env, this);
     if (!db)
@@ -933,15 +1610,69 @@ JNIEXPORT jobject JNICALL Java_org_sqlite_core_NativeDB_column_1text_1utf8(
     bytes = (const char*) sqlite3_column_text(toref(stmt), col);
     nbytes = sqlite3_column_bytes(toref(stmt), col);
 
-    if (!bytes && sqlite3_errcode(db) == SQLITE_NOMEM)
+    if (!bytes)
     {
-        throwex_outofmemory(env);
+        if (sqlite3_errcode(db) == SQLITE_NOMEM) throwex_outofmemory(env);
         return NULL;
     }
 
+    str = utf8BytesToJavaString(env, bytes, nbytes);
+    if (str || (*env)->ExceptionCheck(env)) return str;
     return utf8BytesToDirectByteBuffer(env, bytes, nbytes);
 }
 
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_column_1text_1copy_1utf8(
+        JNIEnv *env, jobject this, jlong stmt, jint col, jobject direct, jbyteArray array,
+        jint offset, jint capacity)
+{
+    sqlite3 *db;
+    const char *bytes;
+    char *dst;
+    int nbytes;
+
+    db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return -1;
+    }
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return -1;
+    }
+
+    bytes = (const char*) sqlite3_column_text(toref(stmt), col);
+    nbytes = sqlite3_column_bytes(toref(stmt), col);
+
+    if (!bytes)
+    {
+        if (sqlite3_errcode(db) == SQLITE_NOMEM) throwex_outofmemory(env);
+        return -1;
+    }
+    if (nbytes > capacity)
+    {
+        return nbytes;
+    }
+
+    if (direct)
+    {
+        dst = (char*) (*env)->GetDirectBufferAddress(env, direct);
+        if (!dst)
+        {
+            throwex_msg(env, "Not a direct buffer");
+            return -1;
+        }
+        memcpy(dst + offset, bytes, nbytes);
+    }
+    else
+    {
+        (*env)->SetByteArrayRegion(env, array, offset, nbytes, (const jbyte*) bytes);
+    }
+    return nbytes;
+}
+
 JNIEXPORT jbyteArray JNICALL Java_org_sqlite_core_NativeDB_column_1blob(
         JNIEnv *env, jobject this, jlong stmt, jint col)
 {
@@ -1120,7 +1851,42 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1blob(
     return rc;
 }
 
-JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_result_1null(
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1blob_1direct(
+        JNIEnv *env, jobject this, jlong stmt, jint pos, jobject v)
+{
+    void *a;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return SQLITE_MISUSE;
+    }
+
+    a = (*env)->GetDirectBufferAddress(env, v);
+    if (!a) { throwex_msg(env, "Expected a direct buffer"); return SQLITE_MISUSE; }
+    return sqlite3_bind_blob64(toref(stmt), pos, a,
+            (sqlite3_uint64) (*env)->GetDirectBufferCapacity(env, v), SQLITE_STATIC);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1text_1direct(
+        JNIEnv *env, jobject this, jlong stmt, jint pos, jobject v)
+{
+    void *a;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return SQLITE_MISUSE;
+    }
+
+    a = (*env)->GetDirectBufferAddress(env, v);
+    if (!a) { throwex_msg(env, "Expected a direct buffer"); return SQLITE_MISUSE; }
+    return sqlite3_bind_text64(toref(stmt), pos, a,
+            (sqlite3_uint64) (*env)->GetDirectBufferCapacity(env, v), SQLITE_STATIC,
+            SQLITE_UTF8);
+}
+
+JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_result_1null(
         JNIEnv *env, jobject this, jlong context)
 {
     if (!context) return;
@@ -1266,15 +2032,84 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_value_1type(
     return sqlite3_value_type(tovalue(env, func, arg));
 }
 
+JNIEXPORT jobject JNICALL Java_org_sqlite_core_NativeDB_arg_1text_1utf8(
+        JNIEnv *env, jobject this, jlong values, jint arg)
+{
+    sqlite3_value *value = ((sqlite3_value**)toref(values))[arg];
+    const char *bytes = (const char*) sqlite3_value_text(value);
+
+    return utf8BytesToDirectByteBuffer(env, bytes, sqlite3_value_bytes(value));
+}
+
+JNIEXPORT jbyteArray JNICALL Java_org_sqlite_core_NativeDB_arg_1blob(
+        JNIEnv *env, jobject this, jlong values, jint arg)
+{
+    int length;
+    jbyteArray jBlob;
+    const void *blob;
+    sqlite3_value *value = ((sqlite3_value**)toref(values))[arg];
+
+    blob = sqlite3_value_blob(value);
+    if (!blob) return NULL;
+
+    length = sqlite3_value_bytes(value);
+    jBlob = (*env)->NewByteArray(env, length);
+    if (!jBlob) { throwex_outofmemory(env); return NULL; }
+
+    (*env)->SetByteArrayRegion(env, jBlob, (jsize) 0, (jsize) length, (const jbyte*) blob);
+
+    return jBlob;
+}
+
+JNIEXPORT jdouble JNICALL Java_org_sqlite_core_NativeDB_arg_1double(
+        JNIEnv *env, jobject this, jlong values, jint arg)
+{
+    return sqlite3_value_double(((sqlite3_value**)toref(values))[arg]);
+}
+
+JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_arg_1long(
+        JNIEnv *env, jobject this, jlong values, jint arg)
+{
+    return sqlite3_value_int64(((sqlite3_value**)toref(values))[arg]);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_arg_1int(
+        JNIEnv *env, jobject this, jlong values, jint arg)
+{
+    return sqlite3_value_int(((sqlite3_value**)toref(values))[arg]);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_arg_1type(
+        JNIEnv *env, jobject this, jlong values, jint arg)
+{
+    return sqlite3_value_type(((sqlite3_value**)toref(values))[arg]);
+}
+
 void free_collation_func(void *context) {
     JNIEnv *env;
+    int i;
     struct CollationData *coll = (struct CollationData*)context;
     (*coll->vm)->AttachCurrentThread(coll->vm, (void **)&env, 0);
 
-    (*env)->DeleteGlobalRef(env, coll->func);
+    if (coll->func) (*env)->DeleteGlobalRef(env, coll->func);
+    if (coll->nativeDB) (*env)->DeleteWeakGlobalRef(env, coll->nativeDB);
+    for (i = 0; i < 2; i++) {
+        if (coll->buffers[i]) {
+            (*env)->DeleteGlobalRef(env, coll->buffers[i]);
+            sqlite3_free(coll->memory[i]);
+        }
+    }
     free(coll);
 }
 
+void free_primitive_udf_func(void *udfToFree) {
+    struct PrimitiveUDFData *udf = (struct PrimitiveUDFData*) udfToFree;
+    JNIEnv *env = udf_getenv(udf->vm);
+
+    (*env)->DeleteGlobalRef(env, udf->func);
+    free(udf);
+}
+
 void free_udf_func(void *udfToFree) {
     JNIEnv *env;
     struct UDFData *udf = (struct UDFData*) udfToFree;
@@ -1335,6 +2170,76 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1function_1utf8(
     return ret;
 }
 
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1scalar_1function_1utf8(
+        JNIEnv *env, jobject nativeDB, jbyteArray name, jobject call, jint nArgs, jint flags)
+{
+    jint ret = 0;
+    char *name_bytes;
+
+    struct UDFData *udf = (struct UDFData*) malloc(sizeof(struct UDFData));
+    if (!udf) { throwex_outofmemory(env); return 0; }
+
+    utf8JavaByteArrayToUtf8Bytes(env, name, &name_bytes, NULL);
+    if (!name_bytes) { free(udf); throwex_outofmemory(env); return 0; }
+
+    udf->func = (*env)->NewGlobalRef(env, call);
+    (*env)->GetJavaVM(env, &udf->vm);
+
+    ret = sqlite3_create_function_v2(
+            gethandle(env, nativeDB),
+            name_bytes,            // function name
+            nArgs,                 // number of args
+            SQLITE_UTF16 | flags,  // preferred chars
+            udf,
+            &xScalar,
+            NULL,
+            NULL,
+            &free_udf_func         // Cleanup function
+    );
+
+    freeUtf8Bytes(name_bytes);
+
+    return ret;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1primitive_1function_1utf8(
+        JNIEnv *env, jobject nativeDB, jbyteArray name, jobject func, jint kind, jint flags)
+{
+    jint ret = 0;
+    char *name_bytes;
+    int nArgs = (kind == PRIMITIVE_LONG_UNARY || kind == PRIMITIVE_DOUBLE_UNARY) ? 1 : 2;
+    struct PrimitiveUDFData *udf;
+
+    if (kind < PRIMITIVE_LONG_UNARY || kind > PRIMITIVE_DOUBLE_BINARY) return SQLITE_MISUSE;
+
+    udf = (struct PrimitiveUDFData*) malloc(sizeof(struct PrimitiveUDFData));
+    if (!udf) { throwex_outofmemory(env); return 0; }
+
+    utf8JavaByteArrayToUtf8Bytes(env, name, &name_bytes, NULL);
+    if (!name_bytes) { free(udf); throwex_outofmemory(env); return 0; }
+
+    udf->func = (*env)->NewGlobalRef(env, func);
+    udf->kind = kind;
+    (*env)->GetJavaVM(env, &udf->vm);
+
+    // on failure sqlite3_create_function_v2 calls free_primitive_udf_func itself
+    ret = sqlite3_create_function_v2(
+            gethandle(env, nativeDB),
+            name_bytes,            // function name
+            nArgs,                 // number of args
+            SQLITE_UTF8 | flags,   // preferred chars
+            udf,
+            &xPrimitive,
+            NULL,
+            NULL,
+            &free_primitive_udf_func
+    );
+
+    freeUtf8Bytes(name_bytes);
+
+    return ret;
+}
+
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_destroy_1function_1utf8(
         JNIEnv *env, jobject nativeDB, jbyteArray name)
 {
@@ -1347,6 +2252,13 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_destroy_1function_1utf8(
     ret = sqlite3_create_function(
         gethandle(env, nativeDB), name_bytes, -1, SQLITE_UTF16, NULL, NULL, NULL, NULL
     );
+    // primitive functions are registered for their exact number of arguments
+    if (ret == SQLITE_OK) ret = sqlite3_create_function(
+        gethandle(env, nativeDB), name_bytes, 1, SQLITE_UTF8, NULL, NULL, NULL, NULL
+    );
+    if (ret == SQLITE_OK) ret = sqlite3_create_function(
+        gethandle(env, nativeDB), name_bytes, 2, SQLITE_UTF8, NULL, NULL, NULL, NULL
+    );
     freeUtf8Bytes(name_bytes);
 
     return ret;
@@ -1362,6 +2274,7 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1collation_1utf8(
 
     if (!coll) { throwex_outofmemory(env); return 0; }
 
+    memset(coll, 0, sizeof(struct CollationData));
     coll->func = (*env)->NewGlobalRef(env, func);
     (*env)->GetJavaVM(env, &coll->vm);
 
@@ -1382,6 +2295,88 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1collation_1utf8(
     return ret;
 }
 
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1raw_1collation_1utf8(
+        JNIEnv *env, jobject this, jbyteArray name, jobject func, jint encoding)
+{
+    jint ret = 0;
+    char *name_bytes;
+    struct CollationData *coll;
+
+    if (encoding != SQLITE_UTF8 && encoding != SQLITE_UTF16LE && encoding != SQLITE_UTF16BE) {
+        return SQLITE_MISUSE;
+    }
+
+    coll = (struct CollationData*) malloc(sizeof(struct CollationData));
+    if (!coll) { throwex_outofmemory(env); return 0; }
+
+    memset(coll, 0, sizeof(struct CollationData));
+    coll->func = (*env)->NewGlobalRef(env, func);
+    coll->capacity[0] = coll->capacity[1] = 128;
+    coll->db = gethandle(env, this);
+    coll->nativeDB = (*env)->NewWeakGlobalRef(env, this);
+    (*env)->GetJavaVM(env, &coll->vm);
+
+    utf8JavaByteArrayToUtf8Bytes(env, name, &name_bytes, NULL);
+    if (!name_bytes) { free_collation_func(coll); throwex_outofmemory(env); return 0; }
+
+    ret = sqlite3_create_collation_v2(
+            gethandle(env, this),
+            name_bytes,            // collation name
+            encoding,              // chars of the Java collation
+            coll,
+            &xCompareBuffers,
+            &free_collation_func
+    );
+
+    freeUtf8Bytes(name_bytes);
+
+    return ret;
+}
+
+#define COLLATION_UNICODE_NOCASE 0
+#define COLLATION_NATURAL 1
+#define COLLATION_NATURAL_NOCASE 2
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1builtin_1collation_1utf8(
+        JNIEnv *env, jobject this, jbyteArray name, jint kind, jobject foldTable)
+{
+    jint ret = 0;
+    char *name_bytes;
+    struct CollationData *coll;
+
+    if (kind < COLLATION_UNICODE_NOCASE || kind > COLLATION_NATURAL_NOCASE) return SQLITE_MISUSE;
+    if (kind != COLLATION_NATURAL
+            && (!foldTable || (*env)->GetDirectBufferCapacity(env, foldTable) < 65536 * 2)) {
+        return SQLITE_MISUSE;
+    }
+
+    coll = (struct CollationData*) malloc(sizeof(struct CollationData));
+    if (!coll) { throwex_outofmemory(env); return 0; }
+
+    // the table is shared by all collations: keep its buffer alive with a reference
+    memset(coll, 0, sizeof(struct CollationData));
+    coll->func = kind != COLLATION_NATURAL ? (*env)->NewGlobalRef(env, foldTable) : NULL;
+    coll->fold = coll->func ? (const jchar*) (*env)->GetDirectBufferAddress(env, foldTable) : NULL;
+    coll->natural = kind != COLLATION_UNICODE_NOCASE;
+    (*env)->GetJavaVM(env, &coll->vm);
+
+    utf8JavaByteArrayToUtf8Bytes(env, name, &name_bytes, NULL);
+    if (!name_bytes) { free_collation_func(coll); throwex_outofmemory(env); return 0; }
+
+    ret = sqlite3_create_collation_v2(
+            gethandle(env, this),
+            name_bytes,            // collation name
+            SQLITE_UTF8,           // preferred chars
+            coll,
+            &xCompareBuiltin,
+            &free_collation_func
+    );
+
+    freeUtf8Bytes(name_bytes);
+
+    return ret;
+}
+
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_destroy_1collation_1utf8(
         JNIEnv *env, jobject this, jbyteArray name)
 {
@@ -1394,6 +2389,16 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_destroy_1collation_1utf8(
     ret = sqlite3_create_collation(
             gethandle(env, this), name_bytes, SQLITE_UTF16, 0, 0
     );
+    // a Collation.Raw may have been registered for another encoding
+    if (ret == SQLITE_OK) ret = sqlite3_create_collation(
+            gethandle(env, this), name_bytes, SQLITE_UTF8, 0, 0
+    );
+    if (ret == SQLITE_OK) ret = sqlite3_create_collation(
+            gethandle(env, this), name_bytes, SQLITE_UTF16LE, 0, 0
+    );
+    if (ret == SQLITE_OK) ret = sqlite3_create_collation(
+            gethandle(env, this), name_bytes, SQLITE_UTF16BE, 0, 0
+    );
     freeUtf8Bytes(name_bytes);
 
     return ret;
@@ -1483,6 +2488,637 @@ JNIEXPORT jobjectArray JNICALL Java_org_sqlite_core_NativeDB_column_1metadata(
     return array;
 }
 
+/*
+** Steps a statement up to maxRows times and copies each row into the direct buffer, so a result
+** set can be consumed with one JNI transition per batch instead of one per row and column.
+**
+** The buffer layout is columnar, with cell (row r, column c) at index c * maxRows + r:
+**
+**   header   4 x int32: rows written, status, bytes needed by a pending row, unused
+**   tags     maxRows * columns bytes holding the SQLITE_* type of every cell
+**   values   maxRows * columns int64, aligned to 8 bytes: the integer, the bits of the double,
+**            or (offset << 32 | length) of the text/blob bytes in the data area
+**   data     text and blob bytes, up to the end of the buffer
+**
+** The status is SQLITE_OK when maxRows rows were written, SQLITE_DONE at the end of the results,
+** an error code if sqlite3_step() failed, or SQLITE_ROW when the statement is positioned on a row
+** that did not fit into the data area. Such a pending row is written by the next call, which must
+** then be made with stepFirst set to false.
+*/
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_step_1batch(
+        JNIEnv *env, jobject this, jlong stmt, jint maxRows, jobject buffer, jboolean stepFirst)
+{
+    sqlite3_stmt *dbstmt;
+    unsigned char *base, *tags;
+    jlong *values;
+    const void **cells;
+    jlong capacity, dataStart, dataPos, needed;
+    int colCount, rows = 0, rc = SQLITE_OK, i, type, nbytes;
+    jint *header;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return 0;
+    }
+
+    base = (unsigned char*) (*env)->GetDirectBufferAddress(env, buffer);
+    capacity = (*env)->GetDirectBufferCapacity(env, buffer);
+    if (!base || capacity < 0)
+    {
+        throwex_msg(env, "Row batch buffer must be a direct buffer");
+        return 0;
+    }
+
+    dbstmt = toref(stmt);
+    colCount = sqlite3_column_count(dbstmt);
+    header = (jint*) base;
+    tags = base + 16;
+    values = (jlong*) (base + ((16 + (jlong) maxRows * colCount + 7) & ~((jlong) 7)));
+    dataStart = ((unsigned char*) values - base) + (jlong) maxRows * colCount * 8;
+    if (maxRows <= 0 || dataStart > capacity)
+    {
+        throwex_msg(env, "Row batch buffer is too small");
+        return 0;
+    }
+
+    cells = (const void**) malloc((colCount > 0 ? colCount : 1) * sizeof(void*));
+    if (!cells) { throwex_outofmemory(env); return 0; }
+
+    dataPos = dataStart;
+    header[2] = 0;
+    while (rows < maxRows)
+    {
+        if (stepFirst)
+        {
+            rc = step_stmt(dbstmt);
+            if (rc != SQLITE_ROW) break;
+        }
+        stepFirst = JNI_TRUE;
+
+        // fetch the text and blob pointers first, the row is only written if it fits entirely
+        needed = 0;
+        for (i = 0; i < colCount; i++)
+        {
+            type = sqlite3_column_type(dbstmt, i);
+            tags[(jlong) i * maxRows + rows] = (unsigned char) type;
+            if (type == SQLITE_TEXT)
+            {
+                cells[i] = sqlite3_column_text(dbstmt, i);
+                needed += sqlite3_column_bytes(dbstmt, i);
+            }
+            else if (type == SQLITE_BLOB)
+            {
+                cells[i] = sqlite3_column_blob(dbstmt, i);
+                needed += sqlite3_column_bytes(dbstmt, i);
+            }
+        }
+
+        if (dataPos + needed > capacity)
+        {
+            rc = SQLITE_ROW;
+            header[2] = (jint) needed;
+            break;
+        }
+
+        for (i = 0; i < colCount; i++)
+        {
+            jlong cell = (jlong) i * maxRows + rows;
+            switch (tags[cell])
+            {
+                case SQLITE_INTEGER:
+                    values[cell] = sqlite3_column_int64(dbstmt, i);
+                    break;
+                case SQLITE_FLOAT:
+                {
+                    double d = sqlite3_column_double(dbstmt, i);
+                    memcpy(&values[cell], &d, sizeof(double));
+                    break;
+                }
+                case SQLITE_TEXT:
+                case SQLITE_BLOB:
+                    nbytes = sqlite3_column_bytes(dbstmt, i);
+                    if (nbytes > 0) memcpy(base + dataPos, cells[i], nbytes);
+                    values[cell] = (dataPos << 32) | (jlong) (unsigned int) nbytes;
+                    dataPos += nbytes;
+                    break;
+                default:
+                    values[cell] = 0;
+            }
+        }
+        rows++;
+        rc = SQLITE_OK;
+    }
+
+    free(cells);
+    header[0] = rows;
+    header[1] = rc;
+    return rows;
+}
+
+/*
+** Steps a statement and appends its rows to per-column buffers in the Arrow columnar layout, from
+** row startRow up to maxRows, without creating any Java object.
+**
+** buffers holds four direct buffers per column c, at 4 * c: the validity bitmap (bit r set when
+** row r is not NULL, least significant bit first), the values (one int64 or double per row), the
+** offsets (maxRows + 1 int32, row r spans data[offsets[r], offsets[r + 1])) and the data of text
+** and blob values. Offsets are maintained for every column, so a column can take any kind.
+**
+** kinds holds the SQLITE_* kind of every column: SQLITE_NULL until the column has a non-NULL
+** value, whose storage class then fixes it. Later values of another storage class are converted
+** with sqlite3_column_int64/double/text/blob.
+**
+** status receives the result code and, when a row does not fit, the column whose data buffer is
+** too small and the number of bytes it needs, or -1 if int32 offsets cannot address them. The
+** result code is SQLITE_OK when maxRows rows were written, SQLITE_DONE at the end of the results,
+** an error code if sqlite3_step() failed, or SQLITE_ROW when the statement is positioned on a row
+** that did not fit. Such a pending row is written by the next call, which must then be made with
+** stepFirst set to false.
+*/
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_step_1columnar(
+        JNIEnv *env, jobject this, jlong stmt, jint startRow, jint maxRows, jintArray kinds,
+        jobjectArray buffers, jintArray status, jboolean stepFirst)
+{
+    sqlite3_stmt *dbstmt;
+    unsigned char **validity = 0, **data = 0;
+    jlong *values, *dataCapacity = 0, needed;
+    jint **valueBase = 0, **offsets = 0;
+    jint *kind = 0, *types = 0, result[3] = {SQLITE_OK, -1, 0};
+    const void **cells = 0;
+    int colCount, rows = startRow, rc = SQLITE_OK, c, n;
+    jobject b;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return 0;
+    }
+
+    dbstmt = toref(stmt);
+    colCount = sqlite3_column_count(dbstmt);
+    n = colCount > 0 ? colCount : 1;
+    validity = (unsigned char**) malloc(n * sizeof(void*));
+    data = (unsigned char**) malloc(n * sizeof(void*));
+    valueBase = (jint**) malloc(n * sizeof(void*));
+    offsets = (jint**) malloc(n * sizeof(void*));
+    dataCapacity = (jlong*) malloc(n * sizeof(jlong));
+    types = (jint*) malloc(n * sizeof(jint));
+    cells = (const void**) malloc(n * sizeof(void*));
+    if (!validity || !data || !valueBase || !offsets || !dataCapacity || !types || !cells)
+    {
+        throwex_outofmemory(env);
+        goto cleanup;
+    }
+
+    for (c = 0; c < colCount; c++)
+    {
+        b = (*env)->GetObjectArrayElement(env, buffers, 4 * c);
+        validity[c] = (unsigned char*) (*env)->GetDirectBufferAddress(env, b);
+        (*env)->DeleteLocalRef(env, b);
+        b = (*env)->GetObjectArrayElement(env, buffers, 4 * c + 1);
+        valueBase[c] = (jint*) (*env)->GetDirectBufferAddress(env, b);
+        (*env)->DeleteLocalRef(env, b);
+        b = (*env)->GetObjectArrayElement(env, buffers, 4 * c + 2);
+        offsets[c] = (jint*) (*env)->GetDirectBufferAddress(env, b);
+        (*env)->DeleteLocalRef(env, b);
+        b = (*env)->GetObjectArrayElement(env, buffers, 4 * c + 3);
+        data[c] = (unsigned char*) (*env)->GetDirectBufferAddress(env, b);
+        dataCapacity[c] = (*env)->GetDirectBufferCapacity(env, b);
+        (*env)->DeleteLocalRef(env, b);
+        if (!validity[c] || !valueBase[c] || !offsets[c] || !data[c])
+        {
+            throwex_msg(env, "Columnar buffers must be direct buffers");
+            goto cleanup;
+        }
+        if (startRow == 0) offsets[c][0] = 0;
+    }
+
+    kind = (*env)->GetIntArrayElements(env, kinds, 0);
+    if (!kind) { throwex_outofmemory(env); goto cleanup; }
+
+    while (rows < maxRows)
+    {
+        if (stepFirst)
+        {
+            rc = step_stmt(dbstmt);
+            if (rc != SQLITE_ROW) break;
+        }
+        stepFirst = JNI_TRUE;
+
+        // the types must be read before any conversion, and the row only written if it fits
+        for (c = 0; c < colCount; c++)
+        {
+            types[c] = sqlite3_column_type(dbstmt, c);
+            if (types[c] != SQLITE_NULL && kind[c] == SQLITE_NULL) kind[c] = types[c];
+        }
+        for (c = 0; c < colCount; c++)
+        {
+            if (types[c] == SQLITE_NULL) continue;
+            if (kind[c] == SQLITE_TEXT)
+                cells[c] = sqlite3_column_text(dbstmt, c);
+            else if (kind[c] == SQLITE_BLOB)
+                cells[c] = sqlite3_column_blob(dbstmt, c);
+            else
+                continue;
+            needed = (jlong) offsets[c][rows] + sqlite3_column_bytes(dbstmt, c);
+            if (needed > dataCapacity[c])
+            {
+                // int32 offsets cannot address more than 2 GiB
+                rc = SQLITE_ROW;
+                result[1] = c;
+                result[2] = needed > 0x7fffffff ? -1 : (jint) needed;
+                goto done;
+            }
+        }
+
+        for (c = 0; c < colCount; c++)
+        {
+            values = (jlong*) valueBase[c];
+            offsets[c][rows + 1] = offsets[c][rows];
+            if (types[c] == SQLITE_NULL)
+            {
+                validity[c][rows >> 3] &= (unsigned char) ~(1 << (rows & 7));
+                values[rows] = 0;
+                continue;
+            }
+            validity[c][rows >> 3] |= (unsigned char) (1 << (rows & 7));
+            switch (kind[c])
+            {
+                case SQLITE_INTEGER:
+                    values[rows] = sqlite3_column_int64(dbstmt, c);
+                    break;
+                case SQLITE_FLOAT:
+                {
+                    double d = sqlite3_column_double(dbstmt, c);
+                    memcpy(&values[rows], &d, sizeof(double));
+                    break;
+                }
+                default:
+                    n = sqlite3_column_bytes(dbstmt, c);
+                    if (n > 0) memcpy(data[c] + offsets[c][rows], cells[c], n);
+                    offsets[c][rows + 1] += n;
+                    values[rows] = 0;
+            }
+        }
+        rows++;
+        rc = SQLITE_OK;
+    }
+
+done:
+    result[0] = rc;
+    (*env)->SetIntArrayRegion(env, status, 0, 3, result);
+
+cleanup:
+    if (kind) (*env)->ReleaseIntArrayElements(env, kinds, kind, 0);
+    free(validity);
+    free(data);
+    free(valueBase);
+    free(offsets);
+    free(dataCapacity);
+    free(types);
+    free(cells);
+    return rows;
+}
+
+JNIEXPORT jstring JNICALL Java_org_sqlite_core_NativeDB_real_1to_1text(
+        JNIEnv *env, jobject this, jdouble value)
+{
+    char buf[64];
+
+    // the same rendering sqlite3_column_text() applies to REAL values
+#if SQLITE_VERSION_NUMBER >= 3043000
+    sqlite3_snprintf(sizeof(buf), buf, "%!.17g", value);
+#else
+    sqlite3_snprintf(sizeof(buf), buf, "%!.15g", value);
+#endif
+    return (*env)->NewStringUTF(env, buf);
+}
+
+/*
+** Runs a prepared statement once per row of parameters, binding, stepping and resetting in native
+** code so a whole batch costs a single JNI transition.
+**
+** The parameters of row r are the cells r * paramCount to (r + 1) * paramCount - 1. The tag of a
+** cell is its SQLITE_* type and selects the array holding the value at the same index: longs for
+** SQLITE_INTEGER, doubles for SQLITE_FLOAT and objects (UTF-8 or blob byte[], or a direct
+** ByteBuffer bound whole and in place) for SQLITE_TEXT and SQLITE_BLOB. Arrays of types that do
+** not occur may be null.
+**
+** The number of changes of every row is stored in changes. Returns the number of rows executed;
+** if that is less than count, changes[<returned value>] holds the result code of the failed row.
+*/
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_execute_1batch(
+        JNIEnv *env, jobject this, jlong stmt, jint count, jbyteArray tags, jlongArray longs,
+        jdoubleArray doubles, jobjectArray objects, jlongArray changes)
+{
+    sqlite3 *db;
+    sqlite3_stmt *dbstmt;
+    jbyte *tag = 0;
+    jlong *l = 0, *result = 0;
+    jdouble *d = 0;
+    jbyteArray v;
+    void *a, *direct;
+    jsize size;
+    int params, i = 0, j, cell, rc = SQLITE_OK;
+
+    db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return 0;
+    }
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return 0;
+    }
+
+    dbstmt = toref(stmt);
+    params = sqlite3_bind_parameter_count(dbstmt);
+
+    tag = (*env)->GetByteArrayElements(env, tags, 0);
+    result = (*env)->GetLongArrayElements(env, changes, 0);
+    if (longs) l = (*env)->GetLongArrayElements(env, longs, 0);
+    if (doubles) d = (*env)->GetDoubleArrayElements(env, doubles, 0);
+    if (!tag || !result || (longs && !l) || (doubles && !d))
+    {
+        throwex_outofmemory(env);
+        goto cleanup;
+    }
+
+    for (i = 0; i < count; i++)
+    {
+        sqlite3_reset(dbstmt);
+        for (j = 0; j < params; j++)
+        {
+            cell = i * params + j;
+            switch (tag[cell])
+            {
+                case SQLITE_INTEGER:
+                    rc = sqlite3_bind_int64(dbstmt, j + 1, l[cell]);
+                    break;
+                case SQLITE_FLOAT:
+                    rc = sqlite3_bind_double(dbstmt, j + 1, d[cell]);
+                    break;
+                case SQLITE_TEXT:
+                case SQLITE_BLOB:
+                    v = (jbyteArray) (*env)->GetObjectArrayElement(env, objects, cell);
+                    direct = (*env)->GetDirectBufferAddress(env, v);
+                    if (direct)
+                    {
+                        // off-heap value, read in place; the Java side keeps the buffer
+                        if (tag[cell] == SQLITE_TEXT)
+                            rc = sqlite3_bind_text64(dbstmt, j + 1, direct,
+                                    (sqlite3_uint64) (*env)->GetDirectBufferCapacity(env, v),
+                                    SQLITE_STATIC, SQLITE_UTF8);
+                        else
+                            rc = sqlite3_bind_blob64(dbstmt, j + 1, direct,
+                                    (sqlite3_uint64) (*env)->GetDirectBufferCapacity(env, v),
+                                    SQLITE_STATIC);
+                        (*env)->DeleteLocalRef(env, v);
+                        break;
+                    }
+                    size = (*env)->GetArrayLength(env, v);
+                    a = (*env)->GetPrimitiveArrayCritical(env, v, 0);
+                    if (!a)
+                    {
+                        (*env)->DeleteLocalRef(env, v);
+                        throwex_outofmemory(env);
+                        goto cleanup;
+                    }
+                    if (tag[cell] == SQLITE_TEXT)
+                        rc = sqlite3_bind_text(dbstmt, j + 1, a, size, SQLITE_TRANSIENT);
+                    else
+                        rc = sqlite3_bind_blob(dbstmt, j + 1, a, size, SQLITE_TRANSIENT);
+                    (*env)->ReleasePrimitiveArrayCritical(env, v, a, JNI_ABORT);
+                    (*env)->DeleteLocalRef(env, v);
+                    break;
+                default:
+                    rc = sqlite3_bind_null(dbstmt, j + 1);
+            }
+            if (rc != SQLITE_OK)
+            {
+                result[i] = rc;
+                goto cleanup;
+            }
+        }
+
+        rc = step_stmt(dbstmt);
+        if (rc != SQLITE_DONE)
+        {
+            sqlite3_reset(dbstmt);
+            result[i] = rc;
+            goto cleanup;
+        }
+        result[i] = sqlite3_changes64(db);
+    }
+    sqlite3_reset(dbstmt);
+
+cleanup:
+    if (tag) (*env)->ReleaseByteArrayElements(env, tags, tag, JNI_ABORT);
+    if (l) (*env)->ReleaseLongArrayElements(env, longs, l, JNI_ABORT);
+    if (d) (*env)->ReleaseDoubleArrayElements(env, doubles, d, JNI_ABORT);
+    if (result) (*env)->ReleaseLongArrayElements(env, changes, result, 0);
+    return i;
+}
+
+// Incremental blob I/O
+
+JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_blob_1open_1utf8(
+        JNIEnv *env, jobject this, jbyteArray jdbname, jbyteArray jtable, jbyteArray jcolumn,
+        jlong rowid, jboolean writable)
+{
+    sqlite3 *db;
+    sqlite3_blob *blob = 0;
+    char *dbname, *table, *column;
+    int rc;
+
+    db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return 0;
+    }
+
+    utf8JavaByteArrayToUtf8Bytes(env, jdbname, &dbname, NULL);
+    utf8JavaByteArrayToUtf8Bytes(env, jtable, &table, NULL);
+    utf8JavaByteArrayToUtf8Bytes(env, jcolumn, &column, NULL);
+    if (!dbname || !table || !column)
+    {
+        freeUtf8Bytes(dbname);
+        freeUtf8Bytes(table);
+        freeUtf8Bytes(column);
+        if (!(*env)->ExceptionCheck(env)) throwex_msg(env, "Missing blob location");
+        return 0;
+    }
+
+    rc = sqlite3_blob_open(db, dbname, table, column, rowid, writable ? 1 : 0, &blob);
+    freeUtf8Bytes(dbname);
+    freeUtf8Bytes(table);
+    freeUtf8Bytes(column);
+
+    if (rc != SQLITE_OK)
+    {
+        // the handle is allocated even on failure
+        throwex_errorcode(env, this, rc);
+        sqlite3_blob_close(blob);
+        return 0;
+    }
+    return fromref(blob);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_blob_1reopen(
+        JNIEnv *env, jobject this, jlong blob, jlong rowid)
+{
+    return sqlite3_blob_reopen(toref(blob), rowid);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_blob_1bytes(
+        JNIEnv *env, jobject this, jlong blob)
+{
+    return sqlite3_blob_bytes(toref(blob));
+}
+
+/*
+ * Reads into the direct buffer if one is given, else into the byte array through a native
+ * buffer of the size of the read.
+ */
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_blob_1read(
+        JNIEnv *env, jobject this, jlong blob, jobject direct, jbyteArray array, jint offset,
+        jint length, jint blobOffset)
+{
+    char *dst;
+    int rc;
+
+    if (direct)
+    {
+        dst = (char*) (*env)->GetDirectBufferAddress(env, direct);
+        if (!dst)
+        {
+            throwex_msg(env, "Not a direct buffer");
+            return SQLITE_MISUSE;
+        }
+        return sqlite3_blob_read(toref(blob), dst + offset, length, blobOffset);
+    }
+
+    dst = (char*) malloc(length > 0 ? length : 1);
+    if (!dst)
+    {
+        throwex_outofmemory(env);
+        return SQLITE_NOMEM;
+    }
+    rc = sqlite3_blob_read(toref(blob), dst, length, blobOffset);
+    if (rc == SQLITE_OK)
+    {
+        (*env)->SetByteArrayRegion(env, array, offset, length, (jbyte*) dst);
+    }
+    free(dst);
+    return rc;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_blob_1write(
+        JNIEnv *env, jobject this, jlong blob, jobject direct, jbyteArray array, jint offset,
+        jint length, jint blobOffset)
+{
+    char *src;
+    int rc;
+
+    if (direct)
+    {
+        src = (char*) (*env)->GetDirectBufferAddress(env, direct);
+        if (!src)
+        {
+            throwex_msg(env, "Not a direct buffer");
+            return SQLITE_MISUSE;
+        }
+        return sqlite3_blob_write(toref(blob), src + offset, length, blobOffset);
+    }
+
+    src = (char*) malloc(length > 0 ? length : 1);
+    if (!src)
+    {
+        throwex_outofmemory(env);
+        return SQLITE_NOMEM;
+    }
+    (*env)->GetByteArrayRegion(env, array, offset, length, (jbyte*) src);
+    rc = sqlite3_blob_write(toref(blob), src, length, blobOffset);
+    free(src);
+    return rc;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_blob_1close(
+        JNIEnv *env, jobject this, jlong blob)
+{
+    return sqlite3_blob_close(toref(blob));
+}
+
+// snapshots
+
+JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_snapshot_1get_1utf8(
+        JNIEnv *env, jobject this, jbyteArray jschema)
+{
+    sqlite3 *db;
+    sqlite3_snapshot *snapshot = 0;
+    char *schema;
+    int rc;
+
+    db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return 0;
+    }
+
+    utf8JavaByteArrayToUtf8Bytes(env, jschema, &schema, NULL);
+    if (!schema)
+    {
+        if (!(*env)->ExceptionCheck(env)) throwex_msg(env, "Missing schema");
+        return 0;
+    }
+
+    rc = sqlite3_snapshot_get(db, schema, &snapshot);
+    freeUtf8Bytes(schema);
+    if (rc != SQLITE_OK)
+    {
+        throwex_errorcode(env, this, rc);
+        return 0;
+    }
+    return fromref(snapshot);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_snapshot_1open_1utf8(
+        JNIEnv *env, jobject this, jbyteArray jschema, jlong snapshot)
+{
+    sqlite3 *db;
+    char *schema;
+    int rc;
+
+    db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return SQLITE_MISUSE;
+    }
+
+    utf8JavaByteArrayToUtf8Bytes(env, jschema, &schema, NULL);
+    if (!schema)
+    {
+        if (!(*env)->ExceptionCheck(env)) throwex_msg(env, "Missing schema");
+        return SQLITE_MISUSE;
+    }
+
+    rc = sqlite3_snapshot_open(db, schema, toref(snapshot));
+    freeUtf8Bytes(schema);
+    return rc;
+}
+
+JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_snapshot_1free(
+        JNIEnv *env, jobject this, jlong snapshot)
+{
+    sqlite3_snapshot_free(toref(snapshot));
+}
+
 // backup function
 
 void reportProgress(JNIEnv* env, jobject func, int remaining, int pageCount) {
@@ -1847,6 +3483,85 @@ JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_set_1commit_1listener(JNIEn
     }
 }
 
+// Profile trace
+
+struct ProfileHandlerContext {
+    JavaVM *vm;
+    jobject handler;
+};
+
+// Stops tracing the statements of the connection after a failure of its profiler, which must not
+// be left pending across the step, reset or finalize that ran the statement.
+static void stop_profile_trace(JNIEnv *env, sqlite3_stmt *stmt) {
+    (*env)->ExceptionClear(env);
+    sqlite3_trace_v2(sqlite3_db_handle(stmt), 0, NULL, NULL);
+}
+
+static int profile_trace(unsigned type, void *context, void *p, void *x) {
+    struct ProfileHandlerContext *profile_handler_context = (struct ProfileHandlerContext*) context;
+    sqlite3_stmt *stmt = (sqlite3_stmt *) p;
+    const char *sql;
+    JNIEnv *env;
+    jbyteArray sqlBytes;
+    jsize sqlLength;
+
+    if (type != SQLITE_TRACE_PROFILE) return 0;
+    sql = sqlite3_sql(stmt);
+    if (!sql) return 0;
+    env = udf_getenv(profile_handler_context->vm);
+
+    sqlLength = (jsize) strlen(sql);
+    sqlBytes = (*env)->NewByteArray(env, sqlLength);
+    if (!sqlBytes) {
+        stop_profile_trace(env, stmt);
+        return 0;
+    }
+    (*env)->SetByteArrayRegion(env, sqlBytes, 0, sqlLength, (const jbyte *) sql);
+
+    // the counters are reset so that each run of the statement reports its own
+    (*env)->CallVoidMethod(env, profile_handler_context->handler, db_mth_onProfile, sqlBytes,
+            (jlong) *(sqlite3_int64 *) x,
+            (jlong) sqlite3_stmt_status(stmt, SQLITE_STMTSTATUS_FULLSCAN_STEP, 1),
+            (jlong) sqlite3_stmt_status(stmt, SQLITE_STMTSTATUS_SORT, 1),
+            (jlong) sqlite3_stmt_status(stmt, SQLITE_STMTSTATUS_AUTOINDEX, 1),
+            (jlong) sqlite3_stmt_status(stmt, SQLITE_STMTSTATUS_VM_STEP, 1),
+            (jlong) sqlite3_stmt_status(stmt, SQLITE_STMTSTATUS_REPREPARE, 1),
+            (jlong) sqlite3_stmt_status(stmt, SQLITE_STMTSTATUS_MEMUSED, 0));
+    if ((*env)->ExceptionCheck(env)) stop_profile_trace(env, stmt);
+
+    (*env)->DeleteLocalRef(env, sqlBytes);
+    return 0;
+}
+
+static void free_profile_handler(JNIEnv *env, void *ctx) {
+    struct ProfileHandlerContext* profile_handler_context = (struct ProfileHandlerContext*) ctx;
+    (*env)->DeleteGlobalRef(env, profile_handler_context->handler);
+    free(ctx);
+}
+
+static void clear_profile_listener(JNIEnv *env, jobject nativeDB, sqlite3 *db) {
+    sqlite3_trace_v2(db, 0, NULL, NULL);
+    set_new_handler(env, nativeDB, db_profileListener, NULL, &free_profile_handler);
+}
+
+JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_set_1profile_1listener(JNIEnv *env, jobject nativeDB, jboolean enabled) {
+    sqlite3 *db = gethandle(env, nativeDB);
+    if (!db) {
+        throwex_db_closed(env);
+        return;
+    }
+    if (enabled) {
+        struct ProfileHandlerContext *profile_handler_context = (struct ProfileHandlerContext*) malloc(sizeof(struct ProfileHandlerContext));
+        if (!profile_handler_context) { throwex_outofmemory(env); return; }
+        profile_handler_context->handler = (*env)->NewGlobalRef(env, nativeDB);
+        (*env)->GetJavaVM(env, &profile_handler_context->vm);
+        sqlite3_trace_v2(db, SQLITE_TRACE_PROFILE, &profile_trace, profile_handler_context);
+        set_new_handler(env, nativeDB, db_profileListener, profile_handler_context, &free_profile_handler);
+    } else {
+        clear_profile_listener(env, nativeDB, db);
+    }
+}
+
 JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB__1close(
         JNIEnv *env, jobject nativeDB)
 {
@@ -1855,8 +3570,10 @@ JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB__1close(
     {
         change_progress_handler(env, nativeDB, NULL, 0);
         change_busy_handler(env, nativeDB, NULL);
+        set_new_handler(env, nativeDB, db_busyStrategy, NULL, &free_busy_strategy);
         clear_commit_listener(env, nativeDB, db);
         clear_update_listener(env, nativeDB);
+        clear_profile_listener(env, nativeDB, db);
 
         if (sqlite3_close(db) != SQLITE_OK)
         {
@@ -17,6 +17,7 @@
 package org.sqlite.core;
 
 import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.text.MessageFormat;
@@ -124,6 +125,31 @@ public final class NativeDB extends DB {
     @Override
     public synchronized native void busy_handler(BusyHandler busyHandler);
 
+    /** busy strategy pointer to the native strategy and its statistics. */
+    private long busyStrategy = 0;
+
+    /** @see org.sqlite.core.DB#busy_strategy(int, int, int, int, int) */
+    @Override
+    public synchronized native void busy_strategy(
+            int strategy, int timeoutMillis, int initialMicros, int maxMicros, int spins);
+
+    /** @see org.sqlite.core.DB#busy_wait(int, long, boolean) */
+    @Override
+    synchronized native void busy_wait(int attempt, long waitMicros, boolean timedOut);
+
+    /** @see org.sqlite.core.DB#busy_statistics(boolean) */
+    @Override
+    synchronized Object[] busy_statistics(boolean reset) {
+        Object[] statistics = busy_statistics_utf8(reset);
+        for (int i = 0; i < statistics.length; i += 2) {
+            byte[] sql = (byte[]) statistics[i];
+            statistics[i] = sql == null ? null : new String(sql, StandardCharsets.UTF_8);
+        }
+        return statistics;
+    }
+
+    synchronized native Object[] busy_statistics_utf8(boolean reset);
+
     /** @see org.sqlite.core.DB#prepare(java.lang.String) */
     @Override
     protected synchronized SafeStmtPtr prepare(String sql) throws SQLException {
@@ -165,29 +191,33 @@ public final class NativeDB extends DB {
     @Override
     protected synchronized native int finalize(long stmt);
 
+    // The statement functions below are called once per row or column, and are not synchronized
+    // themselves: callers hold the lock of this object (see SafeStmtPtr), or own the connection
+    // under SQLiteConfig.ThreadingModel.SINGLE_OWNER.
+
     /** @see org.sqlite.core.DB#step(long) */
     @Override
-    public synchronized native int step(long stmt);
+    public native int step(long stmt);
 
     /** @see org.sqlite.core.DB#reset(long) */
     @Override
-    public synchronized native int reset(long stmt);
+    public native int reset(long stmt);
 
     /** @see org.sqlite.core.DB#clear_bindings(long) */
     @Override
-    public synchronized native int clear_bindings(long stmt);
+    public native int clear_bindings(long stmt);
 
     /** @see org.sqlite.core.DB#bind_parameter_count(long) */
     @Override
-    synchronized native int bind_parameter_count(long stmt);
+    native int bind_parameter_count(long stmt);
 
     /** @see org.sqlite.core.DB#column_count(long) */
     @Override
-    public synchronized native int column_count(long stmt);
+    public native int column_count(long stmt);
 
     /** @see org.sqlite.core.DB#column_type(long, int) */
     @Override
-    public synchronized native int column_type(long stmt, int col);
+    public native int column_type(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_decltype(long, int) */
     @Override
@@ -205,6 +235,22 @@ public final class NativeDB extends DB {
 
     synchronized native ByteBuffer column_table_name_utf8(long stmt, int col);
 
+    /** @see org.sqlite.core.DB#column_database_name(long, int) */
+    @Override
+    public synchronized String column_database_name(long stmt, int col) {
+        return utf8ByteBufferToString(column_database_name_utf8(stmt, col));
+    }
+
+    synchronized native ByteBuffer column_database_name_utf8(long stmt, int col);
+
+    /** @see org.sqlite.core.DB#column_origin_name(long, int) */
+    @Override
+    public synchronized String column_origin_name(long stmt, int col) {
+        return utf8ByteBufferToString(column_origin_name_utf8(stmt, col));
+    }
+
+    synchronized native ByteBuffer column_origin_name_utf8(long stmt, int col);
+
     /** @see org.sqlite.core.DB#column_name(long, int) */
     @Override
     public synchronized String column_name(long stmt, int col) {
@@ -215,91 +261,168 @@ public final class NativeDB extends DB {
 
     /** @see org.sqlite.core.DB#column_text(long, int) */
     @Override
-    public synchronized String column_text(long stmt, int col) {
-        return utf8ByteBufferToString(column_text_utf8(stmt, col));
+    public String column_text(long stmt, int col) {
+        Object text = column_string(stmt, col);
+        if (text instanceof ByteBuffer) {
+            // not valid UTF-8, let the Java decoder replace the malformed input
+            return utf8ByteBufferToString((ByteBuffer) text);
+        }
+        return (String) text;
+    }
+
+    /** @return The text as a String, or as a direct buffer if it is not valid UTF-8. */
+    native Object column_string(long stmt, int col);
+
+    /** @see org.sqlite.core.DB#column_text(long, int, ByteBuffer) */
+    @Override
+    public int column_text(long stmt, int col, ByteBuffer dst) {
+        if (dst.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        int position = dst.position();
+        int length =
+                dst.isDirect()
+                        ? column_text_copy_utf8(stmt, col, dst, null, position, dst.remaining())
+                        : column_text_copy_utf8(
+                                stmt,
+                                col,
+                                null,
+                                dst.array(),
+                                dst.arrayOffset() + position,
+                                dst.remaining());
+        if (length >= 0 && length <= dst.remaining()) {
+            dst.position(position + length);
+        }
+        return length;
     }
 
-    synchronized native ByteBuffer column_text_utf8(long stmt, int col);
+    native int column_text_copy_utf8(
+            long stmt, int col, ByteBuffer direct, byte[] array, int offset, int capacity);
 
     /** @see org.sqlite.core.DB#column_blob(long, int) */
     @Override
-    public synchronized native byte[] column_blob(long stmt, int col);
+    public native byte[] column_blob(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_double(long, int) */
     @Override
-    public synchronized native double column_double(long stmt, int col);
+    public native double column_double(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_long(long, int) */
     @Override
-    public synchronized native long column_long(long stmt, int col);
+    public native long column_long(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_int(long, int) */
     @Override
-    public synchronized native int column_int(long stmt, int col);
+    public native int column_int(long stmt, int col);
+
+    /** @see org.sqlite.core.DB#step_batch(long, int, ByteBuffer, boolean) */
+    @Override
+    public native int step_batch(long stmt, int maxRows, ByteBuffer buffer, boolean stepFirst);
+
+    /**
+     * @see org.sqlite.core.DB#step_columnar(long, int, int, int[], ByteBuffer[], int[], boolean)
+     */
+    @Override
+    public native int step_columnar(
+            long stmt,
+            int startRow,
+            int maxRows,
+            int[] kinds,
+            ByteBuffer[] buffers,
+            int[] status,
+            boolean stepFirst);
+
+    /** @see org.sqlite.core.DB#real_to_text(double) */
+    @Override
+    public native String real_to_text(double value);
+
+    /**
+     * @see org.sqlite.core.DB#execute_batch(long, int, byte[], long[], double[], Object[], long[])
+     */
+    @Override
+    native int execute_batch(
+            long stmt,
+            int count,
+            byte[] tags,
+            long[] longs,
+            double[] doubles,
+            Object[] objects,
+            long[] changes);
 
     /** @see org.sqlite.core.DB#bind_null(long, int) */
     @Override
-    synchronized native int bind_null(long stmt, int pos);
+    native int bind_null(long stmt, int pos);
 
     /** @see org.sqlite.core.DB#bind_int(long, int, int) */
     @Override
-    synchronized native int bind_int(long stmt, int pos, int v);
+    native int bind_int(long stmt, int pos, int v);
 
     /** @see org.sqlite.core.DB#bind_long(long, int, long) */
     @Override
-    synchronized native int bind_long(long stmt, int pos, long v);
+    native int bind_long(long stmt, int pos, long v);
 
     /** @see org.sqlite.core.DB#bind_double(long, int, double) */
     @Override
-    synchronized native int bind_double(long stmt, int pos, double v);
+    native int bind_double(long stmt, int pos, double v);
 
     /** @see org.sqlite.core.DB#bind_text(long, int, java.lang.String) */
     @Override
-    synchronized int bind_text(long stmt, int pos, String v) {
+    int bind_text(long stmt, int pos, String v) {
         return bind_text_utf8(stmt, pos, stringToUtf8ByteArray(v));
     }
 
-    synchronized native int bind_text_utf8(long stmt, int pos, byte[] vUtf8);
+    native int bind_text_utf8(long stmt, int pos, byte[] vUtf8);
 
     /** @see org.sqlite.core.DB#bind_blob(long, int, byte[]) */
     @Override
-    synchronized native int bind_blob(long stmt, int pos, byte[] v);
+    native int bind_blob(long stmt, int pos, byte[] v);
+
+    /** @see org.sqlite.core.DB#bind_blob_direct(long, int, ByteBuffer) */
+    @Override
+    native int bind_blob_direct(long stmt, int pos, ByteBuffer v);
+
+    /** @see org.sqlite.core.DB#bind_text_direct(long, int, ByteBuffer) */
+    @Override
+    native int bind_text_direct(long stmt, int pos, ByteBuffer vUtf8);
+
+    // The result_* and arg_* methods only touch the sqlite3_context and sqlite3_value of the
+    // function call in progress on the calling thread, and need no lock.
 
     /** @see org.sqlite.core.DB#result_null(long) */
     @Override
-    public synchronized native void result_null(long context);
+    public native void result_null(long context);
 
     /** @see org.sqlite.core.DB#result_text(long, java.lang.String) */
     @Override
-    public synchronized void result_text(long context, String val) {
+    public void result_text(long context, String val) {
         result_text_utf8(context, stringToUtf8ByteArray(val));
     }
 
-    synchronized native void result_text_utf8(long context, byte[] valUtf8);
+    native void result_text_utf8(long context, byte[] valUtf8);
 
     /** @see org.sqlite.core.DB#result_blob(long, byte[]) */
     @Override
-    public synchronized native void result_blob(long context, byte[] val);
+    public native void result_blob(long context, byte[] val);
 
     /** @see org.sqlite.core.DB#result_double(long, double) */
     @Override
-    public synchronized native void result_double(long context, double val);
+    public native void result_double(long context, double val);
 
     /** @see org.sqlite.core.DB#result_long(long, long) */
     @Override
-    public synchronized native void result_long(long context, long val);
+    public native void result_long(long context, long val);
 
     /** @see org.sqlite.core.DB#result_int(long, int) */
     @Override
-    public synchronized native void result_int(long context, int val);
+    public native void result_int(long context, int val);
 
     /** @see org.sqlite.core.DB#result_error(long, java.lang.String) */
     @Override
-    public synchronized void result_error(long context, String err) {
+    public void result_error(long context, String err) {
         result_error_utf8(context, stringToUtf8ByteArray(err));
     }
 
-    synchronized native void result_error_utf8(long context, byte[] errUtf8);
+    native void result_error_utf8(long context, byte[] errUtf8);
 
     /** @see org.sqlite.core.DB#value_text(org.sqlite.Function, int) */
     @Override
@@ -329,6 +452,34 @@ public final class NativeDB extends DB {
     @Override
     public synchronized native int value_type(Function f, int arg);
 
+    /** @see org.sqlite.core.DB#arg_text(long, int) */
+    @Override
+    public String arg_text(long values, int arg) {
+        return utf8ByteBufferToString(arg_text_utf8(values, arg));
+    }
+
+    native ByteBuffer arg_text_utf8(long values, int arg);
+
+    /** @see org.sqlite.core.DB#arg_blob(long, int) */
+    @Override
+    public native byte[] arg_blob(long values, int arg);
+
+    /** @see org.sqlite.core.DB#arg_double(long, int) */
+    @Override
+    public native double arg_double(long values, int arg);
+
+    /** @see org.sqlite.core.DB#arg_long(long, int) */
+    @Override
+    public native long arg_long(long values, int arg);
+
+    /** @see org.sqlite.core.DB#arg_int(long, int) */
+    @Override
+    public native int arg_int(long values, int arg);
+
+    /** @see org.sqlite.core.DB#arg_type(long, int) */
+    @Override
+    public native int arg_type(long values, int arg);
+
     /** @see org.sqlite.core.DB#create_function(java.lang.String, org.sqlite.Function, int, int) */
     @Override
     public synchronized int create_function(String name, Function func, int nArgs, int flags)
@@ -339,6 +490,28 @@ public final class NativeDB extends DB {
     synchronized native int create_function_utf8(
             byte[] nameUtf8, Function func, int nArgs, int flags);
 
+    /** @see org.sqlite.core.DB#create_scalar_function(java.lang.String, Object, int, int) */
+    @Override
+    public synchronized int create_scalar_function(String name, Object call, int nArgs, int flags)
+            throws SQLException {
+        return create_scalar_function_utf8(
+                nameToUtf8ByteArray("function", name), call, nArgs, flags);
+    }
+
+    synchronized native int create_scalar_function_utf8(
+            byte[] nameUtf8, Object call, int nArgs, int flags);
+
+    /** @see org.sqlite.core.DB#create_primitive_function(java.lang.String, Object, int, int) */
+    @Override
+    public synchronized int create_primitive_function(String name, Object f, int kind, int flags)
+            throws SQLException {
+        return create_primitive_function_utf8(
+                nameToUtf8ByteArray("function", name), f, kind, flags);
+    }
+
+    synchronized native int create_primitive_function_utf8(
+            byte[] nameUtf8, Object f, int kind, int flags);
+
     /** @see org.sqlite.core.DB#destroy_function(java.lang.String) */
     @Override
     public synchronized int destroy_function(String name) throws SQLException {
@@ -355,6 +528,27 @@ public final class NativeDB extends DB {
 
     synchronized native int create_collation_utf8(byte[] nameUtf8, Collation coll);
 
+    /** @see org.sqlite.core.DB#create_builtin_collation(String, int, ByteBuffer) */
+    @Override
+    public synchronized int create_builtin_collation(String name, int kind, ByteBuffer foldTable)
+            throws SQLException {
+        return create_builtin_collation_utf8(
+                nameToUtf8ByteArray("collation", name), kind, foldTable);
+    }
+
+    synchronized native int create_builtin_collation_utf8(
+            byte[] nameUtf8, int kind, ByteBuffer foldTable);
+
+    /** @see org.sqlite.core.DB#create_raw_collation(String, Collation.Raw, int) */
+    @Override
+    public synchronized int create_raw_collation(String name, Collation.Raw coll, int encoding)
+            throws SQLException {
+        return create_raw_collation_utf8(nameToUtf8ByteArray("collation", name), coll, encoding);
+    }
+
+    synchronized native int create_raw_collation_utf8(
+            byte[] nameUtf8, Collation.Raw coll, int encoding);
+
     /** @see org.sqlite.core.DB#destroy_collation(String) */
     @Override
     public synchronized int destroy_collation(String name) throws SQLException {
@@ -493,6 +687,12 @@ public final class NativeDB extends DB {
     @Override
     synchronized native void set_update_listener(boolean enabled);
 
+    // pointer to profile listener structure, if enabled.
+    private long profileListener = 0;
+
+    @Override
+    synchronized native void set_profile_listener(boolean enabled);
+
     /**
      * Throws an SQLException. Called from native code
      *
@@ -563,6 +763,69 @@ public final class NativeDB extends DB {
         return progressHandler;
     }
 
+    // INCREMENTAL BLOB I/O ////////////////////////////////////////
+    // unsynchronized, callers hold the database through DB#guarded
+
+    /** @see org.sqlite.core.DB#blob_open(String, String, String, long, boolean) */
+    @Override
+    public long blob_open(String dbName, String table, String column, long rowid, boolean writable)
+            throws SQLException {
+        return blob_open_utf8(
+                stringToUtf8ByteArray(dbName),
+                stringToUtf8ByteArray(table),
+                stringToUtf8ByteArray(column),
+                rowid,
+                writable);
+    }
+
+    native long blob_open_utf8(
+            byte[] dbNameUtf8, byte[] tableUtf8, byte[] columnUtf8, long rowid, boolean writable)
+            throws SQLException;
+
+    /** @see org.sqlite.core.DB#blob_reopen(long, long) */
+    @Override
+    public native int blob_reopen(long blob, long rowid);
+
+    /** @see org.sqlite.core.DB#blob_bytes(long) */
+    @Override
+    public native int blob_bytes(long blob);
+
+    /** @see org.sqlite.core.DB#blob_read(long, ByteBuffer, byte[], int, int, int) */
+    @Override
+    public native int blob_read(
+            long blob, ByteBuffer direct, byte[] array, int offset, int length, int blobOffset);
+
+    /** @see org.sqlite.core.DB#blob_write(long, ByteBuffer, byte[], int, int, int) */
+    @Override
+    public native int blob_write(
+            long blob, ByteBuffer direct, byte[] array, int offset, int length, int blobOffset);
+
+    /** @see org.sqlite.core.DB#blob_close(long) */
+    @Override
+    public native int blob_close(long blob);
+
+    // SNAPSHOTS ///////////////////////////////////////////////////
+
+    /** @see org.sqlite.core.DB#snapshot_get(String) */
+    @Override
+    public long snapshot_get(String schema) throws SQLException {
+        return snapshot_get_utf8(stringToUtf8ByteArray(schema));
+    }
+
+    native long snapshot_get_utf8(byte[] schemaUtf8) throws SQLException;
+
+    /** @see org.sqlite.core.DB#snapshot_open(String, long) */
+    @Override
+    public int snapshot_open(String schema, long snapshot) throws SQLException {
+        return snapshot_open_utf8(stringToUtf8ByteArray(schema), snapshot);
+    }
+
+    native int snapshot_open_utf8(byte[] schemaUtf8, long snapshot) throws SQLException;
+
+    /** @see org.sqlite.core.DB#snapshot_free(long) */
+    @Override
+    public native void snapshot_free(long snapshot);
+
     @Override
     public synchronized native byte[] serialize(String schema) throws SQLException;
 
@@ -0,0 +1,348 @@
+package org.sqlite.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Parameter values of a prepared statement, for the row being set and for the rows added to the
+ * batch so far.
+ *
+ * <p>Values are stored without boxing: every cell has an SQLITE_* type tag, and numbers are kept in
+ * parallel <code>long[]</code> and <code>double[]</code> arrays, so only text and blob values
+ * occupy the object slot. Row <code>r</code> occupies the cells <code>r * width</code> to <code>
+ * (r + 1) * width - 1</code>, which is the layout {@link DB#execute_batch(long, int, byte[],
+ * long[], double[], Object[], long[])} binds from. A cell whose tag is 0 has not been set and is
+ * bound as NULL.
+ *
+ * <p>Values read from streams or set from direct buffers are held off the Java heap and bound
+ * without a copy: SQLite reads them in place, so they are kept reachable for as long as the
+ * statement may read them, until it is bound again.
+ */
+public final class ParameterBuffer implements Codes {
+    private final int width;
+    private final boolean[] intParameters;
+
+    private byte[] tags;
+    private long[] longs;
+    private double[] doubles;
+    private Object[] objects;
+
+    /** direct buffers SQLite reads in place, kept reachable until the statement is bound again */
+    private ByteBuffer[] bound;
+
+    /** first cell of the row being set */
+    private int offset;
+    /** number of rows added to the batch */
+    private int rows;
+
+    /** @param width Number of parameters of the statement. */
+    public ParameterBuffer(int width) {
+        this.width = width;
+        this.intParameters = new boolean[width];
+        this.tags = new byte[width];
+    }
+
+    private int cell(int pos) throws SQLException {
+        if (pos < 1 || pos > width) {
+            throw new SQLException("Parameter index is invalid");
+        }
+        return offset + pos - 1;
+    }
+
+    /**
+     * @param pos The parameter, in [1,width] form.
+     * @throws SQLException if the parameter index is invalid
+     */
+    public void setNull(int pos) throws SQLException {
+        int cell = cell(pos);
+        tags[cell] = SQLITE_NULL;
+        if (objects != null) objects[cell] = null;
+    }
+
+    /**
+     * @param pos The parameter, in [1,width] form.
+     * @param value The value.
+     * @throws SQLException if the parameter index is invalid
+     */
+    public void setInt(int pos, int value) throws SQLException {
+        setLong(pos, value);
+        intParameters[pos - 1] = true;
+    }
+
+    /**
+     * @param pos The parameter, in [1,width] form.
+     * @param value The value.
+     * @throws SQLException if the parameter index is invalid
+     */
+    public void setLong(int pos, long value) throws SQLException {
+        int cell = cell(pos);
+        if (longs == null) longs = new long[tags.length];
+        longs[cell] = value;
+        tags[cell] = SQLITE_INTEGER;
+        intParameters[pos - 1] = false;
+        if (objects != null) objects[cell] = null;
+    }
+
+    /**
+     * @param pos The parameter, in [1,width] form.
+     * @param value The value.
+     * @throws SQLException if the parameter index is invalid
+     */
+    public void setDouble(int pos, double value) throws SQLException {
+        int cell = cell(pos);
+        if (doubles == null) doubles = new double[tags.length];
+        doubles[cell] = value;
+        tags[cell] = SQLITE_FLOAT;
+        if (objects != null) objects[cell] = null;
+    }
+
+    /**
+     * @param pos The parameter, in [1,width] form.
+     * @param value The value, or null for NULL.
+     * @throws SQLException if the parameter index is invalid
+     */
+    public void setString(int pos, String value) throws SQLException {
+        setObject(pos, value, SQLITE_TEXT);
+    }
+
+    /**
+     * @param pos The parameter, in [1,width] form.
+     * @param utf8 The UTF-8 bytes of the value, which must not change afterwards, or null for NULL.
+     * @throws SQLException if the parameter index is invalid
+     */
+    public void setText(int pos, byte[] utf8) throws SQLException {
+        setObject(pos, utf8, SQLITE_TEXT);
+    }
+
+    /**
+     * @param pos The parameter, in [1,width] form.
+     * @param value The value, or null for NULL.
+     * @throws SQLException if the parameter index is invalid
+     */
+    public void setBytes(int pos, byte[] value) throws SQLException {
+        setObject(pos, value, SQLITE_BLOB);
+    }
+
+    /**
+     * @param pos The parameter, in [1,width] form.
+     * @param value A direct buffer whose whole capacity is the value, or null for NULL.
+     * @throws SQLException if the parameter index is invalid
+     */
+    public void setBytes(int pos, ByteBuffer value) throws SQLException {
+        setObject(pos, value, SQLITE_BLOB);
+    }
+
+    /**
+     * @param pos The parameter, in [1,width] form.
+     * @param utf8 A direct buffer whose whole capacity is the UTF-8 bytes of the value, or null for
+     *     NULL.
+     * @throws SQLException if the parameter index is invalid
+     */
+    public void setText(int pos, ByteBuffer utf8) throws SQLException {
+        setObject(pos, utf8, SQLITE_TEXT);
+    }
+
+    private void setObject(int pos, Object value, int tag) throws SQLException {
+        if (value == null) {
+            setNull(pos);
+            return;
+        }
+        int cell = cell(pos);
+        if (objects == null) objects = new Object[tags.length];
+        objects[cell] = value;
+        tags[cell] = (byte) tag;
+    }
+
+    /**
+     * @param pos The parameter, in [1,width] form.
+     * @return The java.sql.Types type of the value set for the parameter in the current row.
+     * @throws SQLException if the parameter index is invalid
+     */
+    public int getParameterType(int pos) throws SQLException {
+        switch (tags[cell(pos)]) {
+            case SQLITE_INTEGER:
+                return intParameters[pos - 1] ? Types.INTEGER : Types.BIGINT;
+            case SQLITE_FLOAT:
+                return Types.REAL;
+            case SQLITE_TEXT:
+            case SQLITE_BLOB:
+                return Types.VARCHAR;
+            default:
+                return Types.NULL;
+        }
+    }
+
+    /** Unsets the parameters of the row being set. */
+    public void clearRow() {
+        Arrays.fill(tags, offset, offset + width, (byte) 0);
+        if (objects != null) Arrays.fill(objects, offset, offset + width, null);
+    }
+
+    /**
+     * Adds the row being set to the batch. The next row starts out with the same values, so
+     * parameters that do not change between rows only have to be set once.
+     */
+    public void addRow() {
+        int next = offset + width;
+        ensureCapacity(next + width);
+        System.arraycopy(tags, offset, tags, next, width);
+        if (longs != null) System.arraycopy(longs, offset, longs, next, width);
+        if (doubles != null) System.arraycopy(doubles, offset, doubles, next, width);
+        if (objects != null) System.arraycopy(objects, offset, objects, next, width);
+        offset = next;
+        rows++;
+    }
+
+    private void ensureCapacity(int cells) {
+        if (cells <= tags.length) {
+            return;
+        }
+        int capacity = Math.max(cells, tags.length * 2);
+        tags = Arrays.copyOf(tags, capacity);
+        if (longs != null) longs = Arrays.copyOf(longs, capacity);
+        if (doubles != null) doubles = Arrays.copyOf(doubles, capacity);
+        if (objects != null) objects = Arrays.copyOf(objects, capacity);
+    }
+
+    /** Discards the batch and unsets all parameters; the arrays are kept for reuse. */
+    public void clear() {
+        Arrays.fill(tags, 0, offset + width, (byte) 0);
+        if (objects != null) Arrays.fill(objects, 0, offset + width, null);
+        offset = 0;
+        rows = 0;
+    }
+
+    /** @return The number of rows added to the batch. */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Binds the parameters of the row being set to a statement.
+     *
+     * @param db The database owning the statement; its lock must be held.
+     * @param stmt Pointer to the statement.
+     * @throws SQLException
+     */
+    void bind(DB db, long stmt) throws SQLException {
+        bound = null;
+        for (int i = 0; i < width; i++) {
+            int cell = offset + i;
+            int rc;
+            if (objects != null && objects[cell] instanceof ByteBuffer) {
+                keepBound(objects[cell]);
+            }
+            switch (tags[cell]) {
+                case SQLITE_INTEGER:
+                    rc = db.bind_long(stmt, i + 1, longs[cell]);
+                    break;
+                case SQLITE_FLOAT:
+                    rc = db.bind_double(stmt, i + 1, doubles[cell]);
+                    break;
+                case SQLITE_TEXT:
+                    if (objects[cell] instanceof ByteBuffer) {
+                        rc = db.bind_text_direct(stmt, i + 1, (ByteBuffer) objects[cell]);
+                    } else if (objects[cell] instanceof byte[]) {
+                        rc =
+                                db.bind_text(
+                                        stmt,
+                                        i + 1,
+                                        new String((byte[]) objects[cell], StandardCharsets.UTF_8));
+                    } else {
+                        rc = db.bind_text(stmt, i + 1, (String) objects[cell]);
+                    }
+                    break;
+                case SQLITE_BLOB:
+                    rc =
+                            objects[cell] instanceof ByteBuffer
+                                    ? db.bind_blob_direct(stmt, i + 1, (ByteBuffer) objects[cell])
+                                    : db.bind_blob(stmt, i + 1, (byte[]) objects[cell]);
+                    break;
+                default:
+                    rc = db.bind_null(stmt, i + 1);
+            }
+            if (rc != SQLITE_OK) {
+                db.throwex(rc);
+            }
+        }
+    }
+
+    /**
+     * Executes the statement once for every row added to the batch.
+     *
+     * @param db The database owning the statement; its lock must be held.
+     * @param stmt Pointer to the statement.
+     * @param changes Receives the number of changes of every row.
+     * @return See {@link DB#execute_batch(long, int, byte[], long[], double[], Object[], long[])}.
+     * @throws SQLException
+     */
+    int executeBatch(DB db, long stmt, long[] changes) throws SQLException {
+        if (objects != null) {
+            // the native side binds text from its UTF-8 bytes
+            for (int cell = 0; cell < rows * width; cell++) {
+                if (tags[cell] == SQLITE_TEXT && objects[cell] instanceof String) {
+                    objects[cell] = NativeDB.stringToUtf8ByteArray((String) objects[cell]);
+                }
+            }
+        }
+        bound = null;
+        int executed = db.execute_batch(stmt, rows, tags, longs, doubles, objects, changes);
+        if (objects != null) {
+            // a row failing to bind keeps the values of the previous row from its failed cell on
+            int from = Math.max(0, executed - 1) * width;
+            int to = Math.min(executed + 1, rows) * width;
+            for (int cell = from; cell < to; cell++) {
+                if (objects[cell] instanceof ByteBuffer) {
+                    keepBound(objects[cell]);
+                }
+            }
+        }
+        return executed;
+    }
+
+    private void keepBound(Object buffer) {
+        if (bound == null) {
+            bound = new ByteBuffer[] {(ByteBuffer) buffer};
+        } else {
+            bound = Arrays.copyOf(bound, bound.length + 1);
+            bound[bound.length - 1] = (ByteBuffer) buffer;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < width; i++) {
+            int cell = offset + i;
+            if (i > 0) sb.append(", ");
+            switch (tags[cell]) {
+                case SQLITE_INTEGER:
+                    sb.append(longs[cell]);
+                    break;
+                case SQLITE_FLOAT:
+                    sb.append(doubles[cell]);
+                    break;
+                case SQLITE_TEXT:
+                case SQLITE_BLOB:
+                    if (objects[cell] instanceof ByteBuffer) {
+                        sb.append("<stream of ")
+                                .append(((ByteBuffer) objects[cell]).capacity())
+                                .append(" bytes>");
+                    } else if (objects[cell] instanceof byte[] && tags[cell] == SQLITE_TEXT) {
+                        sb.append(new String((byte[]) objects[cell], StandardCharsets.UTF_8));
+                    } else if (objects[cell] instanceof byte[]) {
+                        sb.append(Arrays.toString((byte[]) objects[cell]));
+                    } else {
+                        sb.append(objects[cell]);
+                    }
+                    break;
+                default:
+                    sb.append("null");
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
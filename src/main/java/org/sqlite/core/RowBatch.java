@@ -0,0 +1,322 @@
+package org.sqlite.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import org.sqlite.SQLiteException;
+
+/**
+ * Rows of a result set fetched ahead of time by {@link DB#step_batch(long, int, ByteBuffer,
+ * boolean)}. The values are kept in a reusable direct buffer, and the getters apply the same type
+ * conversions as the sqlite3_column_* functions would on the live statement.
+ */
+public final class RowBatch implements Codes {
+    private static final int HEADER_SIZE = 16;
+    private static final int MIN_DATA_SIZE = 8 * 1024;
+
+    private ByteBuffer buffer;
+    private int capacityRows;
+    private int valuesOffset;
+    private int dataSize = MIN_DATA_SIZE;
+    /** Whether the buffer was grown beyond the data size for a single row that did not fit. */
+    private boolean wide;
+
+    private int rows;
+    private int cursor = -1;
+    private int status = SQLITE_OK;
+    /** The exception for the error the last fetch ended with, created as soon as it failed. */
+    private SQLiteException error;
+
+    /**
+     * Fetches the next rows of the statement into this batch, discarding the current ones.
+     *
+     * @param db The database owning the statement; its lock must be held.
+     * @param stmt Pointer to the statement.
+     * @param columns Number of columns of the statement.
+     * @param maxRows Maximum number of rows to fetch.
+     * @throws SQLException
+     */
+    public void fill(DB db, long stmt, int columns, int maxRows) throws SQLException {
+        if (status == SQLITE_ROW && rows > 0 && dataSize < Integer.MAX_VALUE / 4) {
+            // the data area filled up before the batch did
+            dataSize *= 2;
+        }
+        // a buffer grown for a wide row is kept for one more batch, in case more of them follow
+        ensureCapacity(columns, maxRows, 0, !wide);
+        wide = false;
+
+        boolean stepFirst = status != SQLITE_ROW;
+        rows = db.step_batch(stmt, capacityRows, buffer, stepFirst);
+        status = buffer.getInt(4);
+        if (rows == 0 && status == SQLITE_BUSY && db.lock != null) {
+            long start = System.nanoTime();
+            for (int attempt = 0;
+                    rows == 0 && status == SQLITE_BUSY && db.parkOnBusy(attempt, start);
+                    attempt++) {
+                rows = db.step_batch(stmt, capacityRows, buffer, stepFirst);
+                status = buffer.getInt(4);
+            }
+        }
+        if (rows == 0 && status == SQLITE_ROW) {
+            // a single row does not fit, make room for it
+            ensureCapacity(columns, maxRows, buffer.getInt(8), false);
+            wide = true;
+            rows = db.step_batch(stmt, capacityRows, buffer, false);
+            status = buffer.getInt(4);
+        }
+        // later statements of the connection replace the message before the rows are consumed
+        error =
+                status != SQLITE_OK && status != SQLITE_ROW && status != SQLITE_DONE
+                        ? db.newSQLException(status)
+                        : null;
+        cursor = -1;
+    }
+
+    /**
+     * @param minData The data size a pending row needs, if greater than the usual data size.
+     * @param shrink Whether to replace a buffer much larger than required with a smaller one.
+     */
+    private void ensureCapacity(int columns, int maxRows, int minData, boolean shrink) {
+        int fixed = (HEADER_SIZE + maxRows * columns + 7) & ~7;
+        int required = fixed + maxRows * columns * 8 + Math.max(dataSize, minData);
+        if (buffer == null
+                || buffer.capacity() < required
+                || (shrink && buffer.capacity() / 4 > required)) {
+            buffer = ByteBuffer.allocateDirect(required).order(ByteOrder.nativeOrder());
+        }
+        this.capacityRows = maxRows;
+        this.valuesOffset = fixed;
+    }
+
+    /** @return The capacity of the buffer holding the rows, in bytes. */
+    int capacity() {
+        return buffer == null ? 0 : buffer.capacity();
+    }
+
+    /**
+     * Moves to the next fetched row.
+     *
+     * @return False if all fetched rows have been consumed.
+     */
+    public boolean next() {
+        if (cursor + 1 >= rows) {
+            cursor = rows;
+            return false;
+        }
+        cursor++;
+        return true;
+    }
+
+    /**
+     * @return The result code the last fetch ended with: SQLITE_DONE at the end of the results, an
+     *     error code if stepping failed, otherwise more rows may follow.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The exception for the error code the last fetch ended with, with the message SQLite
+     *     gave at that time.
+     */
+    public SQLiteException getError() {
+        return error;
+    }
+
+    /** @return True if the statement has no more rows after the ones in this batch. */
+    public boolean isDone() {
+        return status == SQLITE_DONE;
+    }
+
+    /** Forgets the fetched rows; the buffer is kept for the next result set. */
+    public void clear() {
+        rows = 0;
+        cursor = -1;
+        status = SQLITE_OK;
+        error = null;
+    }
+
+    private int cell(int col) {
+        return col * capacityRows + cursor;
+    }
+
+    private long value(int col) {
+        return buffer.getLong(valuesOffset + cell(col) * 8);
+    }
+
+    /**
+     * @param col The column, in [0,x-1] form.
+     * @return The SQLITE_* datatype of the value in the current row.
+     */
+    public int type(int col) {
+        return buffer.get(HEADER_SIZE + cell(col));
+    }
+
+    /** @see DB#column_long(long, int) */
+    public long getLong(int col) {
+        switch (type(col)) {
+            case SQLITE_INTEGER:
+                return value(col);
+            case SQLITE_FLOAT:
+                return (long) Double.longBitsToDouble(value(col));
+            case SQLITE_TEXT:
+            case SQLITE_BLOB:
+                long v = value(col);
+                return parseLong((int) (v >>> 32), (int) v);
+            default:
+                return 0;
+        }
+    }
+
+    /** @see DB#column_int(long, int) */
+    public int getInt(int col) {
+        return (int) getLong(col);
+    }
+
+    /** @see DB#column_double(long, int) */
+    public double getDouble(int col) {
+        switch (type(col)) {
+            case SQLITE_INTEGER:
+                return value(col);
+            case SQLITE_FLOAT:
+                return Double.longBitsToDouble(value(col));
+            case SQLITE_TEXT:
+            case SQLITE_BLOB:
+                long v = value(col);
+                return parseDouble((int) (v >>> 32), (int) v);
+            default:
+                return 0;
+        }
+    }
+
+    /** @see DB#column_text(long, int) */
+    public String getString(DB db, int col) throws SQLException {
+        switch (type(col)) {
+            case SQLITE_INTEGER:
+                return Long.toString(value(col));
+            case SQLITE_FLOAT:
+                return db.real_to_text(Double.longBitsToDouble(value(col)));
+            case SQLITE_TEXT:
+            case SQLITE_BLOB:
+                return new String(bytes(value(col)), StandardCharsets.UTF_8);
+            default:
+                return null;
+        }
+    }
+
+    /** @see DB#column_blob(long, int) */
+    public byte[] getBytes(DB db, int col) throws SQLException {
+        switch (type(col)) {
+            case SQLITE_NULL:
+                return null;
+            case SQLITE_TEXT:
+            case SQLITE_BLOB:
+                return bytes(value(col));
+            default:
+                return getString(db, col).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /** @see DB#column_text(long, int, ByteBuffer) */
+    public int getText(DB db, int col, ByteBuffer dst) throws SQLException {
+        switch (type(col)) {
+            case SQLITE_NULL:
+                return -1;
+            case SQLITE_TEXT:
+            case SQLITE_BLOB:
+                long v = value(col);
+                int length = (int) v;
+                if (length <= dst.remaining()) {
+                    ByteBuffer view = buffer.duplicate();
+                    view.position((int) (v >>> 32)).limit((int) (v >>> 32) + length);
+                    dst.put(view);
+                }
+                return length;
+            default:
+                byte[] text = getString(db, col).getBytes(StandardCharsets.UTF_8);
+                if (text.length <= dst.remaining()) {
+                    dst.put(text);
+                }
+                return text.length;
+        }
+    }
+
+    private byte[] bytes(long offsetAndLength) {
+        byte[] bytes = new byte[(int) offsetAndLength];
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) (offsetAndLength >>> 32));
+        view.get(bytes);
+        return bytes;
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /** Integer prefix of text, clamped to the 64-bit range, as sqlite3Atoi64() reads it. */
+    private long parseLong(int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end && isSpace(buffer.get(i))) i++;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i++) == '-';
+        }
+        while (i < end && buffer.get(i) == '0') i++;
+
+        long u = 0;
+        int digits = 0;
+        for (; i < end && isDigit(buffer.get(i)); i++, digits++) {
+            u = u * 10 + (buffer.get(i) - '0');
+        }
+        if (digits > 19 || (digits == 19 && Long.compareUnsigned(u, Long.MAX_VALUE) > 0)) {
+            return negative ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return negative ? -u : u;
+    }
+
+    /** Longest numeric prefix of text, or 0.0 if there is none, as sqlite3AtoF() reads it. */
+    private double parseDouble(int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end && isSpace(buffer.get(i))) i++;
+        int start = i;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) i++;
+        int mantissa = 0;
+        while (i < end && isDigit(buffer.get(i))) {
+            i++;
+            mantissa++;
+        }
+        if (i < end && buffer.get(i) == '.') {
+            i++;
+            while (i < end && isDigit(buffer.get(i))) {
+                i++;
+                mantissa++;
+            }
+        }
+        if (mantissa == 0) {
+            return 0.0;
+        }
+        if (i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            int exponent = i + 1;
+            if (exponent < end && (buffer.get(exponent) == '-' || buffer.get(exponent) == '+')) {
+                exponent++;
+            }
+            if (exponent < end && isDigit(buffer.get(exponent))) {
+                i = exponent;
+                while (i < end && isDigit(buffer.get(i))) i++;
+            }
+        }
+
+        StringBuilder number = new StringBuilder(i - start);
+        for (int j = start; j < i; j++) {
+            number.append((char) buffer.get(j));
+        }
+        return Double.parseDouble(number.toString());
+    }
+}
@@ -1,6 +1,7 @@
 package org.sqlite.core;
 
 import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A class for safely wrapping calls to a native pointer to a statement, ensuring no other thread
@@ -9,7 +10,9 @@ import java.sql.SQLException;
 public class SafeStmtPtr {
     // store a reference to the DB, to lock it before any safe function is called. This avoids
     // deadlocking by locking the DB. All calls with the raw pointer are synchronized with the DB
-    // anyways, so making a separate lock would be pointless
+    // anyways, so making a separate lock would be pointless. A DB with a single owner thread is
+    // not locked, the calling thread is checked instead, and a DB with a ReentrantLock is guarded
+    // by that lock instead of its monitor
     private final DB db;
     private final long ptr;
 
@@ -49,9 +52,7 @@ public class SafeStmtPtr {
      *     elsewhere
      */
     public int close() throws SQLException {
-        synchronized (db) {
-            return internalClose();
-        }
+        return db.guarded(this::internalClose);
     }
 
     private int internalClose() throws SQLException {
@@ -71,6 +72,23 @@ public class SafeStmtPtr {
         }
     }
 
+    /**
+     * Hand the raw pointer over to a new wrapper without finalizing it. This wrapper behaves as
+     * closed afterwards, so whoever still holds it can no longer reach the statement.
+     *
+     * @return the new wrapper owning the raw pointer
+     * @throws SQLException if this pointer is already closed
+     */
+    SafeStmtPtr detach() throws SQLException {
+        return db.guarded(
+                () -> {
+                    this.ensureOpen();
+                    this.closed = true;
+                    this.closedRC = Codes.SQLITE_OK;
+                    return new SafeStmtPtr(db, ptr);
+                });
+    }
+
     /**
      * Run a callback with the wrapped pointer safely.
      *
@@ -79,6 +97,21 @@ public class SafeStmtPtr {
      * @throws SQLException if the pointer is utilized elsewhere
      */
     public <E extends Throwable> int safeRunInt(SafePtrIntFunction<E> run) throws SQLException, E {
+        if (db.singleOwner) {
+            db.checkOwner();
+            this.ensureOpen();
+            return run.run(db, ptr);
+        }
+        ReentrantLock lock = db.lock;
+        if (lock != null) {
+            lock.lock();
+            try {
+                this.ensureOpen();
+                return run.run(db, ptr);
+            } finally {
+                lock.unlock();
+            }
+        }
         synchronized (db) {
             this.ensureOpen();
             return run.run(db, ptr);
@@ -94,6 +127,21 @@ public class SafeStmtPtr {
      */
     public <E extends Throwable> long safeRunLong(SafePtrLongFunction<E> run)
             throws SQLException, E {
+        if (db.singleOwner) {
+            db.checkOwner();
+            this.ensureOpen();
+            return run.run(db, ptr);
+        }
+        ReentrantLock lock = db.lock;
+        if (lock != null) {
+            lock.lock();
+            try {
+                this.ensureOpen();
+                return run.run(db, ptr);
+            } finally {
+                lock.unlock();
+            }
+        }
         synchronized (db) {
             this.ensureOpen();
             return run.run(db, ptr);
@@ -109,6 +157,21 @@ public class SafeStmtPtr {
      */
     public <E extends Throwable> double safeRunDouble(SafePtrDoubleFunction<E> run)
             throws SQLException, E {
+        if (db.singleOwner) {
+            db.checkOwner();
+            this.ensureOpen();
+            return run.run(db, ptr);
+        }
+        ReentrantLock lock = db.lock;
+        if (lock != null) {
+            lock.lock();
+            try {
+                this.ensureOpen();
+                return run.run(db, ptr);
+            } finally {
+                lock.unlock();
+            }
+        }
         synchronized (db) {
             this.ensureOpen();
             return run.run(db, ptr);
@@ -123,6 +186,21 @@ public class SafeStmtPtr {
      * @throws SQLException if the pointer is utilized elsewhere
      */
     public <T, E extends Throwable> T safeRun(SafePtrFunction<T, E> run) throws SQLException, E {
+        if (db.singleOwner) {
+            db.checkOwner();
+            this.ensureOpen();
+            return run.run(db, ptr);
+        }
+        ReentrantLock lock = db.lock;
+        if (lock != null) {
+            lock.lock();
+            try {
+                this.ensureOpen();
+                return run.run(db, ptr);
+            } finally {
+                lock.unlock();
+            }
+        }
         synchronized (db) {
             this.ensureOpen();
             return run.run(db, ptr);
@@ -137,6 +215,23 @@ public class SafeStmtPtr {
      */
     public <E extends Throwable> void safeRunConsume(SafePtrConsumer<E> run)
             throws SQLException, E {
+        if (db.singleOwner) {
+            db.checkOwner();
+            this.ensureOpen();
+            run.run(db, ptr);
+            return;
+        }
+        ReentrantLock lock = db.lock;
+        if (lock != null) {
+            lock.lock();
+            try {
+                this.ensureOpen();
+                run.run(db, ptr);
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
         synchronized (db) {
             this.ensureOpen();
             run.run(db, ptr);
@@ -0,0 +1,157 @@
+package org.sqlite.core;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A per-connection LRU cache of prepared statements keyed by their SQL text.
+ *
+ * <p>Statements are parked here when a {@link CorePreparedStatement} backed by a cacheable SQL
+ * string is closed, and taken out again when a statement with the same SQL is prepared on the same
+ * connection. A parked statement is reset and has its bindings cleared, so it can be reused as if
+ * it had been freshly prepared, including the column metadata that would otherwise be fetched
+ * through JNI. A statement prepared under another schema version is finalized instead of being
+ * reused, as its column metadata may be stale.
+ *
+ * <p>All mutating methods must be called while holding the lock of the owning {@link DB}. The
+ * entries are also guarded by the lock of this cache, so that it can be inspected from any thread.
+ */
+public final class StatementCache {
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    StatementCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Removes the cached statement for the given SQL, if any. The caller becomes the exclusive
+     * owner of the returned statement.
+     *
+     * @param sql The SQL text.
+     * @param db The database, whose schema version is read when there is a cached statement.
+     * @return The cached entry, or null if there is none or it was prepared under another schema
+     *     version, in which case it is finalized.
+     * @throws SQLException if reading the schema version or finalizing the statement fails
+     */
+    Entry take(String sql, DB db) throws SQLException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.remove(sql);
+        }
+        if (entry != null && entry.schemaVersion != db.schemaVersion()) {
+            entry.pointer.close();
+            entry = null;
+        }
+        synchronized (this) {
+            if (entry == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Parks a statement in the cache, finalizing any statement it replaces as well as the least
+     * recently used statement when the cache is full.
+     *
+     * @param sql The SQL text.
+     * @param entry The statement to park.
+     * @throws SQLException if finalizing a displaced statement fails
+     */
+    void put(String sql, Entry entry) throws SQLException {
+        Entry previous;
+        Entry evicted = null;
+        synchronized (this) {
+            previous = entries.put(sql, entry);
+            if (entries.size() > capacity) {
+                Iterator<Entry> eldest = entries.values().iterator();
+                evicted = eldest.next();
+                eldest.remove();
+                evictions++;
+            }
+        }
+        // finalized outside the lock of this cache, which is not held while locking the database
+        if (previous != null) {
+            previous.pointer.close();
+        }
+        if (evicted != null) {
+            evicted.pointer.close();
+        }
+    }
+
+    /** Drops all entries without finalizing them; used when the database is being closed. */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    /** @return The maximum number of statements kept by this cache. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** @return The number of statements currently parked in this cache. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** @return The number of prepares that were served from this cache. */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /** @return The number of prepares that had to compile the SQL. */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /** @return The number of statements finalized because the cache was full. */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StatementCache[capacity="
+                + capacity
+                + ", size="
+                + size()
+                + ", hits="
+                + hits
+                + ", misses="
+                + misses
+                + ", evictions="
+                + evictions
+                + "]";
+    }
+
+    /** A parked statement together with the metadata read when it was first prepared. */
+    static final class Entry {
+        final SafeStmtPtr pointer;
+        final String[] colsMeta;
+        final int columnCount;
+        final int paramCount;
+        final int schemaVersion;
+
+        Entry(
+                SafeStmtPtr pointer,
+                String[] colsMeta,
+                int columnCount,
+                int paramCount,
+                int schemaVersion) {
+            this.pointer = pointer;
+            this.colsMeta = colsMeta;
+            this.columnCount = columnCount;
+            this.paramCount = paramCount;
+            this.schemaVersion = schemaVersion;
+        }
+    }
+}
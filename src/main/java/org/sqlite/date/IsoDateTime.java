@@ -0,0 +1,345 @@
+package org.sqlite.date;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * A parser and formatter of ISO-8601 date/time text working on UTF-8 bytes, so that reading a date
+ * does not create a String, a Calendar or a ParsePosition as {@link FastDateFormat} does.
+ *
+ * <p>The parser accepts <code>yyyy-MM-dd[( |T)HH:mm[:ss[.f]]][Z|&plusmn;HH[[:]mm]]</code> with 1 to
+ * 9 fraction digits, which covers the layouts written by this driver and by the SQLite date and
+ * time functions. A parser is reused for each value and is not thread safe.
+ */
+public final class IsoDateTime {
+    /** The longest text the parser accepts: <code>yyyy-MM-ddTHH:mm:ss.SSSSSSSSS+HH:mm</code>. */
+    public static final int MAX_LENGTH = 35;
+
+    /**
+     * The first year from which the proleptic calendar of java.time and the default {@link
+     * java.util.GregorianCalendar} of {@link FastDateFormat} agree.
+     */
+    private static final int FIRST_GREGORIAN_YEAR = 1583;
+
+    private static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    private static final long DAY_MILLIS = 86400000L;
+
+    private int year;
+    private int month;
+    private int day;
+    private int hour;
+    private int minute;
+    private int second;
+    private int nano;
+    private int offsetSeconds;
+    private boolean defaultLayout;
+
+    /**
+     * Parses ISO-8601 text.
+     *
+     * @param text The UTF-8 bytes.
+     * @param off The offset of the text.
+     * @param len The length of the text.
+     * @return True if the text is a valid date/time, in which case the getters and conversions of
+     *     this parser return its value; false otherwise.
+     */
+    public boolean parse(byte[] text, int off, int len) {
+        if (len < 10 || len > MAX_LENGTH) {
+            return false;
+        }
+        int end = off + len;
+        year = digits(text, off, 4);
+        month = digits(text, off + 5, 2);
+        day = digits(text, off + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return false;
+        }
+        if (text[off + 4] != '-' || text[off + 7] != '-') {
+            return false;
+        }
+        hour = 0;
+        minute = 0;
+        second = 0;
+        nano = 0;
+        offsetSeconds = NO_OFFSET;
+        defaultLayout = false;
+
+        int pos = off + 10;
+        if (pos == end) {
+            return true;
+        }
+        if (text[pos] == ' ' || text[pos] == 'T') {
+            if (end - pos < 6 || text[pos + 3] != ':') {
+                return false;
+            }
+            hour = digits(text, pos + 1, 2);
+            minute = digits(text, pos + 4, 2);
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+                return false;
+            }
+            pos += 6;
+            if (pos < end && text[pos] == ':') {
+                if (end - pos < 3) {
+                    return false;
+                }
+                second = digits(text, pos + 1, 2);
+                if (second < 0 || second > 59) {
+                    return false;
+                }
+                pos += 3;
+                if (pos < end && text[pos] == '.') {
+                    int start = ++pos;
+                    while (pos < end && pos - start < 9 && isDigit(text[pos])) {
+                        nano = nano * 10 + (text[pos++] - '0');
+                    }
+                    int fractionDigits = pos - start;
+                    if (fractionDigits == 0) {
+                        return false;
+                    }
+                    for (int i = fractionDigits; i < 9; i++) {
+                        nano *= 10;
+                    }
+                    defaultLayout = fractionDigits == 3 && text[off + 10] == ' ';
+                }
+            }
+        }
+        if (pos < end) {
+            defaultLayout = false;
+            return parseOffset(text, pos, end);
+        }
+        return true;
+    }
+
+    private boolean parseOffset(byte[] text, int pos, int end) {
+        if (text[pos] == 'Z' || text[pos] == 'z') {
+            offsetSeconds = 0;
+            return pos + 1 == end;
+        }
+        if (text[pos] != '+' && text[pos] != '-') {
+            return false;
+        }
+        int sign = text[pos] == '-' ? -1 : 1;
+        int hours = end - pos >= 3 ? digits(text, pos + 1, 2) : -1;
+        int minutes = 0;
+        switch (end - pos) {
+            case 3: // +HH
+                break;
+            case 5: // +HHmm
+                minutes = digits(text, pos + 3, 2);
+                break;
+            case 6: // +HH:mm
+                minutes = text[pos + 3] == ':' ? digits(text, pos + 4, 2) : -1;
+                break;
+            default:
+                return false;
+        }
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+            return false;
+        }
+        offsetSeconds = sign * (hours * 3600 + minutes * 60);
+        return true;
+    }
+
+    /**
+     * @return True if the last parsed text is exactly in the layout of {@link
+     *     org.sqlite.SQLiteConfig#DEFAULT_DATE_STRING_FORMAT} and in a year where {@link
+     *     #toEpochMillis(TimeZone)} gives the same instant as parsing it with {@link
+     *     FastDateFormat}.
+     */
+    public boolean isDefaultLayout() {
+        return defaultLayout && year >= FIRST_GREGORIAN_YEAR;
+    }
+
+    /** @return True if the last parsed text has a zone offset. */
+    public boolean hasOffset() {
+        return offsetSeconds != NO_OFFSET;
+    }
+
+    /** @return The date and time of the last parsed text, ignoring its zone offset. */
+    public LocalDateTime toLocalDateTime() {
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    /**
+     * @param zone The zone of a text without a zone offset.
+     * @return The instant of the last parsed text.
+     */
+    public Instant toInstant(TimeZone zone) {
+        long millis = toEpochMillis(zone);
+        return Instant.ofEpochSecond(
+                Math.floorDiv(millis, 1000),
+                Math.floorMod(millis, 1000) * 1_000_000 + nano % 1_000_000);
+    }
+
+    /**
+     * @param zone The zone of a text without a zone offset.
+     * @return The last parsed text with its zone offset, or with the offset of the given zone.
+     */
+    public OffsetDateTime toOffsetDateTime(TimeZone zone) {
+        long local = localEpochMillis();
+        return OffsetDateTime.of(
+                year,
+                month,
+                day,
+                hour,
+                minute,
+                second,
+                nano,
+                ZoneOffset.ofTotalSeconds((int) ((local - toEpochMillis(zone, local)) / 1000)));
+    }
+
+    /**
+     * @param zone The zone of a text without a zone offset.
+     * @return The milliseconds since the epoch of the last parsed text.
+     */
+    public long toEpochMillis(TimeZone zone) {
+        return toEpochMillis(zone, localEpochMillis());
+    }
+
+    private long toEpochMillis(TimeZone zone, long local) {
+        if (offsetSeconds != NO_OFFSET) {
+            return local - offsetSeconds * 1000L;
+        }
+        return localToEpochMillis(local, zone);
+    }
+
+    /**
+     * Resolves a local time like a {@link GregorianCalendar} of the proleptic Gregorian calendar,
+     * whose time zone rules can differ from java.time. The offset is only computed here when the
+     * zone has no transition within a day of the local time; times near a transition, whether a
+     * gap, an overlap or a change of the raw offset, are resolved by the calendar itself.
+     *
+     * @param local The local date and time as milliseconds since 1970-01-01T00:00.
+     * @param zone The time zone.
+     * @return The milliseconds since the epoch.
+     */
+    public static long localToEpochMillis(long local, TimeZone zone) {
+        int offset = zone.getOffset(local - zone.getRawOffset());
+        long millis = local - offset;
+        if (zone.getOffset(millis) == offset
+                && zone.getOffset(millis - DAY_MILLIS) == offset
+                && zone.getOffset(millis + DAY_MILLIS) == offset) {
+            return millis;
+        }
+        LocalDateTime fields =
+                LocalDateTime.ofEpochSecond(Math.floorDiv(local, 1000), 0, ZoneOffset.UTC);
+        GregorianCalendar calendar = new GregorianCalendar(zone);
+        calendar.setGregorianChange(new Date(Long.MIN_VALUE));
+        calendar.clear();
+        calendar.set(
+                fields.getYear(),
+                fields.getMonthValue() - 1,
+                fields.getDayOfMonth(),
+                fields.getHour(),
+                fields.getMinute(),
+                fields.getSecond());
+        calendar.set(Calendar.MILLISECOND, (int) Math.floorMod(local, 1000L));
+        return calendar.getTimeInMillis();
+    }
+
+    private long localEpochMillis() {
+        long seconds = epochDay(year, month, day) * 86400 + hour * 3600 + minute * 60 + second;
+        return seconds * 1000 + nano / 1_000_000;
+    }
+
+    /**
+     * Formats an instant in the layout of {@link
+     * org.sqlite.SQLiteConfig#DEFAULT_DATE_STRING_FORMAT}.
+     *
+     * @param millis The milliseconds since the epoch.
+     * @param zone The time zone.
+     * @return The text, or null if the year is one where the result could differ from {@link
+     *     FastDateFormat}.
+     */
+    public static String format(long millis, TimeZone zone) {
+        long local = millis + zone.getOffset(millis);
+        long days = Math.floorDiv(local, 86400000L);
+        int msOfDay = (int) Math.floorMod(local, 86400000L);
+
+        // civil date from days since the epoch,
+        // see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int d = doy - (153 * mp + 2) / 5 + 1;
+        int m = mp < 10 ? mp + 3 : mp - 9;
+        long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+        if (y < FIRST_GREGORIAN_YEAR || y > 9999) {
+            return null;
+        }
+
+        char[] buf = new char[23];
+        put(buf, 0, (int) y, 4);
+        buf[4] = '-';
+        put(buf, 5, m, 2);
+        buf[7] = '-';
+        put(buf, 8, d, 2);
+        buf[10] = ' ';
+        put(buf, 11, msOfDay / 3600000, 2);
+        buf[13] = ':';
+        put(buf, 14, msOfDay / 60000 % 60, 2);
+        buf[16] = ':';
+        put(buf, 17, msOfDay / 1000 % 60, 2);
+        buf[19] = '.';
+        put(buf, 20, msOfDay % 1000, 3);
+        return new String(buf);
+    }
+
+    private static void put(char[] buf, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /** @return The value of the given number of ASCII digits, or -1 if they are not digits. */
+    private static int digits(byte[] text, int pos, int count) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            if (!isDigit(text[i])) {
+                return -1;
+            }
+            value = value * 10 + (text[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /** @return The days since 1970-01-01 of a date in the proleptic Gregorian calendar. */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+}
@@ -0,0 +1,593 @@
+/*--------------------------------------------------------------------------
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *--------------------------------------------------------------------------*/
+package org.sqlite.javax;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import org.sqlite.SQLiteConnection;
+
+/**
+ * The logical connection handed out by {@link SQLitePooledConnection#getConnection()}. Calls are
+ * delegated directly to the physical connection, except {@link #close()}, which resets the physical
+ * connection and notifies the pool instead of closing it.
+ */
+class SQLitePooledConnectionHandle implements Connection {
+    /** The pooled connection this handle uses, may be set after construction by subclasses. */
+    SQLitePooledConnection parent;
+
+    volatile boolean isClosed;
+
+    SQLitePooledConnectionHandle(SQLitePooledConnection parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * @return The physical connection to delegate to.
+     * @throws SQLException if this handle is closed
+     */
+    SQLiteConnection physical() throws SQLException {
+        SQLiteConnection conn = isClosed ? null : parent.getPhysicalConn();
+        if (conn == null) {
+            throw new SQLException("Connection is closed");
+        }
+        return conn;
+    }
+
+    /** Notifies the listeners of the pooled connection if the physical connection is gone. */
+    SQLException error(SQLException e) {
+        if ("database connection closed".equals(e.getMessage())) {
+            parent.fireConnectionErrorOccurred(e);
+        }
+        return e;
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        try {
+            return physical().createStatement();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        try {
+            return physical().prepareStatement(sql);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        try {
+            return physical().prepareCall(sql);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        try {
+            return physical().nativeSQL(sql);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        try {
+            physical().setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        try {
+            return physical().getAutoCommit();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        try {
+            physical().commit();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        try {
+            physical().rollback();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    /**
+     * Rolls back the open transaction and restores auto-commit, then returns the physical
+     * connection to the pool. The physical connection stays open.
+     */
+    @Override
+    public void close() throws SQLException {
+        // a handle may be closed twice: once by the client and again by getConnection() when
+        // the pooled connection is reused. only reset the physical connection once.
+        if (isClosed) {
+            return;
+        }
+        try {
+            // reset the physical connection and mark this handle closed before notifying
+            // listeners, so the pool cannot hand the connection to another thread while the
+            // rollback/setAutoCommit is still running
+            SQLiteConnection conn = physical();
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+            }
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+        isClosed = true;
+        parent.fireConnectionClosed();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        if (!isClosed) {
+            SQLiteConnection conn = parent.getPhysicalConn();
+            isClosed = conn == null || conn.isClosed();
+        }
+        return isClosed;
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        try {
+            return physical().getMetaData();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        try {
+            physical().setReadOnly(readOnly);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        try {
+            return physical().isReadOnly();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        try {
+            physical().setCatalog(catalog);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        try {
+            return physical().getCatalog();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        try {
+            physical().setTransactionIsolation(level);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        try {
+            return physical().getTransactionIsolation();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        try {
+            return physical().getWarnings();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        try {
+            physical().clearWarnings();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        try {
+            return physical().createStatement(resultSetType, resultSetConcurrency);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(
+            String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        try {
+            return physical().prepareStatement(sql, resultSetType, resultSetConcurrency);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        try {
+            return physical().prepareCall(sql, resultSetType, resultSetConcurrency);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        try {
+            return physical().getTypeMap();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        try {
+            physical().setTypeMap(map);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        try {
+            physical().setHoldability(holdability);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        try {
+            return physical().getHoldability();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        try {
+            return physical().setSavepoint();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        try {
+            return physical().setSavepoint(name);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        try {
+            physical().rollback(savepoint);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        try {
+            physical().releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public Statement createStatement(
+            int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+            throws SQLException {
+        try {
+            return physical()
+                    .createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(
+            String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+            throws SQLException {
+        try {
+            return physical()
+                    .prepareStatement(
+                            sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public CallableStatement prepareCall(
+            String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+            throws SQLException {
+        try {
+            return physical()
+                    .prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys)
+            throws SQLException {
+        try {
+            return physical().prepareStatement(sql, autoGeneratedKeys);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        try {
+            return physical().prepareStatement(sql, columnIndexes);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames)
+            throws SQLException {
+        try {
+            return physical().prepareStatement(sql, columnNames);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        try {
+            return physical().createClob();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        try {
+            return physical().createBlob();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        try {
+            return physical().createNClob();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        try {
+            return physical().createSQLXML();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        try {
+            return physical().isValid(timeout);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        try {
+            physical().setClientInfo(name, value);
+        } catch (SQLClientInfoException e) {
+            throw e;
+        } catch (SQLException e) {
+            throw new SQLClientInfoException(e.getMessage(), null, error(e));
+        }
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        try {
+            physical().setClientInfo(properties);
+        } catch (SQLClientInfoException e) {
+            throw e;
+        } catch (SQLException e) {
+            throw new SQLClientInfoException(e.getMessage(), null, error(e));
+        }
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        try {
+            return physical().getClientInfo(name);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        try {
+            return physical().getClientInfo();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        try {
+            return physical().createArrayOf(typeName, elements);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        try {
+            return physical().createStruct(typeName, attributes);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        try {
+            physical().setSchema(schema);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        try {
+            return physical().getSchema();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        try {
+            physical().abort(executor);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        try {
+            physical().setNetworkTimeout(executor, milliseconds);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        try {
+            return physical().getNetworkTimeout();
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        try {
+            return physical().unwrap(iface);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        try {
+            return physical().isWrapperFor(iface);
+        } catch (SQLException e) {
+            throw error(e);
+        }
+    }
+}
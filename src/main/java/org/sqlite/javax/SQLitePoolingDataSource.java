@@ -0,0 +1,544 @@
+/*--------------------------------------------------------------------------
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *--------------------------------------------------------------------------*/
+package org.sqlite.javax;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import org.sqlite.JDBC;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteOpenMode;
+
+/**
+ * A {@link DataSource} pooling the connections to one database file in the topology WAL mode works
+ * best with: a single writer connection, and a bounded set of reader connections opened with {@link
+ * SQLiteOpenMode#READONLY}.
+ *
+ * <p>A connection returned by {@link #getConnection()} is bound to a physical connection on its
+ * first use: to a reader if {@link Connection#setReadOnly(boolean) setReadOnly(true)} was called
+ * before, otherwise to the writer. {@link #getReadOnlyConnection()} borrows a reader right away.
+ * Threads waiting for the writer are served in arrival order, so they queue in the pool instead of
+ * retrying on SQLITE_BUSY, while readers run concurrently with the writer and with each other.
+ * Closing a connection rolls back its open transaction and returns the physical connection to the
+ * pool.
+ *
+ * <p>The database should use WAL journal mode (see {@link SQLiteConfig#setJournalMode}), in other
+ * journal modes readers block the writer. The writer is opened first, so the journal mode is set
+ * before any reader connects. In-memory databases are not shared between connections and cannot be
+ * pooled this way.
+ *
+ * <pre>
+ * SQLiteConfig config = new SQLiteConfig();
+ * config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+ * try (SQLitePoolingDataSource ds = new SQLitePoolingDataSource("jdbc:sqlite:app.db", config)) {
+ *     ds.setMaxReaders(8);
+ *     try (Connection conn = ds.getConnection()) {
+ *         conn.setReadOnly(true);
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+public class SQLitePoolingDataSource implements DataSource, AutoCloseable {
+    private final String url;
+    private final SQLiteConfig config;
+
+    private int maxReaders = 4;
+    private long connectionTimeout = 30_000;
+    private transient PrintWriter logger;
+    private int loginTimeout = 1;
+
+    private volatile Role writer;
+    private volatile Role readers;
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool for a database with the default configuration.
+     *
+     * @param url The database URL, for example <code>jdbc:sqlite:app.db</code>.
+     */
+    public SQLitePoolingDataSource(String url) {
+        this(url, new SQLiteConfig());
+    }
+
+    /**
+     * Creates a pool for a database.
+     *
+     * @param url The database URL, for example <code>jdbc:sqlite:app.db</code>.
+     * @param config The configuration of the connections. Readers use a copy opened read-only.
+     */
+    public SQLitePoolingDataSource(String url, SQLiteConfig config) {
+        this.url = url;
+        this.config = config;
+    }
+
+    /** @return The database URL. */
+    public String getUrl() {
+        return url;
+    }
+
+    /** @return The configuration of the connections. */
+    public SQLiteConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Sets the number of reader connections. Must be called before the first connection is
+     * borrowed.
+     *
+     * @param maxReaders The maximum number of reader connections; defaults to 4.
+     */
+    public void setMaxReaders(int maxReaders) {
+        if (maxReaders < 1) {
+            throw new IllegalArgumentException("maxReaders must be positive: " + maxReaders);
+        }
+        if (writer != null) {
+            throw new IllegalStateException("The pool is already started");
+        }
+        this.maxReaders = maxReaders;
+    }
+
+    /** @return The maximum number of reader connections. */
+    public int getMaxReaders() {
+        return maxReaders;
+    }
+
+    /**
+     * Sets how long borrowing a connection may wait for one to become available.
+     *
+     * @param milliseconds The timeout; defaults to 30 seconds.
+     */
+    public void setConnectionTimeout(long milliseconds) {
+        this.connectionTimeout = milliseconds;
+    }
+
+    /** @return How long borrowing a connection may wait, in milliseconds. */
+    public long getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    /** @return The metrics of the writer connection. */
+    public Metrics getWriterMetrics() {
+        Role role = writer;
+        return role == null ? new Metrics(1) : role.metrics();
+    }
+
+    /** @return The metrics of the reader connections. */
+    public Metrics getReaderMetrics() {
+        Role role = readers;
+        return role == null ? new Metrics(maxReaders) : role.metrics();
+    }
+
+    /**
+     * Returns a connection that is bound to the writer, or to a reader if it is set read-only
+     * before its first use.
+     *
+     * @see javax.sql.DataSource#getConnection()
+     */
+    public Connection getConnection() throws SQLException {
+        start();
+        return new Handle(false);
+    }
+
+    /**
+     * SQLite has no users; the credentials are ignored.
+     *
+     * @see javax.sql.DataSource#getConnection(java.lang.String, java.lang.String)
+     */
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Borrows a reader connection.
+     *
+     * @return A read-only connection.
+     * @throws SQLException if no reader becomes available within the connection timeout
+     */
+    public Connection getReadOnlyConnection() throws SQLException {
+        start();
+        Connection conn = new Handle(true);
+        // borrow now, so that waiting happens here rather than at the first statement
+        conn.getAutoCommit();
+        return conn;
+    }
+
+    /**
+     * Closes the idle connections. Connections still borrowed are closed when they are returned.
+     */
+    public void close() throws SQLException {
+        closed = true;
+        if (writer != null) writer.closeIdle();
+        if (readers != null) readers.closeIdle();
+    }
+
+    /** @return True if the pool is closed. */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void start() throws SQLException {
+        if (closed) {
+            throw new SQLException("Data source is closed");
+        }
+        if (writer == null) {
+            open();
+        }
+    }
+
+    private synchronized void open() throws SQLException {
+        if (writer != null) {
+            return;
+        }
+        Properties prop = new Properties();
+        prop.putAll(config.toProperties());
+        SQLiteConfig readerConfig = new SQLiteConfig(prop);
+        readerConfig.setReadOnly(true);
+
+        Role role = new Role(config, 1);
+        // open the writer before any reader, so that the journal mode is set first
+        role.idle.push(role.open());
+        readers = new Role(readerConfig, maxReaders);
+        writer = role;
+    }
+
+    /** @see javax.sql.DataSource#getLogWriter() */
+    public PrintWriter getLogWriter() throws SQLException {
+        return logger;
+    }
+
+    /** @see javax.sql.DataSource#getLoginTimeout() */
+    public int getLoginTimeout() throws SQLException {
+        return loginTimeout;
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("getParentLogger");
+    }
+
+    /** @see javax.sql.DataSource#setLogWriter(java.io.PrintWriter) */
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.logger = out;
+    }
+
+    /** @see javax.sql.DataSource#setLoginTimeout(int) */
+    public void setLoginTimeout(int seconds) throws SQLException {
+        loginTimeout = seconds;
+    }
+
+    /**
+     * Determines if this object wraps a given class.
+     *
+     * @param iface The class to check.
+     * @return True if it is an instance of the current class; false otherwise.
+     * @throws SQLException
+     */
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Casts this object to the given class.
+     *
+     * @param iface The class to cast to.
+     * @return The casted class.
+     * @throws SQLException
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return (T) this;
+    }
+
+    /** Physical connections of one kind, the permits to borrow them, and their statistics. */
+    private final class Role {
+        private final SQLiteConfig config;
+        private final int capacity;
+        /** fair, so that waiting threads are served in arrival order */
+        private final Semaphore permits;
+        /** most recently returned first, its page cache is the warmest */
+        private final ConcurrentLinkedDeque<SQLitePooledConnection> idle =
+                new ConcurrentLinkedDeque<>();
+
+        private final long createdAt = System.nanoTime();
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder borrows = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final LongAdder busyNanos = new LongAdder();
+
+        Role(SQLiteConfig config, int capacity) {
+            this.config = config;
+            this.capacity = capacity;
+            this.permits = new Semaphore(capacity, true);
+        }
+
+        SQLitePooledConnection open() throws SQLException {
+            SQLiteConnection conn = JDBC.createConnection(url, config.toProperties());
+            return new SQLitePooledConnection(conn);
+        }
+
+        SQLitePooledConnection borrow() throws SQLException {
+            long start = System.nanoTime();
+            try {
+                if (!permits.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS)) {
+                    timeouts.increment();
+                    throw new SQLException(
+                            "Timed out after "
+                                    + connectionTimeout
+                                    + " ms waiting for a "
+                                    + (this == writer ? "writer" : "reader")
+                                    + " connection");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            long waited = System.nanoTime() - start;
+            borrows.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+            SQLitePooledConnection pooled = idle.pollFirst();
+            if (pooled == null || closed) {
+                try {
+                    if (closed) {
+                        throw new SQLException("Data source is closed");
+                    }
+                    pooled = open();
+                } catch (SQLException | RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+            active.incrementAndGet();
+            return pooled;
+        }
+
+        void giveBack(SQLitePooledConnection pooled, long busy, boolean broken) {
+            busyNanos.add(busy);
+            active.decrementAndGet();
+            if (broken || closed) {
+                closeQuietly(pooled);
+            } else {
+                idle.push(pooled);
+                // the pool may have been closed while pushing
+                if (closed && idle.remove(pooled)) {
+                    closeQuietly(pooled);
+                }
+            }
+            permits.release();
+        }
+
+        void closeIdle() {
+            SQLitePooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                closeQuietly(pooled);
+            }
+        }
+
+        private void closeQuietly(SQLitePooledConnection pooled) {
+            try {
+                pooled.close();
+            } catch (SQLException e) {
+                // nothing to do, the connection is discarded
+            }
+        }
+
+        Metrics metrics() {
+            Metrics m = new Metrics(capacity);
+            m.active = active.get();
+            m.idle = idle.size();
+            m.borrows = borrows.sum();
+            m.timeouts = timeouts.sum();
+            m.waitNanos = waitNanos.sum();
+            m.maxWaitNanos = maxWaitNanos.get();
+            m.busyNanos = busyNanos.sum();
+            m.elapsedNanos = System.nanoTime() - createdAt;
+            return m;
+        }
+    }
+
+    /**
+     * Connection handle given to the client. It borrows a physical connection on first use and
+     * returns it when closed.
+     */
+    private final class Handle extends SQLitePooledConnectionHandle {
+        private boolean readOnly;
+        private Role role;
+        private long borrowedAt;
+
+        Handle(boolean readOnly) {
+            super(null);
+            this.readOnly = readOnly;
+        }
+
+        @Override
+        SQLiteConnection physical() throws SQLException {
+            if (parent == null && !isClosed) {
+                // route the connection by the read-only flag set before it is used
+                role = readOnly ? readers : writer;
+                parent = role.borrow();
+                parent.getPhysicalConn().transferOwnership();
+                borrowedAt = System.nanoTime();
+            }
+            return super.physical();
+        }
+
+        @Override
+        public void setReadOnly(boolean readOnly) throws SQLException {
+            if (parent == null && !isClosed) {
+                this.readOnly = readOnly;
+            } else {
+                super.setReadOnly(readOnly);
+            }
+        }
+
+        @Override
+        public boolean isReadOnly() throws SQLException {
+            return parent == null && !isClosed ? readOnly : super.isReadOnly();
+        }
+
+        @Override
+        public boolean isClosed() throws SQLException {
+            return parent == null ? isClosed : super.isClosed();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (isClosed) {
+                return;
+            }
+            if (parent == null) {
+                isClosed = true;
+                return;
+            }
+            boolean broken = true;
+            try {
+                SQLiteConnection conn = parent.getPhysicalConn();
+                if (conn != null && !conn.isClosed()) {
+                    // rolls back an open transaction and restores auto-commit
+                    super.close();
+                    broken = false;
+                }
+            } finally {
+                isClosed = true;
+                role.giveBack(parent, System.nanoTime() - borrowedAt, broken);
+                parent = null;
+            }
+        }
+    }
+
+    /** A snapshot of the usage of the writer or of the reader connections. */
+    public static final class Metrics {
+        private final int capacity;
+        private int active;
+        private int idle;
+        private long borrows;
+        private long timeouts;
+        private long waitNanos;
+        private long maxWaitNanos;
+        private long busyNanos;
+        private long elapsedNanos;
+
+        Metrics(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /** @return The maximum number of connections. */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /** @return The number of connections borrowed now. */
+        public int getActiveCount() {
+            return active;
+        }
+
+        /** @return The number of open connections waiting to be borrowed. */
+        public int getIdleCount() {
+            return idle;
+        }
+
+        /** @return The number of successful borrows. */
+        public long getBorrowCount() {
+            return borrows;
+        }
+
+        /** @return The number of borrows that timed out. */
+        public long getTimeoutCount() {
+            return timeouts;
+        }
+
+        /** @return The total time successful borrows waited for a connection, in nanoseconds. */
+        public long getTotalWaitNanos() {
+            return waitNanos;
+        }
+
+        /** @return The longest time a borrow waited for a connection, in nanoseconds. */
+        public long getMaxWaitNanos() {
+            return maxWaitNanos;
+        }
+
+        /** @return The average time a borrow waited for a connection, in nanoseconds. */
+        public long getAverageWaitNanos() {
+            return borrows == 0 ? 0 : waitNanos / borrows;
+        }
+
+        /** @return The total time connections were borrowed, in nanoseconds. */
+        public long getBusyNanos() {
+            return busyNanos;
+        }
+
+        /**
+         * @return The fraction of the connection capacity that was borrowed since the pool was
+         *     started, from 0 to 1. Connections borrowed now count when they are returned.
+         */
+        public double getUtilization() {
+            return elapsedNanos == 0 ? 0 : (double) busyNanos / elapsedNanos / capacity;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics[capacity="
+                    + capacity
+                    + ", active="
+                    + active
+                    + ", idle="
+                    + idle
+                    + ", borrows="
+                    + borrows
+                    + ", timeouts="
+                    + timeouts
+                    + ", averageWaitNanos="
+                    + getAverageWaitNanos()
+                    + ", maxWaitNanos="
+                    + maxWaitNanos
+                    + ", utilization="
+                    + getUtilization()
+                    + "]";
+        }
+    }
+}
@@ -3,9 +3,13 @@ package org.sqlite.jdbc3;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
-import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.Clob;
@@ -20,9 +24,12 @@ import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
-import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import org.sqlite.SQLiteColumnarBatch;
 import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteLimits;
 import org.sqlite.core.CorePreparedStatement;
 import org.sqlite.core.DB;
 import org.sqlite.util.AndroidSignatureIgnore;
@@ -37,7 +44,7 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
     public void clearParameters() throws SQLException {
         checkOpen();
         pointer.safeRunConsume(DB::clear_bindings);
-        if (batch != null) for (int i = batchPos; i < batchPos + paramCount; i++) batch[i] = null;
+        if (parameters != null) parameters.clearRow();
     }
 
     /** @see java.sql.PreparedStatement#execute() */
@@ -55,13 +62,19 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
                 () -> {
                     boolean success = false;
                     try {
-                        synchronized (conn) {
-                            resultsWaiting =
-                                    conn.getDatabase().execute(JDBC3PreparedStatement.this, batch);
-                            updateGeneratedKeys();
-                            success = true;
-                            updateCount = getDatabase().changes();
-                        }
+                        conn.getDatabase()
+                                .guarded(
+                                        () -> {
+                                            resultsWaiting =
+                                                    conn.getDatabase()
+                                                            .execute(
+                                                                    JDBC3PreparedStatement.this,
+                                                                    parameters);
+                                            updateGeneratedKeys();
+                                            updateCount = getDatabase().changes();
+                                            return null;
+                                        });
+                        success = true;
                         return 0 != columnCount;
                     } finally {
                         if (!success && !pointer.isClosed()) pointer.safeRunConsume(DB::reset);
@@ -90,7 +103,7 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
                     boolean success = false;
                     try {
                         resultsWaiting =
-                                conn.getDatabase().execute(JDBC3PreparedStatement.this, batch);
+                                conn.getDatabase().execute(JDBC3PreparedStatement.this, parameters);
                         success = true;
                     } finally {
                         if (!success && !pointer.isClosed()) {
@@ -124,30 +137,23 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
 
         return this.withConnectionTimeout(
                 () -> {
-                    synchronized (conn) {
-                        long rc =
-                                conn.getDatabase()
-                                        .executeUpdate(JDBC3PreparedStatement.this, batch);
-                        updateGeneratedKeys();
-                        return rc;
-                    }
+                    return conn.getDatabase()
+                            .guarded(
+                                    () -> {
+                                        long rc =
+                                                conn.getDatabase()
+                                                        .executeUpdate(
+                                                                JDBC3PreparedStatement.this,
+                                                                parameters);
+                                        updateGeneratedKeys();
+                                        return rc;
+                                    });
                 });
     }
 
     /** @see java.sql.PreparedStatement#addBatch() */
     public void addBatch() throws SQLException {
-        checkOpen();
-        batchPos += paramCount;
-        batchQueryCount++;
-        if (batch == null) {
-            batch = new Object[paramCount];
-        }
-        if (batchPos + paramCount > batch.length) {
-            Object[] nb = new Object[batch.length * 2];
-            System.arraycopy(batch, 0, nb, 0, batch.length);
-            batch = nb;
-        }
-        System.arraycopy(batch, batchPos - paramCount, batch, batchPos, paramCount);
+        parameters().addRow();
     }
 
     // ParameterMetaData FUNCTIONS //////////////////////////////////
@@ -179,21 +185,7 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
     /** @see java.sql.ParameterMetaData#getParameterType(int) */
     public int getParameterType(int pos) throws SQLException {
         checkIndex(pos);
-        Object paramValue = batch[pos - 1];
-
-        if (paramValue == null) {
-            return Types.NULL;
-        } else if (paramValue instanceof Integer
-                || paramValue instanceof Short
-                || paramValue instanceof Boolean) {
-            return Types.INTEGER;
-        } else if (paramValue instanceof Long) {
-            return Types.BIGINT;
-        } else if (paramValue instanceof Double || paramValue instanceof Float) {
-            return Types.REAL;
-        } else {
-            return Types.VARCHAR;
-        }
+        return parameters.getParameterType(pos);
     }
 
     /** @see java.sql.ParameterMetaData#getParameterMode(int) */
@@ -228,52 +220,191 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
 
     /** @see java.sql.PreparedStatement#setBigDecimal(int, java.math.BigDecimal) */
     public void setBigDecimal(int pos, BigDecimal value) throws SQLException {
-        batch(pos, value == null ? null : value.toString());
+        parameters().setString(pos, value == null ? null : value.toString());
     }
 
     /**
-     * Reads given number of bytes from an input stream.
+     * Binds the bytes of a stream, read one chunk at a time into native memory so that the heap
+     * used is bounded by the stream chunk size whatever the length of the stream. A known length is
+     * checked against the length limit of the connection and allocated once; the bytes of a stream
+     * of unknown length are kept in chunks and copied once into a value of their exact length when
+     * the stream ends.
      *
+     * @param pos The parameter, in [1,x] form.
      * @param istream The input stream.
-     * @param length The number of bytes to read.
-     * @return byte array.
-     * @throws SQLException
+     * @param length The number of bytes to read, or -1 to read up to the end of the stream.
+     * @param text True to bind the bytes as UTF-8 text; false to bind them as a blob.
+     * @throws SQLException if the stream cannot be read, ends before the given length or is longer
+     *     than the length limit
+     * @see org.sqlite.SQLiteConnectionConfig#setStreamChunkSize(int)
+     * @see org.sqlite.SQLiteLimits#SQLITE_LIMIT_LENGTH
      */
-    private byte[] readBytes(InputStream istream, int length) throws SQLException {
-        if (length < 0) {
+    protected void setStream(int pos, InputStream istream, long length, boolean text)
+            throws SQLException {
+        if (length < -1) {
             throw new SQLException("Error reading stream. Length should be non-negative");
         }
-
-        byte[] bytes = new byte[length];
-
+        int maxLength = maxLength();
+        if (length > maxLength) {
+            throw tooLong(maxLength);
+        }
+        int chunkSize = conn.getConnectionConfig().getStreamChunkSize();
+        byte[] chunk = new byte[length < 0 ? chunkSize : (int) Math.min(length, chunkSize)];
+        List<ByteBuffer> chunks = new ArrayList<>();
+        ByteBuffer value = ByteBuffer.allocateDirect(length < 0 ? chunkSize : (int) length);
         try {
-            int bytesRead;
-            int totalBytesRead = 0;
-
-            while (totalBytesRead < length) {
-                bytesRead = istream.read(bytes, totalBytesRead, length - totalBytesRead);
+            long size = 0;
+            while (length < 0 || size < length) {
+                int max = length < 0 ? chunk.length : (int) Math.min(chunk.length, length - size);
+                int bytesRead = istream.read(chunk, 0, max);
                 if (bytesRead == -1) {
+                    if (length < 0) break;
                     throw new IOException("End of stream has been reached");
                 }
-                totalBytesRead += bytesRead;
+                size += bytesRead;
+                if (size > maxLength) {
+                    throw tooLong(maxLength);
+                }
+                int fits = Math.min(value.remaining(), bytesRead);
+                value.put(chunk, 0, fits);
+                if (fits < bytesRead) {
+                    chunks.add(value);
+                    value = ByteBuffer.allocateDirect(chunkSize);
+                    value.put(chunk, fits, bytesRead - fits);
+                }
             }
-
-            return bytes;
         } catch (IOException cause) {
             SQLException exception = new SQLException("Error reading stream");
 
             exception.initCause(cause);
             throw exception;
         }
+        setBuffer(pos, join(chunks, value), text);
+    }
+
+    /**
+     * Binds the chars of a reader as text, encoded to UTF-8 one chunk at a time into native memory
+     * and copied once into a value of its exact length when the reader ends.
+     *
+     * @param pos The parameter, in [1,x] form.
+     * @param reader The reader.
+     * @param length The maximum number of chars to read.
+     * @throws SQLException if the reader cannot be read or the text is longer than the length limit
+     * @see #setStream(int, InputStream, long, boolean)
+     */
+    protected void setReader(int pos, Reader reader, long length) throws SQLException {
+        if (length < 0) {
+            throw new SQLException("Error reading character stream. Length should be non-negative");
+        }
+        int maxLength = maxLength();
+        // a chunk holds at least the 4 bytes of any encoded code point
+        int chunkSize = Math.max(4, conn.getConnectionConfig().getStreamChunkSize());
+        CharsetEncoder encoder =
+                StandardCharsets.UTF_8
+                        .newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(chunkSize);
+        List<ByteBuffer> chunks = new ArrayList<>();
+        ByteBuffer value = ByteBuffer.allocateDirect((int) Math.min(length, chunkSize));
+        try {
+            long remaining = length;
+            long size = 0;
+            boolean end = remaining <= 0;
+            while (true) {
+                if (!end) {
+                    int max = (int) Math.min(chars.remaining(), remaining);
+                    int charsRead = reader.read(chars.array(), chars.position(), max);
+                    if (charsRead == -1) {
+                        end = true;
+                    } else {
+                        chars.position(chars.position() + charsRead);
+                        remaining -= charsRead;
+                        end = remaining == 0;
+                    }
+                }
+                chars.flip();
+                while (encoder.encode(chars, value, end).isOverflow()) {
+                    size += value.position();
+                    chunks.add(value);
+                    value = ByteBuffer.allocateDirect(chunkSize);
+                }
+                chars.compact();
+                if (end) {
+                    while (encoder.flush(value).isOverflow()) {
+                        size += value.position();
+                        chunks.add(value);
+                        value = ByteBuffer.allocateDirect(chunkSize);
+                    }
+                }
+                if (size + value.position() > maxLength) {
+                    throw tooLong(maxLength);
+                }
+                if (end) break;
+            }
+        } catch (IOException e) {
+            throw new SQLException(
+                    "Cannot read from character stream, exception message: " + e.getMessage());
+        }
+        setBuffer(pos, join(chunks, value), true);
+    }
+
+    /** @return The length limit of values on the connection, in bytes. */
+    private int maxLength() throws SQLException {
+        return conn.getDatabase().limit(SQLiteLimits.SQLITE_LIMIT_LENGTH.getId(), -1);
+    }
+
+    private static SQLException tooLong(int maxLength) {
+        return new SQLException(
+                "Stream is too long, values are limited to " + maxLength + " bytes");
+    }
+
+    /**
+     * @param chunks The full chunks of a value, in order.
+     * @param last The last chunk of the value.
+     * @return A direct buffer with the bytes of the chunks, ready to be read.
+     */
+    private static ByteBuffer join(List<ByteBuffer> chunks, ByteBuffer last) {
+        last.flip();
+        if (chunks.isEmpty()) {
+            return last;
+        }
+        int size = last.remaining();
+        for (ByteBuffer chunk : chunks) {
+            size += chunk.position();
+        }
+        ByteBuffer value = ByteBuffer.allocateDirect(size);
+        for (ByteBuffer chunk : chunks) {
+            chunk.flip();
+            value.put(chunk);
+        }
+        value.put(last);
+        value.flip();
+        return value;
+    }
+
+    private void setBuffer(int pos, ByteBuffer value, boolean text) throws SQLException {
+        if (value == null) {
+            parameters().setNull(pos);
+        } else if (value.isDirect() && value.hasRemaining()) {
+            if (text) parameters().setText(pos, value.slice());
+            else parameters().setBytes(pos, value.slice());
+        } else {
+            // heap buffers are copied; an empty direct buffer may have no address to bind
+            byte[] bytes = new byte[value.remaining()];
+            value.duplicate().get(bytes);
+            if (text) setString(pos, new String(bytes, StandardCharsets.UTF_8));
+            else setBytes(pos, bytes);
+        }
     }
 
     /** @see java.sql.PreparedStatement#setBinaryStream(int, java.io.InputStream, int) */
     public void setBinaryStream(int pos, InputStream istream, int length) throws SQLException {
         if (istream == null && length == 0) {
-            setBytes(pos, null);
+            setBytes(pos, (byte[]) null);
         }
 
-        setBytes(pos, readBytes(istream, length));
+        setStream(pos, istream, length, false);
     }
 
     /** @see java.sql.PreparedStatement#setAsciiStream(int, java.io.InputStream, int) */
@@ -287,14 +418,7 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
             setString(pos, null);
         }
 
-        try {
-            setString(pos, new String(readBytes(istream, length), "UTF-8"));
-        } catch (UnsupportedEncodingException e) {
-            SQLException exception = new SQLException("UTF-8 is not supported");
-
-            exception.initCause(e);
-            throw exception;
-        }
+        setStream(pos, istream, length, true);
     }
 
     /** @see java.sql.PreparedStatement#setBoolean(int, boolean) */
@@ -309,27 +433,37 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
 
     /** @see java.sql.PreparedStatement#setBytes(int, byte[]) */
     public void setBytes(int pos, byte[] value) throws SQLException {
-        batch(pos, value);
+        parameters().setBytes(pos, value);
+    }
+
+    /** @see org.sqlite.SQLitePreparedStatement#setBytes(int, java.nio.ByteBuffer) */
+    public void setBytes(int pos, ByteBuffer value) throws SQLException {
+        setBuffer(pos, value, false);
+    }
+
+    /** @see org.sqlite.SQLitePreparedStatement#setUtf8(int, java.nio.ByteBuffer) */
+    public void setUtf8(int pos, ByteBuffer utf8) throws SQLException {
+        setBuffer(pos, utf8, true);
     }
 
     /** @see java.sql.PreparedStatement#setDouble(int, double) */
     public void setDouble(int pos, double value) throws SQLException {
-        batch(pos, new Double(value));
+        parameters().setDouble(pos, value);
     }
 
     /** @see java.sql.PreparedStatement#setFloat(int, float) */
     public void setFloat(int pos, float value) throws SQLException {
-        batch(pos, new Float(value));
+        parameters().setDouble(pos, value);
     }
 
     /** @see java.sql.PreparedStatement#setInt(int, int) */
     public void setInt(int pos, int value) throws SQLException {
-        batch(pos, new Integer(value));
+        parameters().setInt(pos, value);
     }
 
     /** @see java.sql.PreparedStatement#setLong(int, long) */
     public void setLong(int pos, long value) throws SQLException {
-        batch(pos, new Long(value));
+        parameters().setLong(pos, value);
     }
 
     /** @see java.sql.PreparedStatement#setNull(int, int) */
@@ -339,33 +473,35 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
 
     /** @see java.sql.PreparedStatement#setNull(int, int, java.lang.String) */
     public void setNull(int pos, int u1, String u2) throws SQLException {
-        batch(pos, null);
+        parameters().setNull(pos);
     }
 
     /** @see java.sql.PreparedStatement#setObject(int, java.lang.Object) */
     public void setObject(int pos, Object value) throws SQLException {
         if (value == null) {
-            batch(pos, null);
+            parameters().setNull(pos);
+        } else if (value instanceof Timestamp) {
+            setTimestamp(pos, (Timestamp) value);
         } else if (value instanceof java.util.Date) {
             setDateByMilliseconds(pos, ((java.util.Date) value).getTime(), Calendar.getInstance());
         } else if (value instanceof Long) {
-            batch(pos, value);
+            setLong(pos, (Long) value);
         } else if (value instanceof Integer) {
-            batch(pos, value);
+            setInt(pos, (Integer) value);
         } else if (value instanceof Short) {
-            batch(pos, new Integer(((Short) value).intValue()));
+            setShort(pos, (Short) value);
         } else if (value instanceof Float) {
-            batch(pos, value);
+            setFloat(pos, (Float) value);
         } else if (value instanceof Double) {
-            batch(pos, value);
+            setDouble(pos, (Double) value);
         } else if (value instanceof Boolean) {
             setBoolean(pos, ((Boolean) value).booleanValue());
         } else if (value instanceof byte[]) {
-            batch(pos, value);
+            setBytes(pos, (byte[]) value);
         } else if (value instanceof BigDecimal) {
             setBigDecimal(pos, (BigDecimal) value);
-        } else {
-            batch(pos, value.toString());
+        } else if (!conn.getConnectionConfig().isJavaTimeDates() || !setJavaTimeDate(pos, value)) {
+            setString(pos, value.toString());
         }
     }
 
@@ -386,28 +522,12 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
 
     /** @see java.sql.PreparedStatement#setString(int, java.lang.String) */
     public void setString(int pos, String value) throws SQLException {
-        batch(pos, value);
+        parameters().setString(pos, value);
     }
 
     /** @see java.sql.PreparedStatement#setCharacterStream(int, java.io.Reader, int) */
     public void setCharacterStream(int pos, Reader reader, int length) throws SQLException {
-        try {
-            // copy chars from reader to StringBuilder
-            StringBuilder sb = new StringBuilder();
-            char[] cbuf = new char[8192];
-            int cnt;
-
-            while ((cnt = reader.read(cbuf, 0, Math.min(length, cbuf.length))) > 0) {
-                sb.append(cbuf, 0, cnt);
-                length -= cnt;
-            }
-
-            // set as string
-            setString(pos, sb.toString());
-        } catch (IOException e) {
-            throw new SQLException(
-                    "Cannot read from character stream, exception message: " + e.getMessage());
-        }
+        setReader(pos, reader, length);
     }
 
     /** @see java.sql.PreparedStatement#setDate(int, java.sql.Date) */
@@ -448,7 +568,8 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
         if (x == null) {
             setObject(pos, null);
         } else {
-            setDateByMilliseconds(pos, x.getTime(), cal);
+            setDateByInstant(
+                    pos, Math.floorDiv(x.getTime(), 1000), x.getNanos(), cal.getTimeZone());
         }
     }
 
@@ -546,6 +667,12 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
         throw invalid();
     }
 
+    /** @see org.sqlite.SQLiteStatement#executeColumnar(String, int) */
+    @Override
+    public SQLiteColumnarBatch executeColumnar(String sql, int batchRows) throws SQLException {
+        throw invalid();
+    }
+
     /** */
     @Override
     public void addBatch(String sql) throws SQLException {
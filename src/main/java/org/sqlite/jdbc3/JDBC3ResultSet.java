@@ -1,10 +1,13 @@
 package org.sqlite.jdbc3;
 
+import static org.sqlite.SQLiteConfig.DEFAULT_DATE_STRING_FORMAT;
+
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -15,19 +18,30 @@ import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Locale;
+import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.sqlite.SQLiteConfig.DatePrecision;
 import org.sqlite.core.CoreResultSet;
 import org.sqlite.core.CoreStatement;
 import org.sqlite.core.DB;
+import org.sqlite.core.RowBatch;
 import org.sqlite.date.FastDateFormat;
+import org.sqlite.date.IsoDateTime;
 
 public abstract class JDBC3ResultSet extends CoreResultSet {
     // ResultSet Functions //////////////////////////////////////////
 
+    private IsoDateTime dateParser; // created by parseDateText
+    private ByteBuffer dateBuffer;
+
     protected JDBC3ResultSet(CoreStatement stmt) {
         super(stmt);
     }
@@ -69,8 +83,12 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
             return false;
         }
 
+        if (batched || (limitRows > 1 && getConnectionConfig().isBatchFetch())) {
+            return nextBatchedRow();
+        }
+
         // do the real work
-        int statusCode = stmt.pointer.safeRunInt(DB::step);
+        int statusCode = stmt.pointer.safeRunInt(DB::stepWithBusyWait);
         switch (statusCode) {
             case SQLITE_DONE:
                 pastLastRow = true;
@@ -85,6 +103,36 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
         }
     }
 
+    /**
+     * Moves to the next row of the row batch, fetching the next batch of up to fetch size rows once
+     * the current one is consumed.
+     */
+    private boolean nextBatchedRow() throws SQLException {
+        if (rowBatch == null) {
+            rowBatch = new RowBatch();
+        }
+        while (!rowBatch.next()) {
+            int statusCode = batched ? rowBatch.getStatus() : SQLITE_ROW;
+            switch (statusCode) {
+                case SQLITE_DONE:
+                    pastLastRow = true;
+                    return false;
+                case SQLITE_OK:
+                case SQLITE_ROW:
+                    break;
+                default:
+                    throw rowBatch.getError();
+            }
+
+            int batchSize = maxRows != 0 ? (int) Math.min(limitRows, maxRows - row) : limitRows;
+            batched = true;
+            stmt.pointer.safeRunConsume(
+                    (db, ptr) -> rowBatch.fill(db, ptr, colsMeta.length, batchSize));
+        }
+        row++;
+        return true;
+    }
+
     /** @see java.sql.ResultSet#getType() */
     public int getType() {
         return ResultSet.TYPE_FORWARD_ONLY;
@@ -213,6 +261,9 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
 
     /** @see java.sql.ResultSet#getBytes(int) */
     public byte[] getBytes(int col) throws SQLException {
+        if (batched) {
+            return rowBatch.getBytes(getDatabase(), markCol(col));
+        }
         return stmt.pointer.safeRun((db, ptr) -> db.column_blob(ptr, markCol(col)));
     }
 
@@ -239,6 +290,10 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return null;
 
             case SQLITE_TEXT:
+                IsoDateTime parsed = parseDefaultDateText(col);
+                if (parsed != null) {
+                    return new Date(parsed.toEpochMillis(TimeZone.getDefault()));
+                }
                 String dateText = safeGetColumnText(col);
                 if ("".equals(dateText)) {
                     return null;
@@ -254,7 +309,7 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return new Date(julianDateToCalendar(safeGetDoubleCol(col)).getTimeInMillis());
 
             default: // SQLITE_INTEGER:
-                return new Date(safeGetLongCol(col) * getConnectionConfig().getDateMultiplier());
+                return new Date(toEpochMillis(safeGetLongCol(col)));
         }
     }
 
@@ -266,6 +321,10 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return null;
 
             case SQLITE_TEXT:
+                IsoDateTime parsed = parseDefaultDateText(col);
+                if (parsed != null) {
+                    return new Date(parsed.toEpochMillis(cal.getTimeZone()));
+                }
                 String dateText = safeGetColumnText(col);
                 if ("".equals(dateText)) {
                     return null;
@@ -284,8 +343,7 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return new Date(julianDateToCalendar(safeGetDoubleCol(col), cal).getTimeInMillis());
 
             default: // SQLITE_INTEGER:
-                cal.setTimeInMillis(
-                        safeGetLongCol(col) * getConnectionConfig().getDateMultiplier());
+                cal.setTimeInMillis(toEpochMillis(safeGetLongCol(col)));
                 return new Date(cal.getTime().getTime());
         }
     }
@@ -328,6 +386,9 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
 
     /** @see java.sql.ResultSet#getInt(int) */
     public int getInt(int col) throws SQLException {
+        if (batched) {
+            return rowBatch.getInt(markCol(col));
+        }
         return stmt.pointer.safeRunInt((db, ptr) -> db.column_int(ptr, markCol(col)));
     }
 
@@ -366,6 +427,51 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
         return getString(findColumn(col));
     }
 
+    /** @see org.sqlite.SQLiteResultSet#getUtf8Bytes(int, java.nio.ByteBuffer) */
+    public int getUtf8Bytes(int col, ByteBuffer dst) throws SQLException {
+        if (batched) {
+            return rowBatch.getText(getDatabase(), markCol(col), dst);
+        }
+        return stmt.pointer.safeRunInt((db, ptr) -> db.column_text(ptr, markCol(col), dst));
+    }
+
+    /**
+     * Parses ISO-8601 text from the UTF-8 bytes of a column, without creating a String.
+     *
+     * @param col The column of TEXT type.
+     * @return The parser holding the value, valid until the next call, or null if the text is not
+     *     ISO-8601.
+     */
+    protected IsoDateTime parseDateText(int col) throws SQLException {
+        if (dateParser == null) {
+            dateParser = new IsoDateTime();
+            dateBuffer = ByteBuffer.allocate(IsoDateTime.MAX_LENGTH);
+        }
+        dateBuffer.clear();
+        int length = getUtf8Bytes(col, dateBuffer);
+        if (length < 0 || length > dateBuffer.capacity()) {
+            return null;
+        }
+        return dateParser.parse(dateBuffer.array(), dateBuffer.arrayOffset(), length)
+                ? dateParser
+                : null;
+    }
+
+    /**
+     * Parses a TEXT column with {@link #parseDateText(int)} when the connection uses the default
+     * date string format and the text is in that layout, the common case which then avoids {@link
+     * FastDateFormat}.
+     *
+     * @return The parser holding the value, or null to parse the text with the date format.
+     */
+    private IsoDateTime parseDefaultDateText(int col) throws SQLException {
+        if (!DEFAULT_DATE_STRING_FORMAT.equals(getConnectionConfig().getDateStringFormat())) {
+            return null;
+        }
+        IsoDateTime parsed = parseDateText(col);
+        return parsed != null && parsed.isDefaultLayout() ? parsed : null;
+    }
+
     /** @see java.sql.ResultSet#getTime(int) */
     public Time getTime(int col) throws SQLException {
         switch (safeGetColumnType(markCol(col))) {
@@ -373,6 +479,10 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return null;
 
             case SQLITE_TEXT:
+                IsoDateTime parsed = parseDefaultDateText(col);
+                if (parsed != null) {
+                    return new Time(parsed.toEpochMillis(TimeZone.getDefault()));
+                }
                 String dateText = safeGetColumnText(col);
                 if ("".equals(dateText)) {
                     return null;
@@ -388,7 +498,7 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return new Time(julianDateToCalendar(safeGetDoubleCol(col)).getTimeInMillis());
 
             default: // SQLITE_INTEGER
-                return new Time(safeGetLongCol(col) * getConnectionConfig().getDateMultiplier());
+                return new Time(toEpochMillis(safeGetLongCol(col)));
         }
     }
 
@@ -400,6 +510,10 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return null;
 
             case SQLITE_TEXT:
+                IsoDateTime parsed = parseDefaultDateText(col);
+                if (parsed != null) {
+                    return new Time(parsed.toEpochMillis(cal.getTimeZone()));
+                }
                 String dateText = safeGetColumnText(col);
                 if ("".equals(dateText)) {
                     return null;
@@ -418,8 +532,7 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return new Time(julianDateToCalendar(safeGetDoubleCol(col), cal).getTimeInMillis());
 
             default: // SQLITE_INTEGER
-                cal.setTimeInMillis(
-                        safeGetLongCol(col) * getConnectionConfig().getDateMultiplier());
+                cal.setTimeInMillis(toEpochMillis(safeGetLongCol(col)));
                 return new Time(cal.getTime().getTime());
         }
     }
@@ -441,6 +554,10 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return null;
 
             case SQLITE_TEXT:
+                IsoDateTime parsed = parseDefaultDateText(col);
+                if (parsed != null) {
+                    return new Timestamp(parsed.toEpochMillis(TimeZone.getDefault()));
+                }
                 String dateText = safeGetColumnText(col);
                 if ("".equals(dateText)) {
                     return null;
@@ -456,8 +573,7 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return new Timestamp(julianDateToCalendar(safeGetDoubleCol(col)).getTimeInMillis());
 
             default: // SQLITE_INTEGER:
-                return new Timestamp(
-                        safeGetLongCol(col) * getConnectionConfig().getDateMultiplier());
+                return toTimestamp(safeGetLongCol(col));
         }
     }
 
@@ -469,6 +585,10 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return null;
 
             case SQLITE_TEXT:
+                IsoDateTime parsed = parseDefaultDateText(col);
+                if (parsed != null) {
+                    return new Timestamp(parsed.toEpochMillis(cal.getTimeZone()));
+                }
                 String dateText = safeGetColumnText(col);
                 if ("".equals(dateText)) {
                     return null;
@@ -487,11 +607,68 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
                 return new Timestamp(julianDateToCalendar(safeGetDoubleCol(col)).getTimeInMillis());
 
             default: // SQLITE_INTEGER
-                cal.setTimeInMillis(
-                        safeGetLongCol(col) * getConnectionConfig().getDateMultiplier());
+                long date = safeGetLongCol(col);
+                cal.setTimeInMillis(toEpochMillis(date));
+                return toTimestamp(date);
+        }
+    }
 
-                return new Timestamp(cal.getTime().getTime());
+    /**
+     * Reads an INTEGER or REAL date as an {@link Instant}, {@link OffsetDateTime} or {@link
+     * LocalDateTime} without going through {@link Calendar}. Integer dates keep the nanoseconds of
+     * their precision. Julian dates are rounded to the millisecond, as a double holds them to a few
+     * tens of microseconds, and their fields are a local time in the default time zone, as {@link
+     * #getTimestamp(int)} reads them.
+     *
+     * @param col A column of INTEGER or REAL type.
+     * @param columnType The type of the column.
+     * @param type One of Instant, OffsetDateTime or LocalDateTime.
+     */
+    protected <T> T getJavaTimeDate(int col, int columnType, Class<T> type) throws SQLException {
+        long epochSecond;
+        int nano;
+        if (columnType == SQLITE_FLOAT) {
+            // the fields of the Julian date in the default time zone, as with getTimestamp()
+            long local = Math.round((safeGetDoubleCol(col) - 2440587.5) * 86400000.0);
+            if (type == LocalDateTime.class) {
+                return type.cast(
+                        LocalDateTime.ofEpochSecond(
+                                Math.floorDiv(local, 1000),
+                                (int) Math.floorMod(local, 1000L) * 1_000_000,
+                                ZoneOffset.UTC));
+            }
+            long millis = IsoDateTime.localToEpochMillis(local, TimeZone.getDefault());
+            epochSecond = Math.floorDiv(millis, 1000);
+            nano = (int) Math.floorMod(millis, 1000L) * 1_000_000;
+        } else {
+            long date = safeGetLongCol(col);
+            DatePrecision precision = getConnectionConfig().getDatePrecision();
+            epochSecond = precision.toEpochSecond(date);
+            nano = precision.toNano(date);
         }
+        if (type == Instant.class) {
+            return type.cast(Instant.ofEpochSecond(epochSecond, nano));
+        }
+        int offsetMillis = TimeZone.getDefault().getOffset(epochSecond * 1000 + nano / 1_000_000);
+        ZoneOffset offset = ZoneOffset.ofTotalSeconds(offsetMillis / 1000);
+        LocalDateTime local = LocalDateTime.ofEpochSecond(epochSecond, nano, offset);
+        if (type == OffsetDateTime.class) {
+            return type.cast(OffsetDateTime.of(local, offset));
+        }
+        return type.cast(local);
+    }
+
+    /** @return The milliseconds since the epoch of an integer date. */
+    private long toEpochMillis(long date) {
+        return getConnectionConfig().getDatePrecision().toEpochMillis(date);
+    }
+
+    /** @return The timestamp of an integer date, with its nanoseconds. */
+    private Timestamp toTimestamp(long date) {
+        DatePrecision precision = getConnectionConfig().getDatePrecision();
+        Timestamp timestamp = new Timestamp(precision.toEpochMillis(date));
+        timestamp.setNanos(precision.toNano(date));
+        return timestamp;
     }
 
     /** @see java.sql.ResultSet#getTimestamp(java.lang.String) */
@@ -963,18 +1140,30 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
     }
 
     protected int safeGetColumnType(int col) throws SQLException {
+        if (batched) {
+            return rowBatch.type(col);
+        }
         return stmt.pointer.safeRunInt((db, ptr) -> db.column_type(ptr, col));
     }
 
     private long safeGetLongCol(int col) throws SQLException {
+        if (batched) {
+            return rowBatch.getLong(markCol(col));
+        }
         return stmt.pointer.safeRunLong((db, ptr) -> db.column_long(ptr, markCol(col)));
     }
 
     private double safeGetDoubleCol(int col) throws SQLException {
+        if (batched) {
+            return rowBatch.getDouble(markCol(col));
+        }
         return stmt.pointer.safeRunDouble((db, ptr) -> db.column_double(ptr, markCol(col)));
     }
 
     private String safeGetColumnText(int col) throws SQLException {
+        if (batched) {
+            return rowBatch.getString(getDatabase(), markCol(col));
+        }
         return stmt.pointer.safeRun((db, ptr) -> db.column_text(ptr, markCol(col)));
     }
 
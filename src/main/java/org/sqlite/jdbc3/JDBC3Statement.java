@@ -11,6 +11,7 @@ import java.text.MessageFormat;
 import java.util.Arrays;
 import org.sqlite.ExtendedCommand;
 import org.sqlite.ExtendedCommand.SQLExtension;
+import org.sqlite.SQLiteColumnarBatch;
 import org.sqlite.SQLiteConnection;
 import org.sqlite.core.CoreStatement;
 import org.sqlite.core.DB;
@@ -21,6 +22,7 @@ import org.sqlite.util.LoggerFactory;
 public abstract class JDBC3Statement extends CoreStatement {
 
     private int queryTimeout; // in seconds, as per the JDBC spec
+    private int fetchSize;
     protected long updateCount;
     protected boolean exhaustedResults = false;
 
@@ -51,14 +53,16 @@ public abstract class JDBC3Statement extends CoreStatement {
                     }
 
                     JDBC3Statement.this.sql = sql;
-                    synchronized (conn) {
-                        conn.getDatabase().prepare(JDBC3Statement.this);
-                        boolean result = exec();
-                        updateGeneratedKeys();
-                        updateCount = getDatabase().changes();
-                        exhaustedResults = false;
-                        return result;
-                    }
+                    return conn.getDatabase()
+                            .guarded(
+                                    () -> {
+                                        conn.getDatabase().prepare(JDBC3Statement.this);
+                                        boolean result = exec();
+                                        updateGeneratedKeys();
+                                        updateCount = getDatabase().changes();
+                                        exhaustedResults = false;
+                                        return result;
+                                    });
                 });
     }
 
@@ -97,6 +101,23 @@ public abstract class JDBC3Statement extends CoreStatement {
                 });
     }
 
+    /** @see org.sqlite.SQLiteStatement#executeColumnar(String, int) */
+    public SQLiteColumnarBatch executeColumnar(String sql, int batchRows) throws SQLException {
+        internalClose();
+        this.sql = sql;
+
+        conn.getDatabase().prepare(this);
+        if (pointer.safeRunInt(DB::column_count) == 0) {
+            internalClose();
+            throw new SQLException("query does not return ResultSet", "SQLITE_DONE", SQLITE_DONE);
+        }
+        if (conn instanceof JDBC3Connection) {
+            ((JDBC3Connection) conn).tryEnforceTransactionMode();
+        }
+        notifyFirstStatementExecuted();
+        return new SQLiteColumnarBatch(this, batchRows);
+    }
+
     static class BackupObserver implements ProgressObserver {
         private static final Logger logger = LoggerFactory.getLogger(BackupObserver.class);
 
@@ -133,15 +154,18 @@ public abstract class JDBC3Statement extends CoreStatement {
                         ext.execute(db);
                     } else {
                         try {
-                            synchronized (db) {
-                                changes = db.total_changes();
-                                // directly invokes the exec API to support multiple SQL statements
-                                int statusCode = db._exec(sql);
-                                if (statusCode != SQLITE_OK)
-                                    throw DB.newSQLException(statusCode, "");
-                                updateGeneratedKeys();
-                                changes = db.total_changes() - changes;
-                            }
+                            changes =
+                                    db.guarded(
+                                            () -> {
+                                                long before = db.total_changes();
+                                                // directly invokes the exec API to support
+                                                // multiple SQL statements
+                                                int statusCode = db.execScript(sql);
+                                                if (statusCode != SQLITE_OK)
+                                                    throw DB.newSQLException(statusCode, "");
+                                                updateGeneratedKeys();
+                                                return db.total_changes() - before;
+                                            });
 
                         } finally {
                             internalClose();
@@ -175,6 +199,12 @@ public abstract class JDBC3Statement extends CoreStatement {
         }
 
         rs.cols = rs.colsMeta;
+        if (fetchSize != 0 && ((ResultSet) rs).getFetchSize() == 0) {
+            // the result set forgets its fetch size when closed, apply the statement default
+            ((ResultSet) rs)
+                    .setFetchSize(
+                            rs.maxRows != 0 ? (int) Math.min(fetchSize, rs.maxRows) : fetchSize);
+        }
         rs.emptyResultSet = !resultsWaiting;
         rs.open = true;
         resultsWaiting = false;
@@ -237,32 +267,32 @@ public abstract class JDBC3Statement extends CoreStatement {
 
         long[] changes = new long[batchPos];
         DB db = conn.getDatabase();
-        synchronized (db) {
-            try {
-                for (int i = 0; i < changes.length; i++) {
+        return db.guarded(
+                () -> {
                     try {
-                        this.sql = (String) batch[i];
-                        db.prepare(this);
-                        changes[i] = db.executeUpdate(this, null);
-                    } catch (SQLException e) {
-                        // don't use the constructor with long because of
-                        // https://github.com/xerial/sqlite-jdbc/issues/1378
-                        throw new BatchUpdateException(
-                                "batch entry " + i + ": " + e.getMessage(),
-                                null,
-                                0,
-                                Arrays.stream(changes).mapToInt(l -> (int) l).toArray(),
-                                e);
+                        for (int i = 0; i < changes.length; i++) {
+                            try {
+                                this.sql = (String) batch[i];
+                                db.prepare(this);
+                                changes[i] = db.executeUpdate(this, null);
+                            } catch (SQLException e) {
+                                // don't use the constructor with long because of
+                                // https://github.com/xerial/sqlite-jdbc/issues/1378
+                                throw new BatchUpdateException(
+                                        "batch entry " + i + ": " + e.getMessage(),
+                                        null,
+                                        0,
+                                        Arrays.stream(changes).mapToInt(l -> (int) l).toArray(),
+                                        e);
+                            } finally {
+                                if (pointer != null) pointer.close();
+                            }
+                        }
                     } finally {
-                        if (pointer != null) pointer.close();
+                        clearBatch();
                     }
-                }
-            } finally {
-                clearBatch();
-            }
-        }
-
-        return changes;
+                    return changes;
+                });
     }
 
     /** @see java.sql.Statement#setCursorName(java.lang.String) */
@@ -334,14 +364,23 @@ public abstract class JDBC3Statement extends CoreStatement {
         if (max < 0) throw new SQLException("max field size " + max + " cannot be negative");
     }
 
-    /** @see java.sql.Statement#getFetchSize() */
+    /**
+     * @return The fetch size of the current result set, which is reset to 0 once it is closed.
+     * @see java.sql.Statement#getFetchSize()
+     */
     public int getFetchSize() throws SQLException {
         return ((ResultSet) rs).getFetchSize();
     }
 
-    /** @see java.sql.Statement#setFetchSize(int) */
+    /**
+     * Sets the fetch size of the current result set and the default fetch size of the result sets
+     * this statement executes later.
+     *
+     * @see java.sql.Statement#setFetchSize(int)
+     */
     public void setFetchSize(int r) throws SQLException {
         ((ResultSet) rs).setFetchSize(r);
+        fetchSize = r;
     }
 
     /** @see java.sql.Statement#getFetchDirection() */
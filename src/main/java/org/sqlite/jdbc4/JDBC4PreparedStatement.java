@@ -1,8 +1,5 @@
 package org.sqlite.jdbc4;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.sql.NClob;
@@ -12,16 +9,16 @@ import java.sql.RowId;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLXML;
-import java.util.Arrays;
 import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLitePreparedStatement;
 import org.sqlite.jdbc3.JDBC3PreparedStatement;
 
 public class JDBC4PreparedStatement extends JDBC3PreparedStatement
-        implements PreparedStatement, ParameterMetaData {
+        implements PreparedStatement, ParameterMetaData, SQLitePreparedStatement {
 
     @Override
     public String toString() {
-        return sql + " \n parameters=" + Arrays.toString(batch);
+        return sql + " \n parameters=" + (parameters == null ? "[]" : parameters);
     }
 
     public JDBC4PreparedStatement(SQLiteConnection conn, String sql) throws SQLException {
@@ -96,38 +93,11 @@ public class JDBC4PreparedStatement extends JDBC3PreparedStatement
     }
 
     public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
-        byte[] bytes = readBytes(x);
-        setAsciiStream(parameterIndex, new ByteArrayInputStream(bytes), bytes.length);
-    }
-
-    /**
-     * Reads given number of bytes from an input stream.
-     *
-     * @param istream The input stream.
-     * @param length The number of bytes to read.
-     * @return byte array.
-     * @throws SQLException
-     */
-    private byte[] readBytes(InputStream istream) throws SQLException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] bytes = new byte[8192];
-
-        try {
-            int bytesRead;
-            while ((bytesRead = istream.read(bytes)) > 0) {
-                baos.write(bytes, 0, bytesRead);
-            }
-            return baos.toByteArray();
-        } catch (IOException cause) {
-            SQLException exception = new SQLException("Error reading stream");
-
-            exception.initCause(cause);
-            throw exception;
-        }
+        setStream(parameterIndex, x, -1, true);
     }
 
     public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
-        setBytes(parameterIndex, readBytes(x));
+        setStream(parameterIndex, x, -1, false);
     }
 
     public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
@@ -144,7 +114,7 @@ public class JDBC4PreparedStatement extends JDBC3PreparedStatement
     }
 
     public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
-        setBytes(parameterIndex, readBytes(inputStream));
+        setStream(parameterIndex, inputStream, -1, false);
     }
 
     public void setNClob(int parameterIndex, Reader reader) throws SQLException {
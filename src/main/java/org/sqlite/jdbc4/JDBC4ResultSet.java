@@ -1,5 +1,7 @@
 package org.sqlite.jdbc4;
 
+import static org.sqlite.SQLiteConfig.DEFAULT_DATE_STRING_FORMAT;
+
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -23,14 +25,22 @@ import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.TimeZone;
+import org.sqlite.SQLiteResultSet;
 import org.sqlite.core.CoreStatement;
+import org.sqlite.date.IsoDateTime;
 import org.sqlite.jdbc3.JDBC3ResultSet;
 
-public class JDBC4ResultSet extends JDBC3ResultSet implements ResultSet, ResultSetMetaData {
+public class JDBC4ResultSet extends JDBC3ResultSet
+        implements ResultSet, ResultSetMetaData, SQLiteResultSet {
 
     public JDBC4ResultSet(CoreStatement stmt) {
         super(stmt);
@@ -351,6 +361,33 @@ public class JDBC4ResultSet extends JDBC3ResultSet implements ResultSet, ResultS
                 return type.cast(LocalTime.parse(getString(columnIndex)));
             }
         }
+        if (type == LocalDateTime.class || type == Instant.class || type == OffsetDateTime.class) {
+            int columnType = safeGetColumnType(markCol(columnIndex));
+            if (columnType == SQLITE_NULL) return null;
+            if (columnType == SQLITE_INTEGER || columnType == SQLITE_FLOAT)
+                return getJavaTimeDate(columnIndex, columnType, type);
+            // ISO-8601 text, unless the connection reads text dates with a format of its own
+            if (DEFAULT_DATE_STRING_FORMAT.equals(getConnectionConfig().getDateStringFormat())) {
+                IsoDateTime parsed = parseDateText(columnIndex);
+                if (parsed != null) {
+                    TimeZone zone = TimeZone.getDefault();
+                    if (type == LocalDateTime.class) return type.cast(parsed.toLocalDateTime());
+                    if (type == Instant.class) return type.cast(parsed.toInstant(zone));
+                    return type.cast(parsed.toOffsetDateTime(zone));
+                }
+            }
+        }
+        if (type == Instant.class || type == OffsetDateTime.class) {
+            // text in the date string format
+            Timestamp timestamp = getTimestamp(columnIndex);
+            if (timestamp == null) return null;
+            // inlining of java.sql.Timestamp.toInstant() for Android
+            Instant instant =
+                    Instant.ofEpochSecond(
+                            Math.floorDiv(timestamp.getTime(), 1000), timestamp.getNanos());
+            if (type == Instant.class) return type.cast(instant);
+            return type.cast(OffsetDateTime.ofInstant(instant, ZoneId.systemDefault()));
+        }
         if (type == LocalDateTime.class) {
             try {
                 Timestamp timestamp = getTimestamp(columnIndex);
@@ -448,12 +485,18 @@ public class JDBC4ResultSet extends JDBC3ResultSet implements ResultSet, ResultS
         throw unsupported();
     }
 
+    /**
+     * Returns a copy of a value. Large values can be read in place, without copying them onto the
+     * heap, through {@link org.sqlite.SQLiteConnection#openBlob(String, String, String, long,
+     * boolean)}.
+     */
     public Blob getBlob(int col) throws SQLException {
-        throw unsupported();
+        byte[] bytes = getBytes(col);
+        return bytes == null ? null : new SqliteBlob(bytes);
     }
 
     public Blob getBlob(String col) throws SQLException {
-        throw unsupported();
+        return getBlob(findColumn(col));
     }
 
     public Clob getClob(int col) throws SQLException {
@@ -740,6 +783,86 @@ public class JDBC4ResultSet extends JDBC3ResultSet implements ResultSet, ResultS
         throw unsupported();
     }
 
+    class SqliteBlob implements Blob {
+
+        private byte[] data;
+
+        protected SqliteBlob(byte[] data) {
+            this.data = data;
+        }
+
+        public void free() throws SQLException {
+            data = null;
+        }
+
+        public long length() throws SQLException {
+            if (data == null) {
+                throw new SQLException("no data");
+            }
+            return data.length;
+        }
+
+        public byte[] getBytes(long position, int length) throws SQLException {
+            int start = start(position, length);
+            return Arrays.copyOfRange(data, start, Math.min(start + length, data.length));
+        }
+
+        public InputStream getBinaryStream() throws SQLException {
+            if (data == null) {
+                throw new SQLException("no data");
+            }
+            return new ByteArrayInputStream(data);
+        }
+
+        public InputStream getBinaryStream(long position, long length) throws SQLException {
+            int start = start(position, length);
+            return new ByteArrayInputStream(
+                    data, start, (int) Math.min(length, data.length - start));
+        }
+
+        private int start(long position, long length) throws SQLException {
+            if (data == null) {
+                throw new SQLException("no data");
+            }
+            if (position < 1 || position > data.length + 1L) {
+                throw new SQLException("Position must be between 1 and " + (data.length + 1));
+            }
+            if (length < 0) {
+                throw new SQLException("Length must be greater than or equal to 0");
+            }
+            return (int) position - 1;
+        }
+
+        public long position(byte[] pattern, long start) throws SQLException {
+            unsupported();
+            return -1;
+        }
+
+        public long position(Blob pattern, long start) throws SQLException {
+            unsupported();
+            return -1;
+        }
+
+        public int setBytes(long pos, byte[] bytes) throws SQLException {
+            unsupported();
+            return -1;
+        }
+
+        public int setBytes(long pos, byte[] bytes, int offset, int len) throws SQLException {
+            unsupported();
+            return -1;
+        }
+
+        public OutputStream setBinaryStream(long pos) throws SQLException {
+            unsupported();
+            return null;
+        }
+
+        public void truncate(long len) throws SQLException {
+            unsupported();
+        }
+    }
+
     class SqliteClob implements NClob {
 
         private String data;
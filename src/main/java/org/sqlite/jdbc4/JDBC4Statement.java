@@ -3,9 +3,10 @@ package org.sqlite.jdbc4;
 import java.sql.SQLException;
 import java.sql.Statement;
 import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteStatement;
 import org.sqlite.jdbc3.JDBC3Statement;
 
-public class JDBC4Statement extends JDBC3Statement implements Statement {
+public class JDBC4Statement extends JDBC3Statement implements Statement, SQLiteStatement {
     public JDBC4Statement(SQLiteConnection conn) {
         super(conn);
     }
@@ -21,10 +21,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
 
 @AndroidSignatureIgnore(explanation = "Used by GraalVM only")
 public class SqliteJdbcFeature implements Feature {
@@ -82,12 +87,27 @@ public class SqliteJdbcFeature implements Feature {
                         NativeDB.class,
                         "pointer",
                         "busyHandler",
+                        "busyStrategy",
                         "commitListener",
                         "updateListener",
-                        "progressHandler"));
+                        "progressHandler",
+                        "profileListener"));
+        RuntimeJNIAccess.register(fields(DB.class, "collationFailure"));
         RuntimeJNIAccess.register(
                 method(DB.class, "onUpdate", int.class, String.class, String.class, long.class));
         RuntimeJNIAccess.register(method(DB.class, "onCommit", boolean.class));
+        RuntimeJNIAccess.register(
+                method(
+                        DB.class,
+                        "onProfile",
+                        byte[].class,
+                        long.class,
+                        long.class,
+                        long.class,
+                        long.class,
+                        long.class,
+                        long.class,
+                        long.class));
         RuntimeJNIAccess.register(method(NativeDB.class, "stringToUtf8ByteArray", String.class));
         RuntimeJNIAccess.register(method(DB.class, "throwex"));
         RuntimeJNIAccess.register(method(DB.class, "throwex", int.class));
@@ -102,6 +122,17 @@ public class SqliteJdbcFeature implements Feature {
         RuntimeJNIAccess.register(Collation.class);
         RuntimeJNIAccess.register(method(Collation.class, "xCompare", String.class, String.class));
 
+        // Collation$Raw JNI calls
+        RuntimeJNIAccess.register(Collation.Raw.class);
+        RuntimeJNIAccess.register(
+                method(
+                        Collation.Raw.class,
+                        "xCompareBuffers",
+                        ByteBuffer.class,
+                        int.class,
+                        ByteBuffer.class,
+                        int.class));
+
         // Function$Aggregate JNI calls
         RuntimeJNIAccess.register(Function.Aggregate.class);
         RuntimeJNIAccess.register(method(Function.Aggregate.class, "xStep"));
@@ -113,6 +144,24 @@ public class SqliteJdbcFeature implements Feature {
         RuntimeJNIAccess.register(method(Function.Window.class, "xInverse"));
         RuntimeJNIAccess.register(method(Function.Window.class, "xValue"));
 
+        // Function$ScalarCall JNI calls, the class is private to Function
+        Class<?> scalarCall = type(Function.class, "ScalarCall");
+        RuntimeJNIAccess.register(scalarCall);
+        RuntimeJNIAccess.register(method(scalarCall, "xCall", long.class, long.class, int.class));
+
+        // Primitive scalar function JNI calls
+        RuntimeJNIAccess.register(
+                LongUnaryOperator.class,
+                LongBinaryOperator.class,
+                DoubleUnaryOperator.class,
+                DoubleBinaryOperator.class);
+        RuntimeJNIAccess.register(method(LongUnaryOperator.class, "applyAsLong", long.class));
+        RuntimeJNIAccess.register(
+                method(LongBinaryOperator.class, "applyAsLong", long.class, long.class));
+        RuntimeJNIAccess.register(method(DoubleUnaryOperator.class, "applyAsDouble", double.class));
+        RuntimeJNIAccess.register(
+                method(DoubleBinaryOperator.class, "applyAsDouble", double.class, double.class));
+
         // DB&ProgressObserver JNI calls
         RuntimeJNIAccess.register(DB.ProgressObserver.class);
         RuntimeJNIAccess.register(
@@ -142,6 +191,14 @@ public class SqliteJdbcFeature implements Feature {
         }
     }
 
+    private Class<?> type(Class<?> outer, String nestedName) {
+        try {
+            return Class.forName(outer.getName() + "$" + nestedName, false, outer.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new SqliteJdbcFeatureException(e);
+        }
+    }
+
     private Field[] fields(Class<?> clazz, String... fieldNames) {
         try {
             Field[] fields = new Field[fieldNames.length];
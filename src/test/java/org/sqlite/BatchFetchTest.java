@@ -0,0 +1,172 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class BatchFetchTest {
+    private Connection conn;
+
+    @BeforeEach
+    public void connect() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBatchFetch(true);
+        conn = DriverManager.getConnection("jdbc:sqlite:", config.toProperties());
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, v)");
+            stat.executeUpdate(
+                    "insert into t values (1, 42), (2, 1.5), (3, ' 17abc'), (4, x'4142'),"
+                            + " (5, null), (6, 'héllo'), (7, -9223372036854775808), (8, '1e3x')");
+        }
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    private List<String> readAll(Statement stat, String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (ResultSet rs = stat.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(
+                        rs.getInt(1)
+                                + "|"
+                                + rs.getString(2)
+                                + "|"
+                                + rs.getLong(2)
+                                + "|"
+                                + rs.getDouble(2)
+                                + "|"
+                                + rs.wasNull());
+            }
+        }
+        return values;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 7, 1000})
+    public void matchesRowByRowFetch(int fetchSize) throws SQLException {
+        List<String> expected;
+        try (Connection plain = DriverManager.getConnection("jdbc:sqlite:");
+                Statement stat = plain.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, v)");
+            stat.executeUpdate(
+                    "insert into t values (1, 42), (2, 1.5), (3, ' 17abc'), (4, x'4142'),"
+                            + " (5, null), (6, 'héllo'), (7, -9223372036854775808), (8, '1e3x')");
+            expected = readAll(stat, "select id, v from t order by id");
+        }
+
+        try (Statement stat = conn.createStatement()) {
+            stat.setFetchSize(fetchSize);
+            assertThat(readAll(stat, "select id, v from t order by id"))
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void columnTypesOfBatchedRows() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.setFetchSize(16);
+            try (ResultSet rs = stat.executeQuery("select v from t order by id")) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getObject(1)).isEqualTo(42);
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getObject(1)).isEqualTo(1.5);
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getMetaData().getColumnType(1)).isEqualTo(Types.VARCHAR);
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getBytes(1)).containsExactly('A', 'B');
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getObject(1)).isNull();
+            }
+        }
+    }
+
+    @Test
+    public void rowsLargerThanTheBuffer() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.setFetchSize(4);
+            try (ResultSet rs =
+                    stat.executeQuery(
+                            "with recursive n(i) as (select 1 union all select i + 1 from n"
+                                    + " where i < 20) select i, zeroblob(i * 4096) from n")) {
+                int count = 0;
+                while (rs.next()) {
+                    count++;
+                    assertThat(rs.getInt(1)).isEqualTo(count);
+                    assertThat(rs.getBytes(2)).hasSize(count * 4096);
+                }
+                assertThat(count).isEqualTo(20);
+            }
+        }
+    }
+
+    @Test
+    public void maxRowsLimitsBatches() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.setFetchSize(3);
+            stat.setMaxRows(5);
+            int count = 0;
+            try (ResultSet rs = stat.executeQuery("select id from t")) {
+                while (rs.next()) {
+                    count++;
+                }
+            }
+            assertThat(count).isEqualTo(5);
+        }
+    }
+
+    @Test
+    public void fetchSizeSurvivesReexecution() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.setFetchSize(2);
+            assertThat(readAll(stat, "select id, v from t")).hasSize(8);
+            // the getter reports the fetch size of the current result set, as it always did
+            assertThat(stat.getFetchSize()).isZero();
+            try (ResultSet rs = stat.executeQuery("select id, v from t")) {
+                assertThat(rs.getFetchSize()).isEqualTo(2);
+                assertThat(stat.getFetchSize()).isEqualTo(2);
+            }
+        }
+    }
+
+    @Test
+    public void errorAfterBatchedRowsKeepsItsMessage() throws SQLException {
+        try (Statement stat = conn.createStatement();
+                Statement other = conn.createStatement()) {
+            stat.setFetchSize(16);
+            try (ResultSet rs =
+                    stat.executeQuery(
+                            "select case when id = 7 then abs(v) else id end from t order by id")) {
+                // the first row is stepped by the query, the second one fetches the batch
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getInt(1)).isEqualTo(2);
+                // replaces the message of the connection before the failed row is reached
+                assertThatThrownBy(() -> other.executeQuery("select * from missing"))
+                        .hasMessageContaining("no such table");
+                for (int id = 3; id < 7; id++) {
+                    assertThat(rs.next()).isTrue();
+                    assertThat(rs.getInt(1)).isEqualTo(id);
+                }
+                assertThatThrownBy(rs::next)
+                        .isInstanceOf(SQLiteException.class)
+                        .hasMessageContaining("integer overflow");
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.SQLiteConfig.BusyStrategy;
+
+public class BusyStrategyTest {
+    @TempDir Path tempDir;
+
+    private Connection holder;
+    private Statement holderStat;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        holder = DriverManager.getConnection(url());
+        holderStat = holder.createStatement();
+        holderStat.executeUpdate("create table t (v integer)");
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        holderStat.close();
+        holder.close();
+    }
+
+    private String url() {
+        return "jdbc:sqlite:" + tempDir.resolve("busy.db");
+    }
+
+    private SQLiteConnection connect(BusyStrategy strategy, int timeout) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyStrategy(strategy);
+        config.setBusyBackoffInitial(50);
+        config.setBusyBackoffMax(20000);
+        config.setBusySpins(2);
+        config.setBusyStatistics(true);
+        config.setBusyTimeout(timeout);
+        return (SQLiteConnection) DriverManager.getConnection(url(), config.toProperties());
+    }
+
+    private static void insert(Connection conn, int v) throws SQLException {
+        try (PreparedStatement prep = conn.prepareStatement("insert into t values (?)")) {
+            prep.setInt(1, v);
+            prep.executeUpdate();
+        }
+    }
+
+    @Test
+    public void configuration() {
+        SQLiteConfig config = new SQLiteConfig();
+        assertThat(config.getBusyStrategy()).isEqualTo(BusyStrategy.FIXED);
+        assertThat(config.getBusyBackoffInitial()).isEqualTo(100);
+        assertThat(config.getBusyBackoffMax()).isEqualTo(100000);
+        assertThat(config.getBusySpins()).isEqualTo(0);
+        assertThat(config.isBusyStatistics()).isFalse();
+
+        config.setBusyStrategy(BusyStrategy.BACKOFF);
+        config.setBusySpins(5);
+        config.setBusyStatistics(true);
+        SQLiteConfig copy = new SQLiteConfig(config.toProperties());
+        assertThat(copy.getBusyStrategy()).isEqualTo(BusyStrategy.BACKOFF);
+        assertThat(copy.getBusySpins()).isEqualTo(5);
+        assertThat(copy.isBusyStatistics()).isTrue();
+    }
+
+    @Test
+    public void fixedStrategyUsesTheBusyTimeoutOfSqlite() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout(4000);
+        try (SQLiteConnection conn =
+                        (SQLiteConnection)
+                                DriverManager.getConnection(url(), config.toProperties());
+                Statement stat = conn.createStatement()) {
+            assertThat(stat.executeQuery("pragma busy_timeout").getInt(1)).isEqualTo(4000);
+            conn.setBusyTimeout(2000);
+            assertThat(stat.executeQuery("pragma busy_timeout").getInt(1)).isEqualTo(2000);
+
+            stat.execute("pragma busy_timeout = 100");
+            holderStat.execute("begin immediate");
+            try {
+                long start = System.nanoTime();
+                assertThatThrownBy(() -> insert(conn, 1))
+                        .isInstanceOf(SQLiteException.class)
+                        .hasMessageContaining("SQLITE_BUSY");
+                assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(100_000_000L);
+            } finally {
+                holderStat.execute("commit");
+            }
+            assertThat(conn.getBusyStatistics()).isEmpty();
+        }
+    }
+
+    @Test
+    public void waitsAreRecordedPerStatement() throws Exception {
+        for (BusyStrategy strategy : BusyStrategy.values()) {
+            try (SQLiteConnection conn = connect(strategy, 5000)) {
+                assertThat(conn.getBusyStatistics()).isEmpty();
+
+                holderStat.execute("begin immediate");
+                CompletableFuture<Void> release =
+                        CompletableFuture.runAsync(
+                                () -> {
+                                    try {
+                                        Thread.sleep(200);
+                                        holderStat.execute("commit");
+                                    } catch (Exception e) {
+                                        throw new RuntimeException(e);
+                                    }
+                                });
+                insert(conn, 1);
+                release.get();
+
+                List<SQLiteBusyStatistics> statistics = conn.getBusyStatistics();
+                assertThat(statistics).hasSize(1);
+                SQLiteBusyStatistics insert = statistics.get(0);
+                assertThat(insert.getSql()).isEqualTo("insert into t values (?)");
+                assertThat(insert.getBusyEvents()).isEqualTo(1);
+                assertThat(insert.getRetries()).isGreaterThan(2);
+                assertThat(insert.getWaitMicros()).isBetween(100_000L, 5_000_000L);
+                assertThat(insert.getTimeouts()).isZero();
+
+                conn.resetBusyStatistics();
+                assertThat(conn.getBusyStatistics()).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    public void statisticsAreReadWhileStatementsWait() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setThreadingModel(SQLiteConfig.ThreadingModel.REENTRANT_LOCK);
+        config.setBusyTimeout(5000);
+        try (SQLiteConnection conn =
+                (SQLiteConnection) DriverManager.getConnection(url(), config.toProperties())) {
+            holderStat.execute("begin immediate");
+            CompletableFuture<Void> inserts =
+                    CompletableFuture.runAsync(
+                            () -> {
+                                try (Statement stat = conn.createStatement()) {
+                                    insert(conn, 1);
+                                    stat.execute("insert into t values (2); select 1");
+                                } catch (SQLException e) {
+                                    throw new RuntimeException(e);
+                                }
+                            });
+            try {
+                long end = System.nanoTime() + 300_000_000L;
+                while (System.nanoTime() < end) {
+                    conn.getBusyStatistics();
+                    conn.resetBusyStatistics();
+                }
+            } finally {
+                holderStat.execute("commit");
+            }
+            inserts.get();
+            assertThat(holderStat.executeQuery("select count(*) from t").getInt(1)).isEqualTo(2);
+            assertThat(conn.getBusyStatistics()).allMatch(s -> s.getTimeouts() == 0);
+        }
+    }
+
+    @Test
+    public void retriesInJavaAreRecorded() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setThreadingModel(SQLiteConfig.ThreadingModel.REENTRANT_LOCK);
+        config.setBusyTimeout(5000);
+        try (SQLiteConnection conn =
+                (SQLiteConnection) DriverManager.getConnection(url(), config.toProperties())) {
+            holderStat.execute("begin immediate");
+            CompletableFuture<Void> release =
+                    CompletableFuture.runAsync(
+                            () -> {
+                                try {
+                                    Thread.sleep(200);
+                                    holderStat.execute("commit");
+                                } catch (Exception e) {
+                                    throw new RuntimeException(e);
+                                }
+                            });
+            insert(conn, 1);
+            release.get();
+
+            SQLiteBusyStatistics insert = conn.getBusyStatistics().get(0);
+            assertThat(insert.getSql()).isEqualTo("insert into t values (?)");
+            assertThat(insert.getBusyEvents()).isEqualTo(1);
+            assertThat(insert.getRetries()).isGreaterThan(2);
+            assertThat(insert.getWaitMicros()).isBetween(100_000L, 5_000_000L);
+            assertThat(insert.getTimeouts()).isZero();
+
+            conn.resetBusyStatistics();
+            conn.setBusyTimeout(100);
+            holderStat.execute("begin immediate");
+            try {
+                assertThatThrownBy(() -> insert(conn, 2)).isInstanceOf(SQLiteException.class);
+            } finally {
+                holderStat.execute("commit");
+            }
+            insert = conn.getBusyStatistics().get(0);
+            assertThat(insert.getBusyEvents()).isEqualTo(1);
+            assertThat(insert.getTimeouts()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void timeoutsAreRecorded() throws Exception {
+        try (SQLiteConnection conn = connect(BusyStrategy.BACKOFF, 100)) {
+            holderStat.execute("begin immediate");
+            try {
+                assertThatThrownBy(() -> insert(conn, 1))
+                        .isInstanceOf(SQLiteException.class)
+                        .hasMessageContaining("SQLITE_BUSY");
+            } finally {
+                holderStat.execute("commit");
+            }
+
+            SQLiteBusyStatistics insert = conn.getBusyStatistics().get(0);
+            assertThat(insert.getTimeouts()).isEqualTo(1);
+            assertThat(insert.getWaitMicros()).isGreaterThanOrEqualTo(100_000L);
+
+            // a new timeout keeps the statistics
+            conn.setBusyTimeout(3000);
+            assertThat(conn.getBusyStatistics()).hasSize(1);
+            insert(conn, 2);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package org.sqlite;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
@@ -10,6 +13,8 @@ import java.sql.Statement;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -208,4 +213,128 @@ public class CollationTest {
         Collation.destroy(conn, "c1");
         Collation.destroy(conn, "c1");
     }
+
+    private List<String> ordered(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (ResultSet rs = stat.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void builtinCollations() throws SQLException {
+        Collation.createBuiltin(conn, "UNICASE", Collation.Builtin.UNICODE_NOCASE);
+        Collation.createBuiltin(conn, "NAT", Collation.Builtin.NATURAL);
+        Collation.createBuiltin(conn, "NATCASE", Collation.Builtin.NATURAL_NOCASE);
+        stat.executeUpdate("create table t (c1);");
+        for (String v : new String[] {"file10", "File9", "file1", "Éclair", "éclair2", "zebra"}) {
+            stat.executeUpdate("insert into t values ('" + v + "');");
+        }
+
+        assertThat(ordered("select c1 from t order by c1 collate UNICASE;"))
+                .containsExactly("file1", "file10", "File9", "zebra", "Éclair", "éclair2");
+        assertThat(ordered("select c1 from t order by c1 collate NAT;"))
+                .containsExactly("File9", "file1", "file10", "zebra", "Éclair", "éclair2");
+        assertThat(ordered("select c1 from t order by c1 collate NATCASE;"))
+                .containsExactly("file1", "File9", "file10", "zebra", "Éclair", "éclair2");
+
+        assertThat(ordered("select count(*) from t where c1 = 'ÉCLAIR' collate UNICASE;"))
+                .containsExactly("1");
+        assertThat(ordered("select 'a010' = 'a10' collate NAT, 'a2' < 'a10' collate NAT;"))
+                .containsExactly("1");
+    }
+
+    @Test
+    public void rawCollation() throws SQLException {
+        List<Integer> lengths = new ArrayList<>();
+        Collation.create(
+                conn,
+                "BYLENGTH",
+                new Collation.Raw(StandardCharsets.UTF_8) {
+                    @Override
+                    protected int compare(ByteBuffer str1, ByteBuffer str2) {
+                        lengths.add(str1.remaining());
+                        return Integer.compare(str1.remaining(), str2.remaining());
+                    }
+                });
+        Collation.create(
+                conn,
+                "UTF16",
+                new Collation.Raw(StandardCharsets.UTF_16LE) {
+                    @Override
+                    protected int compare(ByteBuffer str1, ByteBuffer str2) {
+                        return str1.asCharBuffer().compareTo(str2.asCharBuffer());
+                    }
+                });
+        stat.executeUpdate("create table t (c1);");
+        StringBuilder longest = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longest.append("é");
+        }
+        for (String v : new String[] {"ccc", "a", longest.toString(), "bb"}) {
+            stat.executeUpdate("insert into t values ('" + v + "');");
+        }
+
+        assertThat(ordered("select c1 from t order by c1 collate BYLENGTH;"))
+                .containsExactly("a", "bb", "ccc", longest.toString());
+        assertThat(lengths).contains(400);
+        assertThat(ordered("select c1 from t order by c1 collate UTF16;"))
+                .containsExactly("a", "bb", "ccc", longest.toString());
+    }
+
+    @Test
+    public void rawCollationErrorFailsTheQuery() throws SQLException {
+        List<Integer> calls = new ArrayList<>();
+        Collation.create(
+                conn,
+                "FAILING",
+                new Collation.Raw(StandardCharsets.UTF_8) {
+                    @Override
+                    protected int compare(ByteBuffer str1, ByteBuffer str2) {
+                        calls.add(1);
+                        throw new IllegalStateException("no order");
+                    }
+                });
+        // an insert would leave its generated keys active, and with them the interrupt
+        stat.executeUpdate(
+                "create table t as with recursive n(i) as (select 0 union all select i + 1 from n"
+                        + " where i < 99) select cast(i as text) as c1 from n;");
+
+        assertThatThrownBy(() -> ordered("select c1 from t order by c1 collate FAILING;"))
+                .isInstanceOf(SQLiteException.class)
+                .hasMessageContaining("no order")
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .satisfies(
+                        e ->
+                                assertThat(((SQLiteException) e).getResultCode())
+                                        .isEqualTo(SQLiteErrorCode.SQLITE_INTERRUPT));
+        assertThat(calls).hasSize(1);
+        assertThat(ordered("select count(*) from t;")).containsExactly("100");
+
+        // the failure is thrown once, later statements compare again
+        calls.clear();
+        assertThatThrownBy(() -> ordered("select c1 from t order by c1 collate FAILING;"))
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(calls).hasSize(1);
+    }
+
+    @Test
+    public void sortKeyFunction() throws SQLException {
+        Collator collator = Collator.getInstance(Locale.FRENCH);
+        Collation.createSortKeyFunction(conn, "sort_key", collator);
+        stat.executeUpdate("create table t (c1, k blob as (sort_key(c1)) stored);");
+        stat.executeUpdate("create index t_k on t (k);");
+        String[] values = {"zèbre", "Été", "ete", "cote", "côte", "Cote"};
+        for (String v : values) {
+            stat.executeUpdate("insert into t (c1) values ('" + v + "');");
+        }
+
+        String[] expected = values.clone();
+        Arrays.sort(expected, collator);
+        assertThat(ordered("select c1 from t order by k;")).containsExactly(expected);
+        assertThat(ordered("select sort_key(null) is null;")).containsExactly("1");
+    }
 }
@@ -9,6 +9,7 @@ import static org.assertj.core.data.Offset.offset;
 import java.io.ByteArrayInputStream;
 import java.io.StringReader;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.Date;
@@ -290,6 +291,146 @@ public class PrepStmtTest {
         rs.close();
     }
 
+    @Test
+    public void streamsAreBoundInChunks() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setStreamChunkSize(7);
+        try (Connection chunked =
+                        DriverManager.getConnection("jdbc:sqlite:", config.toProperties());
+                Statement s = chunked.createStatement()) {
+            s.executeUpdate("create table t (b blob, s text)");
+            byte[] bytes = new byte[100_003];
+            for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) (i * 31);
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 1000; i++) text.append(utf06);
+
+            PreparedStatement prep = chunked.prepareStatement("insert into t values (?, ?)");
+            prep.setBinaryStream(1, new ByteArrayInputStream(bytes), bytes.length);
+            prep.setCharacterStream(2, new StringReader(text.toString()), text.length());
+            assertThat(prep.executeUpdate()).isEqualTo(1);
+
+            prep.setBinaryStream(1, new ByteArrayInputStream(bytes));
+            prep.setCharacterStream(2, new StringReader(text.toString()));
+            prep.addBatch();
+            prep.setBinaryStream(1, new ByteArrayInputStream(b1), 0);
+            prep.setCharacterStream(2, new StringReader(utf06), 15);
+            prep.addBatch();
+            assertThat(prep.executeBatch()).containsExactly(1, 1);
+
+            assertThatThrownBy(() -> prep.setBinaryStream(1, new ByteArrayInputStream(b1), 21))
+                    .isInstanceOf(SQLException.class);
+            // the declared length is checked against the length limit before it is allocated
+            assertThatThrownBy(
+                            () ->
+                                    prep.setBinaryStream(
+                                            1,
+                                            new ByteArrayInputStream(bytes),
+                                            (long) Integer.MAX_VALUE))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessageContaining("Stream is too long");
+            assertThatThrownBy(() -> prep.setCharacterStream(2, new StringReader(utf06), -1))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessageContaining("non-negative");
+            ((SQLiteConnection) chunked).setLimit(SQLiteLimits.SQLITE_LIMIT_LENGTH, 1000);
+            assertThatThrownBy(() -> prep.setBinaryStream(1, new ByteArrayInputStream(bytes)))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessage("Stream is too long, values are limited to 1000 bytes");
+            assertThatThrownBy(() -> prep.setCharacterStream(2, new StringReader(text.toString())))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessageContaining("Stream is too long");
+            ((SQLiteConnection) chunked).setLimit(SQLiteLimits.SQLITE_LIMIT_LENGTH, 1000000000);
+            prep.close();
+
+            try (ResultSet rs = s.executeQuery("select b, s, typeof(b) from t")) {
+                for (int row = 0; row < 2; row++) {
+                    assertThat(rs.next()).isTrue();
+                    assertThat(rs.getBytes(1)).isEqualTo(bytes);
+                    assertThat(rs.getString(2)).isEqualTo(text.toString());
+                }
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getString(3)).isEqualTo("blob");
+                assertThat(rs.getBytes(1)).isEmpty();
+                assertThat(rs.getString(2)).isEqualTo(utf06.substring(0, 15));
+                assertThat(rs.next()).isFalse();
+            }
+        }
+    }
+
+    @Test
+    public void byteBufferParameters() throws SQLException {
+        stat.executeUpdate("create table t (b, s)");
+        SQLitePreparedStatement prep =
+                conn.prepareStatement("insert into t values (?, ?)")
+                        .unwrap(SQLitePreparedStatement.class);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(8);
+        bytes.put(b1, 0, 8);
+        bytes.position(2);
+        bytes.limit(5);
+        ByteBuffer text = ByteBuffer.allocateDirect(64);
+        text.put(getUtf8Bytes(utf06));
+        text.flip();
+
+        prep.setBytes(1, bytes);
+        prep.setUtf8(2, text);
+        assertThat(prep.executeUpdate()).isEqualTo(1);
+        assertThat(bytes.position()).isEqualTo(2);
+        assertThat(text.position()).isEqualTo(0);
+
+        prep.setBytes(1, ByteBuffer.wrap(b2).asReadOnlyBuffer());
+        prep.setUtf8(2, ByteBuffer.allocateDirect(0));
+        prep.addBatch();
+        prep.setBytes(1, (ByteBuffer) null);
+        prep.setUtf8(2, ByteBuffer.wrap(getUtf8Bytes(utf01)));
+        prep.addBatch();
+        assertThat(prep.executeBatch()).containsExactly(1, 1);
+        prep.close();
+
+        try (ResultSet rs = stat.executeQuery("select b, s, typeof(b), typeof(s) from t")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getBytes(1)).containsExactly(7, 4, 2);
+            assertThat(rs.getString(2)).isEqualTo(utf06);
+            assertThat(rs.getString(3)).isEqualTo("blob");
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getBytes(1)).containsExactly(b2);
+            assertThat(rs.getString(2)).isEmpty();
+            assertThat(rs.getString(4)).isEqualTo("text");
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getBytes(1)).isNull();
+            assertThat(rs.getString(2)).isEqualTo(utf01);
+        }
+    }
+
+    @Test
+    public void directBuffersOfABatchAreReadWhenItRuns() throws SQLException {
+        stat.executeUpdate("create table t (b)");
+        SQLitePreparedStatement prep =
+                conn.prepareStatement("insert into t values (?)")
+                        .unwrap(SQLitePreparedStatement.class);
+        ByteBuffer rows = ByteBuffer.allocateDirect(6);
+        for (int i = 0; i < 3; i++) {
+            rows.put((byte) i).put((byte) (i + 10));
+            rows.position(2 * i).limit(2 * i + 2);
+            prep.setBytes(1, rows.slice());
+            prep.addBatch();
+            rows.limit(6).position(2 * i + 2);
+        }
+        ByteBuffer reused = ByteBuffer.allocateDirect(1);
+        for (int i = 0; i < 2; i++) {
+            reused.put(0, (byte) (20 + i));
+            prep.setBytes(1, reused);
+            prep.addBatch();
+        }
+        assertThat(prep.executeBatch()).containsExactly(1, 1, 1, 1, 1);
+        prep.close();
+
+        try (ResultSet rs = stat.executeQuery("select hex(b) from t order by rowid")) {
+            for (String expected : new String[] {"000A", "010B", "020C", "15", "15"}) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getString(1)).isEqualTo(expected);
+            }
+        }
+    }
+
     @Test
     public void colNameAccess() throws SQLException {
         PreparedStatement prep = conn.prepareStatement("select ? as col1, ? as col2, ? as bingo;");
@@ -552,6 +693,49 @@ public class PrepStmtTest {
         rs.close();
     }
 
+    @Test
+    public void batchMixedTypes() throws SQLException {
+        stat.executeUpdate("create table test (c1 primary key, c2, c3, c4, c5);");
+        PreparedStatement prep = conn.prepareStatement("insert into test values (?,?,?,?,?);");
+        for (int i = 0; i < 3; i++) {
+            prep.setLong(1, Long.MAX_VALUE - i);
+            prep.setDouble(2, i + 0.5);
+            prep.setString(3, utf06 + i);
+            prep.setBytes(4, new byte[] {(byte) i, 0, 1});
+            prep.setNull(5, Types.INTEGER);
+            prep.addBatch();
+        }
+        assertThat(prep.executeLargeBatch()).containsExactly(1, 1, 1);
+
+        ResultSet rs =
+                stat.executeQuery("select c1, c2, c3, c4, typeof(c5) from test order by c1 desc;");
+        for (int i = 0; i < 3; i++) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getLong(1)).isEqualTo(Long.MAX_VALUE - i);
+            assertThat(rs.getDouble(2)).isEqualTo(i + 0.5);
+            assertThat(rs.getString(3)).isEqualTo(utf06 + i);
+            assertThat(rs.getBytes(4)).containsExactly(i, 0, 1);
+            assertThat(rs.getString(5)).isEqualTo("null");
+        }
+        rs.close();
+
+        // the second entry violates the primary key, the first one stays applied
+        prep.setLong(1, 1);
+        prep.addBatch();
+        prep.setLong(1, Long.MAX_VALUE);
+        prep.addBatch();
+        assertThatThrownBy(prep::executeBatch).isInstanceOf(SQLiteException.class);
+        rs = stat.executeQuery("select count(*) from test;");
+        assertThat(rs.getInt(1)).isEqualTo(4);
+        rs.close();
+
+        // the statement remains usable after the failed batch
+        prep.setLong(1, 2);
+        prep.addBatch();
+        assertThat(prep.executeBatch()).containsExactly(1);
+        prep.close();
+    }
+
     @Test
     public void paramMetaData() throws SQLException {
         PreparedStatement prep = conn.prepareStatement("select ?,?,?,?;");
@@ -866,6 +1050,29 @@ public class PrepStmtTest {
         }
     }
 
+    @Test
+    public void getParameterTypeOfCurrentRow() throws SQLException {
+        stat.executeUpdate("create table t_mixed(a, b, c)");
+
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO t_mixed VALUES(?, ?, ?)")) {
+            ps.setInt(1, 1);
+            ps.setString(2, "a");
+            ps.setBytes(3, new byte[] {1});
+            ps.addBatch();
+            ps.setLong(1, 2);
+            ps.setNull(2, Types.VARCHAR);
+            assertThat(ps.getParameterMetaData().getParameterType(1)).isEqualTo(Types.BIGINT);
+            assertThat(ps.getParameterMetaData().getParameterType(2)).isEqualTo(Types.NULL);
+            assertThat(ps.getParameterMetaData().getParameterType(3)).isEqualTo(Types.VARCHAR);
+
+            ps.clearParameters();
+            assertThat(ps.getParameterMetaData().getParameterType(1)).isEqualTo(Types.NULL);
+            assertThatThrownBy(() -> ps.setInt(4, 1))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessage("Parameter index is invalid");
+        }
+    }
+
     @Test
     void getParameterTypeTest_when_no_parameter_set() throws SQLException {
         stat.executeUpdate("create table t_int(i INT)");
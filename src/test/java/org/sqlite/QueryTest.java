@@ -20,9 +20,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Properties;
@@ -128,6 +132,119 @@ public class QueryTest {
         }
     }
 
+    private static Connection javaTimeConnection(String dateClass, String datePrecision)
+            throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setDateClass(dateClass);
+        config.setDatePrecision(datePrecision);
+        config.setJavaTimeDates(true);
+        return DriverManager.getConnection("jdbc:sqlite:", config.toProperties());
+    }
+
+    @Test
+    public void javaTimeDates() throws Exception {
+        Instant instant = Instant.parse("2021-11-09T11:20:58.123456789Z");
+        LocalDateTime dateTime = LocalDateTime.of(2021, 11, 9, 11, 20, 58, 123_456_789);
+        Timestamp timestamp = Timestamp.valueOf(dateTime);
+
+        try (Connection conn = javaTimeConnection("integer", "nanoseconds");
+                PreparedStatement stmt = conn.prepareStatement("select ?, ?, ?, ?")) {
+            stmt.setObject(1, instant);
+            stmt.setObject(2, instant.atOffset(ZoneOffset.ofHours(3)));
+            stmt.setObject(3, dateTime);
+            stmt.setTimestamp(4, timestamp);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertThat(rs.getLong(1)).isEqualTo(1636456858123456789L);
+                assertThat(rs.getLong(2)).isEqualTo(1636456858123456789L);
+                assertThat(rs.getObject(1, Instant.class)).isEqualTo(instant);
+                assertThat(rs.getObject(2, OffsetDateTime.class).toInstant()).isEqualTo(instant);
+                assertThat(rs.getObject(3, LocalDateTime.class)).isEqualTo(dateTime);
+                assertThat(rs.getTimestamp(3)).isEqualTo(timestamp);
+                assertThat(rs.getObject(4, LocalDateTime.class)).isEqualTo(dateTime);
+            }
+            assertThatExceptionOfType(SQLException.class)
+                    .isThrownBy(() -> stmt.setObject(1, Instant.parse("2300-01-01T00:00:00Z")));
+        }
+
+        try (Connection conn = javaTimeConnection("integer", "microseconds");
+                PreparedStatement stmt = conn.prepareStatement("select ?")) {
+            stmt.setObject(1, instant);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertThat(rs.getLong(1)).isEqualTo(1636456858123456L);
+                assertThat(rs.getObject(1, Instant.class))
+                        .isEqualTo(Instant.parse("2021-11-09T11:20:58.123456Z"));
+            }
+        }
+
+        try (Connection conn = javaTimeConnection("integer", "seconds");
+                PreparedStatement stmt =
+                        conn.prepareStatement("select datetime(?, 'unixepoch'), ?")) {
+            stmt.setObject(1, instant);
+            stmt.setObject(2, LocalDate.of(2021, 11, 9));
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertThat(rs.getString(1)).isEqualTo("2021-11-09 11:20:58");
+                assertThat(rs.getObject(2, LocalDate.class)).isEqualTo(LocalDate.of(2021, 11, 9));
+            }
+        }
+
+        // Julian dates hold local times in the default time zone, those of local date and times
+        // their fields, and they are read back as the same instant like timestamps
+        TimeZone defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        try (Connection conn = javaTimeConnection("real", "milliseconds");
+                PreparedStatement stmt =
+                        conn.prepareStatement("select datetime(?), datetime(?), ?, ?")) {
+            stmt.setObject(1, instant);
+            stmt.setObject(2, dateTime);
+            stmt.setObject(3, instant);
+            stmt.setObject(4, instant.atOffset(ZoneOffset.ofHours(3)));
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertThat(rs.getString(1)).isEqualTo("2021-11-09 06:20:58");
+                assertThat(rs.getString(2)).isEqualTo("2021-11-09 11:20:58");
+                assertThat(rs.getObject(3, Instant.class))
+                        .isEqualTo(Instant.parse("2021-11-09T11:20:58.123Z"));
+                assertThat(rs.getObject(3, LocalDateTime.class))
+                        .isEqualTo(LocalDateTime.of(2021, 11, 9, 6, 20, 58, 123_000_000));
+                assertThat(rs.getTimestamp(3).toInstant())
+                        .isEqualTo(Instant.parse("2021-11-09T11:20:58.123Z"));
+                assertThat(rs.getObject(4, OffsetDateTime.class).toInstant())
+                        .isEqualTo(Instant.parse("2021-11-09T11:20:58.123Z"));
+            }
+            assertThatExceptionOfType(SQLException.class)
+                    .isThrownBy(() -> stmt.setObject(3, Instant.MAX))
+                    .withMessageContaining("Date out of range");
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+
+        // without the option, java.time values are stored as text
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = conn.prepareStatement("select ?")) {
+            stmt.setObject(1, instant);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertThat(rs.getString(1)).isEqualTo("2021-11-09T11:20:58.123456789Z");
+            }
+        }
+    }
+
+    @Test
+    public void javaTimeLocalDateInZoneGap() throws Exception {
+        TimeZone defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        // skipped by daylight saving time
+        LocalDateTime dateTime = LocalDateTime.of(2021, 3, 14, 2, 30);
+        try (Connection conn = javaTimeConnection("text", "milliseconds");
+                PreparedStatement stmt = conn.prepareStatement("select ?")) {
+            stmt.setObject(1, dateTime);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertThat(rs.getString(1)).isEqualTo("2021-03-14 02:30:00.000");
+                assertThat(rs.getObject(1, LocalDateTime.class)).isEqualTo(dateTime);
+            }
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
     @Test
     public void dateTimeWithTimeZoneTest() throws Exception {
         Properties properties = new Properties();
@@ -4,6 +4,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.DriverManager;
@@ -14,12 +16,17 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.Calendar;
+import java.util.TimeZone;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.sqlite.date.FastDateFormat;
 
 class ResultSetTest {
 
@@ -357,6 +364,97 @@ class ResultSetTest {
         assertThat(rs.getObject(1, LocalDateTime.class)).isNull();
     }
 
+    @Test
+    void isoDateTimeObjects() throws SQLException {
+        stat.executeUpdate("create table datetime_test(c1)");
+        stat.executeUpdate("insert into datetime_test values ('2021-11-09 11:20:58.125')");
+        stat.executeUpdate("insert into datetime_test values ('2021-11-09T11:20:58.123456789Z')");
+        stat.executeUpdate("insert into datetime_test values ('2021-11-09 11:20+05:30')");
+        stat.executeUpdate("insert into datetime_test values (1636456858125)");
+        stat.executeUpdate("insert into datetime_test values (julianday('2021-11-09 18:00'))");
+
+        ResultSet rs = stat.executeQuery("select * from datetime_test");
+
+        rs.next();
+        LocalDateTime local = LocalDateTime.of(2021, 11, 9, 11, 20, 58, 125_000_000);
+        Timestamp timestamp = Timestamp.valueOf(local);
+        assertThat(rs.getObject(1, LocalDateTime.class)).isEqualTo(local);
+        assertThat(rs.getTimestamp(1)).isEqualTo(timestamp);
+        assertThat(rs.getObject(1, Instant.class).toEpochMilli()).isEqualTo(timestamp.getTime());
+        assertThat(rs.getObject(1, OffsetDateTime.class).toLocalDateTime()).isEqualTo(local);
+
+        rs.next();
+        assertThat(rs.getObject(1, LocalDateTime.class))
+                .isEqualTo(LocalDateTime.of(2021, 11, 9, 11, 20, 58, 123_456_789));
+        assertThat(rs.getObject(1, Instant.class))
+                .isEqualTo(Instant.parse("2021-11-09T11:20:58.123456789Z"));
+
+        rs.next();
+        assertThat(rs.getObject(1, OffsetDateTime.class))
+                .isEqualTo(OffsetDateTime.parse("2021-11-09T11:20+05:30"));
+        assertThat(rs.getObject(1, Instant.class)).isEqualTo(Instant.parse("2021-11-09T05:50:00Z"));
+
+        rs.next();
+        assertThat(rs.getObject(1, Instant.class)).isEqualTo(Instant.ofEpochMilli(1636456858125L));
+
+        // the fields of a Julian date are a local time, with any of the getters
+        rs.next();
+        local = LocalDateTime.of(2021, 11, 9, 18, 0);
+        assertThat(rs.getTimestamp(1)).isEqualTo(Timestamp.valueOf(local));
+        assertThat(rs.getObject(1, LocalDateTime.class)).isEqualTo(local);
+        assertThat(rs.getObject(1, Instant.class).toEpochMilli())
+                .isEqualTo(rs.getTimestamp(1).getTime());
+        assertThat(rs.getObject(1, OffsetDateTime.class).toLocalDateTime()).isEqualTo(local);
+    }
+
+    @Test
+    void isoDateTimeMatchesDateFormat() throws Exception {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        SQLiteConfig config = new SQLiteConfig();
+        config.setDateClass(SQLiteConfig.DateClass.TEXT.getValue());
+        try (Connection textConn =
+                        DriverManager.getConnection("jdbc:sqlite:", config.toProperties());
+                PreparedStatement prep = textConn.prepareStatement("select ?")) {
+            Timestamp timestamp = new Timestamp(1636456858125L);
+            prep.setTimestamp(1, timestamp, utc);
+            try (ResultSet rs = prep.executeQuery()) {
+                assertThat(rs.getString(1)).isEqualTo("2021-11-09 11:20:58.125");
+                assertThat(rs.getTimestamp(1, utc)).isEqualTo(timestamp);
+                assertThat(rs.getDate(1, utc).getTime()).isEqualTo(timestamp.getTime());
+                assertThat(rs.getTime(1, utc).getTime()).isEqualTo(timestamp.getTime());
+            }
+
+            // dates before the Gregorian calendar are handled by the date format
+            prep.setString(1, "1200-03-04 05:06:07.008");
+            try (ResultSet rs = prep.executeQuery()) {
+                assertThat(rs.getTimestamp(1, utc).getTime())
+                        .isEqualTo(
+                                FastDateFormat.getInstance(
+                                                SQLiteConfig.DEFAULT_DATE_STRING_FORMAT,
+                                                utc.getTimeZone())
+                                        .parse("1200-03-04 05:06:07.008")
+                                        .getTime());
+            }
+        }
+    }
+
+    @Test
+    void javaTimeObjectsFollowCustomDateFormat() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setDateStringFormat("yyyy-dd-MM HH:mm:ss");
+        try (Connection formatConn =
+                        DriverManager.getConnection("jdbc:sqlite:", config.toProperties());
+                Statement formatStat = formatConn.createStatement();
+                ResultSet rs = formatStat.executeQuery("select '2021-09-11 11:20:58'")) {
+            // also valid ISO-8601, but for September 11
+            LocalDateTime local = LocalDateTime.of(2021, 11, 9, 11, 20, 58);
+            assertThat(rs.getObject(1, LocalDateTime.class)).isEqualTo(local);
+            assertThat(rs.getObject(1, Instant.class).toEpochMilli())
+                    .isEqualTo(Timestamp.valueOf(local).getTime());
+            assertThat(rs.getObject(1, OffsetDateTime.class).toLocalDateTime()).isEqualTo(local);
+        }
+    }
+
     @Test
     void gh808_getResultSetMetadataAfterReadingLastRow() throws SQLException {
         for (int i = 0; i < 2; i++) {
@@ -375,4 +473,53 @@ class ResultSetTest {
             assertThat(meta.getColumnCount()).isEqualTo(1);
         }
     }
+
+    @Test
+    public void getStringDecodesUtf8() throws SQLException {
+        ResultSet rs =
+                stat.executeQuery(
+                        "select 'ascii', 'a' || char(0) || 'b', 'Müller', '東京', '\uD83D\uDE00',"
+                                + " cast(x'41ff' as text), cast(x'eda080' as text)");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getString(1)).isEqualTo("ascii");
+        assertThat(rs.getString(2)).isEqualTo("a\u0000b");
+        assertThat(rs.getString(3)).isEqualTo("Müller");
+        assertThat(rs.getString(4)).isEqualTo("東京");
+        assertThat(rs.getString(5)).isEqualTo("\uD83D\uDE00");
+        // malformed UTF-8 is replaced the same way new String(bytes, UTF_8) does
+        assertThat(rs.getString(6))
+                .isEqualTo(new String(new byte[] {0x41, (byte) 0xff}, StandardCharsets.UTF_8));
+        assertThat(rs.getString(7))
+                .isEqualTo(
+                        new String(
+                                new byte[] {(byte) 0xed, (byte) 0xa0, (byte) 0x80},
+                                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void getUtf8Bytes() throws SQLException {
+        ResultSet rs = stat.executeQuery("select 'Müller', 42, null");
+        assertThat(rs.next()).isTrue();
+        SQLiteResultSet srs = rs.unwrap(SQLiteResultSet.class);
+
+        ByteBuffer[] buffers = {ByteBuffer.allocate(16), ByteBuffer.allocateDirect(16)};
+        for (ByteBuffer buffer : buffers) {
+            buffer.position(2);
+            assertThat(srs.getUtf8Bytes(1, buffer)).isEqualTo(7);
+            assertThat(buffer.position()).isEqualTo(9);
+            assertThat(srs.getUtf8Bytes(2, buffer)).isEqualTo(2);
+            assertThat(srs.getUtf8Bytes(3, buffer)).isEqualTo(-1);
+            assertThat(srs.wasNull()).isTrue();
+
+            buffer.flip().position(2);
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo("Müller42");
+        }
+
+        // a value that does not fit is not copied
+        ByteBuffer small = ByteBuffer.allocate(4);
+        assertThat(srs.getUtf8Bytes(1, small)).isEqualTo(7);
+        assertThat(small.position()).isZero();
+    }
 }
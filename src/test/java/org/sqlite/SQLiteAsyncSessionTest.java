@@ -0,0 +1,210 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SQLiteAsyncSessionTest {
+    @TempDir File tempDir;
+
+    private SQLiteConnection conn;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        conn =
+                (SQLiteConnection)
+                        DriverManager.getConnection(
+                                "jdbc:sqlite:" + new File(tempDir, "async.db").getAbsolutePath(),
+                                config.toProperties());
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    public void statementsRunInSubmissionOrder() throws Exception {
+        SQLiteAsyncSession session = conn.async();
+        assertThat(conn.async()).isSameAs(session);
+
+        List<CompletableFuture<Integer>> updates = new ArrayList<>();
+        updates.add(session.executeUpdate("create table t (v integer)"));
+        for (int i = 0; i < 50; i++) {
+            updates.add(session.executeUpdate("insert into t values (?)", i));
+        }
+        List<Integer> count =
+                session.executeQuery("select count(*) from t", rs -> rs.getInt(1)).get();
+
+        assertThat(count).containsExactly(50);
+        assertThat(updates.get(50).get()).isEqualTo(1);
+        assertThat(session.executeQuery("select 1", rs -> Thread.currentThread().getName()).get())
+                .allSatisfy(name -> assertThat(name).contains("-writer-"));
+    }
+
+    @Test
+    public void readOnlyQueriesRunOnReaders() throws Exception {
+        SQLiteAsyncSession session = conn.async(2);
+        assertThat(session.getReaderCount()).isEqualTo(2);
+        session.executeUpdate("create table t (v integer)").get();
+        session.executeUpdate("insert into t values (1), (2), (3)").get();
+
+        assertThat(session.executeReadOnlyQuery("select sum(v) from t", rs -> rs.getLong(1)).get())
+                .containsExactly(6L);
+        assertThat(
+                        session.executeReadOnlyQuery(
+                                        "select 1", rs -> Thread.currentThread().getName())
+                                .get())
+                .allSatisfy(name -> assertThat(name).contains("-reader-"));
+        assertThatThrownBy(() -> session.executeReadOnlyQuery("delete from t", rs -> 0).get())
+                .hasCauseInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void forEachRowStreamsTheRows() throws Exception {
+        SQLiteAsyncSession session = conn.async();
+        long[] sum = new long[1];
+        long rows =
+                session.forEachRow(
+                                "with recursive n(i) as (select 1 union all select i + 1 from n"
+                                        + " where i < 100) select i from n",
+                                rs -> sum[0] += rs.getLong(1))
+                        .get();
+        assertThat(rows).isEqualTo(100);
+        assertThat(sum[0]).isEqualTo(5050);
+    }
+
+    @Test
+    public void queryTimeoutInterruptsTheStatement() throws Exception {
+        SQLiteAsyncSession session = conn.async();
+        session.setQueryTimeout(1);
+        CompletableFuture<List<Long>> endless =
+                session.executeQuery(
+                        "with recursive n(i) as (select 1 union all select i + 1 from n)"
+                                + " select count(*) from n",
+                        rs -> rs.getLong(1));
+
+        assertThatThrownBy(endless::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(SQLTimeoutException.class);
+        assertThat(session.executeQuery("select 1", rs -> rs.getInt(1)).get()).containsExactly(1);
+    }
+
+    @Test
+    public void closeRunsThePendingStatementsWithTheirTimeout() throws Exception {
+        SQLiteAsyncSession session = conn.async(1);
+        session.setQueryTimeout(1);
+        session.executeUpdate("create table t (v integer)").get();
+        CompletableFuture<Integer> slow =
+                session.submit(
+                        c -> {
+                            try {
+                                Thread.sleep(200);
+                            } catch (InterruptedException e) {
+                                throw new SQLException(e);
+                            }
+                            return 0;
+                        });
+        CompletableFuture<Integer> insert = session.executeUpdate("insert into t values (1)");
+        CompletableFuture<List<Long>> endless =
+                session.executeQuery(
+                        "with recursive n(i) as (select 1 union all select i + 1 from n)"
+                                + " select count(*) from n",
+                        rs -> rs.getLong(1));
+        CompletableFuture<List<Integer>> read =
+                session.executeReadOnlyQuery("select 1", rs -> rs.getInt(1));
+        session.close();
+
+        assertThat(slow.get()).isZero();
+        assertThat(insert.get()).isEqualTo(1);
+        assertThatThrownBy(endless::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(SQLTimeoutException.class);
+        assertThat(read.get()).containsExactly(1);
+    }
+
+    @Test
+    public void submitRunsWorkOnTheWriter() throws Exception {
+        SQLiteAsyncSession session = conn.async();
+        session.executeUpdate("create table t (v integer)");
+        int changes =
+                session.submit(
+                                (Connection c) -> {
+                                    c.setAutoCommit(false);
+                                    int n =
+                                            c.createStatement()
+                                                    .executeUpdate("insert into t values (1), (2)");
+                                    c.commit();
+                                    c.setAutoCommit(true);
+                                    return n;
+                                })
+                        .get();
+        assertThat(changes).isEqualTo(2);
+    }
+
+    @Test
+    public void closingTheConnectionClosesTheSession() throws Exception {
+        SQLiteAsyncSession session = conn.async();
+        conn.close();
+        assertThat(session.isClosed()).isTrue();
+        assertThatThrownBy(() -> session.executeUpdate("select 1").get())
+                .hasCauseInstanceOf(SQLException.class)
+                .hasMessageContaining("Async session is closed");
+        assertThatThrownBy(conn::async).isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void closingTheConnectionWaitsForThePendingStatements() throws Exception {
+        SQLiteAsyncSession session = conn.async();
+        session.executeUpdate("create table t (v integer)");
+        List<CompletableFuture<Integer>> inserts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            inserts.add(session.executeUpdate("insert into t values (?)", i));
+        }
+        CompletableFuture<Integer> closing =
+                session.submit(
+                        c -> {
+                            c.close();
+                            return 0;
+                        });
+        CompletableFuture<Integer> afterClose = session.executeUpdate("insert into t values (0)");
+        conn.close();
+
+        assertThat(inserts).allMatch(insert -> insert.isDone() && insert.join() == 1);
+        assertThat(closing.get()).isZero();
+        assertThatThrownBy(afterClose::get).hasCauseInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void privateDatabasesCannotHaveReaders() throws Exception {
+        for (String url : new String[] {"jdbc:sqlite:", "jdbc:sqlite::memory:"}) {
+            try (SQLiteConnection memory = (SQLiteConnection) DriverManager.getConnection(url)) {
+                assertThatThrownBy(() -> memory.async(1))
+                        .isInstanceOf(SQLException.class)
+                        .hasMessageContaining("Readers cannot share");
+                assertThat(memory.async().getReaderCount()).isZero();
+            }
+        }
+        try (SQLiteConnection shared =
+                (SQLiteConnection)
+                        DriverManager.getConnection(
+                                "jdbc:sqlite:file:async?mode=memory&cache=shared")) {
+            assertThat(shared.async(1).getReaderCount()).isEqualTo(1);
+        }
+    }
+}
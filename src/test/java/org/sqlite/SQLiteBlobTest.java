@@ -0,0 +1,134 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.sql.Blob;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SQLiteBlobTest {
+    private SQLiteConnection conn;
+    private Statement stat;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        conn = (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:");
+        stat = conn.createStatement();
+        stat.executeUpdate("create table t (id integer primary key, b blob)");
+        stat.executeUpdate("insert into t values (1, zeroblob(200000)), (2, x'0a0b0c')");
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        stat.close();
+        conn.close();
+    }
+
+    @Test
+    public void writeAndReadBuffers() throws SQLException {
+        try (SQLiteBlob blob = conn.openBlob("main", "t", "b", 1, true)) {
+            assertThat(blob.length()).isEqualTo(200000);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(100000);
+            while (direct.hasRemaining()) {
+                direct.put((byte) direct.position());
+            }
+            direct.flip();
+            blob.write(0, direct);
+            assertThat(direct.hasRemaining()).isFalse();
+            blob.write(199998, ByteBuffer.wrap(new byte[] {7, 8}).asReadOnlyBuffer());
+
+            ByteBuffer dst = ByteBuffer.allocateDirect(4);
+            assertThat(blob.read(254, dst)).isEqualTo(4);
+            assertThat(dst.position()).isEqualTo(4);
+            assertThat(dst.get(0)).isEqualTo((byte) 254);
+            assertThat(dst.get(2)).isEqualTo((byte) 0);
+
+            ByteBuffer heap = ByteBuffer.allocate(8);
+            assertThat(blob.read(199998, heap)).isEqualTo(2);
+            assertThat(heap.array()).startsWith(7, 8);
+            assertThat(blob.read(200000, heap)).isEqualTo(-1);
+
+            assertThatThrownBy(() -> blob.write(199999, ByteBuffer.allocate(2)))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessageContaining("past the end of the blob");
+            assertThatThrownBy(() -> blob.truncate(1)).isInstanceOf(SQLException.class);
+        }
+    }
+
+    @Test
+    public void streams() throws Exception {
+        try (SQLiteBlob blob = conn.openBlob("main", "t", "b", 1, true)) {
+            try (OutputStream out = blob.setBinaryStream(199999)) {
+                out.write(new byte[] {1, 2});
+                assertThatThrownBy(() -> out.write(3)).isInstanceOf(IOException.class);
+            }
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            try (InputStream in = blob.getBinaryStream()) {
+                byte[] buf = new byte[7777];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    copy.write(buf, 0, n);
+                }
+            }
+            assertThat(copy.size()).isEqualTo(200000);
+            assertThat(blob.getBytes(199998, 3)).containsExactly(0, 1, 2);
+            assertThat(blob.getBinaryStream(199999, 2).read()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void reopenMovesToAnotherRow() throws SQLException {
+        SQLiteBlob blob = conn.openBlob("main", "t", "b", 2, false);
+        assertThat(blob.getBytes(1, 3)).containsExactly(10, 11, 12);
+        blob.reopen(1);
+        assertThat(blob.length()).isEqualTo(200000);
+        assertThatThrownBy(() -> blob.setBytes(1, new byte[1]))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("read-only");
+        blob.free();
+        blob.free();
+        assertThatThrownBy(blob::length).isInstanceOf(SQLException.class);
+
+        assertThatThrownBy(() -> conn.openBlob("main", "t", "b", 3, false))
+                .isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void getBlobCopiesTheValue() throws Exception {
+        Blob blob;
+        try (ResultSet rs = stat.executeQuery("select b, id, null from t where id = 2")) {
+            assertThat(rs.next()).isTrue();
+            blob = rs.getBlob("b");
+            assertThat(blob).isNotInstanceOf(SQLiteBlob.class);
+            assertThat(rs.getBlob(3)).isNull();
+            assertThat(rs.wasNull()).isTrue();
+        }
+        stat.executeUpdate("update t set b = x'01' where id = 2");
+        assertThat(blob.length()).isEqualTo(3);
+        assertThat(blob.getBytes(1, 3)).containsExactly(10, 11, 12);
+        assertThat(blob.getBytes(2, 5)).containsExactly(11, 12);
+        assertThat(blob.getBinaryStream(3, 1).read()).isEqualTo(12);
+        assertThatThrownBy(() -> blob.getBytes(0, 1)).isInstanceOf(SQLException.class);
+        blob.free();
+        assertThatThrownBy(blob::length).isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void closingTheConnectionFreesOpenBlobs() throws SQLException {
+        SQLiteBlob blob = conn.openBlob("main", "t", "b", 2, false);
+        conn.close();
+        assertThatThrownBy(blob::length).isInstanceOf(SQLException.class);
+    }
+}
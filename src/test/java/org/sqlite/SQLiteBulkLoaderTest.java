@@ -0,0 +1,176 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.core.Codes;
+
+public class SQLiteBulkLoaderTest {
+    @TempDir File tempDir;
+
+    private SQLiteConnection conn;
+    private Statement stat;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        conn =
+                (SQLiteConnection)
+                        DriverManager.getConnection(
+                                "jdbc:sqlite:" + new File(tempDir, "bulk.db").getAbsolutePath());
+        stat = conn.createStatement();
+        stat.executeUpdate("create table t (i integer, d real, x text, b blob)");
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        stat.close();
+        conn.close();
+    }
+
+    private static ReadableByteChannel channel(String content) {
+        return Channels.newChannel(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void loadRowsInChunks() throws SQLException {
+        Spliterator<SQLiteBulkLoader.Row> rows =
+                IntStream.range(0, 10000)
+                        .<SQLiteBulkLoader.Row>mapToObj(
+                                k ->
+                                        new SQLiteBulkLoader.Row() {
+                                            @Override
+                                            public int getType(int col) {
+                                                return col == 4 && k % 2 == 0
+                                                        ? Codes.SQLITE_NULL
+                                                        : col;
+                                            }
+
+                                            @Override
+                                            public long getLong(int col) {
+                                                return k;
+                                            }
+
+                                            @Override
+                                            public double getDouble(int col) {
+                                                return k / 2.0;
+                                            }
+
+                                            @Override
+                                            public String getString(int col) {
+                                                return "v" + k;
+                                            }
+
+                                            @Override
+                                            public byte[] getBytes(int col) {
+                                                return new byte[] {(byte) k};
+                                            }
+                                        })
+                        .spliterator();
+
+        SQLiteBulkLoader loader = conn.bulkLoader("t", "i", "d", "x", "b").setChunkRows(3000);
+        assertThat(loader.load(rows)).isEqualTo(10000);
+        assertThat(loader.getRowCount()).isEqualTo(10000);
+        assertThat(loader.getRowsPerSecond()).isPositive();
+        assertThat(conn.getAutoCommit()).isTrue();
+
+        try (ResultSet rs =
+                stat.executeQuery("select count(*), sum(i), sum(d), count(b), max(x) from t")) {
+            assertThat(rs.getLong(1)).isEqualTo(10000);
+            assertThat(rs.getLong(2)).isEqualTo(49995000);
+            assertThat(rs.getDouble(3)).isEqualTo(24997500.0);
+            assertThat(rs.getLong(4)).isEqualTo(5000);
+            assertThat(rs.getString(5)).isEqualTo("v9999");
+        }
+        try (ResultSet rs = stat.executeQuery("pragma synchronous")) {
+            assertThat(rs.getInt(1)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void loadCsv() throws SQLException {
+        SQLiteBulkLoader loader = conn.bulkLoader("t", "i", "d", "x", "b");
+        String csv = "\uFEFFi,d,x,b\r\n1,2.5,\"a,\"\"b\"\"\nc\",z\r\n\n2,,plain,\n";
+        assertThat(loader.loadCsv(channel(csv), true)).isEqualTo(2);
+
+        try (ResultSet rs = stat.executeQuery("select i, typeof(i), d, x, b from t order by i")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(2)).isEqualTo("integer");
+            assertThat(rs.getDouble(3)).isEqualTo(2.5);
+            assertThat(rs.getString(4)).isEqualTo("a,\"b\"\nc");
+            assertThat(rs.getString(5)).isEqualTo("z");
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(3)).isEmpty();
+            assertThat(rs.getString(4)).isEqualTo("plain");
+        }
+
+        assertThatThrownBy(() -> loader.loadCsv(channel("3,4,5,6\n1,2\n"), false))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("Line 2: expected 4 fields but found 2");
+        try (ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            assertThat(rs.getInt(1)).isEqualTo(2);
+        }
+        assertThat(conn.getAutoCommit()).isTrue();
+        try (ResultSet rs = stat.executeQuery("pragma synchronous")) {
+            assertThat(rs.getInt(1)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void loadJsonLines() throws SQLException {
+        SQLiteBulkLoader loader = conn.bulkLoader("t", "i", "d", "x", "b");
+        String json =
+                "{\"i\": 9223372036854775807, \"d\": -1.5e3, \"x\": \"h\\u00e9\\ud83d\\ude00\","
+                        + " \"extra\": {\"a\": [1, \"}\"]}}\n"
+                        + "\n"
+                        + "{\"i\": -9223372036854775808, \"b\": [1, 2], \"x\": null, \"d\": 7}\n"
+                        + "{\"i\": 18446744073709551616, \"x\": true}";
+        assertThat(loader.loadJsonLines(channel(json))).isEqualTo(3);
+
+        try (ResultSet rs =
+                stat.executeQuery("select i, d, x, b, typeof(i) from t order by rowid")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getLong(1)).isEqualTo(Long.MAX_VALUE);
+            assertThat(rs.getDouble(2)).isEqualTo(-1500.0);
+            assertThat(rs.getString(3)).isEqualTo("hé😀");
+            assertThat(rs.getString(4)).isNull();
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getLong(1)).isEqualTo(Long.MIN_VALUE);
+            assertThat(rs.getString(3)).isNull();
+            assertThat(rs.getString(4)).isEqualTo("[1, 2]");
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(5)).isEqualTo("real");
+            assertThat(rs.getInt(3)).isEqualTo(1);
+        }
+
+        assertThatThrownBy(() -> loader.loadJsonLines(channel("{\"i\": 1}\n{\"i\" 2}")))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("Line 2");
+    }
+
+    @Test
+    public void loadInTheTransactionOfTheCaller() throws SQLException {
+        conn.setAutoCommit(false);
+        conn.bulkLoader("t", "i").loadCsv(channel("1\n2\n"), false);
+        conn.rollback();
+        conn.setAutoCommit(true);
+        try (ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            assertThat(rs.getInt(1)).isEqualTo(0);
+        }
+    }
+}
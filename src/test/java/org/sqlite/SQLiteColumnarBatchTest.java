@@ -0,0 +1,128 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.core.Codes;
+
+public class SQLiteColumnarBatchTest {
+    private Connection conn;
+    private Statement stat;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        stat = conn.createStatement();
+        stat.executeUpdate("create table t (i integer, d real, x text)");
+        stat.executeUpdate(
+                "with recursive n(k) as (select 0 union all select k + 1 from n where k < 2999)"
+                        + " insert into t select case when k % 7 = 0 then null else k end, k * 0.5,"
+                        + " case when k % 5 = 0 then null else printf('row%d', k) end from n");
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        stat.close();
+        conn.close();
+    }
+
+    @Test
+    public void batchesMatchTheRows() throws SQLException {
+        long sum = 0;
+        double doubles = 0;
+        int nulls = 0;
+        int batches = 0;
+        try (SQLiteColumnarBatch batch =
+                stat.unwrap(SQLiteStatement.class).executeColumnar("select i, d, x from t", 1000)) {
+            assertThat(batch.getColumnCount()).isEqualTo(3);
+            assertThat(batch.getColumnName(3)).isEqualTo("x");
+            while (batch.next()) {
+                batches++;
+                assertThat(batch.getRowCount()).isEqualTo(1000);
+                nulls += batch.getNullCount(1);
+                for (int r = 0; r < batch.getRowCount(); r++) {
+                    sum += batch.getLong(1, r);
+                    doubles += batch.getDouble(2, r);
+                }
+            }
+            assertThat(batch.getColumnType(1)).isEqualTo(Codes.SQLITE_INTEGER);
+            assertThat(batch.getColumnType(2)).isEqualTo(Codes.SQLITE_FLOAT);
+            assertThat(batch.getColumnType(3)).isEqualTo(Codes.SQLITE_TEXT);
+        }
+        assertThat(batches).isEqualTo(3);
+
+        try (ResultSet rs =
+                stat.executeQuery("select sum(i), count(*) - count(i), sum(d) from t")) {
+            assertThat(sum).isEqualTo(rs.getLong(1));
+            assertThat(nulls).isEqualTo(rs.getInt(2));
+            assertThat(doubles).isEqualTo(rs.getDouble(3));
+        }
+    }
+
+    @Test
+    public void variableWidthColumnsUseArrowLayout() throws SQLException {
+        try (SQLiteColumnarBatch batch =
+                stat.unwrap(SQLiteStatement.class)
+                        .executeColumnar("select x from t where rowid <= 3 order by rowid", 10)) {
+            assertThat(batch.next()).isTrue();
+            assertThat(batch.getRowCount()).isEqualTo(3);
+            assertThat(batch.isNull(1, 0)).isTrue();
+            assertThat(batch.getString(1, 1)).isEqualTo("row1");
+
+            ByteBuffer validity = batch.getValidityBuffer(1);
+            assertThat(validity.remaining()).isEqualTo(1);
+            assertThat(validity.get(0)).isEqualTo((byte) 0b110);
+
+            ByteBuffer offsets = batch.getOffsetBuffer(1);
+            assertThat(offsets.order()).isEqualTo(ByteOrder.nativeOrder());
+            assertThat(offsets.getInt(0)).isEqualTo(0);
+            assertThat(offsets.getInt(4)).isEqualTo(0);
+            assertThat(offsets.getInt(8)).isEqualTo(4);
+            assertThat(offsets.getInt(12)).isEqualTo(8);
+            assertThat(batch.getDataBuffer(1).remaining()).isEqualTo(8);
+            assertThat(batch.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void largeValuesGrowTheDataBuffer() throws SQLException {
+        try (SQLiteColumnarBatch batch =
+                stat.unwrap(SQLiteStatement.class)
+                        .executeColumnar(
+                                "select zeroblob(5000) union all select zeroblob(100000)", 4)) {
+            assertThat(batch.next()).isTrue();
+            assertThat(batch.getColumnType(1)).isEqualTo(Codes.SQLITE_BLOB);
+            assertThat(batch.getRowCount()).isEqualTo(2);
+            assertThat(batch.getDataBuffer(1).remaining()).isEqualTo(105000);
+        }
+    }
+
+    @Test
+    public void invalidUses() throws SQLException {
+        SQLiteStatement sqliteStat = stat.unwrap(SQLiteStatement.class);
+        assertThatThrownBy(() -> sqliteStat.executeColumnar("create table q (a)", 10))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("query does not return ResultSet");
+        assertThatThrownBy(
+                        () ->
+                                conn.prepareStatement("select 1")
+                                        .unwrap(SQLiteStatement.class)
+                                        .executeColumnar("select 1", 10))
+                .isInstanceOf(SQLException.class);
+
+        SQLiteColumnarBatch batch = sqliteStat.executeColumnar("select 1", 10);
+        stat.close();
+        assertThatThrownBy(batch::next).isInstanceOf(SQLException.class);
+        batch.close();
+    }
+}
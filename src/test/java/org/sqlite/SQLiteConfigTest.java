@@ -2,6 +2,8 @@ package org.sqlite;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
@@ -30,6 +32,11 @@ public class SQLiteConfigTest {
                 .isEqualTo(SQLiteConfig.DateClass.REAL.name());
         assertThat(properties.getProperty(Pragma.JDBC_GET_GENERATED_KEYS.getPragmaName()))
                 .isEqualTo("false");
+        assertThat(properties.getProperty(Pragma.JDBC_JAVA_TIME_DATES.getPragmaName()))
+                .isEqualTo("false");
+
+        config.setJavaTimeDates(true);
+        assertThat(new SQLiteConfig(config.toProperties()).isJavaTimeDates()).isTrue();
     }
 
     @Test
@@ -79,6 +86,40 @@ public class SQLiteConfigTest {
                 .isEqualTo("0");
     }
 
+    @Test
+    public void datePrecision() throws SQLException {
+        SQLiteConfig.DatePrecision seconds = SQLiteConfig.DatePrecision.SECONDS;
+        assertThat(seconds.toEpochMillis(-2)).isEqualTo(-2000);
+        assertThat(seconds.fromEpochMillis(-1500)).isEqualTo(-1);
+        assertThat(seconds.fromEpochSecond(-2, 500_000_000)).isEqualTo(-1);
+
+        SQLiteConfig.DatePrecision micros = SQLiteConfig.DatePrecision.MICROSECONDS;
+        assertThat(micros.toEpochMillis(-1)).isEqualTo(-1);
+        assertThat(micros.toEpochSecond(-1)).isEqualTo(-1);
+        assertThat(micros.toNano(-1)).isEqualTo(999_999_000);
+        assertThat(micros.fromEpochSecond(-1, 999_999_999)).isEqualTo(-1);
+        assertThat(micros.fromEpochMillis(1500)).isEqualTo(1_500_000);
+
+        SQLiteConfig.DatePrecision nanos = SQLiteConfig.DatePrecision.NANOSECONDS;
+        assertThat(nanos.fromEpochSecond(1, 23)).isEqualTo(1_000_000_023);
+        assertThat(nanos.toNano(1_000_000_023)).isEqualTo(23);
+
+        Instant max = Instant.ofEpochSecond(0, Long.MAX_VALUE);
+        assertThat(nanos.fromEpochSecond(max.getEpochSecond(), max.getNano()))
+                .isEqualTo(Long.MAX_VALUE);
+        Instant min = Instant.ofEpochSecond(0, Long.MIN_VALUE);
+        assertThat(nanos.fromEpochSecond(min.getEpochSecond(), min.getNano()))
+                .isEqualTo(Long.MIN_VALUE);
+        Instant y2300 = Instant.parse("2300-01-01T00:00:00Z");
+        assertThatThrownBy(() -> nanos.fromEpochSecond(y2300.getEpochSecond(), 0))
+                .isInstanceOf(SQLException.class);
+        Instant y1600 = Instant.parse("1600-01-01T00:00:00Z");
+        assertThatThrownBy(() -> nanos.fromEpochSecond(y1600.getEpochSecond(), 0))
+                .isInstanceOf(SQLException.class);
+        assertThatThrownBy(() -> seconds.fromEpochSecond(Long.MAX_VALUE / 10, 0))
+                .isInstanceOf(SQLException.class);
+    }
+
     @Test
     public void pragmaSet() {
         Set<String> expectedPragmaSet = new HashSet<>();
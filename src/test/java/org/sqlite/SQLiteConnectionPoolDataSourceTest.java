@@ -16,6 +16,7 @@ package org.sqlite;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -97,6 +98,41 @@ public class SQLiteConnectionPoolDataSourceTest {
         assertThat(failure.get()).isNull();
     }
 
+    @Test
+    public void handleResetsTheConnectionAndNotifiesOnce() throws SQLException {
+        PooledConnection pooledConn = new SQLiteConnectionPoolDataSource().getPooledConnection();
+        List<ConnectionEvent> closed = new ArrayList<>();
+        pooledConn.addConnectionEventListener(
+                new ConnectionEventListener() {
+                    @Override
+                    public void connectionClosed(ConnectionEvent event) {
+                        closed.add(event);
+                    }
+
+                    @Override
+                    public void connectionErrorOccurred(ConnectionEvent event) {}
+                });
+
+        Connection handle = pooledConn.getConnection();
+        assertThat(Proxy.isProxyClass(handle.getClass())).isFalse();
+        assertThat(handle.unwrap(SQLiteConnection.class)).isNotNull();
+        handle.setAutoCommit(false);
+        try (Statement stat = handle.createStatement()) {
+            stat.executeUpdate("create table t (v)");
+        }
+        handle.close();
+        handle.close();
+        assertThat(closed).hasSize(1);
+        assertThat(closed.get(0).getSource()).isSameAs(pooledConn);
+
+        handle = pooledConn.getConnection();
+        assertThat(handle.getAutoCommit()).isTrue();
+        try (Statement stat = handle.createStatement()) {
+            assertThat(stat.executeQuery("select count(*) from sqlite_master").getInt(1)).isZero();
+        }
+        pooledConn.close();
+    }
+
     /** Minimal pool that hands out and takes back pooled connections, like a real pool would. */
     private static class DummyPool implements ConnectionEventListener {
         private final List<PooledConnection> available = new ArrayList<>();
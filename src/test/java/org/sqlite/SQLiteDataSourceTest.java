@@ -10,17 +10,23 @@
 package org.sqlite;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.File;
 import java.nio.ByteOrder;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class SQLiteDataSourceTest {
+    @TempDir File tempDir;
 
     @BeforeEach
     public void setUp() {}
@@ -125,4 +131,56 @@ public class SQLiteDataSourceTest {
                                 .isGetGeneratedKeys())
                 .isTrue();
     }
+
+    @Test
+    public void parallelScan() throws Exception {
+        for (String journalMode : new String[] {"delete", "wal"}) {
+            SQLiteDataSource ds = new SQLiteDataSource();
+            ds.setUrl("jdbc:sqlite:" + new File(tempDir, journalMode + ".db").getAbsolutePath());
+            try (Connection conn = ds.getConnection();
+                    Statement stat = conn.createStatement()) {
+                stat.execute("pragma journal_mode = " + journalMode);
+                stat.executeUpdate("create table t (k text, v integer)");
+                stat.executeUpdate("create index tk on t (k)");
+                stat.executeUpdate(
+                        "with recursive n(i) as (select 1 union all select i + 1 from n"
+                                + " where i < 10000) insert into t select case when i % 100 = 0"
+                                + " then null else printf('%05d', (i * 7919) % 10007) end, i"
+                                + " from n");
+                stat.executeUpdate("create table empty (x)");
+            }
+
+            for (String key : new String[] {null, "k"}) {
+                AtomicLong sum = new AtomicLong();
+                AtomicLongArray rows = new AtomicLongArray(4);
+                long count =
+                        ds.parallelScan(
+                                "t",
+                                key,
+                                4,
+                                (partition, rs) -> {
+                                    sum.addAndGet(rs.getLong("v"));
+                                    rows.incrementAndGet(partition);
+                                });
+                assertThat(count).isEqualTo(10000);
+                assertThat(sum.get()).isEqualTo(50005000);
+                for (int i = 0; i < 4; i++) {
+                    assertThat(rows.get(i)).isBetween(2400L, 2600L);
+                }
+            }
+
+            assertThat(ds.parallelScan("empty", null, 3, (partition, rs) -> {})).isZero();
+            assertThatThrownBy(
+                            () ->
+                                    ds.parallelScan(
+                                            "t",
+                                            null,
+                                            2,
+                                            (partition, rs) -> {
+                                                throw new SQLException("stop");
+                                            }))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessage("stop");
+        }
+    }
 }
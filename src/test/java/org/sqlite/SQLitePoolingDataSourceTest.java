@@ -0,0 +1,151 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.javax.SQLitePoolingDataSource;
+
+public class SQLitePoolingDataSourceTest {
+    @TempDir File tempDir;
+
+    private SQLitePoolingDataSource ds;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        ds =
+                new SQLitePoolingDataSource(
+                        "jdbc:sqlite:" + new File(tempDir, "pool.db").getAbsolutePath(), config);
+        ds.setMaxReaders(2);
+        ds.setConnectionTimeout(200);
+        try (Connection conn = ds.getConnection();
+                Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (v integer)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        ds.close();
+    }
+
+    @Test
+    public void readOnlyConnectionsGoToReaders() throws SQLException {
+        try (Connection conn = ds.getConnection()) {
+            conn.setReadOnly(true);
+            assertThat(conn.isReadOnly()).isTrue();
+            try (Statement stat = conn.createStatement()) {
+                assertThatThrownBy(() -> stat.executeUpdate("insert into t values (1)"))
+                        .isInstanceOf(SQLException.class);
+            }
+            assertThat(ds.getReaderMetrics().getActiveCount()).isEqualTo(1);
+        }
+        assertThat(ds.getReaderMetrics().getActiveCount()).isZero();
+        assertThat(ds.getReaderMetrics().getBorrowCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void readersRunWhileTheWriterIsInATransaction() throws SQLException {
+        try (Connection writer = ds.getConnection()) {
+            writer.setAutoCommit(false);
+            try (Statement stat = writer.createStatement()) {
+                stat.executeUpdate("insert into t values (1)");
+            }
+
+            try (Connection reader = ds.getReadOnlyConnection();
+                    Statement stat = reader.createStatement();
+                    ResultSet rs = stat.executeQuery("select count(*) from t")) {
+                assertThat(rs.getInt(1)).isZero();
+            }
+            writer.commit();
+        }
+    }
+
+    @Test
+    public void closeRollsBackAndReturnsTheWriter() throws SQLException {
+        try (Connection conn = ds.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stat = conn.createStatement()) {
+                stat.executeUpdate("insert into t values (1)");
+            }
+        }
+        try (Connection conn = ds.getConnection();
+                Statement stat = conn.createStatement();
+                ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            assertThat(conn.getAutoCommit()).isTrue();
+            assertThat(rs.getInt(1)).isZero();
+        }
+        assertThat(ds.getWriterMetrics().getBorrowCount()).isEqualTo(3);
+        assertThat(ds.getWriterMetrics().getIdleCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void writersQueueAndTimeOut() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Connection conn = ds.getConnection()) {
+            conn.setAutoCommit(false);
+
+            CountDownLatch started = new CountDownLatch(1);
+            Future<?> waiting =
+                    executor.submit(
+                            () -> {
+                                started.countDown();
+                                try (Connection other = ds.getConnection()) {
+                                    return other.getAutoCommit();
+                                }
+                            });
+            started.await();
+            assertThatThrownBy(waiting::get)
+                    .hasCauseInstanceOf(SQLException.class)
+                    .hasMessageContaining("waiting for a writer connection");
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(ds.getWriterMetrics().getTimeoutCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void readersAreBounded() throws SQLException {
+        try (Connection r1 = ds.getReadOnlyConnection();
+                Connection r2 = ds.getReadOnlyConnection()) {
+            assertThatThrownBy(ds::getReadOnlyConnection)
+                    .isInstanceOf(SQLException.class)
+                    .hasMessageContaining("waiting for a reader connection");
+            assertThat(ds.getReaderMetrics().getActiveCount()).isEqualTo(2);
+        }
+        assertThat(ds.getReaderMetrics().getIdleCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void closedHandle() throws SQLException {
+        Connection conn = ds.getConnection();
+        conn.close();
+        conn.close();
+        assertThat(conn.isClosed()).isTrue();
+        assertThatThrownBy(conn::createStatement)
+                .isInstanceOf(SQLException.class)
+                .hasMessage("Connection is closed");
+    }
+
+    @Test
+    public void closedPool() throws SQLException {
+        ds.close();
+        assertThatThrownBy(ds::getConnection)
+                .isInstanceOf(SQLException.class)
+                .hasMessage("Data source is closed");
+    }
+}
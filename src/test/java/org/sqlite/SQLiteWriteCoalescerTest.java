@@ -0,0 +1,183 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SQLiteWriteCoalescerTest {
+    @TempDir File tempDir;
+
+    private SQLiteConnection conn;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        conn =
+                (SQLiteConnection)
+                        DriverManager.getConnection(
+                                "jdbc:sqlite:" + new File(tempDir, "writes.db").getAbsolutePath());
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (v integer unique)");
+        }
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    private static SQLiteAsyncSession.ConnectionCallback<Integer> insert(int v) {
+        return c -> {
+            try (PreparedStatement prep = c.prepareStatement("insert into t values (?)")) {
+                prep.setInt(1, v);
+                return prep.executeUpdate();
+            }
+        };
+    }
+
+    private int count() throws SQLException {
+        try (Statement stat = conn.createStatement();
+                ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void concurrentUnitsShareCommits() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        try (SQLiteWriteCoalescer coalescer = conn.writeCoalescer(100, 5)) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                int v = i;
+                results.add(callers.submit(() -> coalescer.submit(insert(v)).get()));
+            }
+            for (Future<Integer> result : results) {
+                assertThat(result.get()).isEqualTo(1);
+            }
+            assertThat(coalescer.getUnitCount()).isEqualTo(2000);
+            assertThat(coalescer.getCommitCount()).isBetween(20L, 1000L);
+        } finally {
+            callers.shutdown();
+        }
+        conn.transferOwnership();
+        assertThat(conn.getAutoCommit()).isTrue();
+        assertThat(count()).isEqualTo(2000);
+    }
+
+    @Test
+    public void failedUnitRollsBackOnlyItsSavepoint() throws Exception {
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        try (SQLiteWriteCoalescer coalescer = conn.writeCoalescer(10, 1000)) {
+            results.add(coalescer.submit(insert(1)));
+            results.add(
+                    coalescer.submit(
+                            c -> {
+                                insert(2).run(c);
+                                return insert(1).run(c);
+                            }));
+            results.add(coalescer.submit(insert(3)));
+        }
+        assertThat(results.get(0).get()).isEqualTo(1);
+        assertThatThrownBy(results.get(1)::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(SQLException.class);
+        assertThat(results.get(2).get()).isEqualTo(1);
+
+        conn.transferOwnership();
+        try (Statement stat = conn.createStatement();
+                ResultSet rs = stat.executeQuery("select group_concat(v) from t")) {
+            assertThat(rs.getString(1)).isEqualTo("1,3");
+        }
+    }
+
+    @Test
+    public void batchTakesTheWriteLockBeforeUnitsRun() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout(0);
+        String url = "jdbc:sqlite:" + new File(tempDir, "writes.db").getAbsolutePath();
+        try (SQLiteConnection other = (SQLiteConnection) config.createConnection(url);
+                SQLiteWriteCoalescer coalescer = conn.writeCoalescer(10, 0)) {
+            CompletableFuture<Integer> read =
+                    coalescer.submit(
+                            c -> {
+                                try (Statement stat = other.createStatement()) {
+                                    assertThatThrownBy(() -> stat.execute("begin immediate"))
+                                            .isInstanceOf(SQLiteException.class)
+                                            .hasMessageContaining("SQLITE_BUSY");
+                                }
+                                return 0;
+                            });
+            assertThat(read.get()).isEqualTo(0);
+        }
+        assertThat(conn.getConnectionConfig().getTransactionMode())
+                .isEqualTo(SQLiteConfig.TransactionMode.DEFERRED);
+    }
+
+    @Test
+    public void closedCoalescerRejectsUnits() throws Exception {
+        SQLiteWriteCoalescer coalescer = conn.writeCoalescer(10, 0);
+        CompletableFuture<Integer> before = coalescer.submit(insert(1));
+        coalescer.close();
+        assertThat(coalescer.isClosed()).isTrue();
+        assertThat(before.get()).isEqualTo(1);
+        assertThatThrownBy(() -> coalescer.submit(insert(2)).get())
+                .hasCauseInstanceOf(SQLException.class)
+                .hasMessageContaining("Write coalescer is closed");
+
+        conn.transferOwnership();
+        assertThat(count()).isEqualTo(1);
+    }
+
+    @Test
+    public void unitsRacingCloseAreRunOrRejected() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                SQLiteWriteCoalescer coalescer = conn.writeCoalescer(10, 0);
+                int first = round * 1000;
+                List<Future<CompletableFuture<Integer>>> submitted = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    int v = first + i;
+                    submitted.add(callers.submit(() -> coalescer.submit(insert(v))));
+                }
+                coalescer.close();
+
+                int run = 0;
+                for (Future<CompletableFuture<Integer>> unit : submitted) {
+                    CompletableFuture<Integer> result = unit.get();
+                    try {
+                        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+                        run++;
+                    } catch (ExecutionException e) {
+                        assertThat(e).hasMessageContaining("Write coalescer is closed");
+                    }
+                }
+                conn.transferOwnership();
+                try (Statement stat = conn.createStatement();
+                        ResultSet rs =
+                                stat.executeQuery("select count(*) from t where v >= " + first)) {
+                    assertThat(rs.getInt(1)).isEqualTo(run);
+                }
+            }
+        } finally {
+            callers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.core.StatementCache;
+
+public class StatementCacheTest {
+    private Connection conn;
+
+    @BeforeEach
+    public void connect() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setStatementCacheSize(2);
+        conn = DriverManager.getConnection("jdbc:sqlite:", config.toProperties());
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, name text)");
+        }
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    private StatementCache cache() {
+        return ((SQLiteConnection) conn).getStatementCache();
+    }
+
+    @Test
+    public void disabledByDefault() throws SQLException {
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:")) {
+            assertThat(((SQLiteConnection) c).getStatementCache()).isNull();
+        }
+    }
+
+    @Test
+    public void reusesClosedStatement() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            try (PreparedStatement prep = conn.prepareStatement("insert into t values (?, ?)")) {
+                prep.setInt(1, i);
+                prep.setString(2, "name" + i);
+                assertThat(prep.executeUpdate()).isEqualTo(1);
+            }
+        }
+
+        assertThat(cache().getMissCount()).isEqualTo(1);
+        assertThat(cache().getHitCount()).isEqualTo(2);
+        assertThat(cache().size()).isEqualTo(1);
+
+        try (PreparedStatement prep = conn.prepareStatement("select name from t where id = ?")) {
+            prep.setInt(1, 2);
+            try (ResultSet rs = prep.executeQuery()) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getString("name")).isEqualTo("name2");
+            }
+        }
+        try (PreparedStatement prep = conn.prepareStatement("select name from t where id = ?")) {
+            assertThat(prep.getParameterMetaData().getParameterCount()).isEqualTo(1);
+            assertThat(prep.getMetaData().getColumnName(1)).isEqualTo("name");
+            // bindings of the previous user must not leak into the reused statement
+            try (ResultSet rs = prep.executeQuery()) {
+                assertThat(rs.next()).isFalse();
+            }
+        }
+    }
+
+    @Test
+    public void closedStatementIsUnusable() throws SQLException {
+        PreparedStatement prep = conn.prepareStatement("select 1");
+        prep.close();
+        assertThat(prep.isClosed()).isTrue();
+        assertThatThrownBy(prep::executeQuery).isInstanceOf(SQLException.class);
+
+        // the parked statement is handed to the next user untouched
+        try (PreparedStatement again = conn.prepareStatement("select 1");
+                ResultSet rs = again.executeQuery()) {
+            assertThat(rs.getInt(1)).isEqualTo(1);
+        }
+        assertThat(cache().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws SQLException {
+        conn.prepareStatement("select 1").close();
+        conn.prepareStatement("select 2").close();
+        conn.prepareStatement("select 1").close();
+        conn.prepareStatement("select 3").close();
+
+        assertThat(cache().size()).isEqualTo(2);
+        assertThat(cache().getEvictionCount()).isEqualTo(1);
+
+        conn.prepareStatement("select 2").close();
+        assertThat(cache().getMissCount()).isEqualTo(4);
+        assertThat(cache().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void concurrentStatementsWithSameSql() throws SQLException {
+        PreparedStatement first = conn.prepareStatement("select 1");
+        PreparedStatement second = conn.prepareStatement("select 1");
+        assertThat(first.executeQuery().getInt(1)).isEqualTo(1);
+        assertThat(second.executeQuery().getInt(1)).isEqualTo(1);
+        first.close();
+        second.close();
+
+        assertThat(cache().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void schemaChangesDiscardCachedStatements() throws SQLException {
+        conn.prepareStatement("select * from t").close();
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("alter table t add column extra text");
+        }
+        try (PreparedStatement prep = conn.prepareStatement("select * from t")) {
+            assertThat(prep.getMetaData().getColumnCount()).isEqualTo(3);
+            assertThat(prep.getMetaData().getColumnName(3)).isEqualTo("extra");
+        }
+        assertThat(cache().getHitCount()).isZero();
+        assertThat(cache().getMissCount()).isEqualTo(2);
+
+        try (PreparedStatement prep = conn.prepareStatement("select * from t")) {
+            assertThat(prep.getMetaData().getColumnCount()).isEqualTo(3);
+        }
+        assertThat(cache().getHitCount()).isEqualTo(1);
+        assertThat(cache().toString()).contains("size=1");
+    }
+
+    @Test
+    public void cachedStatementsAreFinalizedOnClose() throws SQLException {
+        conn.prepareStatement("select 1").close();
+        conn.close();
+        assertThat(cache().size()).isZero();
+    }
+
+    @Test
+    public void configProperty() throws SQLException {
+        Properties prop = new Properties();
+        prop.setProperty(SQLiteConfig.Pragma.JDBC_STATEMENT_CACHE_SIZE.pragmaName, "16");
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:", prop)) {
+            assertThat(((SQLiteConnection) c).getStatementCache().getCapacity()).isEqualTo(16);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StatementProfilerTest {
+    private SQLiteConnection conn;
+    private Statement stat;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        conn = (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:");
+        stat = conn.createStatement();
+        stat.executeUpdate("create table t (a integer, b text)");
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        stat.close();
+        conn.close();
+    }
+
+    private static StatementProfiler.Profile profile(StatementProfiler profiler, String sql) {
+        Optional<StatementProfiler.Profile> profile =
+                profiler.snapshot().stream().filter(p -> sql.equals(p.getSql())).findFirst();
+        assertThat(profile).as(sql).isPresent();
+        return profile.get();
+    }
+
+    @Test
+    public void statementsAreAggregatedByNormalizedSql() throws SQLException {
+        StatementProfiler profiler = new StatementProfiler();
+        conn.setStatementProfiler(profiler);
+        assertThat(conn.getStatementProfiler()).isSameAs(profiler);
+
+        for (int i = 0; i < 50; i++) {
+            stat.executeUpdate("insert into t values (" + i + ", 'v" + i + "')");
+        }
+        try (PreparedStatement prep = conn.prepareStatement("select count(*) from t where b = ?")) {
+            for (int i = 0; i < 10; i++) {
+                prep.setString(1, "v" + i);
+                try (ResultSet rs = prep.executeQuery()) {
+                    assertThat(rs.getInt(1)).isEqualTo(1);
+                }
+            }
+        }
+        try (ResultSet rs = stat.executeQuery("select a from t order by b desc")) {
+            while (rs.next()) {}
+        }
+
+        StatementProfiler.Profile insert = profile(profiler, "insert into t values (?, ?)");
+        assertThat(insert.getExecutions()).isEqualTo(50);
+        assertThat(insert.getVmSteps()).isPositive();
+        assertThat(insert.getMaxMemoryUsed()).isPositive();
+        assertThat(insert.getHistogram()).hasSize(StatementProfiler.BUCKETS);
+        assertThat(insert.getPercentileNanos(99)).isLessThanOrEqualTo(insert.getMaxNanos());
+
+        StatementProfiler.Profile count = profile(profiler, "select count(*) from t where b = ?");
+        assertThat(count.getExecutions()).isEqualTo(10);
+        assertThat(count.getFullscanSteps()).isEqualTo(10 * 49);
+
+        StatementProfiler.Profile sorted = profile(profiler, "select a from t order by b desc");
+        assertThat(sorted.getSorts()).isEqualTo(1);
+
+        conn.setStatementProfiler(null);
+        stat.executeUpdate("delete from t");
+        assertThat(profiler.snapshot()).noneMatch(p -> "delete from t".equals(p.getSql()));
+
+        profiler.reset();
+        assertThat(profiler.snapshot()).isEmpty();
+    }
+
+    @Test
+    public void statementsBeyondTheLimitAreCountedTogether() throws SQLException {
+        StatementProfiler profiler = new StatementProfiler(2);
+        conn.setStatementProfiler(profiler);
+        stat.execute("select 1 from t");
+        stat.execute("select 2 from t");
+        stat.execute("select a from t");
+        stat.execute("select b from t");
+
+        List<StatementProfiler.Profile> profiles = profiler.snapshot();
+        assertThat(profiles).hasSize(3);
+        assertThat(profile(profiler, "select ? from t").getExecutions()).isEqualTo(2);
+        assertThat(profiles)
+                .anySatisfy(
+                        p -> {
+                            assertThat(p.getSql()).isNull();
+                            assertThat(p.getExecutions()).isPositive();
+                        });
+    }
+
+    @Test
+    public void failingProfilerStopsTheTrace() throws SQLException {
+        AtomicInteger calls = new AtomicInteger();
+        StatementProfiler failing =
+                new StatementProfiler() {
+                    @Override
+                    public void record(
+                            byte[] sql,
+                            long elapsedNanos,
+                            long fullscanSteps,
+                            long sorts,
+                            long autoindexes,
+                            long vmSteps,
+                            long reprepares,
+                            long memoryUsed) {
+                        calls.incrementAndGet();
+                        throw new IllegalStateException("no profile");
+                    }
+                };
+        conn.setStatementProfiler(failing);
+        stat.executeUpdate("insert into t values (1, 'a')");
+        stat.executeUpdate("insert into t values (2, 'b')");
+        try (ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            assertThat(rs.getInt(1)).isEqualTo(2);
+        }
+        assertThat(calls).hasValue(1);
+
+        StatementProfiler profiler = new StatementProfiler();
+        conn.setStatementProfiler(profiler);
+        stat.executeUpdate("delete from t");
+        assertThat(profile(profiler, "delete from t").getExecutions()).isEqualTo(1);
+    }
+
+    @Test
+    public void normalize() {
+        assertThat(
+                        StatementProfiler.normalize(
+                                "SELECT  *\n FROM \"t 1\" -- comment\n"
+                                        + " WHERE a = -1.5e+3 AND b IN ('x''y', X'ABCD')"
+                                        + " /* block */ AND c2=0x1F"))
+                .isEqualTo("SELECT * FROM \"t 1\" WHERE a = -? AND b IN (?, ?) AND c2=?");
+        assertThat(StatementProfiler.normalize("select [a 1], `b'2` from t3 where x = .5"))
+                .isEqualTo("select [a 1], `b'2` from t3 where x = ?");
+    }
+}
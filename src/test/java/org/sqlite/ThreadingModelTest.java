@@ -0,0 +1,231 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.SQLiteConfig.ThreadingModel;
+
+public class ThreadingModelTest {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @TempDir File tempDir;
+
+    @BeforeEach
+    public void loadDriver() throws ClassNotFoundException {
+        Class.forName("org.sqlite.JDBC");
+    }
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Connection open(ThreadingModel model) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setThreadingModel(model);
+        return DriverManager.getConnection("jdbc:sqlite:", config.toProperties());
+    }
+
+    private static int count(Connection conn) throws SQLException {
+        try (Statement stat = conn.createStatement();
+                ResultSet rs =
+                        stat.executeQuery(
+                                "with recursive n(i) as (select 1 union all select i + 1 from n"
+                                        + " where i < 100) select i from n")) {
+            int rows = 0;
+            while (rs.next()) {
+                rows += rs.getInt(1) > 0 ? 1 : 0;
+            }
+            return rows;
+        }
+    }
+
+    @Test
+    public void defaultIsSerialized() throws Exception {
+        assertThat(new SQLiteConfig().getThreadingModel()).isEqualTo(ThreadingModel.SERIALIZED);
+        try (Connection conn = open(ThreadingModel.SERIALIZED)) {
+            assertThat(executor.submit(() -> count(conn)).get()).isEqualTo(100);
+        }
+    }
+
+    @Test
+    public void configRoundTrip() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setThreadingModel(ThreadingModel.SINGLE_OWNER);
+        assertThat(new SQLiteConfig(config.toProperties()).getThreadingModel())
+                .isEqualTo(ThreadingModel.SINGLE_OWNER);
+    }
+
+    @Test
+    public void singleOwnerRejectsOtherThreads() throws SQLException {
+        try (Connection conn = open(ThreadingModel.SINGLE_OWNER)) {
+            assertThat(count(conn)).isEqualTo(100);
+
+            assertThatThrownBy(() -> executor.submit(() -> count(conn)).get())
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(SQLException.class)
+                    .hasMessageContaining("The connection is owned by thread");
+        }
+    }
+
+    @Test
+    public void singleOwnerTransfersOwnership() throws Exception {
+        try (Connection conn = open(ThreadingModel.SINGLE_OWNER)) {
+            SQLiteConnection sqlite = conn.unwrap(SQLiteConnection.class);
+            int rows =
+                    executor.submit(
+                                    () -> {
+                                        sqlite.transferOwnership();
+                                        return count(conn);
+                                    })
+                            .get();
+            assertThat(rows).isEqualTo(100);
+
+            assertThatThrownBy(() -> count(conn)).isInstanceOf(SQLException.class);
+            sqlite.transferOwnership();
+            assertThat(count(conn)).isEqualTo(100);
+        }
+    }
+
+    @Test
+    public void reentrantLockSharesTheConnection() throws Exception {
+        try (Connection conn = open(ThreadingModel.REENTRANT_LOCK)) {
+            Future<Integer> other = executor.submit(() -> count(conn));
+            assertThat(count(conn)).isEqualTo(100);
+            assertThat(other.get()).isEqualTo(100);
+        }
+    }
+
+    @Test
+    public void reentrantLockWaitsForBusyDatabase() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setThreadingModel(ThreadingModel.REENTRANT_LOCK);
+        config.setBusyTimeout(10_000);
+        String url = "jdbc:sqlite:" + new File(tempDir, "busy.db").getAbsolutePath();
+        try (Connection holder = DriverManager.getConnection(url, config.toProperties());
+                Connection waiter = DriverManager.getConnection(url, config.toProperties())) {
+            try (Statement stat = holder.createStatement()) {
+                stat.executeUpdate("create table t (v)");
+            }
+            holder.setAutoCommit(false);
+            try (Statement stat = holder.createStatement()) {
+                stat.executeUpdate("insert into t values (1)");
+            }
+
+            Future<Integer> insert =
+                    executor.submit(
+                            () -> {
+                                try (Statement stat = waiter.createStatement()) {
+                                    return stat.executeUpdate("insert into t values (2)");
+                                }
+                            });
+            Thread.sleep(200);
+            assertThat(insert.isDone()).isFalse();
+            holder.commit();
+            assertThat(insert.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+
+            holder.setAutoCommit(true);
+            try (Statement stat = holder.createStatement();
+                    ResultSet rs = stat.executeQuery("select count(*) from t")) {
+                assertThat(rs.getInt(1)).isEqualTo(2);
+            }
+        }
+    }
+
+    @Test
+    public void reentrantLockParksBusyPreparedStatements() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setThreadingModel(ThreadingModel.REENTRANT_LOCK);
+        config.setBusyTimeout(10_000);
+        config.setBusyStatistics(true);
+        String url = "jdbc:sqlite:" + new File(tempDir, "prepared.db").getAbsolutePath();
+        try (Connection holder = DriverManager.getConnection(url);
+                SQLiteConnection waiter =
+                        (SQLiteConnection) DriverManager.getConnection(url, config.toProperties());
+                Statement holderStat = holder.createStatement()) {
+            holderStat.executeUpdate("create table t (v)");
+            try (PreparedStatement select = waiter.prepareStatement("select count(*) from t");
+                    PreparedStatement insert =
+                            waiter.prepareStatement("insert into t values (?)")) {
+                holderStat.execute("begin exclusive");
+                holderStat.executeUpdate("insert into t values (1)");
+                Future<Integer> count =
+                        executor.submit(
+                                () -> {
+                                    try (ResultSet rs = select.executeQuery()) {
+                                        return rs.getInt(1);
+                                    }
+                                });
+                Thread.sleep(200);
+                assertThat(count.isDone()).isFalse();
+                holderStat.execute("commit");
+                assertThat(count.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+
+                holderStat.execute("begin exclusive");
+                Future<Integer> inserted =
+                        executor.submit(
+                                () -> {
+                                    insert.setInt(1, 2);
+                                    return insert.executeUpdate();
+                                });
+                Thread.sleep(200);
+                assertThat(inserted.isDone()).isFalse();
+                holderStat.execute("commit");
+                assertThat(inserted.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+            }
+
+            // the waits were retried by parking in Java, the native handler gives up at once
+            assertThat(waiter.getBusyStatistics())
+                    .extracting(SQLiteBusyStatistics::getSql)
+                    .containsExactlyInAnyOrder(
+                            "select count(*) from t", "insert into t values (?)");
+            for (SQLiteBusyStatistics statistics : waiter.getBusyStatistics()) {
+                assertThat(statistics.getBusyEvents()).isEqualTo(1);
+                assertThat(statistics.getRetries()).isGreaterThan(0);
+                assertThat(statistics.getWaitMicros()).isGreaterThanOrEqualTo(100_000L);
+                assertThat(statistics.getTimeouts()).isZero();
+            }
+        }
+    }
+
+    @Test
+    public void reentrantLockGivesUpAfterTheBusyTimeout() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setThreadingModel(ThreadingModel.REENTRANT_LOCK);
+        config.setBusyTimeout(100);
+        String url = "jdbc:sqlite:" + new File(tempDir, "timeout.db").getAbsolutePath();
+        try (Connection holder = DriverManager.getConnection(url, config.toProperties());
+                Connection waiter = DriverManager.getConnection(url, config.toProperties())) {
+            try (Statement stat = holder.createStatement()) {
+                stat.executeUpdate("create table t (v)");
+            }
+            holder.setAutoCommit(false);
+            try (Statement stat = holder.createStatement()) {
+                stat.executeUpdate("insert into t values (1)");
+            }
+
+            try (Statement stat = waiter.createStatement()) {
+                assertThatThrownBy(() -> stat.executeUpdate("insert into t values (2)"))
+                        .isInstanceOf(SQLiteException.class)
+                        .hasMessageContaining("SQLITE_BUSY");
+            }
+            holder.rollback();
+        }
+    }
+}
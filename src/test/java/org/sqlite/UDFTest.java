@@ -1,6 +1,7 @@
 package org.sqlite;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.data.Offset.offset;
 
 import java.sql.Connection;
@@ -11,6 +12,10 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -75,6 +80,141 @@ public class UDFTest {
         }
     }
 
+    @Test
+    public void scalarContext() throws SQLException {
+        AtomicReference<SQLiteFunctionContext> called = new AtomicReference<>();
+        Function.Scalar describe =
+                ctx -> {
+                    StringBuilder sb = new StringBuilder();
+                    for (int i = 0; i < ctx.args(); i++) {
+                        sb.append(ctx.value_type(i)).append(':').append(ctx.value_text(i));
+                        sb.append(' ');
+                    }
+                    called.set(ctx);
+                    ctx.result(sb.toString().trim());
+                };
+        Function.create(conn, "describe", describe, -1, 0);
+        Function.create(conn, "blob", ctx -> ctx.result(ctx.value_blob(0)), 1, 0);
+        Function.create(conn, "fail", ctx -> ctx.error("bad " + ctx.value_int(0)), 1, 0);
+        Function.create(conn, "second", ctx -> ctx.result(ctx.value_int(1)), 1, 0);
+
+        ResultSet rs =
+                stat.executeQuery(
+                        "select describe(1, 2.5, 'x', null, x'41'),"
+                                + " hex(blob(x'0102')), describe();");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getString(1)).isEqualTo("1:1 2:2.5 3:x 5:null 4:A");
+        assertThat(rs.getString(2)).isEqualTo("0102");
+        assertThat(rs.getString(3)).isEmpty();
+        rs.close();
+
+        assertThat(called.get().getConnection()).isSameAs(conn);
+        assertThatThrownBy(() -> called.get().value_int(0))
+                .isInstanceOf(SQLException.class)
+                .hasMessage("not in value access state");
+        assertThatThrownBy(() -> stat.executeQuery("select fail(7);"))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("bad 7");
+        assertThatThrownBy(() -> stat.executeQuery("select second(7);"))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("arg 1 out bounds");
+    }
+
+    @Test
+    public void scalarSharedBetweenConnections() throws Exception {
+        Function.Scalar add = ctx -> ctx.result(ctx.value_long(0) + ctx.value_long(1));
+        String sql =
+                "with recursive c(i) as (select 1 union all select i + 1 from c where i < 10000)"
+                        + " select sum(add2(i, 1)) from c;";
+        int count = 4;
+        List<Connection> conns = new LinkedList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<Long>> sums = new LinkedList<>();
+            for (int i = 0; i < count; i++) {
+                Connection c = DriverManager.getConnection("jdbc:sqlite:");
+                conns.add(c);
+                Function.create(c, "add2", add, 2, Function.FLAG_DETERMINISTIC);
+                sums.add(
+                        executor.submit(
+                                () -> {
+                                    try (Statement s = c.createStatement();
+                                            ResultSet r = s.executeQuery(sql)) {
+                                        return r.getLong(1);
+                                    }
+                                }));
+            }
+            for (Future<Long> sum : sums) {
+                assertThat(sum.get()).isEqualTo(10000L * 10001 / 2 + 10000);
+            }
+        } finally {
+            executor.shutdown();
+            for (Connection c : conns) {
+                c.close();
+            }
+        }
+    }
+
+    @Test
+    public void primitiveFunctions() throws SQLException {
+        Function.createLong(conn, "inc", x -> x + 1, Function.FLAG_DETERMINISTIC);
+        Function.createLong(conn, "mask", (x, y) -> x & y, 0);
+        Function.createDouble(conn, "half", x -> x / 2, 0);
+        Function.createDouble(conn, "hyp", Math::hypot, 0);
+
+        ResultSet rs =
+                stat.executeQuery(
+                        "select inc(41), mask(14, 7), half(5), hyp(3, 4), inc('12'), half('x');");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getObject(1)).isEqualTo(42);
+        assertThat(rs.getObject(2)).isEqualTo(6);
+        assertThat(rs.getDouble(3)).isEqualTo(2.5, offset(0.0001));
+        assertThat(rs.getDouble(4)).isEqualTo(5.0, offset(0.0001));
+        assertThat(rs.getLong(5)).isEqualTo(13);
+        assertThat(rs.getDouble(6)).isEqualTo(0.0, offset(0.0001));
+        rs.close();
+
+        rs = stat.executeQuery("select inc(null), mask(1, null), hyp(null, 2);");
+        assertThat(rs.next()).isTrue();
+        for (int i = 1; i <= 3; i++) {
+            assertThat(rs.getObject(i)).isNull();
+        }
+        rs.close();
+
+        stat.executeUpdate("create table t (x integer);");
+        stat.executeUpdate("create index t_inc on t (inc(x));");
+        for (int i = 0; i < 10; i++) {
+            stat.executeUpdate("insert into t values (" + i + ");");
+        }
+        rs = stat.executeQuery("select sum(x) from t where inc(x) > 5;");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getInt(1)).isEqualTo(5 + 6 + 7 + 8 + 9);
+        rs.close();
+
+        assertThatThrownBy(() -> stat.executeQuery("select mask(1);"))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("wrong number of arguments");
+    }
+
+    @Test
+    public void primitiveFunctionErrors() throws SQLException {
+        Function.createLong(
+                conn,
+                "boom",
+                x -> {
+                    throw new IllegalStateException("boom " + x);
+                },
+                0);
+        assertThatThrownBy(() -> stat.executeQuery("select boom(3);"))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("boom 3");
+
+        Function.destroy(conn, "boom");
+        assertThatThrownBy(() -> stat.executeQuery("select boom(3);"))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("no such function");
+    }
+
     @Test
     public void accessArgs() throws SQLException {
         Function.create(
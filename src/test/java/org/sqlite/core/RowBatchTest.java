@@ -0,0 +1,54 @@
+package org.sqlite.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteConfig;
+
+public class RowBatchTest {
+    private Connection conn;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBatchFetch(true);
+        conn = DriverManager.getConnection("jdbc:sqlite:", config.toProperties());
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    public void bufferShrinksAfterAWideRow() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.setFetchSize(4);
+            try (ResultSet rs =
+                    stat.executeQuery(
+                            "with recursive n(i) as (select 1 union all select i + 1 from n"
+                                    + " where i < 40) select i, zeroblob(case when i = 10 then"
+                                    + " 4000000 else 16 end) from n")) {
+                int wideCapacity = 0;
+                int count = 0;
+                while (rs.next()) {
+                    count++;
+                    assertThat(rs.getBytes(2)).hasSize(count == 10 ? 4000000 : 16);
+                    if (count == 10) {
+                        wideCapacity = ((CoreResultSet) rs).rowBatch.capacity();
+                    }
+                }
+                assertThat(count).isEqualTo(40);
+                assertThat(wideCapacity).isGreaterThanOrEqualTo(4000000);
+                assertThat(((CoreResultSet) rs).rowBatch.capacity()).isLessThan(1000000);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.sqlite.date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteConfig;
+
+public class IsoDateTimeTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final IsoDateTime parser = new IsoDateTime();
+
+    private boolean parse(String text) {
+        byte[] bytes = ("#" + text).getBytes(StandardCharsets.UTF_8);
+        return parser.parse(bytes, 1, bytes.length - 1);
+    }
+
+    @Test
+    public void layouts() {
+        assertThat(parse("2021-11-09 11:20:58.125")).isTrue();
+        assertThat(parser.isDefaultLayout()).isTrue();
+        assertThat(parser.hasOffset()).isFalse();
+        assertThat(parser.toLocalDateTime())
+                .isEqualTo(LocalDateTime.of(2021, 11, 9, 11, 20, 58, 125_000_000));
+
+        assertThat(parse("2021-11-09")).isTrue();
+        assertThat(parser.isDefaultLayout()).isFalse();
+        assertThat(parser.toLocalDateTime()).isEqualTo(LocalDateTime.of(2021, 11, 9, 0, 0));
+
+        assertThat(parse("2021-11-09T11:20")).isTrue();
+        assertThat(parser.toLocalDateTime()).isEqualTo(LocalDateTime.of(2021, 11, 9, 11, 20));
+
+        assertThat(parse("2024-02-29 11:20:58.1")).isTrue();
+        assertThat(parser.isDefaultLayout()).isFalse();
+        assertThat(parser.toLocalDateTime())
+                .isEqualTo(LocalDateTime.of(2024, 2, 29, 11, 20, 58, 100_000_000));
+
+        assertThat(parse("2021-11-09T11:20:58.123456789Z")).isTrue();
+        assertThat(parser.toOffsetDateTime(UTC))
+                .isEqualTo(OffsetDateTime.parse("2021-11-09T11:20:58.123456789Z"));
+
+        assertThat(parse("2021-11-09 11:20:58-04:30")).isTrue();
+        assertThat(parser.hasOffset()).isTrue();
+        assertThat(parser.toOffsetDateTime(UTC))
+                .isEqualTo(OffsetDateTime.parse("2021-11-09T11:20:58-04:30"));
+        assertThat(parse("2021-11-09 11:20:58+0130")).isTrue();
+        assertThat(parser.toInstant(UTC))
+                .isEqualTo(OffsetDateTime.parse("2021-11-09T11:20:58+01:30").toInstant());
+        assertThat(parse("2021-11-09 11:20:58+01")).isTrue();
+
+        String[] invalid = {
+            "",
+            "2021-11-9",
+            "2021/11/09",
+            "2021-02-29",
+            "2021-11-09 24:00",
+            "2021-11-09 11:20:",
+            "2021-11-09 11:20:58.",
+            "2021-11-09 11:20:58.1234567890",
+            "2021-11-09 11:20:58 UTC",
+            "2021-11-09 11:20:58+1",
+        };
+        for (String text : invalid) {
+            assertThat(parse(text)).as(text).isFalse();
+        }
+    }
+
+    @Test
+    public void matchesFastDateFormat() throws ParseException {
+        Random random = new Random(0);
+        for (String id : new String[] {"UTC", "America/New_York", "Australia/Lord_Howe"}) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            FastDateFormat format =
+                    FastDateFormat.getInstance(SQLiteConfig.DEFAULT_DATE_STRING_FORMAT, zone);
+            for (int i = 0; i < 10_000; i++) {
+                // whole half hours hit the daylight saving time transitions
+                long millis = random.nextLong() % 5_000_000_000_000L;
+                if (i % 2 == 0) {
+                    millis -= millis % 1_800_000;
+                }
+                String text = format.format(new Date(millis));
+                String formatted = IsoDateTime.format(millis, zone);
+                if (formatted != null) {
+                    assertThat(formatted).isEqualTo(text);
+                }
+
+                assertThat(parse(text)).as(text).isTrue();
+                if (parser.isDefaultLayout()) {
+                    assertThat(parser.toEpochMillis(zone))
+                            .as(text)
+                            .isEqualTo(format.parse(text).getTime());
+                } else {
+                    assertThat(formatted).isNull();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void resolvesTransitionsLikeFastDateFormat() throws ParseException {
+        // a skipped day, a half hour daylight saving time and changes of the raw offset
+        String[][] transitions = {
+            {"Pacific/Apia", "2011-04-02 03:00:00.000"},
+            {"Pacific/Apia", "2011-12-30 00:00:00.000"},
+            {"Australia/Lord_Howe", "1981-03-01 00:00:00.000"},
+            {"Europe/Amsterdam", "1937-07-01 00:00:00.000"},
+            {"Europe/Amsterdam", "1940-05-16 00:00:00.000"},
+        };
+        for (String[] transition : transitions) {
+            TimeZone zone = TimeZone.getTimeZone(transition[0]);
+            FastDateFormat format =
+                    FastDateFormat.getInstance(SQLiteConfig.DEFAULT_DATE_STRING_FORMAT, zone);
+            FastDateFormat local =
+                    FastDateFormat.getInstance(SQLiteConfig.DEFAULT_DATE_STRING_FORMAT, UTC);
+            long start = local.parse(transition[1]).getTime() - 26 * 3_600_000L;
+            for (long millis = start; millis <= start + 52 * 3_600_000L; millis += 900_000) {
+                String text = local.format(new Date(millis));
+                assertThat(parse(text)).as(text).isTrue();
+                assertThat(parser.toEpochMillis(zone))
+                        .as("%s %s", transition[0], text)
+                        .isEqualTo(format.parse(text).getTime());
+            }
+        }
+    }
+}